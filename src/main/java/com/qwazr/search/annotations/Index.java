@@ -70,4 +70,44 @@ public @interface Index {
     double nrtCachingDirectoryMaxMergeSizeMB() default IndexSettingsDefinition.DEFAULT_NRT_CACHING_DIRECTORY_MERGE_SIZE_MB;
 
     double nrtCachingDirectoryMaxCachedMB() default IndexSettingsDefinition.DEFAULT_NRT_CACHING_DIRECTORY_MAX_CACHED_MB;
+
+    IndexSettingsDefinition.CommitPolicy commitPolicy() default IndexSettingsDefinition.CommitPolicy.PER_REQUEST;
+
+    int commitIntervalMs() default IndexSettingsDefinition.DEFAULT_COMMIT_INTERVAL_MS;
+
+    int commitMaxDocs() default IndexSettingsDefinition.DEFAULT_COMMIT_MAX_DOCS;
+
+    int nrtTargetMaxStaleMs() default 0;
+
+    int nrtTargetMinStaleMs() default IndexSettingsDefinition.DEFAULT_NRT_TARGET_MIN_STALE_MS;
+
+    int bulkThreads() default 0;
+
+    int bulkChunkSize() default IndexSettingsDefinition.DEFAULT_BULK_CHUNK_SIZE;
+
+    int requestCacheSize() default IndexSettingsDefinition.DEFAULT_REQUEST_CACHE_SIZE;
+
+    IndexSettingsDefinition.QueryCachePool queryCachePool() default IndexSettingsDefinition.QueryCachePool.GLOBAL;
+
+    int queryCacheMaxQueries() default IndexSettingsDefinition.DEFAULT_QUERY_CACHE_MAX_QUERIES;
+
+    double queryCacheMaxRamMb() default IndexSettingsDefinition.DEFAULT_QUERY_CACHE_MAX_RAM_MB;
+
+    IndexSettingsDefinition.QueryCachePolicy queryCachePolicy() default
+            IndexSettingsDefinition.QueryCachePolicy.USAGE_TRACKING;
+
+    int queryCacheMinFrequency() default 0;
+
+    IndexSettingsDefinition.SortedSetFacetCounting sortedSetFacetCounting() default
+            IndexSettingsDefinition.SortedSetFacetCounting.GLOBAL_ORDINALS;
+
+    int replicationConcurrency() default IndexSettingsDefinition.DEFAULT_REPLICATION_CONCURRENCY;
+
+    int replicationChunkSizeMb() default IndexSettingsDefinition.DEFAULT_REPLICATION_CHUNK_SIZE_MB;
+
+    boolean replicationFollow() default false;
+
+    int replicationFollowWaitMs() default IndexSettingsDefinition.DEFAULT_REPLICATION_FOLLOW_WAIT_MS;
+
+    double replicationMaxMbPerSec() default 0;
 }
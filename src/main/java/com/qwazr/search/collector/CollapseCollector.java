@@ -19,15 +19,11 @@ package com.qwazr.search.collector;
 import com.qwazr.search.query.lucene.FilteredQuery;
 import it.unimi.dsi.fastutil.floats.Float2ReferenceRBTreeMap;
 import it.unimi.dsi.fastutil.floats.Float2ReferenceSortedMap;
-import it.unimi.dsi.fastutil.ints.Int2FloatMap;
-import it.unimi.dsi.fastutil.ints.Int2FloatOpenHashMap;
 import it.unimi.dsi.fastutil.ints.Int2IntLinkedOpenHashMap;
-import it.unimi.dsi.fastutil.ints.Int2IntMap;
-import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntAVLTreeSet;
 import it.unimi.dsi.fastutil.ints.IntSortedSet;
 import it.unimi.dsi.fastutil.objects.Object2BooleanLinkedOpenHashMap;
-import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.search.LeafCollector;
@@ -38,6 +34,7 @@ import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.RoaringDocIdSet;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -57,25 +54,40 @@ public class CollapseCollector extends BaseCollector<CollapseCollector.Query, Co
 
     @Override
     public Leaf newLeafCollector(final LeafReaderContext context) throws IOException {
-        return new Leaf(fieldName, context);
+        return new Leaf(fieldName, maxRows, context);
     }
 
-    private void reduce(final GroupQueue groupQueue,
-                        final Map<LeafReaderContext, RoaringDocIdSet> docIdMaps,
-                        final Int2IntLinkedOpenHashMap collapsedMap) {
+    @Override
+    final public Query reduce(final List<CollapseCollector> leafCollectors) {
+
+        final GroupQueue groupQueue = new GroupQueue(maxRows);
+
+        // Fill the priority queue with the top groups of each segment
+        leafCollectors.forEach(collector -> collector.getLeaves().forEach(leaf -> leaf.reduce(groupQueue)));
 
-        // Fill the priority queue which the results of each segments
-        getLeaves().forEach(leaf -> leaf.reduce(groupQueue));
+        // A group may have been collected by a segment where it was not a top group
+        for (final GroupLeader groupLeader : groupQueue.groupLeaders.values()) {
+            int count = 0;
+            for (final CollapseCollector collector : leafCollectors)
+                for (final Leaf leaf : collector.getLeaves())
+                    count += leaf.getCount(groupLeader.bytesRef);
+            groupLeader.collapsedCount = count - 1;
+        }
 
+        // Stores for each doc the number of collapsed documents
+        final Int2IntLinkedOpenHashMap collapsedMap = new Int2IntLinkedOpenHashMap(groupQueue.groupLeaders.size());
 
         // The DocID must be sorted and grouped by segment
         final Map<LeafReaderContext, IntSortedSet> sortedInts = new HashMap<>();
+        long collapsedCount = 0;
         for (final GroupLeader groupLeader : groupQueue.groupLeaders.values()) {
             sortedInts.computeIfAbsent(groupLeader.context, ctx -> new IntAVLTreeSet()).add(groupLeader.doc);
             collapsedMap.addTo(groupLeader.context.docBase + groupLeader.doc, groupLeader.collapsedCount);
+            collapsedCount += groupLeader.collapsedCount;
         }
 
         // Now we can build the bitsets
+        final Map<LeafReaderContext, RoaringDocIdSet> docIdMaps = new HashMap<>();
         sortedInts.forEach((ctx, sortedInt) -> {
             final RoaringDocIdSet.Builder builder = new RoaringDocIdSet.Builder(ctx.reader().maxDoc());
             sortedInt.forEach((IntConsumer) builder::add);
@@ -83,49 +95,47 @@ public class CollapseCollector extends BaseCollector<CollapseCollector.Query, Co
         });
 
         // Add empty bitset for unassigned leaf
-        getLeaves().forEach(leaf -> docIdMaps.putIfAbsent(leaf.context,
-                new RoaringDocIdSet.Builder(leaf.context.reader().maxDoc()).build()));
-    }
-
-    @Override
-    final public Query reduce(final List<CollapseCollector> leafCollectors) {
-
-        final Map<LeafReaderContext, RoaringDocIdSet> docIdMaps = new HashMap<>();
-        final GroupQueue groupQueue = new GroupQueue(maxRows);
-        // Stores for each doc the number of collapsed documents
-        final Int2IntLinkedOpenHashMap collapsedMap = new Int2IntLinkedOpenHashMap(groupQueue.groupLeaders.size());
-
-        leafCollectors.forEach(collector -> collector.reduce(groupQueue, docIdMaps, collapsedMap));
-
-        long collapsedCount = 0;
-        for (final GroupLeader groupLeader : groupQueue.groupLeaders.values())
-            collapsedCount += groupLeader.collapsedCount;
+        leafCollectors.forEach(collector -> collector.getLeaves()
+                .forEach(leaf -> docIdMaps.putIfAbsent(leaf.context,
+                        new RoaringDocIdSet.Builder(leaf.context.reader().maxDoc()).build())));
 
         return new Query(new FilteredQuery(docIdMaps), collapsedMap, collapsedCount);
     }
 
+    /**
+     * The groups are the ordinals of the segment, bounded by the number of documents of the segment.
+     * The best document, its score and the number of documents of each group are stored in arrays indexed by
+     * ordinal. The top groups of the segment are kept in a min-heap which is updated as the documents are
+     * collected.
+     */
     final static class Leaf implements LeafCollector {
 
         private final LeafReaderContext context;
         private final SortedDocValues sdv;
-        private final Int2IntMap docIds;
-        private final Int2FloatMap scores;
-        private final Int2IntMap count;
-        private final int docBase;
+        private final int maxRows;
+        private final int[] docIds;
+        private final float[] scores;
+        private final int[] counts;
+
+        // Min-heap of the ordinals of the top groups, and the position of each ordinal in the heap (-1 if absent)
+        private final int[] heap;
+        private final int[] heapPositions;
+        private int heapSize;
 
         private Scorable scorer;
 
-        private Leaf(final String fieldName, final LeafReaderContext context) throws IOException {
+        private Leaf(final String fieldName, final int maxRows, final LeafReaderContext context) throws IOException {
             this.context = context;
-            final LeafReader reader = context.reader();
-            sdv = reader.getSortedDocValues(fieldName);
-            final int numDocs = reader.numDocs();
-            docIds = new Int2IntOpenHashMap(numDocs);
-            scores = new Int2FloatOpenHashMap(numDocs);
-            scores.defaultReturnValue(-1);
-            count = new Int2IntOpenHashMap(numDocs);
-            count.defaultReturnValue(0);
-            docBase = context.docBase;
+            sdv = DocValues.getSorted(context.reader(), fieldName);
+            this.maxRows = maxRows;
+            final int valueCount = sdv.getValueCount();
+            docIds = new int[valueCount];
+            scores = new float[valueCount];
+            counts = new int[valueCount];
+            heap = new int[Math.min(maxRows, valueCount)];
+            heapPositions = new int[valueCount];
+            Arrays.fill(heapPositions, -1);
+            heapSize = 0;
         }
 
         @Override
@@ -134,31 +144,96 @@ public class CollapseCollector extends BaseCollector<CollapseCollector.Query, Co
         }
 
         void reduce(final GroupQueue groupQueue) {
-            docIds.keySet().forEach((IntConsumer) ord -> {
+            for (int i = 0; i < heapSize; i++) {
+                final int ord = heap[i];
                 try {
-                    groupQueue.offer(sdv.lookupOrd(ord), scores.get(ord), count.get(ord),
-                            (bytesRef, score, collapsedCount) -> new GroupLeader(context, bytesRef, docIds.get(ord) + docBase,
+                    groupQueue.offer(sdv.lookupOrd(ord), scores[ord], counts[ord],
+                            (bytesRef, score, collapsedCount) -> new GroupLeader(context, bytesRef, docIds[ord],
                                     score, collapsedCount));
                 }
                 catch (IOException e) {
                     throw new RuntimeException(e);
                 }
-            });
+            }
+        }
+
+        int getCount(final BytesRef bytesRef) {
+            try {
+                final int ord = sdv.lookupTerm(bytesRef);
+                return ord < 0 ? 0 : counts[ord];
+            }
+            catch (IOException e) {
+                throw new RuntimeException(e);
+            }
         }
 
         @Override
         final public void collect(final int doc) throws IOException {
-            sdv.advance(doc);
-            final int ord = sdv.ordValue();
-            if (ord == -1)
+            if (!sdv.advanceExact(doc))
                 return;
+            final int ord = sdv.ordValue();
             final float score = scorer.score();
-            final float oldScore = scores.get(ord);
-            if (score > oldScore) {
-                scores.put(ord, score);
-                docIds.put(ord, doc);
+            if (counts[ord]++ == 0 || score > scores[ord]) {
+                scores[ord] = score;
+                docIds[ord] = doc;
+                offer(ord);
+            }
+        }
+
+        private void offer(final int ord) {
+            final int position = heapPositions[ord];
+            if (position >= 0) {
+                // The score of the group has increased
+                siftDown(position);
+                return;
+            }
+            if (heapSize < heap.length) {
+                heap[heapSize] = ord;
+                heapPositions[ord] = heapSize;
+                siftUp(heapSize++);
+                return;
+            }
+            if (heapSize == 0 || scores[ord] <= scores[heap[0]])
+                return;
+            heapPositions[heap[0]] = -1;
+            heap[0] = ord;
+            heapPositions[ord] = 0;
+            siftDown(0);
+        }
+
+        private void siftUp(int position) {
+            final int ord = heap[position];
+            while (position > 0) {
+                final int parent = (position - 1) >>> 1;
+                if (scores[heap[parent]] <= scores[ord])
+                    break;
+                move(parent, position);
+                position = parent;
+            }
+            heap[position] = ord;
+            heapPositions[ord] = position;
+        }
+
+        private void siftDown(int position) {
+            final int ord = heap[position];
+            while (true) {
+                int child = (position << 1) + 1;
+                if (child >= heapSize)
+                    break;
+                if (child + 1 < heapSize && scores[heap[child + 1]] < scores[heap[child]])
+                    child++;
+                if (scores[ord] <= scores[heap[child]])
+                    break;
+                move(child, position);
+                position = child;
             }
-            count.put(ord, count.get(ord) + 1);
+            heap[position] = ord;
+            heapPositions[ord] = position;
+        }
+
+        private void move(final int from, final int to) {
+            heap[to] = heap[from];
+            heapPositions[heap[to]] = to;
         }
     }
 
@@ -22,21 +22,37 @@ import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.util.BytesRef;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Doc values access by global doc id.
+ * The doc values iterators are opened once per leaf and per field, and walked forward with advanceExact:
+ * the documents should be read in doc id order. Reading a previous document reopens the iterator.
+ * Several threads can share an instance as long as each leaf is read by only one thread at a time.
+ */
 public class MultiReader {
 
     final int[] docBases;
     final LeafReader[] leafReaders;
 
+    private final Map<String, Cursors<NumericDocValues>> numericCursors;
+    private final Map<String, Cursors<SortedDocValues>> sortedCursors;
+    private final Map<String, Cursors<BinaryDocValues>> binaryCursors;
+    private final Map<String, Cursors<SortedNumericDocValues>> sortedNumericCursors;
+    private final Map<String, Cursors<SortedSetDocValues>> sortedSetCursors;
+
     public MultiReader(final IndexReader reader) {
         docBases = new int[reader.leaves().size()];
         leafReaders = new LeafReader[docBases.length];
@@ -45,63 +61,50 @@ public class MultiReader {
             docBases[i] = leafReaderContext.docBase;
             leafReaders[i++] = leafReaderContext.reader();
         }
+        numericCursors = new ConcurrentHashMap<>();
+        sortedCursors = new ConcurrentHashMap<>();
+        binaryCursors = new ConcurrentHashMap<>();
+        sortedNumericCursors = new ConcurrentHashMap<>();
+        sortedSetCursors = new ConcurrentHashMap<>();
     }
 
     final static int NOT_FOUND = -1;
 
     int getLeafReader(final int docId) {
-        int i = NOT_FOUND;
-        for (final int docBase : docBases) {
-            if (docBase > docId)
-                break;
-            i++;
-        }
-        return i <= docBases.length ? i : NOT_FOUND;
+        if (docBases.length == 0 || docId < 0)
+            return NOT_FOUND;
+        return ReaderUtil.subIndex(docId, docBases);
     }
 
     long getNumericDocValues(final int docId, final String field) throws IOException {
-        final int pos = getLeafReader(docId);
-        if (pos == NOT_FOUND)
-            return 0;
-        final NumericDocValues docValues = leafReaders[pos].getNumericDocValues(field);
-        if (docValues == null)
-            return 0;
-        docValues.advance(docId - docBases[pos]);
-        return docValues.longValue();
+        final NumericDocValues docValues = numericCursors.computeIfAbsent(field,
+                f -> new Cursors<>(leaf -> leaf.getNumericDocValues(f), NumericDocValues::advanceExact))
+                .advanceExact(docId);
+        return docValues == null ? 0 : docValues.longValue();
     }
 
     BytesRef getSortedDocValues(final int docId, final String field) throws IOException {
-        final int pos = getLeafReader(docId);
-        if (pos == NOT_FOUND)
-            return BytesRefUtils.EMPTY;
-        final SortedDocValues docValues = leafReaders[pos].getSortedDocValues(field);
-        if (docValues == null)
-            return BytesRefUtils.EMPTY;
-        docValues.advance(docId - docBases[pos]);
-        return BytesRef.deepCopyOf(docValues.binaryValue());
+        final SortedDocValues docValues = sortedCursors.computeIfAbsent(field,
+                f -> new Cursors<>(leaf -> leaf.getSortedDocValues(f), SortedDocValues::advanceExact))
+                .advanceExact(docId);
+        return docValues == null ? BytesRefUtils.EMPTY : BytesRef.deepCopyOf(docValues.binaryValue());
     }
 
     BytesRef getBinaryDocValues(final int docId, final String field) throws IOException {
-        final int pos = getLeafReader(docId);
-        if (pos == NOT_FOUND)
-            return BytesRefUtils.EMPTY;
-        final BinaryDocValues docValues = leafReaders[pos].getBinaryDocValues(field);
-        if (docValues == null)
-            return BytesRefUtils.EMPTY;
-        docValues.advance(docId - docBases[pos]);
-        return docValues.binaryValue();
+        final BinaryDocValues docValues = binaryCursors.computeIfAbsent(field,
+                f -> new Cursors<>(leaf -> leaf.getBinaryDocValues(f), BinaryDocValues::advanceExact))
+                .advanceExact(docId);
+        return docValues == null ? BytesRefUtils.EMPTY : docValues.binaryValue();
     }
 
     final static long[] empty = new long[0];
 
     long[] getSortedNumericDocValues(final int docId, final String field) throws IOException {
-        final int pos = getLeafReader(docId);
-        if (pos == NOT_FOUND)
-            return empty;
-        final SortedNumericDocValues docValues = leafReaders[pos].getSortedNumericDocValues(field);
+        final SortedNumericDocValues docValues = sortedNumericCursors.computeIfAbsent(field,
+                f -> new Cursors<>(leaf -> leaf.getSortedNumericDocValues(f), SortedNumericDocValues::advanceExact))
+                .advanceExact(docId);
         if (docValues == null)
             return empty;
-        docValues.advance(docId - docBases[pos]);
         final int count = docValues.docValueCount();
         if (count == 0)
             return empty;
@@ -112,13 +115,11 @@ public class MultiReader {
     }
 
     List<String> getSortedSetDocValues(final int docId, final String field) throws IOException {
-        final int pos = getLeafReader(docId);
-        if (pos == NOT_FOUND)
-            return Collections.emptyList();
-        final SortedSetDocValues docValues = leafReaders[pos].getSortedSetDocValues(field);
+        final SortedSetDocValues docValues = sortedSetCursors.computeIfAbsent(field,
+                f -> new Cursors<>(leaf -> leaf.getSortedSetDocValues(f), SortedSetDocValues::advanceExact))
+                .advanceExact(docId);
         if (docValues == null)
             return Collections.emptyList();
-        docValues.advance(docId - docBases[pos]);
         final List<String> values = new ArrayList<>();
         long ord;
         while ((ord = docValues.nextOrd()) != SortedSetDocValues.NO_MORE_ORDS)
@@ -126,4 +127,53 @@ public class MultiReader {
         return values;
     }
 
+    @FunctionalInterface
+    private interface Opener<T extends DocIdSetIterator> {
+        T open(LeafReader leafReader) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Advancer<T extends DocIdSetIterator> {
+        boolean advanceExact(T iterator, int target) throws IOException;
+    }
+
+    /**
+     * The doc values iterators of one field, one per leaf
+     */
+    private final class Cursors<T extends DocIdSetIterator> {
+
+        private final Opener<T> opener;
+        private final Advancer<T> advancer;
+        private final List<T> iterators;
+        private final boolean[] missing;
+
+        private Cursors(final Opener<T> opener, final Advancer<T> advancer) {
+            this.opener = opener;
+            this.advancer = advancer;
+            this.iterators = new ArrayList<>(Collections.nCopies(leafReaders.length, null));
+            this.missing = new boolean[leafReaders.length];
+        }
+
+        /**
+         * @return the iterator positioned on the document, or null if the document has no value
+         */
+        private T advanceExact(final int docId) throws IOException {
+            final int pos = getLeafReader(docId);
+            if (pos == NOT_FOUND || missing[pos])
+                return null;
+            final int target = docId - docBases[pos];
+            T iterator = iterators.get(pos);
+            // The iterators only go forward (the values of a document can be read only once)
+            if (iterator == null || iterator.docID() >= target) {
+                iterator = opener.open(leafReaders[pos]);
+                if (iterator == null) {
+                    missing[pos] = true;
+                    return null;
+                }
+                iterators.set(pos, iterator);
+            }
+            return advancer.advanceExact(iterator, target) ? iterator : null;
+        }
+    }
+
 }
@@ -30,6 +30,8 @@ import org.apache.lucene.search.SortField;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.NumericUtils;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 class SmartFieldProviders {
 
 	enum FieldPrefix {
@@ -54,34 +56,81 @@ class SmartFieldProviders {
 		}
 	}
 
+	/**
+	 * The prefixed name of each field is computed once. The wildcard fields share a bounded cache.
+	 */
+	private static final class FieldNames {
+
+		private final static int MAX_CACHED_NAMES = 4096;
+
+		private final String prefix;
+		private final String genericFieldName;
+		private final String genericName;
+		private final ConcurrentHashMap<String, String> names;
+
+		FieldNames(final String prefix, final String genericFieldName) {
+			this.prefix = prefix;
+			this.genericFieldName = genericFieldName;
+			this.genericName = genericFieldName == null ? null : prefix.concat(genericFieldName);
+			this.names = new ConcurrentHashMap<>();
+		}
+
+		final String get(final String fieldName) {
+			if (fieldName.equals(genericFieldName))
+				return genericName;
+			final String name = names.get(fieldName);
+			if (name != null)
+				return name;
+			final String newName = prefix.concat(fieldName);
+			if (names.size() < MAX_CACHED_NAMES)
+				names.putIfAbsent(fieldName, newName);
+			return newName;
+		}
+	}
+
 	private abstract static class FieldProviderByType {
 
-		private final FieldPrefix fieldPrefix;
 		protected final String genericFieldName;
+		private final FieldNames textNames;
+		private final FieldNames longNames;
+		private final FieldNames integerNames;
+		private final FieldNames doubleNames;
+		private final FieldNames floatNames;
 
 		FieldProviderByType(final FieldPrefix fieldPrefix, final String genericFieldName) {
-			this.fieldPrefix = fieldPrefix;
 			this.genericFieldName = genericFieldName;
+			textNames = new FieldNames(
+					String.valueOf(new char[] { fieldPrefix.prefix, TypePrefix.textType.prefix, '€' }),
+					genericFieldName);
+			// The numeric prefixes are the sum of the two chars, the names of the existing indexes depend on it
+			longNames = new FieldNames(String.valueOf(fieldPrefix.prefix + TypePrefix.longType.prefix),
+					genericFieldName);
+			integerNames = new FieldNames(String.valueOf(fieldPrefix.prefix + TypePrefix.intType.prefix),
+					genericFieldName);
+			doubleNames = new FieldNames(String.valueOf(fieldPrefix.prefix + TypePrefix.doubleType.prefix),
+					genericFieldName);
+			floatNames = new FieldNames(String.valueOf(fieldPrefix.prefix + TypePrefix.floatType.prefix),
+					genericFieldName);
 		}
 
 		final String getTextName(String fieldName) {
-			return String.valueOf(new char[] { fieldPrefix.prefix, TypePrefix.textType.prefix, '€' }).concat(fieldName);
+			return textNames.get(fieldName);
 		}
 
 		final String getLongName(String fieldName) {
-			return fieldPrefix.prefix + TypePrefix.longType.prefix + fieldName;
+			return longNames.get(fieldName);
 		}
 
 		final String getIntegerName(String fieldName) {
-			return fieldPrefix.prefix + TypePrefix.intType.prefix + fieldName;
+			return integerNames.get(fieldName);
 		}
 
 		final String getDoubleName(String fieldName) {
-			return fieldPrefix.prefix + TypePrefix.doubleType.prefix + fieldName;
+			return doubleNames.get(fieldName);
 		}
 
 		final String getFloatName(String fieldName) {
-			return fieldPrefix.prefix + TypePrefix.floatType.prefix + fieldName;
+			return floatNames.get(fieldName);
 		}
 
 	}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Objects;
+
+/**
+ * The admission limits of a lane (search, write or maintenance) of an index.
+ * A missing value means no limit.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+@JsonAutoDetect(creatorVisibility = JsonAutoDetect.Visibility.NONE,
+        getterVisibility = JsonAutoDetect.Visibility.NONE,
+        setterVisibility = JsonAutoDetect.Visibility.NONE,
+        isGetterVisibility = JsonAutoDetect.Visibility.NONE,
+        fieldVisibility = JsonAutoDetect.Visibility.NONE)
+public class AdmissionDefinition {
+
+    /**
+     * The maximum number of requests running concurrently
+     */
+    @JsonProperty("max_concurrent")
+    final public Integer maxConcurrent;
+
+    /**
+     * The maximum number of requests waiting for a slot. Beyond, the request is rejected (429).
+     */
+    @JsonProperty("max_queue")
+    final public Integer maxQueue;
+
+    /**
+     * The maximum time a request waits for a slot. Beyond, the request fails (503).
+     */
+    @JsonProperty("max_wait_ms")
+    final public Integer maxWaitMs;
+
+    @JsonCreator
+    private AdmissionDefinition(@JsonProperty("max_concurrent") final Integer maxConcurrent,
+            @JsonProperty("max_queue") final Integer maxQueue, @JsonProperty("max_wait_ms") final Integer maxWaitMs) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    private AdmissionDefinition(final Builder builder) {
+        this(builder.maxConcurrent, builder.maxQueue, builder.maxWaitMs);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(maxConcurrent, maxQueue, maxWaitMs);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (!(o instanceof AdmissionDefinition))
+            return false;
+        if (o == this)
+            return true;
+        final AdmissionDefinition a = (AdmissionDefinition) o;
+        return Objects.equals(maxConcurrent, a.maxConcurrent) && Objects.equals(maxQueue, a.maxQueue) &&
+                Objects.equals(maxWaitMs, a.maxWaitMs);
+    }
+
+    public static Builder of() {
+        return new Builder();
+    }
+
+    public static Builder of(final Integer maxConcurrent) {
+        return new Builder().maxConcurrent(maxConcurrent);
+    }
+
+    public static class Builder {
+
+        private Integer maxConcurrent;
+        private Integer maxQueue;
+        private Integer maxWaitMs;
+
+        private Builder() {
+        }
+
+        public Builder maxConcurrent(final Integer maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+            return this;
+        }
+
+        public Builder maxQueue(final Integer maxQueue) {
+            this.maxQueue = maxQueue;
+            return this;
+        }
+
+        public Builder maxWaitMs(final Integer maxWaitMs) {
+            this.maxWaitMs = maxWaitMs;
+            return this;
+        }
+
+        public AdmissionDefinition build() {
+            return new AdmissionDefinition(this);
+        }
+    }
+}
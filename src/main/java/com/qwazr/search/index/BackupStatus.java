@@ -55,6 +55,13 @@ public class BackupStatus {
     final public Long bytesSize;
     @JsonProperty("files_count")
     final public Integer filesCount;
+    // The statistics of the backup request, unknown when the backups are listed
+    @JsonProperty("duration_ms")
+    final public Long durationMs;
+    @JsonProperty("copied_bytes")
+    final public Long copiedBytes;
+    @JsonProperty("linked_bytes")
+    final public Long linkedBytes;
 
     private final int hashCode;
 
@@ -62,7 +69,8 @@ public class BackupStatus {
     BackupStatus(@JsonProperty("index_version") Long indexVersion,
                  @JsonProperty("taxonomy_version") Long taxonomyVersion, @JsonProperty("date") Long date,
                  @JsonProperty("human_date") String humanDate, @JsonProperty("bytes_size") Long bytesSize,
-                 @JsonProperty("files_count") Integer filesCount) {
+                 @JsonProperty("files_count") Integer filesCount, @JsonProperty("duration_ms") Long durationMs,
+                 @JsonProperty("copied_bytes") Long copiedBytes, @JsonProperty("linked_bytes") Long linkedBytes) {
 
         this.indexVersion = indexVersion;
         this.taxonomyVersion = taxonomyVersion;
@@ -70,6 +78,9 @@ public class BackupStatus {
         this.date = date;
         this.bytesSize = bytesSize;
         this.filesCount = filesCount;
+        this.durationMs = durationMs;
+        this.copiedBytes = copiedBytes;
+        this.linkedBytes = linkedBytes;
 
         this.hashCode = new HashCodeBuilder().append(date)
                 .append(bytesSize)
@@ -132,7 +143,23 @@ public class BackupStatus {
             date = null;
             humanDate = null;
         }
-        return new BackupStatus(indexVersion, taxonomyVersion, date, humanDate, size.get(), count.get());
+        return new BackupStatus(indexVersion, taxonomyVersion, date, humanDate, size.get(), count.get(), null, null,
+                null);
+    }
+
+    /**
+     * @param durationMs        the duration of the backup in milliseconds
+     * @param replicationStatus the transfer statistics of the backup
+     * @return a copy of this status with the statistics of the backup
+     */
+    BackupStatus withTransfer(final long durationMs, final ReplicationStatus replicationStatus) {
+        long linked = 0;
+        if (replicationStatus.sources != null)
+            for (final ReplicationStatus.SourceStatus sourceStatus : replicationStatus.sources.values())
+                if (sourceStatus.linkedBytes != null)
+                    linked += sourceStatus.linkedBytes;
+        return new BackupStatus(indexVersion, taxonomyVersion, date, humanDate, bytesSize, filesCount, durationMs,
+                replicationStatus.bytes, linked);
     }
 
     private static Long getIndexVersion(final Path indexPath) throws IOException {
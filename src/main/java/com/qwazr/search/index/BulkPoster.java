@@ -0,0 +1,141 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.server.ServerException;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.facet.taxonomy.TaxonomyWriter;
+import org.apache.lucene.index.IndexWriter;
+
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Index a large set of documents using several threads.
+ * The documents are read by chunks, each chunk is built and written by a worker using its own document builder.
+ * The number of chunks in flight is bounded by the number of threads,
+ * so the documents can be read from a stream without being materialized in memory.
+ * <p>
+ * In add mode, each chunk is written with one call to {@link IndexWriter#addDocuments(Iterable)}:
+ * if a document of the chunk fails, the whole chunk is rejected.
+ */
+final class BulkPoster {
+
+    private final String indexName;
+    private final FieldMap fieldMap;
+    private final IndexWriter indexWriter;
+    private final TaxonomyWriter taxonomyWriter;
+    private final boolean update;
+    private final ExecutorService executorService;
+    private final int threads;
+    private final int chunkSize;
+
+    BulkPoster(final String indexName, final FieldMap fieldMap, final IndexWriter indexWriter,
+               final TaxonomyWriter taxonomyWriter, final boolean update, final ExecutorService executorService,
+               final int threads, final int chunkSize) {
+        this.indexName = indexName;
+        this.fieldMap = fieldMap;
+        this.indexWriter = indexWriter;
+        this.taxonomyWriter = taxonomyWriter;
+        this.update = update;
+        this.executorService = executorService;
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Index the documents. The method returns once every chunk has been written.
+     *
+     * @param documents the documents to index
+     * @return the number of indexed documents
+     * @throws IOException if any chunk failed
+     */
+    int post(final Iterator<? extends Map<String, ?>> documents) throws IOException {
+        final Semaphore slots = new Semaphore(threads);
+        final AtomicInteger count = new AtomicInteger();
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        try {
+            while (failure.get() == null && documents.hasNext()) {
+                final List<Map<String, ?>> chunk = new ArrayList<>(chunkSize);
+                while (chunk.size() < chunkSize && documents.hasNext())
+                    chunk.add(documents.next());
+                slots.acquire();
+                try {
+                    executorService.execute(() -> {
+                        try {
+                            count.addAndGet(index(chunk));
+                        } catch (IOException | RuntimeException e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            slots.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    slots.release();
+                    throw e;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null,
+                    new InterruptedIOException("Interrupted during the bulk indexing - Index: " + indexName));
+        } finally {
+            // Wait for the chunks in flight
+            slots.acquireUninterruptibly(threads);
+        }
+        final Exception e = failure.get();
+        if (e instanceof IOException)
+            throw (IOException) e;
+        if (e instanceof RuntimeException)
+            throw (RuntimeException) e;
+        return count.get();
+    }
+
+    private int index(final List<Map<String, ?>> chunk) throws IOException {
+        final FieldConsumer.ForDocument documentBuilder = new FieldConsumer.ForDocument();
+        final RecordBuilder.ForMap recordBuilder = new RecordBuilder.ForMap(fieldMap, documentBuilder);
+        final List<Document> documents = update ? null : new ArrayList<>(chunk.size());
+        for (final Map<String, ?> doc : chunk) {
+            recordBuilder.reset();
+            doc.forEach(recordBuilder);
+            // The facets config returns a new document, the builder can be reused
+            final Document document =
+                    fieldMap.getFacetsConfig(documentBuilder.dimensions).build(taxonomyWriter, documentBuilder.document);
+            if (update) {
+                if (recordBuilder.termId == null)
+                    throw new ServerException(Response.Status.BAD_REQUEST,
+                            "The field " + FieldDefinition.ID_FIELD + " is missing - Index: " + indexName);
+                indexWriter.updateDocument(recordBuilder.termId, document);
+            } else
+                documents.add(document);
+            documentBuilder.reset();
+        }
+        if (!update)
+            indexWriter.addDocuments(documents);
+        return chunk.size();
+    }
+}
@@ -16,6 +16,7 @@
 package com.qwazr.search.index;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.qwazr.search.query.AbstractQuery;
@@ -44,6 +45,10 @@ public class FacetDefinition {
 
     final public Sort sort;
 
+    final public LinkedHashMap<String, Range> ranges;
+
+    final public Histogram histogram;
+
     public enum Sort implements Comparator<LabelAndValue> {
 
         value_descending(FacetBuilder.VALUE_DESCENDING),
@@ -79,17 +84,26 @@ public class FacetDefinition {
         this(top, prefix, sort, null, null, null);
     }
 
+    public FacetDefinition(Integer top, String prefix, Sort sort, LinkedHashMap<String, AbstractQuery> queries,
+                           LinkedHashSet<String[]> specificValues, String genericFieldName) {
+        this(top, prefix, sort, queries, specificValues, genericFieldName, null, null);
+    }
+
     @JsonCreator
     public FacetDefinition(@JsonProperty("top") Integer top, @JsonProperty("prefix") String prefix,
                            @JsonProperty("sort") Sort sort, @JsonProperty("queries") LinkedHashMap<String, AbstractQuery> queries,
                            @JsonProperty("specific_values") LinkedHashSet<String[]> specificValues,
-                           @JsonProperty("genericFieldName") String genericFieldName) {
+                           @JsonProperty("genericFieldName") String genericFieldName,
+                           @JsonProperty("ranges") LinkedHashMap<String, Range> ranges,
+                           @JsonProperty("histogram") Histogram histogram) {
         this.top = top;
         this.prefix = prefix;
         this.sort = sort;
         this.queries = queries;
         this.specificValues = specificValues;
         this.genericFieldName = genericFieldName;
+        this.ranges = ranges;
+        this.histogram = histogram;
     }
 
     private FacetDefinition(final Builder builder) {
@@ -97,7 +111,17 @@ public class FacetDefinition {
                 builder.prefix,
                 builder.sort, builder.queries == null || builder.queries.isEmpty() ? null : builder.queries,
                 builder.specificValues == null || builder.specificValues.isEmpty() ? null : builder.specificValues,
-                builder.genericFieldName);
+                builder.genericFieldName,
+                builder.ranges == null || builder.ranges.isEmpty() ? null : builder.ranges,
+                builder.histogram);
+    }
+
+    /**
+     * @return true if the facet counts numeric ranges or a histogram
+     */
+    @JsonIgnore
+    public boolean isRanges() {
+        return (ranges != null && !ranges.isEmpty()) || histogram != null;
     }
 
     @Override
@@ -114,7 +138,77 @@ public class FacetDefinition {
         final FacetDefinition f = (FacetDefinition) o;
         return Objects.equals(top, f.top) && CollectionsUtils.equals(queries, f.queries) &&
                 CollectionsUtils.equals(specificValues, f.specificValues) && Objects.equals(prefix, f.prefix) &&
-                Objects.equals(sort, f.sort) && Objects.equals(genericFieldName, f.genericFieldName);
+                Objects.equals(sort, f.sort) && Objects.equals(genericFieldName, f.genericFieldName) &&
+                CollectionsUtils.equals(ranges, f.ranges) && Objects.equals(histogram, f.histogram);
+    }
+
+    /**
+     * A numeric range: the lower bound is inclusive, the upper bound is exclusive.
+     * A null bound means no limit.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Range {
+
+        final public Number from;
+
+        final public Number to;
+
+        @JsonCreator
+        public Range(@JsonProperty("from") final Number from, @JsonProperty("to") final Number to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(from, to);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Range))
+                return false;
+            if (o == this)
+                return true;
+            final Range r = (Range) o;
+            return Objects.equals(from, r.from) && Objects.equals(to, r.to);
+        }
+    }
+
+    /**
+     * Fixed-interval buckets from min (inclusive) to max (exclusive).
+     * Each bucket is labelled with its lower bound.
+     */
+    public static class Histogram {
+
+        final public Number interval;
+
+        final public Number min;
+
+        final public Number max;
+
+        @JsonCreator
+        public Histogram(@JsonProperty("interval") final Number interval, @JsonProperty("min") final Number min,
+                         @JsonProperty("max") final Number max) {
+            this.interval = interval;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(interval, min, max);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Histogram))
+                return false;
+            if (o == this)
+                return true;
+            final Histogram h = (Histogram) o;
+            return Objects.equals(interval, h.interval) && Objects.equals(min, h.min) && Objects.equals(max, h.max);
+        }
     }
 
     public static Builder of() {
@@ -133,6 +227,8 @@ public class FacetDefinition {
         public LinkedHashMap<String, AbstractQuery> queries;
         public LinkedHashSet<String[]> specificValues;
         public String genericFieldName;
+        public LinkedHashMap<String, Range> ranges;
+        public Histogram histogram;
 
         public Builder top(Integer top) {
             this.top = top;
@@ -168,6 +264,18 @@ public class FacetDefinition {
             return this;
         }
 
+        public Builder range(String name, Number from, Number to) {
+            if (ranges == null)
+                ranges = new LinkedHashMap<>();
+            ranges.put(name, new Range(from, to));
+            return this;
+        }
+
+        public Builder histogram(Number interval, Number min, Number max) {
+            this.histogram = new Histogram(interval, min, max);
+            return this;
+        }
+
         public FacetDefinition build() {
             return new FacetDefinition(this);
         }
@@ -16,11 +16,10 @@
 package com.qwazr.search.index;
 
 import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.field.FieldTypeInterface;
 import com.qwazr.search.query.AbstractQuery;
 import com.qwazr.utils.StringUtils;
 import com.qwazr.utils.TimeTracker;
-import com.qwazr.utils.concurrent.BiConsumerEx;
-import com.qwazr.utils.concurrent.ConcurrentUtils;
 import org.apache.lucene.facet.DrillSideways;
 import org.apache.lucene.facet.FacetResult;
 import org.apache.lucene.facet.Facets;
@@ -28,6 +27,7 @@ import org.apache.lucene.facet.FacetsCollector;
 import org.apache.lucene.facet.FacetsConfig;
 import org.apache.lucene.facet.LabelAndValue;
 import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
 import org.apache.lucene.facet.taxonomy.FastTaxonomyFacetCounts;
 import org.apache.lucene.facet.taxonomy.TaxonomyFacetSumFloatAssociations;
 import org.apache.lucene.facet.taxonomy.TaxonomyFacetSumIntAssociations;
@@ -35,11 +35,19 @@ import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.flexible.core.QueryNodeException;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConjunctionDISI;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.search.Weight;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -49,7 +57,7 @@ abstract class FacetsBuilder {
     protected final String sortedSetFacetField;
     private final LinkedHashMap<String, FacetDefinition> facetsDef;
     protected final HashMap<String, String> resolvedDimensions;
-    private final Query searchQuery;
+    protected final Query searchQuery;
     private final TimeTracker timeTracker;
 
     public final static int DEFAULT_TOP = 10;
@@ -70,17 +78,31 @@ abstract class FacetsBuilder {
 
     final FacetsBuilder build() throws Exception {
         for (Map.Entry<String, FacetDefinition> entry : facetsDef.entrySet()) {
+            if (queryContext.deadline != null && queryContext.deadline.shouldExit())
+                break;
             final String dimension = entry.getKey();
             final String resolvedDimension = resolvedDimensions.get(dimension);
             final FacetDefinition facet = entry.getValue();
             final FacetBuilder facetBuilder = new FacetBuilder(facet);
             final boolean isQueries = facet.queries != null && !facet.queries.isEmpty();
             final boolean isSpecificValues = facet.specificValues != null && !facet.specificValues.isEmpty();
-            final Integer top = facet.top != null ? facet.top : (isQueries || isSpecificValues) ? null : DEFAULT_TOP;
-            if (isSpecificValues || top != null)
-                buildFacetState(resolvedDimension, top, facet.specificValues, facetBuilder);
-            if (isQueries)
-                buildFacetQueries(facet.queries, facetBuilder);
+            final boolean isRanges = facet.isRanges();
+            final Integer top = facet.top != null ?
+                    facet.top :
+                    (isQueries || isSpecificValues || isRanges) ? null : DEFAULT_TOP;
+            try {
+                if (needsFacetState(facet))
+                    buildFacetState(resolvedDimension, top, facet.specificValues, facetBuilder);
+                if (isQueries)
+                    buildFacetQueries(facet.queries, facetBuilder);
+                if (isRanges)
+                    buildFacetRanges(dimension, facet, facetBuilder);
+            } catch (RuntimeException e) {
+                // The deadline has been reached, the facets already computed are returned
+                if (!QueryDeadline.isTimeout(e))
+                    throw e;
+                break;
+            }
             results.put(dimension, facetBuilder.build());
         }
 
@@ -91,6 +113,16 @@ abstract class FacetsBuilder {
 
     protected abstract Facets getFacets(final String dim) throws IOException;
 
+    /**
+     * @return the documents matching the search query
+     */
+    protected abstract List<FacetsCollector.MatchingDocs> getMatchingDocs() throws IOException;
+
+    private static boolean needsFacetState(final FacetDefinition facet) {
+        return facet.top != null || (facet.specificValues != null && !facet.specificValues.isEmpty()) ||
+                ((facet.queries == null || facet.queries.isEmpty()) && !facet.isRanges());
+    }
+
     private void buildFacetState(final String resolvedDimension, final Integer top, final Set<String[]> specificValues,
                                  final FacetBuilder facetBuilder) throws IOException {
         final Facets facets = getFacets(resolvedDimension);
@@ -113,13 +145,40 @@ abstract class FacetsBuilder {
 
     private void buildFacetQueries(final LinkedHashMap<String, AbstractQuery> queries, final FacetBuilder facetBuilder)
             throws Exception {
-        final BiConsumerEx<String, AbstractQuery, Exception> consumer = (name, facetQuery) -> {
-            final BooleanQuery.Builder builder = new BooleanQuery.Builder();
-            builder.add(searchQuery, BooleanClause.Occur.FILTER);
-            builder.add(facetQuery.getQuery(queryContext), BooleanClause.Occur.FILTER);
-            facetBuilder.put(new LabelAndValue(name, queryContext.indexSearcher.count(builder.build())));
-        };
-        ConcurrentUtils.forEachEx(queries, consumer);
+        for (final Map.Entry<String, AbstractQuery> entry : queries.entrySet()) {
+            if (queryContext.deadline != null && queryContext.deadline.shouldExit())
+                break;
+            final Query facetQuery = entry.getValue().getQuery(queryContext);
+            facetBuilder.put(new LabelAndValue(entry.getKey(), countFacetQuery(facetQuery)));
+        }
+    }
+
+    private void buildFacetRanges(final String dimension, final FacetDefinition facet,
+                                  final FacetBuilder facetBuilder) throws IOException {
+        final String genericFieldName = facet.genericFieldName == null ? dimension : facet.genericFieldName;
+        final FieldTypeInterface fieldType = queryContext.fieldMap.getFieldType(genericFieldName, dimension);
+        final RangeFacetCounts rangeCounts =
+                RangeFacetCounts.of(fieldType.getQueryFieldName(dimension), fieldType, facet);
+        rangeCounts.count(getMatchingDocs());
+        rangeCounts.fill(facetBuilder);
+    }
+
+    /**
+     * Count the documents matching both the search query and the facet query, by executing them again.
+     */
+    protected int countFacetQuery(final Query facetQuery) throws IOException {
+        final BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        builder.add(searchQuery, BooleanClause.Occur.FILTER);
+        builder.add(facetQuery, BooleanClause.Occur.FILTER);
+        return count(builder.build());
+    }
+
+    private int count(final Query query) throws IOException {
+        if (queryContext.deadline == null)
+            return queryContext.indexSearcher.count(query);
+        final TotalHitCountCollector collector = new TotalHitCountCollector();
+        queryContext.indexSearcher.search(query, queryContext.deadline.wrap(collector));
+        return collector.getTotalHits();
     }
 
     static Map<String, String> getFields(LinkedHashMap<String, FacetDefinition> facets) {
@@ -136,11 +195,12 @@ abstract class FacetsBuilder {
 
     static class WithCollectors extends FacetsBuilder {
 
-        private final SortedSetDocValuesFacetCounts sortedSetCounts;
+        private final Facets sortedSetCounts;
         private final FastTaxonomyFacetCounts taxonomyCounts;
         private final TaxonomyFacetSumFloatAssociations floatTaxonomyCounts;
         private final TaxonomyFacetSumIntAssociations intTaxonomyCounts;
         private final FacetsConfig facetsConfig;
+        private final FacetsCollector facetsCollector;
 
         WithCollectors(final QueryContextImpl queryContext, final FacetsConfig facetsConfig,
                        final LinkedHashMap<String, FacetDefinition> facetsDef, final Query searchQuery,
@@ -148,12 +208,11 @@ abstract class FacetsBuilder {
                 throws IOException, ParseException, ReflectiveOperationException, QueryNodeException {
             super(queryContext, facetsDef, searchQuery, timeTracker);
             this.facetsConfig = facetsConfig;
+            this.facetsCollector = facetsCollector;
             int facetFlag = checkFacetTypeFlags(facetsConfig, facetsDef);
-            this.sortedSetCounts = queryContext.docValueReaderState == null ?
-                    null :
-                    (facetFlag & FACET_IS_SORTED) == FACET_IS_SORTED ?
-                            new SortedSetDocValuesFacetCounts(queryContext.docValueReaderState, facetsCollector) :
-                            null;
+            this.sortedSetCounts = (facetFlag & FACET_IS_SORTED) == FACET_IS_SORTED ?
+                    newSortedSetCounts(queryContext, sortedSetFacetField, facetsCollector) :
+                    null;
             this.taxonomyCounts = (facetFlag & FACET_IS_TAXO) == FACET_IS_TAXO ?
                     new FastTaxonomyFacetCounts(queryContext.taxonomyReader, facetsConfig, facetsCollector) :
                     null;
@@ -167,6 +226,45 @@ abstract class FacetsBuilder {
                     null;
         }
 
+        @Override
+        protected List<FacetsCollector.MatchingDocs> getMatchingDocs() {
+            return facetsCollector.getMatchingDocs();
+        }
+
+        /**
+         * The documents matching the search query have already been collected:
+         * the facet query is only intersected with them, segment by segment.
+         */
+        @Override
+        protected int countFacetQuery(final Query facetQuery) throws IOException {
+            final Weight weight = queryContext.indexSearcher.createWeight(
+                    queryContext.indexSearcher.rewrite(facetQuery), ScoreMode.COMPLETE_NO_SCORES, 1f);
+            int count = 0;
+            for (final FacetsCollector.MatchingDocs hits : getMatchingDocs()) {
+                if (hits.totalHits == 0)
+                    continue;
+                final Scorer scorer = weight.scorer(hits.context);
+                if (scorer == null)
+                    continue;
+                final DocIdSetIterator hitsIterator = hits.bits.iterator();
+                if (hitsIterator == null)
+                    continue;
+                final DocIdSetIterator iterator =
+                        ConjunctionDISI.intersectIterators(Arrays.asList(hitsIterator, scorer.iterator()));
+                while (iterator.nextDoc() != DocIdSetIterator.NO_MORE_DOCS)
+                    count++;
+            }
+            return count;
+        }
+
+        private static Facets newSortedSetCounts(final QueryContextImpl queryContext, final String sortedSetFacetField,
+                                                 final FacetsCollector facetsCollector) throws IOException {
+            if (queryContext.isPerSegmentFacets())
+                return new SegmentSortedSetFacetCounts(sortedSetFacetField, facetsCollector);
+            final SortedSetDocValuesReaderState state = queryContext.getDocValueReaderState();
+            return state == null ? null : new SortedSetDocValuesFacetCounts(state, facetsCollector);
+        }
+
         private static int FACET_IS_SORTED = 1;
         private static int FACET_IS_TAXO = 2;
         private static int FACET_IS_TAXO_INT = 4;
@@ -175,8 +273,11 @@ abstract class FacetsBuilder {
         private int checkFacetTypeFlags(final FacetsConfig facetsConfig,
                                         final LinkedHashMap<String, FacetDefinition> facetsDef) {
             int flag = 0;
-            for (String dimName : facetsDef.keySet()) {
-                final String resolvedDimension = resolvedDimensions.get(dimName);
+            for (Map.Entry<String, FacetDefinition> entry : facetsDef.entrySet()) {
+                // The facet queries are counted from the matching docs, without any facet state
+                if (!needsFacetState(entry.getValue()))
+                    continue;
+                final String resolvedDimension = resolvedDimensions.get(entry.getKey());
                 if (resolvedDimension == null)
                     continue;
                 final String indexField = facetsConfig.getDimConfig(resolvedDimension).indexFieldName;
@@ -209,9 +310,12 @@ abstract class FacetsBuilder {
             if (indexFieldName == null)
                 return null;
             if (indexFieldName.equals(sortedSetFacetField)) {
-                if (queryContext.docValueReaderState != null)
-                    if (queryContext.docValueReaderState.getOrdRange(dimension) != null)
-                        return sortedSetCounts;
+                // The per segment counts return no result for an unknown dimension
+                if (sortedSetCounts instanceof SegmentSortedSetFacetCounts)
+                    return sortedSetCounts;
+                final SortedSetDocValuesReaderState state = queryContext.getDocValueReaderState();
+                if (state != null && state.getOrdRange(dimension) != null)
+                    return sortedSetCounts;
             } else {
                 switch (indexFieldName) {
                     case FieldDefinition.TAXONOMY_FACET_FIELD:
@@ -232,6 +336,7 @@ abstract class FacetsBuilder {
 
         final DrillSideways.DrillSidewaysResult results;
         private final FacetsConfig facetsConfig;
+        private FacetsCollector drillDownCollector;
 
         WithSideways(final QueryContextImpl queryContext, final FacetsConfig facetsConfig,
                      final LinkedHashMap<String, FacetDefinition> facetsDef, final Query searchQuery,
@@ -245,12 +350,25 @@ abstract class FacetsBuilder {
         @Override
         final protected Facets getFacets(final String dimension) throws IOException {
             if (sortedSetFacetField.equals(facetsConfig.getDimConfig(dimension).indexFieldName)) {
-                if (queryContext.docValueReaderState == null)
-                    return null;
-                if (queryContext.docValueReaderState.getOrdRange(dimension) == null)
+                final SortedSetDocValuesReaderState state = queryContext.getDocValueReaderState();
+                if (state == null || state.getOrdRange(dimension) == null)
                     return null;
             }
             return results.facets;
         }
+
+        /**
+         * The drill sideways result does not expose the drill down hits, they are collected once on demand.
+         */
+        @Override
+        protected List<FacetsCollector.MatchingDocs> getMatchingDocs() throws IOException {
+            if (drillDownCollector == null) {
+                final FacetsCollector collector = new FacetsCollector();
+                queryContext.indexSearcher.search(searchQuery,
+                        queryContext.deadline == null ? collector : queryContext.deadline.wrap(collector));
+                drillDownCollector = collector;
+            }
+            return drillDownCollector.getMatchingDocs();
+        }
     }
 }
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import org.apache.lucene.index.ExitableDirectoryReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The fetch phase: the documents of the page are loaded (stored fields, doc values) by leaf partitions,
+ * and the highlighters run, concurrently on the executor of the index.
+ * The results are merged back in rank order.
+ */
+final class FetchPhase {
+
+    /**
+     * Under this number of documents, the documents are loaded by the calling thread
+     */
+    final static int MIN_PARALLEL_DOCS = 32;
+
+    private final ExecutorService executorService;
+    private final QueryDeadline deadline;
+    private final Map<String, Long> times;
+
+    FetchPhase(final ExecutorService executorService, final QueryDeadline deadline) {
+        this.executorService = executorService;
+        this.deadline = deadline;
+        this.times = new LinkedHashMap<>();
+    }
+
+    private void recordTime(final String stage, final long startNanos) {
+        final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        synchronized (times) {
+            times.put(stage, elapsedMs);
+        }
+    }
+
+    /**
+     * The stages run concurrently: the time of each stage is measured by the thread which runs it.
+     *
+     * @return the elapsed time (ms) of the documents loading and of each highlighter
+     */
+    Map<String, Long> getTimes() {
+        synchronized (times) {
+            return new LinkedHashMap<>(times);
+        }
+    }
+
+    private boolean isExpired() {
+        return deadline != null && deadline.shouldExit();
+    }
+
+    private <T> Future<T> submit(final Callable<T> callable) {
+        final FutureTask<T> task = new FutureTask<>(callable);
+        if (executorService == null)
+            task.run();
+        else
+            executorService.execute(task);
+        return task;
+    }
+
+    /**
+     * Start every highlighter. The snippets of a highlighter are null if the deadline has been reached.
+     */
+    Map<String, Future<String[]>> highlight(final Map<String, HighlighterImpl> highlighters, final Query query,
+                                            final TopDocs topDocs) {
+        final Map<String, Future<String[]>> snippets = new LinkedHashMap<>();
+        highlighters.forEach((name, highlighter) -> snippets.put(name, submit(() -> {
+            if (isExpired())
+                return null;
+            final long startNanos = System.nanoTime();
+            try {
+                return highlighter.highlights(query, topDocs);
+            } catch (ExitableDirectoryReader.ExitingReaderException e) {
+                return null;
+            } catch (IOException e) {
+                throw new RuntimeException("Highlighting failure: " + name, e);
+            } finally {
+                recordTime("highlighting:" + name, startNanos);
+            }
+        })));
+        return snippets;
+    }
+
+    /**
+     * Load the documents, in doc id order for each leaf. When the deadline is reached, only the documents loaded
+     * from the first rank without any gap are kept, so a partial page always holds the best hits. The documents
+     * provided by the caller cannot be discarded: with a deadline, they are loaded in rank order.
+     *
+     * @param concurrent true if the documents can be loaded by several threads, and the documents loaded after the
+     *                   first missing rank are discarded by the caller
+     * @return the number of documents loaded from the first rank (less than the number of hits if the deadline has
+     * been reached)
+     */
+    int documents(final IndexSearcher indexSearcher, final ScoreDoc[] scoreDocs,
+                  final ResultDocumentsInterface resultDocuments, final boolean concurrent)
+            throws IOException {
+        final long startNanos = System.nanoTime();
+        final boolean[] loaded = new boolean[scoreDocs.length];
+        if (!concurrent || executorService == null || scoreDocs.length < MIN_PARALLEL_DOCS) {
+            final int[] positions = deadline == null ? docIdOrder(scoreDocs) : rankOrder(scoreDocs);
+            load(indexSearcher, scoreDocs, positions, 0, positions.length, resultDocuments, loaded);
+            recordTime("documents", startNanos);
+            return rankPrefix(loaded);
+        }
+        final int[] positions = docIdOrder(scoreDocs);
+        final List<int[]> partitions = partitionByLeaf(indexSearcher.getIndexReader().leaves(), scoreDocs, positions);
+        final List<Future<?>> futures = new ArrayList<>(partitions.size());
+        // The last partition is loaded by the calling thread
+        for (int i = 0; i < partitions.size() - 1; i++) {
+            final int[] partition = partitions.get(i);
+            futures.add(submit(() -> {
+                load(indexSearcher, scoreDocs, positions, partition[0], partition[1], resultDocuments, loaded);
+                return null;
+            }));
+        }
+        final int[] last = partitions.get(partitions.size() - 1);
+        load(indexSearcher, scoreDocs, positions, last[0], last[1], resultDocuments, loaded);
+        for (final Future<?> future : futures)
+            get(future);
+        recordTime("documents", startNanos);
+        return rankPrefix(loaded);
+    }
+
+    /**
+     * @return the number of loaded positions before the first missing one
+     */
+    static int rankPrefix(final boolean[] loaded) {
+        int count = 0;
+        while (count < loaded.length && loaded[count])
+            count++;
+        return count;
+    }
+
+    private void load(final IndexSearcher indexSearcher, final ScoreDoc[] scoreDocs, final int[] positions,
+                      final int from, final int to, final ResultDocumentsInterface resultDocuments,
+                      final boolean[] loaded) throws IOException {
+        for (int i = from; i < to; i++) {
+            if (isExpired())
+                return;
+            final int pos = positions[i];
+            resultDocuments.doc(indexSearcher, pos, scoreDocs[pos]);
+            loaded[pos] = true;
+        }
+    }
+
+    /**
+     * Wait for a task of the fetch phase.
+     */
+    static <T> T get(final Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during the fetch phase");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IOException("Fetch phase failure", cause);
+        }
+    }
+
+    /**
+     * @return the positions of the hits, in rank order
+     */
+    static int[] rankOrder(final ScoreDoc[] scoreDocs) {
+        final int[] positions = new int[scoreDocs.length];
+        for (int i = 0; i < positions.length; i++)
+            positions[i] = i;
+        return positions;
+    }
+
+    /**
+     * @return the positions of the hits, sorted by doc id
+     */
+    static int[] docIdOrder(final ScoreDoc[] scoreDocs) {
+        final int[] positions = new int[scoreDocs.length];
+        final long[] keys = new long[scoreDocs.length];
+        for (int i = 0; i < scoreDocs.length; i++)
+            keys[i] = ((long) scoreDocs[i].doc << 32) | i;
+        Arrays.sort(keys);
+        for (int i = 0; i < keys.length; i++)
+            positions[i] = (int) keys[i];
+        return positions;
+    }
+
+    /**
+     * @return the [from, to[ ranges of the sorted positions which belong to the same leaf
+     */
+    static List<int[]> partitionByLeaf(final List<LeafReaderContext> leaves, final ScoreDoc[] scoreDocs,
+                                       final int[] positions) {
+        final List<int[]> partitions = new ArrayList<>();
+        int leaf = 0;
+        int from = 0;
+        for (int i = 0; i < positions.length; i++) {
+            final int doc = scoreDocs[positions[i]].doc;
+            int next = leaf;
+            while (next + 1 < leaves.size() && leaves.get(next + 1).docBase <= doc)
+                next++;
+            if (next != leaf) {
+                if (i > from)
+                    partitions.add(new int[]{from, i});
+                from = i;
+                leaf = next;
+            }
+        }
+        if (positions.length > from)
+            partitions.add(new int[]{from, positions.length});
+        return partitions;
+    }
+}
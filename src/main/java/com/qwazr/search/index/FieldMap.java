@@ -20,12 +20,9 @@ import com.qwazr.search.field.CustomFieldDefinition;
 import com.qwazr.search.field.FieldDefinition;
 import com.qwazr.search.field.FieldTypeInterface;
 import com.qwazr.utils.WildcardMatcher;
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.lucene.facet.FacetsConfig;
 
 import javax.validation.constraints.NotNull;
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -37,7 +34,7 @@ public class FieldMap {
 
     private final LinkedHashMap<String, FieldDefinition> fieldDefinitionMap;
     private final HashMap<String, FieldTypeInterface> nameDefMap;
-    private final Collection<Pair<WildcardMatcher, FieldTypeInterface>> wildcardMap;
+    private final WildcardFieldTypes wildcardFieldTypes;
     private final FacetsConfig facetsConfig;
     public final String sortedSetFacetField;
 
@@ -47,14 +44,14 @@ public class FieldMap {
                 sortedSetFacetField == null ? FieldDefinition.DEFAULT_SORTEDSET_FACET_FIELD : sortedSetFacetField;
 
         nameDefMap = new HashMap<>();
-        wildcardMap = new ArrayList<>();
+        wildcardFieldTypes = new WildcardFieldTypes();
 
         fieldDefinitionMap.forEach((name, definition) -> {
             final FieldTypeInterface fieldType;
-            if (name.indexOf('*') != -1 || name.indexOf('?') != -1) {
+            if (WildcardFieldTypes.isWildcard(name)) {
                 final WildcardMatcher wildcardMatcher = new WildcardMatcher(name);
                 fieldType = definition.newFieldType(name, wildcardMatcher);
-                wildcardMap.add(Pair.of(wildcardMatcher, fieldType));
+                wildcardFieldTypes.add(name, wildcardMatcher, fieldType);
             } else {
                 fieldType = definition.newFieldType(name, null);
             }
@@ -109,9 +106,9 @@ public class FieldMap {
         }
         //Second chance, using the wildcard collection
         final String searchField = concreteFieldName != null ? concreteFieldName : genericFieldName;
-        for (Pair<WildcardMatcher, FieldTypeInterface> entry : wildcardMap)
-            if (entry.getLeft().match(searchField))
-                return entry.getRight();
+        final FieldTypeInterface wildcardFieldType = wildcardFieldTypes.find(searchField);
+        if (wildcardFieldType != null)
+            return wildcardFieldType;
         throw new IllegalArgumentException(
                 "The field has not been found: " + genericFieldName + " / " + concreteFieldName);
     }
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.server.ServerException;
+
+import javax.ws.rs.core.Response;
+import java.io.InterruptedIOException;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-index admission control.
+ * The interactive searches, the writes and the maintenance tasks (backup, replication) run in separate lanes.
+ * Each lane has its own concurrency limit and a bounded wait queue,
+ * so that a bulk load on an index does not starve the searches.
+ */
+final class IndexAdmission {
+
+    enum Lane {
+        SEARCH, WRITE, MAINTENANCE
+    }
+
+    @FunctionalInterface
+    interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final String indexName;
+    private final EnumMap<Lane, LaneControl> lanes;
+
+    IndexAdmission(final String indexName, final IndexSettingsDefinition settings) {
+        this.indexName = indexName;
+        this.lanes = new EnumMap<>(Lane.class);
+        lanes.put(Lane.SEARCH, new LaneControl(settings == null ? null : settings.searchAdmission));
+        lanes.put(Lane.WRITE, new LaneControl(settings == null ? null : settings.writeAdmission));
+        lanes.put(Lane.MAINTENANCE, new LaneControl(settings == null ? null : settings.maintenanceAdmission));
+    }
+
+    /**
+     * Wait for a slot in the given lane.
+     *
+     * @param lane the lane of the request
+     * @return the permit to close once the request is done
+     * @throws InterruptedIOException if the thread is interrupted while waiting
+     * @throws ServerException        (429) if the wait queue is full, (503) if the max wait time is elapsed
+     */
+    Permit acquire(final Lane lane) throws InterruptedIOException {
+        return lanes.get(lane).acquire(lane);
+    }
+
+    Map<String, IndexStatus.AdmissionStatus> getStatus() {
+        final Map<String, IndexStatus.AdmissionStatus> status = new LinkedHashMap<>();
+        lanes.forEach((lane, control) -> status.put(lane.name().toLowerCase(), control.getStatus()));
+        return status;
+    }
+
+    private final class LaneControl {
+
+        private final Integer maxConcurrent;
+        private final Integer maxQueue;
+        private final Integer maxWaitMs;
+        private final Semaphore semaphore;
+
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final LongAdder admitted = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder timedOut = new LongAdder();
+        private final LongAdder waited = new LongAdder();
+        private final LongAdder totalWaitNanos = new LongAdder();
+        private final AtomicLong longestWaitNanos = new AtomicLong();
+
+        private LaneControl(final AdmissionDefinition definition) {
+            maxConcurrent = definition == null ? null : definition.maxConcurrent;
+            maxQueue = definition == null ? null : definition.maxQueue;
+            maxWaitMs = definition == null ? null : definition.maxWaitMs;
+            semaphore = maxConcurrent == null || maxConcurrent <= 0 ? null : new Semaphore(maxConcurrent, true);
+        }
+
+        private Permit acquire(final Lane lane) throws InterruptedIOException {
+            if (semaphore != null) {
+                try {
+                    // The timed version honors the fairness, a free slot is not taken over the waiting requests
+                    if (!semaphore.tryAcquire(0, TimeUnit.MILLISECONDS))
+                        await(lane);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for a slot - Index: " + indexName);
+                }
+            }
+            active.incrementAndGet();
+            admitted.increment();
+            return this::release;
+        }
+
+        private void await(final Lane lane) throws InterruptedException {
+            if (queued.incrementAndGet() > (maxQueue == null ? Integer.MAX_VALUE : maxQueue)) {
+                queued.decrementAndGet();
+                rejected.increment();
+                throw new ServerException(Response.Status.TOO_MANY_REQUESTS,
+                        "Too many " + lane.name().toLowerCase() + " requests waiting - Index: " + indexName);
+            }
+            final long startTime = System.nanoTime();
+            try {
+                if (maxWaitMs == null)
+                    semaphore.acquire();
+                else if (!semaphore.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS)) {
+                    timedOut.increment();
+                    throw new ServerException(Response.Status.SERVICE_UNAVAILABLE,
+                            "Timeout while waiting for a " + lane.name().toLowerCase() + " slot - Index: " +
+                                    indexName);
+                }
+            } finally {
+                queued.decrementAndGet();
+                final long waitNanos = System.nanoTime() - startTime;
+                waited.increment();
+                totalWaitNanos.add(waitNanos);
+                longestWaitNanos.accumulateAndGet(waitNanos, Math::max);
+            }
+        }
+
+        private void release() {
+            active.decrementAndGet();
+            if (semaphore != null)
+                semaphore.release();
+        }
+
+        private IndexStatus.AdmissionStatus getStatus() {
+            final long waitCount = waited.sum();
+            return new IndexStatus.AdmissionStatus(maxConcurrent, maxQueue, maxWaitMs, active.get(), queued.get(),
+                    admitted.sum(), rejected.sum(), timedOut.sum(), waitCount,
+                    waitCount == 0 ? 0F : (float) totalWaitNanos.sum() / waitCount / 1_000_000,
+                    (float) longestWaitNanos.get() / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.utils.LoggerUtils;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.store.Directory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Apply the commit policy of an index.
+ * <ul>
+ * <li>PER_REQUEST: each write request is followed by a durable commit.</li>
+ * <li>GROUP: concurrent write requests are batched into one commit, the writers wait until their batch is durable.</li>
+ * <li>INTERVAL: the writers only wait for the visibility of their changes (unless the searcher is reopened by a
+ * background thread), the batch is committed in background.</li>
+ * </ul>
+ * A batch is committed when the commit interval is elapsed or when the max number of documents is reached.
+ */
+class IndexCommitter implements Closeable {
+
+    private final static Logger LOGGER = LoggerUtils.getLogger(IndexCommitter.class);
+
+    private final String indexName;
+    private final WriterAndSearcher writerAndSearcher;
+    private final Directory dataDirectory;
+    private final IndexSettingsDefinition.CommitPolicy commitPolicy;
+    private final int commitIntervalMs;
+    private final int commitMaxDocs;
+    private final ReentrantLock commitLock;
+    private final ScheduledExecutorService committer;
+    private final Runnable commitListener;
+
+    private Batch pendingBatch;
+    private volatile long commitGeneration;
+
+    IndexCommitter(final String indexName, final WriterAndSearcher writerAndSearcher, final Directory dataDirectory,
+                   final IndexSettingsDefinition settings, final Runnable commitListener) throws IOException {
+        this.indexName = indexName;
+        this.commitListener = commitListener;
+        this.writerAndSearcher = writerAndSearcher;
+        this.dataDirectory = dataDirectory;
+        this.commitPolicy = settings == null || settings.commitPolicy == null ?
+                IndexSettingsDefinition.CommitPolicy.PER_REQUEST :
+                settings.commitPolicy;
+        this.commitIntervalMs = settings == null || settings.commitIntervalMs == null ?
+                IndexSettingsDefinition.DEFAULT_COMMIT_INTERVAL_MS :
+                settings.commitIntervalMs;
+        this.commitMaxDocs = settings == null || settings.commitMaxDocs == null ?
+                IndexSettingsDefinition.DEFAULT_COMMIT_MAX_DOCS :
+                settings.commitMaxDocs;
+        this.commitLock = new ReentrantLock(true);
+        this.committer = commitPolicy == IndexSettingsDefinition.CommitPolicy.PER_REQUEST ?
+                null :
+                Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    final Thread thread = new Thread(runnable, "Index committer: " + indexName);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.commitGeneration = SegmentInfos.getLastCommitGeneration(dataDirectory);
+    }
+
+    /**
+     * @return the generation of the last durable commit
+     */
+    long getCommitGeneration() {
+        return commitGeneration;
+    }
+
+    /**
+     * Make the changes of a write request durable, following the commit policy.
+     *
+     * @param docs the number of documents written by the request
+     * @return the generation of the commit which covers the changes, or null if the changes are not durable yet
+     * @throws IOException if the commit failed
+     */
+    Long commit(final int docs) throws IOException {
+        switch (commitPolicy) {
+        case GROUP:
+            return awaitDurable(enqueue(docs));
+        case INTERVAL:
+            enqueue(docs);
+            // With a background reopen thread, the visibility is handled by the thread
+            if (!writerAndSearcher.hasReopenThread())
+                writerAndSearcher.refresh();
+            return null;
+        default:
+        case PER_REQUEST:
+            return commitNow();
+        }
+    }
+
+    /**
+     * Immediately commit every pending change, including the pending batch if any.
+     *
+     * @return the generation of the commit
+     * @throws IOException if the commit failed
+     */
+    long commitNow() throws IOException {
+        commitLock.lock();
+        try {
+            // The documents of the pending batch are already in the writer, this commit covers them
+            final Batch batch = takePendingBatch();
+            try {
+                writerAndSearcher.commit();
+                commitGeneration = SegmentInfos.getLastCommitGeneration(dataDirectory);
+            } catch (IOException | RuntimeException e) {
+                if (batch != null)
+                    batch.durable.completeExceptionally(e);
+                throw e;
+            }
+            if (batch != null)
+                batch.durable.complete(commitGeneration);
+            if (commitListener != null)
+                commitListener.run();
+            return commitGeneration;
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    private synchronized Batch enqueue(final int docs) {
+        if (pendingBatch == null) {
+            final Batch batch = new Batch();
+            pendingBatch = batch;
+            committer.schedule(() -> flush(batch), commitIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        final Batch batch = pendingBatch;
+        batch.docs += docs;
+        if (batch.docs >= commitMaxDocs && !batch.flushRequested) {
+            batch.flushRequested = true;
+            committer.execute(() -> flush(batch));
+        }
+        return batch;
+    }
+
+    private synchronized Batch takePendingBatch() {
+        final Batch batch = pendingBatch;
+        pendingBatch = null;
+        return batch;
+    }
+
+    private synchronized boolean isPending(final Batch batch) {
+        return pendingBatch == batch;
+    }
+
+    private void flush(final Batch batch) {
+        // The batch may already have been committed (max docs reached, or explicit commit)
+        if (!isPending(batch))
+            return;
+        try {
+            commitNow();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.SEVERE, e, () -> "Batch commit failure - Index: " + indexName);
+        }
+    }
+
+    private Long awaitDurable(final Batch batch) throws IOException {
+        try {
+            return batch.durable.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the commit - Index: " + indexName);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            throw new IOException("The batch commit failed - Index: " + indexName, cause);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (committer == null)
+            return;
+        committer.shutdownNow();
+        synchronized (this) {
+            if (pendingBatch == null)
+                return;
+        }
+        try {
+            commitNow();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, e, () -> "Cannot commit the pending batch - Index: " + indexName);
+        }
+    }
+
+    private static class Batch {
+
+        private final CompletableFuture<Long> durable = new CompletableFuture<>();
+        private int docs;
+        private boolean flushRequested;
+
+    }
+}
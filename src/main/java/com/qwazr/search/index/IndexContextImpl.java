@@ -45,6 +45,18 @@ class IndexContextImpl implements IndexContext, Closeable {
 		this.fieldMap = fieldMap;
 	}
 
+	/**
+	 * Share the analyzers of an existing context, only the source context closes them.
+	 */
+	IndexContextImpl(final IndexContextImpl src) {
+		this.indexProvider = src.indexProvider;
+		this.resourceLoader = src.resourceLoader;
+		this.executorService = src.executorService;
+		this.queryAnalyzers = src.queryAnalyzers;
+		this.indexAnalyzers = src.indexAnalyzers;
+		this.fieldMap = src.fieldMap;
+	}
+
 	@Override
 	final public IndexInstance getIndex(final String indexName) {
 		return indexProvider == null ? null : indexProvider.getIndex(indexName);
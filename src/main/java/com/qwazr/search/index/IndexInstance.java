@@ -15,6 +15,7 @@
  */
 package com.qwazr.search.index;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.qwazr.binder.FieldMapWrapper;
 import com.qwazr.search.analysis.AnalyzerContext;
 import com.qwazr.search.analysis.AnalyzerDefinition;
@@ -31,9 +32,11 @@ import com.qwazr.utils.FileUtils;
 import com.qwazr.utils.IOUtils;
 import com.qwazr.utils.LoggerUtils;
 import com.qwazr.utils.StringUtils;
+import com.qwazr.utils.concurrent.ConsumerEx;
 import com.qwazr.utils.concurrent.FunctionEx;
 import com.qwazr.utils.concurrent.ReadWriteSemaphores;
 import com.qwazr.utils.reflection.ConstructorParametersImpl;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.facet.taxonomy.TaxonomyReader;
 import org.apache.lucene.facet.taxonomy.TaxonomyWriter;
@@ -49,13 +52,16 @@ import org.apache.lucene.search.Query;
 import org.apache.lucene.search.join.JoinUtil;
 import org.apache.lucene.search.join.ScoreMode;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RateLimiter;
 
 import javax.ws.rs.core.Response;
 import java.io.Closeable;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.lang.reflect.Field;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -78,6 +84,16 @@ final public class IndexInstance implements Closeable {
 
     private final static Logger LOGGER = LoggerUtils.getLogger(IndexInstance.class);
 
+    private final static int WAIT_FOR_GENERATION_MAX_MS = 10_000;
+
+    /**
+     * The longest time the master holds a follow request.
+     * The slave caps its own wait below the timeout of the master location (see getReplicationFollowWaitMs).
+     */
+    private final static int MAX_REPLICATION_WAIT_MS = 120_000;
+
+    private final static int EXPORT_BATCH_SIZE = 1000;
+
     @FunctionalInterface
     public interface Provider {
         IndexInstance getIndex(String name);
@@ -88,18 +104,23 @@ final public class IndexInstance implements Closeable {
     private final String indexName;
 
     private final ReadWriteSemaphores readWriteSemaphores;
+    private final IndexAdmission admission;
     private final Directory dataDirectory;
     private final Directory taxonomyDirectory;
     private final WriterAndSearcher writerAndSearcher;
+    private final IndexCommitter indexCommitter;
+    private final ScrollSessions scrollSessions;
+    private final RequestCache requestCache;
 
     private final ExecutorService executorService;
     private final IndexSettingsDefinition settings;
+    private final int bulkThreads;
+    private final int bulkChunkSize;
     private final ConstructorParametersImpl instanceFactory;
     private final FileResourceLoader fileResourceLoader;
     private final Provider indexProvider;
 
     private final ReentrantLock replicationLock;
-    private final ReentrantLock commitLock;
     private final ReentrantLock backupLock;
 
     private final UpdatableAnalyzers indexAnalyzers;
@@ -114,6 +135,8 @@ final public class IndexInstance implements Closeable {
 
     private final ReplicationMaster replicationMaster;
     private final ReplicationSlave replicationSlave;
+    private final ReplicationFollower replicationFollower;
+    private volatile boolean closed;
 
     IndexInstance(final IndexInstanceBuilder builder) {
         this.readWriteSemaphores = builder.readWriteSemaphores;
@@ -129,33 +152,81 @@ final public class IndexInstance implements Closeable {
         this.fieldMapLock = new ReentrantLock(true);
         this.fieldMap = builder.fieldMap;
         this.writerAndSearcher = builder.writerAndSearcher;
+        this.indexCommitter = builder.indexCommitter;
+        this.scrollSessions = new ScrollSessions(indexName);
         this.indexAnalyzers = builder.indexAnalyzers;
         this.queryAnalyzers = builder.queryAnalyzers;
         this.settings = builder.settings;
+        this.admission = new IndexAdmission(indexName, settings);
+        this.requestCache = RequestCache.of(settings);
+        if (requestCache != null)
+            writerAndSearcher.addRefreshListener(requestCache);
+        this.bulkThreads = settings == null || settings.bulkThreads == null ? 0 : settings.bulkThreads;
+        this.bulkChunkSize = settings == null || settings.bulkChunkSize == null ?
+                IndexSettingsDefinition.DEFAULT_BULK_CHUNK_SIZE :
+                settings.bulkChunkSize;
         this.executorService = builder.executorService;
         this.instanceFactory = builder.instanceFactory;
         this.fileResourceLoader = builder.fileResourceLoader;
         this.replicationLock = new ReentrantLock(true);
-        this.commitLock = new ReentrantLock(true);
         this.backupLock = new ReentrantLock(true);
         this.replicationMaster = builder.replicationMaster;
         this.replicationSlave = builder.replicationSlave;
+        if (replicationSlave != null && settings != null && Boolean.TRUE.equals(settings.replicationFollow))
+            replicationFollower =
+                    new ReplicationFollower(indexName, getReplicationFollowWaitMs(settings), this::replicationCheck);
+        else
+            replicationFollower = null;
+
+    }
 
+    /**
+     * The master answers a follow request when the wait expires. With a remote master, the answer must come before
+     * the read timeout of the HTTP client: the wait is capped to three quarters of the timeout of the master location.
+     *
+     * @param settings the settings of the slave
+     * @return the time the master may hold a follow request
+     */
+    static int getReplicationFollowWaitMs(final IndexSettingsDefinition settings) {
+        final int waitMs = Math.min(settings.replicationFollowWaitMs == null ?
+                IndexSettingsDefinition.DEFAULT_REPLICATION_FOLLOW_WAIT_MS :
+                settings.replicationFollowWaitMs, MAX_REPLICATION_WAIT_MS);
+        final Integer timeout = settings.master == null ? null : settings.master.timeout;
+        return timeout == null || timeout <= 0 ? waitMs : Math.min(waitMs, timeout / 4 * 3);
     }
 
     public IndexSettingsDefinition getSettings() {
         return settings;
     }
 
+    /**
+     * Start following the master, once the instance is published.
+     */
+    void startReplicationFollower() {
+        if (replicationFollower != null)
+            replicationFollower.start();
+    }
+
     @Override
     public void close() {
-        IOUtils.closeQuietly(writerAndSearcher, replicationMaster, indexAnalyzers, queryAnalyzers);
+        IOUtils.closeQuietly(replicationFollower);
+
+        // A replication in progress completes before the files are closed, the next ones are rejected
+        replicationLock.lock();
+        try {
+            closed = true;
+            IOUtils.closeQuietly(scrollSessions, indexCommitter, writerAndSearcher, replicationMaster, indexAnalyzers,
+                    queryAnalyzers);
 
-        if (taxonomyDirectory != null)
-            IOUtils.closeQuietly(taxonomyDirectory);
+            if (taxonomyDirectory != null)
+                IOUtils.closeQuietly(taxonomyDirectory);
 
-        if (dataDirectory != null)
-            IOUtils.closeQuietly(dataDirectory);
+            if (dataDirectory != null)
+                IOUtils.closeQuietly(dataDirectory);
+        }
+        finally {
+            replicationLock.unlock();
+        }
     }
 
     private IndexStatus getIndexStatus() throws IOException {
@@ -163,7 +234,8 @@ final public class IndexInstance implements Closeable {
                 replicationSlave == null ? null : replicationSlave.getClientMasterUuid(), dataDirectory, indexSearcher,
                 writerAndSearcher.getIndexWriter(), settings, localAnalyzerFactoryMap.keySet(),
                 fieldMap.getFieldDefinitionMap().keySet(), indexAnalyzers.getActiveAnalyzers(),
-                queryAnalyzers.getActiveAnalyzers()));
+                queryAnalyzers.getActiveAnalyzers(), admission.getStatus(),
+                requestCache == null ? null : requestCache.getStats()));
     }
 
     LinkedHashMap<String, FieldDefinition> getFields() {
@@ -171,7 +243,8 @@ final public class IndexInstance implements Closeable {
     }
 
     FieldStats getFieldStats(String fieldName) throws IOException {
-        try (final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireReadSemaphore()) {
+        try (final IndexAdmission.Permit permit = admission.acquire(IndexAdmission.Lane.SEARCH);
+             final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireReadSemaphore()) {
             return writerAndSearcher.search((indexSearcher, taxonomyReader) -> {
                 final Terms terms = MultiTerms.getTerms(indexSearcher.getIndexReader(), fieldName);
                 return terms == null ? new FieldStats() : new FieldStats(terms, fieldMap.getFieldType(null, fieldName));
@@ -205,6 +278,9 @@ final public class IndexInstance implements Closeable {
                         localAnalyzerFactoryMap);
         indexAnalyzers.update(analyzerContext.indexAnalyzerMap);
         queryAnalyzers.update(analyzerContext.queryAnalyzerMap);
+        // The cached responses may depend on the previous fields and analyzers
+        if (requestCache != null)
+            requestCache.clear();
     }
 
     void setFields(final LinkedHashMap<String, FieldDefinition> fields) throws ServerException, IOException {
@@ -213,6 +289,7 @@ final public class IndexInstance implements Closeable {
             fileSet.writeFieldMap(fields);
             fieldMap = new FieldMap(fields, settings.sortedSetFacetField);
             refreshFieldsAnalyzers();
+            notifyReplicationChange();
         }
         finally {
             fieldMapLock.unlock();
@@ -240,8 +317,10 @@ final public class IndexInstance implements Closeable {
     private void updateLocalAnalyzers(boolean writeConfigFile) throws IOException {
         refreshFieldsAnalyzers();
         analyzerDefinitionMap = CustomAnalyzer.createDefinitionMap(localAnalyzerFactoryMap);
-        if (writeConfigFile)
+        if (writeConfigFile) {
             fileSet.writeAnalyzerDefinitionMap(analyzerDefinitionMap);
+            notifyReplicationChange();
+        }
     }
 
     void refreshAnalyzers() throws IOException {
@@ -329,16 +408,10 @@ final public class IndexInstance implements Closeable {
     }
 
     private void nrtCommit() throws IOException {
-        commitLock.lock();
-        try {
-            writerAndSearcher.commit();
-        }
-        finally {
-            commitLock.unlock();
-        }
+        indexCommitter.commitNow();
     }
 
-    final BackupStatus backup(final Path backupIndexDirectory) throws IOException {
+    final BackupStatus backup(final Path backupIndexDirectory, final RateLimiter rateLimiter) throws IOException {
         backupLock.lock();
         try {
             // check the backup directory existence
@@ -348,8 +421,10 @@ final public class IndexInstance implements Closeable {
                 throw new IOException(
                         "The backup path is not a directory: " + backupIndexDirectory.toAbsolutePath() + " " +
                                 Thread.currentThread().getId());
-            try (final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireReadSemaphore()) {
-                return new ReplicationBackup(this, backupIndexDirectory, taxonomyDirectory != null).backup();
+            try (final IndexAdmission.Permit permit = admission.acquire(IndexAdmission.Lane.MAINTENANCE);
+                 final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireReadSemaphore()) {
+                return new ReplicationBackup(this, backupIndexDirectory, fileSet.mainDirectory,
+                        taxonomyDirectory != null, rateLimiter).backup();
             }
             catch (IOException e) {
                 // If any error occurred, we delete the backup directory
@@ -400,11 +475,38 @@ final public class IndexInstance implements Closeable {
         return replicationMaster;
     }
 
-    ReplicationSession replicationUpdate(String currentVersion) throws IOException {
-        //TODO check current version to avoid non useful replication
+    /**
+     * Wake up the slaves waiting for a new version
+     */
+    private void notifyReplicationChange() {
+        if (replicationMaster != null)
+            replicationMaster.notifyChange();
+    }
+
+    /**
+     * Open a replication session. If the slave already has the current version, the request is held until the
+     * content changes or the wait expires (long polling). The slave compares the version of the returned session
+     * to know if something has to be replicated.
+     *
+     * @param currentVersion the version already replicated by the slave, or null
+     * @param waitMs         the maximum time to wait for a change
+     * @return a new replication session
+     */
+    ReplicationSession replicationUpdate(final String currentVersion, final Integer waitMs) throws IOException {
         final ReplicationMaster master = checkIsMaster();
         master.expireInactiveSessions(TimeUnit.MINUTES, 30);
-        return master.newReplicationSession();
+        final long deadline = System.currentTimeMillis() +
+                (waitMs == null ? 0 : Math.min(Math.max(waitMs, 0), MAX_REPLICATION_WAIT_MS));
+        for (; ; ) {
+            // Read before the snapshot, a change made in between wakes up the wait
+            final long changeCount = master.getChangeCount();
+            final ReplicationSession session = master.newReplicationSession();
+            final long remaining = deadline - System.currentTimeMillis();
+            if (currentVersion == null || !currentVersion.equals(session.version) || remaining <= 0)
+                return session;
+            master.releaseSession(session.sessionUuid);
+            master.awaitChange(changeCount, remaining);
+        }
     }
 
     void replicationRelease(String sessionID) throws IOException {
@@ -418,34 +520,91 @@ final public class IndexInstance implements Closeable {
         return checkIsMaster().getItem(sessionID, source, fileName);
     }
 
+    /**
+     * Obtain a range of a replicated file
+     *
+     * @param offset the position of the first byte
+     * @param length the number of bytes, or null to read until the end of the file
+     * @return the stream, or null if the file does not exist
+     */
+    InputStream replicationObtain(final String sessionID, final ReplicationProcess.Source source,
+                                  final String fileName, final long offset, final Long length) throws IOException {
+        final InputStream input = replicationObtain(sessionID, source, fileName);
+        if (input == null)
+            return null;
+        try {
+            // The file streams seek on skip
+            long toSkip = offset;
+            while (toSkip > 0) {
+                final long skipped = input.skip(toSkip);
+                if (skipped <= 0)
+                    throw new EOFException("Offset " + offset + " beyond the end of " + fileName);
+                toSkip -= skipped;
+            }
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+        return length == null ? input : new BoundedInputStream(input, length);
+    }
+
     ReplicationStatus replicationCheck() throws IOException {
+        return replicationCheck(0);
+    }
+
+    /**
+     * Replicate the master, if the master has a new version.
+     *
+     * @param waitMs the maximum time the master may hold the request until it has a new version
+     * @return the status of the replication
+     */
+    ReplicationStatus replicationCheck(final int waitMs) throws IOException {
         if (replicationSlave == null)
             throw new ServerException(Response.Status.NOT_ACCEPTABLE,
                     "No replication master has been setup - Index: " + indexName);
 
-        try (final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireWriteSemaphore()) {
-            // We only want one replication at a time
-            replicationLock.lock();
-            try {
-                return replicationSlave.replicate(((strategy, remoteMasterUuid) -> {
-                    if (strategy == ReplicationStatus.Strategy.incremental)
-                        writerAndSearcher.refresh();
-                    else
-                        writerAndSearcher.reload();
-                    reloadAnalyzersAndFields();
-                    replicationSlave.setClientMasterUuid(remoteMasterUuid);
-                    // Add fields and analyzers reload
-                }));
-            }
-            finally {
-                replicationLock.unlock();
+        // The long polling runs outside of the admission and of the replication lock
+        final ReplicationSession session = replicationSlave.openSession(waitMs);
+        try {
+            if (replicationSlave.isUpToDate(session))
+                return replicationSlave.upToDateStatus(session);
+            try (final IndexAdmission.Permit permit = admission.acquire(IndexAdmission.Lane.MAINTENANCE)) {
+                // We only want one replication at a time
+                replicationLock.lock();
+                try {
+                    if (closed)
+                        throw new ServerException(Response.Status.SERVICE_UNAVAILABLE,
+                                "The index is closed - Index: " + indexName);
+                    // The download runs without the write semaphore, the searcher keeps serving the current files.
+                    // Only moving the new files in place, reopening the searcher and deleting the files of the
+                    // previous searcher is exclusive.
+                    return replicationSlave.replicate(session, (strategy, remoteMasterUuid, moveInPlace) -> {
+                        try (final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireWriteSemaphore()) {
+                            moveInPlace.move();
+                            if (strategy == ReplicationStatus.Strategy.incremental)
+                                writerAndSearcher.refresh();
+                            else
+                                writerAndSearcher.reload();
+                            reloadAnalyzersAndFields();
+                            replicationSlave.setClientMasterUuid(remoteMasterUuid);
+                            moveInPlace.deleteOldFiles();
+                        }
+                    });
+                }
+                finally {
+                    replicationLock.unlock();
+                }
             }
         }
+        finally {
+            replicationSlave.releaseSession(session);
+        }
     }
 
     final void deleteAll(Map<String, String> commitUserData) throws IOException {
         checkIsMaster();
-        try (final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireWriteSemaphore()) {
+        try (final IndexAdmission.Permit permit = admission.acquire(IndexAdmission.Lane.WRITE);
+             final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireWriteSemaphore()) {
             writerAndSearcher.write((indexWriter, taxonomyWriter) -> {
                 indexWriter.deleteAll();
                 if (commitUserData != null)
@@ -459,7 +618,8 @@ final public class IndexInstance implements Closeable {
     final IndexStatus merge(final IndexInstance mergedIndex, final Map<String, String> commitUserData)
             throws IOException {
         checkIsMaster();
-        try (final ReadWriteSemaphores.Lock writeLock = readWriteSemaphores.acquireWriteSemaphore()) {
+        try (final IndexAdmission.Permit permit = admission.acquire(IndexAdmission.Lane.WRITE);
+             final ReadWriteSemaphores.Lock writeLock = readWriteSemaphores.acquireWriteSemaphore()) {
             writerAndSearcher.write((indexWriter, taxonomyWriter) -> {
                 try (final ReadWriteSemaphores.Lock readLock = mergedIndex.readWriteSemaphores.acquireReadSemaphore()) {
                     indexWriter.addIndexes(mergedIndex.dataDirectory);
@@ -475,11 +635,12 @@ final public class IndexInstance implements Closeable {
 
     private WriteContextImpl buildWriteContext(final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter) {
         return new WriteContextImpl(indexProvider, fileResourceLoader, executorService, indexAnalyzers, queryAnalyzers,
-                fieldMap, indexWriter, taxonomyWriter);
+                fieldMap, indexName, indexWriter, taxonomyWriter, bulkThreads, bulkChunkSize);
     }
 
     final <T> T write(final IndexServiceInterface.WriteActions<T> writeActions) throws IOException {
-        try (final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireWriteSemaphore()) {
+        try (final IndexAdmission.Permit permit = admission.acquire(IndexAdmission.Lane.WRITE);
+             final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireWriteSemaphore()) {
             return writerAndSearcher.write(((indexWriter, taxonomyWriter) -> {
                 try (final WriteContext context = buildWriteContext(indexWriter, taxonomyWriter)) {
                     return writeActions.apply(context);
@@ -488,68 +649,116 @@ final public class IndexInstance implements Closeable {
         }
     }
 
-    private int checkCommit(final int results, final Map<String, String> commitUserData) throws IOException {
-        if (results > 0 || (commitUserData != null && !commitUserData.isEmpty()))
-            nrtCommit();
+    /**
+     * The commit is done once the write semaphore is released,
+     * so that a group commit does not hold the semaphore while waiting for its batch.
+     */
+    private int checkCommit(final int results, final Map<String, String> commitUserData,
+                            final WriteGenerations generations) throws IOException {
+        if (results > 0 || (commitUserData != null && !commitUserData.isEmpty())) {
+            if (generations != null)
+                generations.nrtGeneration = writerAndSearcher.getIndexWriter().getMaxCompletedSequenceNumber();
+            final Long commitGeneration = indexCommitter.commit(results);
+            if (generations != null)
+                generations.commitGeneration = commitGeneration;
+        }
         return results;
     }
 
-    private int checkCommit(final int results, final PostDefinition post) throws IOException {
-        return checkCommit(results, post == null ? null : post.commitUserData);
+    private int checkCommit(final int results, final PostDefinition post, final WriteGenerations generations)
+            throws IOException {
+        return checkCommit(results, post == null ? null : post.commitUserData, generations);
+    }
+
+    private int checkCommit(final int results, final WriteGenerations generations) throws IOException {
+        return checkCommit(results, Collections.emptyMap(), generations);
     }
 
     final <T> int postDocument(final Map<String, Field> fields, final T document,
                                final Map<String, String> commitUserData, boolean update) throws IOException {
         checkIsMaster();
-        return write(
-                context -> checkCommit(context.postDocument(fields, document, commitUserData, update), commitUserData));
+        return checkCommit(write(context -> context.postDocument(fields, document, commitUserData, update)),
+                commitUserData, null);
     }
 
     final <T> int postDocuments(final Map<String, Field> fields, final Collection<T> documents,
                                 final Map<String, String> commitUserData, final boolean update) throws IOException {
         checkIsMaster();
-        return write(context -> checkCommit(context.postDocuments(fields, documents, commitUserData, update),
-                commitUserData));
+        return checkCommit(write(context -> context.postDocuments(fields, documents, commitUserData, update)),
+                commitUserData, null);
     }
 
-    final int postMappedDocument(final PostDefinition.Document post) throws IOException {
+    final int postMappedDocument(final PostDefinition.Document post, final WriteGenerations generations)
+            throws IOException {
         checkIsMaster();
-        return write(context -> checkCommit(context.postMappedDocument(post), post));
+        return checkCommit(write(context -> context.postMappedDocument(post)), post, generations);
     }
 
-    final int postMappedDocuments(final PostDefinition.Documents post) throws IOException {
+    final int postMappedDocuments(final PostDefinition.Documents post, final WriteGenerations generations)
+            throws IOException {
+        checkIsMaster();
+        return checkCommit(write(context -> context.postMappedDocuments(post)), post, generations);
+    }
+
+    /**
+     * Index the documents of a stream chunk by chunk, each chunk being a write request.
+     *
+     * @param parser   the parser of the NDJSON or Smile stream
+     * @param update   true to update the documents, false to add them
+     * @param progress receives a progress line after each chunk
+     * @return the last progress line
+     * @throws IOException if the stream cannot be read, or if the writer failed
+     */
+    final StreamProgress postStreamedDocuments(final JsonParser parser, final boolean update,
+                                               final ConsumerEx<StreamProgress, IOException> progress)
+            throws IOException {
         checkIsMaster();
-        return write(context -> checkCommit(context.postMappedDocuments(post), post));
+        final StreamPoster streamPoster = new StreamPoster(parser, bulkChunkSize);
+        final WriteGenerations generations = new WriteGenerations();
+        List<StreamPoster.Line> chunk;
+        while (!(chunk = streamPoster.readChunk()).isEmpty()) {
+            final List<StreamPoster.Line> lines = chunk;
+            checkCommit(write(context -> streamPoster.post(lines,
+                    () -> RecordsPoster.create(indexName, fieldMap, context.getIndexWriter(),
+                            context.getTaxonomyWriter(), update))), generations);
+            StreamPoster.applyBackpressure(writerAndSearcher.getIndexWriter());
+            progress.accept(streamPoster.progress(generations, false));
+        }
+        return streamPoster.progress(generations, true);
     }
 
     final <T> int updateDocValues(final Map<String, Field> fields, final T document,
                                   final Map<String, String> commitUserData) throws IOException {
         checkIsMaster();
-        return write(context -> checkCommit(context.updateDocValues(fields, document, commitUserData), commitUserData));
+        return checkCommit(write(context -> context.updateDocValues(fields, document, commitUserData)),
+                commitUserData, null);
     }
 
     final <T> int updateDocsValues(final Map<String, Field> fields, final Collection<T> documents,
                                    final Map<String, String> commitUserData) throws IOException {
         checkIsMaster();
-        return write(
-                context -> checkCommit(context.updateDocsValues(fields, documents, commitUserData), commitUserData));
+        return checkCommit(write(context -> context.updateDocsValues(fields, documents, commitUserData)),
+                commitUserData, null);
     }
 
-    final int updateMappedDocValues(final PostDefinition.Document post) throws IOException {
+    final int updateMappedDocValues(final PostDefinition.Document post, final WriteGenerations generations)
+            throws IOException {
         checkIsMaster();
-        return write(context -> checkCommit(context.updateMappedDocValues(post), post));
+        return checkCommit(write(context -> context.updateMappedDocValues(post)), post, generations);
     }
 
-    final int updateMappedDocsValues(final PostDefinition.Documents post) throws IOException {
+    final int updateMappedDocsValues(final PostDefinition.Documents post, final WriteGenerations generations)
+            throws IOException {
         checkIsMaster();
-        return write(context -> checkCommit(context.updateMappedDocsValues(post), post));
+        return checkCommit(write(context -> context.updateMappedDocsValues(post)), post, generations);
     }
 
     final ResultDefinition.WithMap deleteByQuery(final QueryDefinition queryDefinition) throws IOException {
         checkIsMaster();
         Objects.requireNonNull(queryDefinition, "The queryDefinition is missing - Index: " + indexName);
         Objects.requireNonNull(queryDefinition.query, "The query is missing - Index: " + indexName);
-        try (final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireWriteSemaphore()) {
+        try (final IndexAdmission.Permit permit = admission.acquire(IndexAdmission.Lane.WRITE);
+             final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireWriteSemaphore()) {
             return writerAndSearcher.search((indexSearcher, taxonomyReader) -> {
                 try (final QueryContext queryContext = buildQueryContext(indexSearcher, taxonomyReader, null)) {
                     final Query query = queryDefinition.query.getQuery(queryContext);
@@ -572,7 +781,8 @@ final public class IndexInstance implements Closeable {
     final List<TermEnumDefinition> getTermsEnum(final String fieldName, final String prefix, final Integer start,
                                                 final Integer rows) throws InterruptedException, IOException {
         Objects.requireNonNull(fieldName, "The field name is missing - Index: " + indexName);
-        try (final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireReadSemaphore()) {
+        try (final IndexAdmission.Permit permit = admission.acquire(IndexAdmission.Lane.SEARCH);
+             final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireReadSemaphore()) {
             return writerAndSearcher.search((indexSearcher, taxonomyReader) -> {
                 final FieldTypeInterface fieldType = fieldMap.getFieldType(null, fieldName);
                 if (fieldType == null)
@@ -587,15 +797,39 @@ final public class IndexInstance implements Closeable {
         }
     }
 
+    /**
+     * Read-your-writes: wait until the searcher covers the generation requested by the query.
+     */
+    final void waitForGeneration(final QueryDefinition queryDefinition) throws IOException {
+        if (queryDefinition == null || queryDefinition.waitForGeneration == null)
+            return;
+        // A stale generation (from before a restart, or from another index) is never reached
+        final IndexWriter indexWriter = writerAndSearcher.getIndexWriter();
+        if (indexWriter != null && queryDefinition.waitForGeneration > indexWriter.getMaxCompletedSequenceNumber())
+            throw new ServerException(Response.Status.BAD_REQUEST,
+                    "The generation " + queryDefinition.waitForGeneration + " has not been written - Index: " +
+                            indexName);
+        try {
+            if (!writerAndSearcher.waitForGeneration(queryDefinition.waitForGeneration, WAIT_FOR_GENERATION_MAX_MS))
+                throw new ServerException(Response.Status.SERVICE_UNAVAILABLE,
+                        "The generation " + queryDefinition.waitForGeneration + " is not searchable yet - Index: " +
+                                indexName);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the generation - Index: " + indexName);
+        }
+    }
+
     private QueryContextImpl buildQueryContext(final IndexSearcher indexSearcher, final TaxonomyReader taxonomyReader,
                                                final FieldMapWrapper.Cache fieldMapWrappers) throws IOException {
         return new QueryContextImpl(indexProvider, fileResourceLoader, executorService, indexAnalyzers, queryAnalyzers,
-                fieldMap, fieldMapWrappers, indexSearcher, taxonomyReader);
+                fieldMap, fieldMapWrappers, indexSearcher, taxonomyReader, requestCache);
     }
 
     final <T> T query(final FieldMapWrapper.Cache fieldMapWrappers,
                       final IndexServiceInterface.QueryActions<T> queryActions) throws IOException {
-        try (final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireReadSemaphore()) {
+        try (final IndexAdmission.Permit permit = admission.acquire(IndexAdmission.Lane.SEARCH);
+             final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireReadSemaphore()) {
             return writerAndSearcher.search((indexSearcher, taxonomyReader) -> {
                 try (final QueryContextImpl context = buildQueryContext(indexSearcher, taxonomyReader,
                         fieldMapWrappers)) {
@@ -606,7 +840,8 @@ final public class IndexInstance implements Closeable {
     }
 
     final Explanation explain(final QueryDefinition queryDefinition, final int docId) throws IOException {
-        try (final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireReadSemaphore()) {
+        try (final IndexAdmission.Permit permit = admission.acquire(IndexAdmission.Lane.SEARCH);
+             final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireReadSemaphore()) {
             return writerAndSearcher.search((indexSearcher, taxonomyReader) -> {
                 try (final QueryContextImpl context = buildQueryContext(indexSearcher, taxonomyReader, null)) {
                     return new QueryExecution<>(context, queryDefinition).explain(docId);
@@ -618,6 +853,71 @@ final public class IndexInstance implements Closeable {
         }
     }
 
+    private ScrollSession newScrollSession(final QueryDefinition queryDefinition, final long idleTimeoutMs)
+            throws IOException {
+        Objects.requireNonNull(queryDefinition, "The queryDefinition is missing - Index: " + indexName);
+        final WriterAndSearcher.Pinned pinned = writerAndSearcher.pin();
+        try (final QueryContextImpl context = buildQueryContext(pinned.indexSearcher, pinned.taxonomyReader, null)) {
+            return new ScrollSession(pinned, context, queryDefinition, idleTimeoutMs);
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeQuietly(pinned);
+            throw e;
+        }
+    }
+
+    private ScrollResult nextScroll(final ScrollSession session, final Integer rows) throws IOException {
+        final List<Map<String, Object>> documents = session.next(rows);
+        if (!session.isDone())
+            return new ScrollResult(session.id, documents, false);
+        scrollSessions.release(session.id);
+        return new ScrollResult(null, documents, true);
+    }
+
+    final ScrollResult openScroll(final QueryDefinition queryDefinition, final Integer idleTimeoutMs)
+            throws IOException {
+        try (final IndexAdmission.Permit permit = admission.acquire(IndexAdmission.Lane.SEARCH);
+             final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireReadSemaphore()) {
+            final ScrollSession session = newScrollSession(queryDefinition,
+                    idleTimeoutMs == null ? ScrollSessions.DEFAULT_IDLE_TIMEOUT_MS : idleTimeoutMs);
+            scrollSessions.register(session);
+            return nextScroll(session, null);
+        }
+    }
+
+    final ScrollResult nextScroll(final String scrollId, final Integer rows) throws IOException {
+        try (final IndexAdmission.Permit permit = admission.acquire(IndexAdmission.Lane.SEARCH);
+             final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireReadSemaphore()) {
+            return nextScroll(scrollSessions.get(scrollId), rows);
+        }
+    }
+
+    final boolean closeScroll(final String scrollId) {
+        return scrollSessions.release(scrollId);
+    }
+
+    /**
+     * Stream every document matching the query, batch after batch, from the same point-in-time view.
+     * The permits are only held while a batch is read, not while the consumer writes it.
+     *
+     * @param queryDefinition the query and the returned fields
+     * @param consumer        receives the batches
+     * @throws IOException if the documents cannot be read, or if the consumer failed
+     */
+    final void export(final QueryDefinition queryDefinition,
+                      final ConsumerEx<List<Map<String, Object>>, IOException> consumer) throws IOException {
+        try (final ScrollSession session = newScrollSession(queryDefinition, Long.MAX_VALUE)) {
+            while (!session.isDone()) {
+                final List<Map<String, Object>> documents;
+                try (final IndexAdmission.Permit permit = admission.acquire(IndexAdmission.Lane.SEARCH);
+                     final ReadWriteSemaphores.Lock lock = readWriteSemaphores.acquireReadSemaphore()) {
+                    documents = session.next(EXPORT_BATCH_SIZE);
+                }
+                if (!documents.isEmpty())
+                    consumer.accept(documents);
+            }
+        }
+    }
+
     Directory getDataDirectory() {
         return dataDirectory;
     }
@@ -680,6 +980,7 @@ final public class IndexInstance implements Closeable {
         if (lastModified != null)
             Files.setLastModifiedTime(resourceFile, FileTime.fromMillis(lastModified));
         refreshFieldsAnalyzers();
+        notifyReplicationChange();
     }
 
     final Map<String, ResourceInfo> getResources() throws IOException {
@@ -709,6 +1010,7 @@ final public class IndexInstance implements Closeable {
             throw new ServerException(Response.Status.NOT_FOUND,
                     "Resource not found : " + resourceName + " - Index: " + indexName);
         Files.delete(resourceFile);
+        notifyReplicationChange();
     }
 
     final FileResourceLoader newResourceLoader(final FileResourceLoader resourceLoader) {
@@ -92,6 +92,7 @@ class IndexInstanceBuilder {
     ReplicationMaster replicationMaster;
     ReplicationSlave replicationSlave;
     WriterAndSearcher writerAndSearcher = null;
+    IndexCommitter indexCommitter = null;
 
     private Similarity similarity;
     private Sort sort;
@@ -125,7 +126,8 @@ class IndexInstanceBuilder {
 
         searcherFactory = MultiThreadSearcherFactory.of(executorService,
                 settings.indexReaderWarmer == null ? true : settings.indexReaderWarmer, similarity,
-                settings.sortedSetFacetField);
+                new SortedSetFacetsState.Loader(settings.sortedSetFacetField, settings.sortedSetFacetCounting),
+                IndexQueryCache.of(settings), IndexQueryCache.policy(settings));
 
         localAnalyzerFactoryMap = fileSet.loadAnalyzerDefinitionMap();
         final LinkedHashMap<String, FieldDefinition> fieldMapDefinition = fileSet.loadFieldMap();
@@ -279,12 +281,12 @@ class IndexInstanceBuilder {
 
         if (IndexSettingsDefinition.useTaxonomyIndex(settings)) {
             openOrCreateTaxonomyIndex(true);
-            replicationSlave = ReplicationSlave.withIndexAndTaxo(fileSet, indexService, settings.master, dataDirectory,
+            replicationSlave = ReplicationSlave.withIndexAndTaxo(fileSet, indexService, settings, dataDirectory,
                     taxonomyDirectory);
             writerAndSearcher = new WriterAndSearcher.WithIndexAndTaxo(null, null,
                     () -> new SearcherTaxonomyManager(dataDirectory, taxonomyDirectory, searcherFactory));
         } else {
-            replicationSlave = ReplicationSlave.withIndex(fileSet, indexService, settings.master, dataDirectory);
+            replicationSlave = ReplicationSlave.withIndex(fileSet, indexService, settings, dataDirectory);
             writerAndSearcher =
                     new WriterAndSearcher.WithIndex(null, () -> new SearcherManager(dataDirectory, searcherFactory));
         }
@@ -306,10 +308,17 @@ class IndexInstanceBuilder {
             writerAndSearcher = new WriterAndSearcher.WithIndex(indexWriter,
                     () -> new SearcherManager(indexWriter, searcherFactory));
         }
+        if (settings != null && settings.nrtTargetMaxStaleMs != null && settings.nrtTargetMaxStaleMs > 0)
+            writerAndSearcher.startReopenThread(indexName, settings.nrtTargetMaxStaleMs,
+                    settings.nrtTargetMinStaleMs == null ?
+                            IndexSettingsDefinition.DEFAULT_NRT_TARGET_MIN_STALE_MS :
+                            settings.nrtTargetMinStaleMs);
+        indexCommitter = new IndexCommitter(indexName, writerAndSearcher, dataDirectory, settings,
+                replicationMaster::notifyChange);
     }
 
     private void abort() {
-        IOUtils.closeQuietly(writerAndSearcher, replicationMaster, indexAnalyzers, queryAnalyzers);
+        IOUtils.closeQuietly(indexCommitter, writerAndSearcher, replicationMaster, indexAnalyzers, queryAnalyzers);
 
         if (taxonomyWriter != null) {
             IOUtils.closeQuietly(taxonomyWriter);
@@ -52,7 +52,12 @@ class IndexInstanceManager implements Closeable {
     private final UUID indexUuid;
     private final String indexName;
     private IndexSettingsDefinition settings;
-    private IndexInstance indexInstance;
+
+    /**
+     * Published once opened, so that the lookups do not take the lock.
+     * Only written under the write lock.
+     */
+    private volatile IndexInstance indexInstance;
 
     IndexInstanceManager(final IndexInstance.Provider indexProvider, final ConstructorParametersImpl instanceFactory,
             final Map<String, SimilarityFactory> similarityFactoryMap,
@@ -82,15 +87,22 @@ class IndexInstanceManager implements Closeable {
     }
 
     private IndexInstance ensureOpen() throws ReflectiveOperationException, IOException {
-        if (indexInstance == null)
-            indexInstance =
-                    new IndexInstanceBuilder(indexProvider, instanceFactory, similarityFactoryMap, analyzerFactoryMap,
-                            sortMap, readWriteSemaphores, executorService, indexServiceInterface, fileSet, settings,
-                            indexUuid, indexName).build();
-        return indexInstance;
+        IndexInstance instance = indexInstance;
+        if (instance == null) {
+            instance = new IndexInstanceBuilder(indexProvider, instanceFactory, similarityFactoryMap, analyzerFactoryMap,
+                    sortMap, readWriteSemaphores, executorService, indexServiceInterface, fileSet, settings, indexUuid,
+                    indexName).build();
+            indexInstance = instance;
+            instance.startReplicationFollower();
+        }
+        return instance;
     }
 
     IndexInstance open() throws Exception {
+        // Fast path: the index is already open
+        final IndexInstance instance = indexInstance;
+        if (instance != null)
+            return instance;
         return rwl.writeEx(this::ensureOpen);
     }
 
@@ -127,7 +139,7 @@ class IndexInstanceManager implements Closeable {
      * @return the loaded instance
      */
     IndexInstance getIndexInstance() {
-        return rwl.read(() -> indexInstance);
+        return indexInstance;
     }
 
     UUID getIndexUuid() {
@@ -135,10 +147,12 @@ class IndexInstanceManager implements Closeable {
     }
 
     private void closeIndex() {
-        if (indexInstance == null)
+        final IndexInstance instance = indexInstance;
+        if (instance == null)
             return;
-        IOUtils.closeQuietly(indexInstance);
+        // Unpublish before closing, so that new lookups reopen the index
         indexInstance = null;
+        IOUtils.closeQuietly(instance);
     }
 
     @Override
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import org.apache.lucene.search.DocValuesFieldExistsQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LRUQueryCache;
+import org.apache.lucene.search.NormsFieldExistsQuery;
+import org.apache.lucene.search.PointInSetQuery;
+import org.apache.lucene.search.PointRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCache;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermRangeQuery;
+import org.apache.lucene.search.UsageTrackingQueryCachingPolicy;
+
+/**
+ * Build the query cache and the caching policy of an index from its settings.
+ * <ul>
+ * <li>GLOBAL: the cache shared by every index of the JVM (Lucene's default cache).</li>
+ * <li>INDEX: a cache dedicated to the index, sized by the query_cache_max_queries and query_cache_max_ram_mb
+ * settings. It is kept across the refreshes of the searcher.</li>
+ * <li>NONE: the queries are never cached.</li>
+ * </ul>
+ */
+final class IndexQueryCache {
+
+    static QueryCache of(final IndexSettingsDefinition settings) {
+        final IndexSettingsDefinition.QueryCachePool pool = settings == null || settings.queryCachePool == null ?
+                IndexSettingsDefinition.QueryCachePool.GLOBAL :
+                settings.queryCachePool;
+        switch (pool) {
+        case NONE:
+            return null;
+        case INDEX:
+            final int maxQueries = settings.queryCacheMaxQueries == null ?
+                    IndexSettingsDefinition.DEFAULT_QUERY_CACHE_MAX_QUERIES :
+                    settings.queryCacheMaxQueries;
+            final double maxRamMb = settings.queryCacheMaxRamMb == null ?
+                    IndexSettingsDefinition.DEFAULT_QUERY_CACHE_MAX_RAM_MB :
+                    settings.queryCacheMaxRamMb;
+            return new LRUQueryCache(maxQueries, (long) (maxRamMb * 1024 * 1024));
+        default:
+        case GLOBAL:
+            return IndexSearcher.getDefaultQueryCache();
+        }
+    }
+
+    static QueryCachingPolicy policy(final IndexSettingsDefinition settings) {
+        final IndexSettingsDefinition.QueryCachePolicy policy = settings == null || settings.queryCachePolicy == null ?
+                IndexSettingsDefinition.QueryCachePolicy.USAGE_TRACKING :
+                settings.queryCachePolicy;
+        final int minFrequency = settings == null || settings.queryCacheMinFrequency == null ?
+                0 :
+                settings.queryCacheMinFrequency;
+        if (policy == IndexSettingsDefinition.QueryCachePolicy.USAGE_TRACKING && minFrequency <= 0)
+            return new UsageTrackingQueryCachingPolicy();
+        return new Policy(policy == IndexSettingsDefinition.QueryCachePolicy.FILTERS, minFrequency);
+    }
+
+    /**
+     * The usage tracking policy of Lucene, which may cache the filters from their first use,
+     * and may require another number of uses for the other queries.
+     */
+    private static final class Policy extends UsageTrackingQueryCachingPolicy {
+
+        private final boolean filters;
+        private final int minFrequency;
+
+        private Policy(final boolean filters, final int minFrequency) {
+            this.filters = filters;
+            this.minFrequency = minFrequency;
+        }
+
+        private static boolean isFilter(final Query query) {
+            return query instanceof TermInSetQuery || query instanceof PointRangeQuery ||
+                    query instanceof PointInSetQuery || query instanceof TermRangeQuery ||
+                    query instanceof DocValuesFieldExistsQuery || query instanceof NormsFieldExistsQuery;
+        }
+
+        @Override
+        protected int minFrequencyToCache(final Query query) {
+            if (filters && isFilter(query))
+                return 1;
+            return minFrequency > 0 ? minFrequency : super.minFrequencyToCache(query);
+        }
+    }
+}
@@ -15,6 +15,10 @@
  */
 package com.qwazr.search.index;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.jaxrs.smile.SmileMediaTypes;
 import com.qwazr.binder.FieldMapWrapper;
 import com.qwazr.search.analysis.AnalyzerDefinition;
 import com.qwazr.search.field.FieldDefinition;
@@ -24,6 +28,8 @@ import com.qwazr.search.replication.ReplicationSession;
 import com.qwazr.server.AbstractServiceImpl;
 import com.qwazr.server.ServerException;
 import com.qwazr.utils.LoggerUtils;
+import com.qwazr.utils.ObjectMappers;
+import com.qwazr.utils.concurrent.ConsumerEx;
 import com.qwazr.utils.concurrent.FunctionEx;
 import org.apache.commons.io.input.AutoCloseInputStream;
 import org.apache.lucene.analysis.Analyzer;
@@ -33,6 +39,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Field;
@@ -46,6 +53,7 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 final class IndexServiceImpl extends AbstractServiceImpl implements IndexServiceInterface, AnnotatedServiceInterface {
@@ -102,6 +110,23 @@ final class IndexServiceImpl extends AbstractServiceImpl implements IndexService
         throw new ServerException(Response.Status.UNAUTHORIZED);
     }
 
+    /**
+     * Report the generations reached by a write request in the HTTP response headers
+     *
+     * @param generations the generations collected during the write request
+     * @param results     the number of written documents
+     * @return the number of written documents
+     */
+    private int writeGenerations(final WriteGenerations generations, final int results) {
+        if (response == null)
+            return results;
+        if (generations.commitGeneration != null)
+            response.setHeader(HEADER_COMMIT_GENERATION, Long.toString(generations.commitGeneration));
+        if (generations.nrtGeneration != null)
+            response.setHeader(HEADER_NRT_GENERATION, Long.toString(generations.nrtGeneration));
+        return results;
+    }
+
     @Override
     final public Map<String, UUID> getIndexes(final String schemaName) {
         try {
@@ -448,7 +473,9 @@ final class IndexServiceImpl extends AbstractServiceImpl implements IndexService
                                             final PostDefinition.Document post) {
         try {
             checkRight(schemaName);
-            return indexManager.get(schemaName).get(indexName, true).postMappedDocument(post);
+            final WriteGenerations generations = new WriteGenerations();
+            return writeGenerations(generations,
+                    indexManager.get(schemaName).get(indexName, true).postMappedDocument(post, generations));
         } catch (Exception e) {
             throw ServerException.getJsonException(LOGGER, e);
         }
@@ -459,7 +486,43 @@ final class IndexServiceImpl extends AbstractServiceImpl implements IndexService
                                              final PostDefinition.Documents post) {
         try {
             checkRight(schemaName);
-            return indexManager.get(schemaName).get(indexName, true).postMappedDocuments(post);
+            final WriteGenerations generations = new WriteGenerations();
+            return writeGenerations(generations,
+                    indexManager.get(schemaName).get(indexName, true).postMappedDocuments(post, generations));
+        } catch (Exception e) {
+            throw ServerException.getJsonException(LOGGER, e);
+        }
+    }
+
+    @Override
+    final public StreamingOutput postStreamedDocuments(final String schemaName, final String indexName,
+                                                       final Boolean update, final String contentType,
+                                                       final InputStream inputStream) {
+        try {
+            checkRight(schemaName);
+            final IndexInstance indexInstance = indexManager.get(schemaName).get(indexName, true);
+            indexInstance.checkIsMaster();
+            final ObjectMapper mapper =
+                    contentType != null && contentType.startsWith(SmileMediaTypes.APPLICATION_JACKSON_SMILE) ?
+                            ObjectMappers.SMILE :
+                            ObjectMappers.JSON;
+            // The progress lines are flushed as they come, the response is sent in chunks
+            return output -> {
+                final ConsumerEx<StreamProgress, IOException> progressWriter = progress -> {
+                    output.write(ObjectMappers.JSON.writeValueAsBytes(progress));
+                    output.write('\n');
+                    output.flush();
+                };
+                try (final JsonParser parser = mapper.getFactory().createParser(inputStream)) {
+                    progressWriter.accept(
+                            indexInstance.postStreamedDocuments(parser, update == null || update, progressWriter));
+                } catch (Exception e) {
+                    // The status code is already sent, the error is reported by the last progress line
+                    LOGGER.log(Level.WARNING, e, () -> "Streamed ingestion failure - Index: " + indexName);
+                    progressWriter.accept(new StreamProgress(null, null, null, null, null, null, true,
+                            e.getMessage() == null ? e.toString() : e.getMessage()));
+                }
+            };
         } catch (Exception e) {
             throw ServerException.getJsonException(LOGGER, e);
         }
@@ -500,7 +563,9 @@ final class IndexServiceImpl extends AbstractServiceImpl implements IndexService
                                                final PostDefinition.Document post) {
         try {
             checkRight(schemaName);
-            return indexManager.get(schemaName).get(indexName, true).updateMappedDocValues(post);
+            final WriteGenerations generations = new WriteGenerations();
+            return writeGenerations(generations,
+                    indexManager.get(schemaName).get(indexName, true).updateMappedDocValues(post, generations));
         } catch (Exception e) {
             throw ServerException.getJsonException(LOGGER, e);
         }
@@ -511,7 +576,9 @@ final class IndexServiceImpl extends AbstractServiceImpl implements IndexService
                                                 final PostDefinition.Documents post) {
         try {
             checkRight(schemaName);
-            return indexManager.get(schemaName).get(indexName, true).updateMappedDocsValues(post);
+            final WriteGenerations generations = new WriteGenerations();
+            return writeGenerations(generations,
+                    indexManager.get(schemaName).get(indexName, true).updateMappedDocsValues(post, generations));
         } catch (Exception e) {
             throw ServerException.getJsonException(LOGGER, e);
         }
@@ -567,12 +634,14 @@ final class IndexServiceImpl extends AbstractServiceImpl implements IndexService
 
     @Override
     final public InputStream replicationObtain(final String schemaName, final String indexName, final String sessionID,
-                                               final String source, final String fileName) {
+                                               final String source, final String fileName, final Long offset,
+                                               final Long length) {
         try {
             checkRight(null);
             final InputStream input = indexManager.get(schemaName)
                     .get(indexName, false)
-                    .replicationObtain(sessionID, ReplicationProcess.Source.valueOf(source), fileName);
+                    .replicationObtain(sessionID, ReplicationProcess.Source.valueOf(source), fileName,
+                            offset == null ? 0 : offset, length);
             if (input == null)
                 throw new ServerException(Response.Status.NOT_FOUND,
                         "File not found: " + fileName + " - Schema/index: " + schemaName + '/' + indexName);
@@ -595,10 +664,10 @@ final class IndexServiceImpl extends AbstractServiceImpl implements IndexService
 
     @Override
     final public ReplicationSession replicationUpdate(final String schemaName, final String indexName,
-                                                      final String currentVersion) {
+                                                      final String currentVersion, final Integer waitMs) {
         try {
             checkRight(null);
-            return indexManager.get(schemaName).get(indexName, false).replicationUpdate(currentVersion);
+            return indexManager.get(schemaName).get(indexName, false).replicationUpdate(currentVersion, waitMs);
         } catch (Exception e) {
             throw ServerException.getJsonException(LOGGER, e);
         }
@@ -788,8 +857,68 @@ final class IndexServiceImpl extends AbstractServiceImpl implements IndexService
             final IndexInstance index = indexManager.get(schemaName).get(indexName, delete != null && delete);
             if (delete != null && delete)
                 return index.deleteByQuery(query);
-            else
-                return index.query(null, context -> context.searchMap(query));
+            index.waitForGeneration(query);
+            return index.query(null, context -> context.searchMap(query));
+        } catch (Exception e) {
+            throw ServerException.getJsonException(LOGGER, e);
+        }
+    }
+
+    @Override
+    final public ScrollResult openScroll(final String schemaName, final String indexName, final Integer idleTimeoutMs,
+                                         final QueryDefinition query) {
+        try {
+            checkRight(schemaName);
+            return indexManager.get(schemaName).get(indexName, false).openScroll(query, idleTimeoutMs);
+        } catch (Exception e) {
+            throw ServerException.getJsonException(LOGGER, e);
+        }
+    }
+
+    @Override
+    final public ScrollResult nextScroll(final String schemaName, final String indexName, final String scrollId,
+                                         final Integer rows) {
+        try {
+            checkRight(schemaName);
+            return indexManager.get(schemaName).get(indexName, false).nextScroll(scrollId, rows);
+        } catch (Exception e) {
+            throw ServerException.getJsonException(LOGGER, e);
+        }
+    }
+
+    @Override
+    final public boolean closeScroll(final String schemaName, final String indexName, final String scrollId) {
+        try {
+            checkRight(schemaName);
+            return indexManager.get(schemaName).get(indexName, false).closeScroll(scrollId);
+        } catch (Exception e) {
+            throw ServerException.getJsonException(LOGGER, e);
+        }
+    }
+
+    @Override
+    final public StreamingOutput exportDocuments(final String schemaName, final String indexName, final String accept,
+                                                 final QueryDefinition query) {
+        try {
+            checkRight(schemaName);
+            final IndexInstance indexInstance = indexManager.get(schemaName).get(indexName, false);
+            final boolean smile = accept != null && accept.startsWith(SmileMediaTypes.APPLICATION_JACKSON_SMILE);
+            final ObjectMapper mapper = smile ? ObjectMappers.SMILE : ObjectMappers.JSON;
+            return output -> {
+                try (final JsonGenerator generator = mapper.getFactory().createGenerator(output)) {
+                    // One JSON document per line
+                    if (!smile)
+                        generator.setRootValueSeparator(null);
+                    indexInstance.export(query, documents -> {
+                        for (final Map<String, Object> document : documents) {
+                            generator.writeObject(document);
+                            if (!smile)
+                                generator.writeRaw('\n');
+                        }
+                        generator.flush();
+                    });
+                }
+            };
         } catch (Exception e) {
             throw ServerException.getJsonException(LOGGER, e);
         }
@@ -800,9 +929,9 @@ final class IndexServiceImpl extends AbstractServiceImpl implements IndexService
                                                                 final QueryDefinition query, final FieldMapWrapper<T> wrapper) {
         try {
             checkRight(schemaName);
-            return indexManager.get(schemaName)
-                    .get(indexName, false)
-                    .query(null, context -> context.searchObject(query, wrapper));
+            final IndexInstance index = indexManager.get(schemaName).get(indexName, false);
+            index.waitForGeneration(query);
+            return index.query(null, context -> context.searchObject(query, wrapper));
         } catch (Exception e) {
             throw ServerException.getJsonException(LOGGER, e);
         }
@@ -813,9 +942,9 @@ final class IndexServiceImpl extends AbstractServiceImpl implements IndexService
                                               ResultDocumentsInterface resultDocuments) {
         try {
             checkRight(schemaName);
-            return indexManager.get(schemaName)
-                    .get(indexName, false)
-                    .query(null, context -> context.searchInterface(query, resultDocuments));
+            final IndexInstance index = indexManager.get(schemaName).get(indexName, false);
+            index.waitForGeneration(query);
+            return index.query(null, context -> context.searchInterface(query, resultDocuments));
         } catch (Exception e) {
             throw ServerException.getJsonException(LOGGER, e);
         }
@@ -31,14 +31,17 @@ import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
 import javax.ws.rs.HEAD;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -58,6 +61,12 @@ public interface IndexServiceInterface extends ServiceInterface {
 
     String MEDIATYPE_TEXT_GRAPHVIZ = "text/vnd.graphviz";
 
+    String MEDIATYPE_NDJSON = "application/x-ndjson";
+
+    String HEADER_COMMIT_GENERATION = "X-QWAZR-Commit-Generation";
+
+    String HEADER_NRT_GENERATION = "X-QWAZR-Nrt-Generation";
+
     @POST
     @Path("/{schema_name}")
     @Produces({ServiceInterface.APPLICATION_JSON_UTF8, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
@@ -274,6 +283,16 @@ public interface IndexServiceInterface extends ServiceInterface {
     Integer postMappedDocuments(@PathParam("schema_name") String schema_name,
                                 @PathParam("index_name") String index_name, PostDefinition.Documents documents);
 
+    @POST
+    @Path("/{schema_name}/{index_name}/docs/stream")
+    @Consumes({MEDIATYPE_NDJSON, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Produces(MEDIATYPE_NDJSON)
+    StreamingOutput postStreamedDocuments(@PathParam("schema_name") String schema_name,
+                                          @PathParam("index_name") String index_name,
+                                          @QueryParam("update") Boolean update,
+                                          @HeaderParam(HttpHeaders.CONTENT_TYPE) String content_type,
+                                          InputStream inputStream);
+
     @POST
     @Path("/{schema_name}/{index_name}/doc/values")
     @Consumes({ServiceInterface.APPLICATION_JSON_UTF8, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
@@ -314,7 +333,13 @@ public interface IndexServiceInterface extends ServiceInterface {
     @Produces(MediaType.APPLICATION_OCTET_STREAM)
     InputStream replicationObtain(@PathParam("schema_name") String schema_name,
                                   @PathParam("index_name") String index_name, @PathParam("session_id") String sessionID,
-                                  @PathParam("source") String source, @PathParam("filename") String fileName);
+                                  @PathParam("source") String source, @PathParam("filename") String fileName,
+                                  @QueryParam("offset") Long offset, @QueryParam("length") Long length);
+
+    default InputStream replicationObtain(final String schemaName, final String indexName, final String sessionID,
+                                          final String source, final String fileName) {
+        return replicationObtain(schemaName, indexName, sessionID, source, fileName, null, null);
+    }
 
     @DELETE
     @Path("/{schema_name}/{index_name}/replication/{session_id}")
@@ -323,11 +348,18 @@ public interface IndexServiceInterface extends ServiceInterface {
                                @PathParam("session_id") String sessionID);
 
     @POST
+    @ManagedAsync
     @Path("/{schema_name}/{index_name}/replication")
     @Consumes({ServiceInterface.APPLICATION_JSON_UTF8, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
     @Produces({ServiceInterface.APPLICATION_JSON_UTF8, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
     ReplicationSession replicationUpdate(@PathParam("schema_name") String schema_name,
-                                         @PathParam("index_name") String index_name, String current_version);
+                                         @PathParam("index_name") String index_name, String current_version,
+                                         @QueryParam("wait_ms") Integer wait_ms);
+
+    default ReplicationSession replicationUpdate(final String schemaName, final String indexName,
+                                                 final String currentVersion) {
+        return replicationUpdate(schemaName, indexName, currentVersion, null);
+    }
 
     @GET
     @ManagedAsync
@@ -367,6 +399,33 @@ public interface IndexServiceInterface extends ServiceInterface {
     ResultDefinition.WithMap searchQuery(@PathParam("schema_name") String schema_name,
                                          @PathParam("index_name") String index_name, QueryDefinition query, @QueryParam("delete") Boolean delete);
 
+    @POST
+    @Path("/{schema_name}/{index_name}/scroll")
+    @Consumes({ServiceInterface.APPLICATION_JSON_UTF8, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Produces({ServiceInterface.APPLICATION_JSON_UTF8, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
+    ScrollResult openScroll(@PathParam("schema_name") String schema_name, @PathParam("index_name") String index_name,
+                            @QueryParam("idle_timeout_ms") Integer idle_timeout_ms, QueryDefinition query);
+
+    @GET
+    @Path("/{schema_name}/{index_name}/scroll/{scroll_id}")
+    @Produces({ServiceInterface.APPLICATION_JSON_UTF8, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
+    ScrollResult nextScroll(@PathParam("schema_name") String schema_name, @PathParam("index_name") String index_name,
+                            @PathParam("scroll_id") String scroll_id, @QueryParam("rows") Integer rows);
+
+    @DELETE
+    @Path("/{schema_name}/{index_name}/scroll/{scroll_id}")
+    @Produces({ServiceInterface.APPLICATION_JSON_UTF8, MediaType.TEXT_PLAIN})
+    boolean closeScroll(@PathParam("schema_name") String schema_name, @PathParam("index_name") String index_name,
+                        @PathParam("scroll_id") String scroll_id);
+
+    @POST
+    @Path("/{schema_name}/{index_name}/export")
+    @Consumes({ServiceInterface.APPLICATION_JSON_UTF8, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
+    @Produces({MEDIATYPE_NDJSON, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
+    StreamingOutput exportDocuments(@PathParam("schema_name") String schema_name,
+                                    @PathParam("index_name") String index_name,
+                                    @HeaderParam(HttpHeaders.ACCEPT) String accept, QueryDefinition query);
+
     @POST
     @Path("/{schema_name}/{index_name}/search/explain/{doc}")
     @Consumes({ServiceInterface.APPLICATION_JSON_UTF8, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
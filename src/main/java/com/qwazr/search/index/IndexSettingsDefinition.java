@@ -48,11 +48,37 @@ public class IndexSettingsDefinition {
         NO, CONCURRENT, SERIAL
     }
 
+    public enum CommitPolicy {
+        PER_REQUEST, GROUP, INTERVAL
+    }
+
+    public enum QueryCachePool {
+        GLOBAL, INDEX, NONE
+    }
+
+    public enum QueryCachePolicy {
+        USAGE_TRACKING, FILTERS
+    }
+
+    public enum SortedSetFacetCounting {
+        GLOBAL_ORDINALS, PER_SEGMENT
+    }
+
     public static final int DEFAULT_MAX_MERGE_AT_ONCE = 10;
     public static final int DEFAULT_SEGMENTS_PER_TIER = 10;
     public static final double DEFAULT_MAX_MERGED_SEGMENT_MB = 5 * 1024 * 1024;
     public static final double DEFAULT_NRT_CACHING_DIRECTORY_MERGE_SIZE_MB = 5;
     public static final double DEFAULT_NRT_CACHING_DIRECTORY_MAX_CACHED_MB = 60;
+    public static final int DEFAULT_COMMIT_INTERVAL_MS = 100;
+    public static final int DEFAULT_COMMIT_MAX_DOCS = 10000;
+    public static final int DEFAULT_NRT_TARGET_MIN_STALE_MS = 10;
+    public static final int DEFAULT_BULK_CHUNK_SIZE = 1000;
+    public static final int DEFAULT_REQUEST_CACHE_SIZE = 256;
+    public static final int DEFAULT_QUERY_CACHE_MAX_QUERIES = 1000;
+    public static final double DEFAULT_QUERY_CACHE_MAX_RAM_MB = 32;
+    public static final int DEFAULT_REPLICATION_CONCURRENCY = 4;
+    public static final int DEFAULT_REPLICATION_CHUNK_SIZE_MB = 64;
+    public static final int DEFAULT_REPLICATION_FOLLOW_WAIT_MS = 30_000;
 
     @JsonProperty("similarity")
     final public String similarity;
@@ -111,6 +137,76 @@ public class IndexSettingsDefinition {
     @JsonProperty("nrt_caching_directory_max_cached_mb")
     final public Double nrtCachingDirectoryMaxCachedMB;
 
+    @JsonProperty("commit_policy")
+    final public CommitPolicy commitPolicy;
+
+    @JsonProperty("commit_interval_ms")
+    final public Integer commitIntervalMs;
+
+    @JsonProperty("commit_max_docs")
+    final public Integer commitMaxDocs;
+
+    @JsonProperty("nrt_target_max_stale_ms")
+    final public Integer nrtTargetMaxStaleMs;
+
+    @JsonProperty("nrt_target_min_stale_ms")
+    final public Integer nrtTargetMinStaleMs;
+
+    @JsonProperty("search_admission")
+    final public AdmissionDefinition searchAdmission;
+
+    @JsonProperty("write_admission")
+    final public AdmissionDefinition writeAdmission;
+
+    @JsonProperty("maintenance_admission")
+    final public AdmissionDefinition maintenanceAdmission;
+
+    @JsonProperty("bulk_threads")
+    final public Integer bulkThreads;
+
+    @JsonProperty("bulk_chunk_size")
+    final public Integer bulkChunkSize;
+
+    @JsonProperty("request_cache_size")
+    final public Integer requestCacheSize;
+
+    @JsonProperty("query_cache_pool")
+    final public QueryCachePool queryCachePool;
+
+    @JsonProperty("query_cache_max_queries")
+    final public Integer queryCacheMaxQueries;
+
+    @JsonProperty("query_cache_max_ram_mb")
+    final public Double queryCacheMaxRamMb;
+
+    @JsonProperty("query_cache_policy")
+    final public QueryCachePolicy queryCachePolicy;
+
+    @JsonProperty("query_cache_min_frequency")
+    final public Integer queryCacheMinFrequency;
+
+    @JsonProperty("sorted_set_facet_counting")
+    final public SortedSetFacetCounting sortedSetFacetCounting;
+
+    @JsonProperty("replication_concurrency")
+    final public Integer replicationConcurrency;
+
+    @JsonProperty("replication_chunk_size_mb")
+    final public Integer replicationChunkSizeMb;
+
+    @JsonProperty("replication_follow")
+    final public Boolean replicationFollow;
+
+    /**
+     * Capped to 120 seconds, and to three quarters of the timeout of the master location:
+     * the master must answer before the read timeout of the client
+     */
+    @JsonProperty("replication_follow_wait_ms")
+    final public Integer replicationFollowWaitMs;
+
+    @JsonProperty("replication_max_mb_per_sec")
+    final public Double replicationMaxMbPerSec;
+
     @JsonCreator
     private IndexSettingsDefinition(@JsonProperty("similarity") final String similarity,
             @JsonProperty("similarity_class") final String similarityClass, @JsonProperty("sort") final String sort,
@@ -128,7 +224,29 @@ public class IndexSettingsDefinition {
             @JsonProperty("index_reader_warmer") final Boolean indexReaderWarmer,
             @JsonProperty("merged_segment_warmer") final Boolean mergedSegmentWarmer,
             @JsonProperty("nrt_caching_directory_max_merge_size_mb") final Double nrtCachingDirectoryMaxMergeSizeMB,
-            @JsonProperty("nrt_caching_directory_max_cached_mb") final Double nrtCachingDirectoryMaxCachedMB) {
+            @JsonProperty("nrt_caching_directory_max_cached_mb") final Double nrtCachingDirectoryMaxCachedMB,
+            @JsonProperty("commit_policy") final CommitPolicy commitPolicy,
+            @JsonProperty("commit_interval_ms") final Integer commitIntervalMs,
+            @JsonProperty("commit_max_docs") final Integer commitMaxDocs,
+            @JsonProperty("nrt_target_max_stale_ms") final Integer nrtTargetMaxStaleMs,
+            @JsonProperty("nrt_target_min_stale_ms") final Integer nrtTargetMinStaleMs,
+            @JsonProperty("search_admission") final AdmissionDefinition searchAdmission,
+            @JsonProperty("write_admission") final AdmissionDefinition writeAdmission,
+            @JsonProperty("maintenance_admission") final AdmissionDefinition maintenanceAdmission,
+            @JsonProperty("bulk_threads") final Integer bulkThreads,
+            @JsonProperty("bulk_chunk_size") final Integer bulkChunkSize,
+            @JsonProperty("request_cache_size") final Integer requestCacheSize,
+            @JsonProperty("query_cache_pool") final QueryCachePool queryCachePool,
+            @JsonProperty("query_cache_max_queries") final Integer queryCacheMaxQueries,
+            @JsonProperty("query_cache_max_ram_mb") final Double queryCacheMaxRamMb,
+            @JsonProperty("query_cache_policy") final QueryCachePolicy queryCachePolicy,
+            @JsonProperty("query_cache_min_frequency") final Integer queryCacheMinFrequency,
+            @JsonProperty("sorted_set_facet_counting") final SortedSetFacetCounting sortedSetFacetCounting,
+            @JsonProperty("replication_concurrency") final Integer replicationConcurrency,
+            @JsonProperty("replication_chunk_size_mb") final Integer replicationChunkSizeMb,
+            @JsonProperty("replication_follow") final Boolean replicationFollow,
+            @JsonProperty("replication_follow_wait_ms") final Integer replicationFollowWaitMs,
+            @JsonProperty("replication_max_mb_per_sec") final Double replicationMaxMbPerSec) {
         this.directoryType = directoryType;
         this.mergeScheduler = mergeScheduler;
         this.similarity = similarity;
@@ -148,6 +266,28 @@ public class IndexSettingsDefinition {
         this.mergedSegmentWarmer = mergedSegmentWarmer;
         this.nrtCachingDirectoryMaxMergeSizeMB = nrtCachingDirectoryMaxMergeSizeMB;
         this.nrtCachingDirectoryMaxCachedMB = nrtCachingDirectoryMaxCachedMB;
+        this.commitPolicy = commitPolicy;
+        this.commitIntervalMs = commitIntervalMs;
+        this.commitMaxDocs = commitMaxDocs;
+        this.nrtTargetMaxStaleMs = nrtTargetMaxStaleMs;
+        this.nrtTargetMinStaleMs = nrtTargetMinStaleMs;
+        this.searchAdmission = searchAdmission;
+        this.writeAdmission = writeAdmission;
+        this.maintenanceAdmission = maintenanceAdmission;
+        this.bulkThreads = bulkThreads;
+        this.bulkChunkSize = bulkChunkSize;
+        this.requestCacheSize = requestCacheSize;
+        this.queryCachePool = queryCachePool;
+        this.queryCacheMaxQueries = queryCacheMaxQueries;
+        this.queryCacheMaxRamMb = queryCacheMaxRamMb;
+        this.queryCachePolicy = queryCachePolicy;
+        this.queryCacheMinFrequency = queryCacheMinFrequency;
+        this.sortedSetFacetCounting = sortedSetFacetCounting;
+        this.replicationConcurrency = replicationConcurrency;
+        this.replicationChunkSizeMb = replicationChunkSizeMb;
+        this.replicationFollow = replicationFollow;
+        this.replicationFollowWaitMs = replicationFollowWaitMs;
+        this.replicationMaxMbPerSec = replicationMaxMbPerSec;
     }
 
     private IndexSettingsDefinition(final Builder builder) {
@@ -170,6 +310,28 @@ public class IndexSettingsDefinition {
         this.mergedSegmentWarmer = builder.mergedSegmentWarmer;
         this.nrtCachingDirectoryMaxMergeSizeMB = builder.nrtCachingDirectoryMaxMergeSizeMB;
         this.nrtCachingDirectoryMaxCachedMB = builder.nrtCachingDirectoryMaxCachedMB;
+        this.commitPolicy = builder.commitPolicy;
+        this.commitIntervalMs = builder.commitIntervalMs;
+        this.commitMaxDocs = builder.commitMaxDocs;
+        this.nrtTargetMaxStaleMs = builder.nrtTargetMaxStaleMs;
+        this.nrtTargetMinStaleMs = builder.nrtTargetMinStaleMs;
+        this.searchAdmission = builder.searchAdmission;
+        this.writeAdmission = builder.writeAdmission;
+        this.maintenanceAdmission = builder.maintenanceAdmission;
+        this.bulkThreads = builder.bulkThreads;
+        this.bulkChunkSize = builder.bulkChunkSize;
+        this.requestCacheSize = builder.requestCacheSize;
+        this.queryCachePool = builder.queryCachePool;
+        this.queryCacheMaxQueries = builder.queryCacheMaxQueries;
+        this.queryCacheMaxRamMb = builder.queryCacheMaxRamMb;
+        this.queryCachePolicy = builder.queryCachePolicy;
+        this.queryCacheMinFrequency = builder.queryCacheMinFrequency;
+        this.sortedSetFacetCounting = builder.sortedSetFacetCounting;
+        this.replicationConcurrency = builder.replicationConcurrency;
+        this.replicationChunkSizeMb = builder.replicationChunkSizeMb;
+        this.replicationFollow = builder.replicationFollow;
+        this.replicationFollowWaitMs = builder.replicationFollowWaitMs;
+        this.replicationMaxMbPerSec = builder.replicationMaxMbPerSec;
     }
 
     final static IndexSettingsDefinition EMPTY = new IndexSettingsDefinition(new Builder());
@@ -232,6 +394,50 @@ public class IndexSettingsDefinition {
             return false;
         if (!Objects.equals(nrtCachingDirectoryMaxCachedMB, s.nrtCachingDirectoryMaxCachedMB))
             return false;
+        if (!Objects.equals(commitPolicy, s.commitPolicy))
+            return false;
+        if (!Objects.equals(commitIntervalMs, s.commitIntervalMs))
+            return false;
+        if (!Objects.equals(commitMaxDocs, s.commitMaxDocs))
+            return false;
+        if (!Objects.equals(nrtTargetMaxStaleMs, s.nrtTargetMaxStaleMs))
+            return false;
+        if (!Objects.equals(nrtTargetMinStaleMs, s.nrtTargetMinStaleMs))
+            return false;
+        if (!Objects.equals(searchAdmission, s.searchAdmission))
+            return false;
+        if (!Objects.equals(writeAdmission, s.writeAdmission))
+            return false;
+        if (!Objects.equals(maintenanceAdmission, s.maintenanceAdmission))
+            return false;
+        if (!Objects.equals(bulkThreads, s.bulkThreads))
+            return false;
+        if (!Objects.equals(bulkChunkSize, s.bulkChunkSize))
+            return false;
+        if (!Objects.equals(requestCacheSize, s.requestCacheSize))
+            return false;
+        if (!Objects.equals(queryCachePool, s.queryCachePool))
+            return false;
+        if (!Objects.equals(queryCacheMaxQueries, s.queryCacheMaxQueries))
+            return false;
+        if (!Objects.equals(queryCacheMaxRamMb, s.queryCacheMaxRamMb))
+            return false;
+        if (!Objects.equals(queryCachePolicy, s.queryCachePolicy))
+            return false;
+        if (!Objects.equals(queryCacheMinFrequency, s.queryCacheMinFrequency))
+            return false;
+        if (!Objects.equals(sortedSetFacetCounting, s.sortedSetFacetCounting))
+            return false;
+        if (!Objects.equals(replicationConcurrency, s.replicationConcurrency))
+            return false;
+        if (!Objects.equals(replicationChunkSizeMb, s.replicationChunkSizeMb))
+            return false;
+        if (!Objects.equals(replicationFollow, s.replicationFollow))
+            return false;
+        if (!Objects.equals(replicationFollowWaitMs, s.replicationFollowWaitMs))
+            return false;
+        if (!Objects.equals(replicationMaxMbPerSec, s.replicationMaxMbPerSec))
+            return false;
         return true;
     }
 
@@ -268,6 +474,28 @@ public class IndexSettingsDefinition {
         private Boolean mergedSegmentWarmer;
         private Double nrtCachingDirectoryMaxMergeSizeMB;
         private Double nrtCachingDirectoryMaxCachedMB;
+        private CommitPolicy commitPolicy;
+        private Integer commitIntervalMs;
+        private Integer commitMaxDocs;
+        private Integer nrtTargetMaxStaleMs;
+        private Integer nrtTargetMinStaleMs;
+        private AdmissionDefinition searchAdmission;
+        private AdmissionDefinition writeAdmission;
+        private AdmissionDefinition maintenanceAdmission;
+        private Integer bulkThreads;
+        private Integer bulkChunkSize;
+        private Integer requestCacheSize;
+        private QueryCachePool queryCachePool;
+        private Integer queryCacheMaxQueries;
+        private Double queryCacheMaxRamMb;
+        private QueryCachePolicy queryCachePolicy;
+        private Integer queryCacheMinFrequency;
+        private SortedSetFacetCounting sortedSetFacetCounting;
+        private Integer replicationConcurrency;
+        private Integer replicationChunkSizeMb;
+        private Boolean replicationFollow;
+        private Integer replicationFollowWaitMs;
+        private Double replicationMaxMbPerSec;
 
         private Builder() {
         }
@@ -291,6 +519,25 @@ public class IndexSettingsDefinition {
             mergedSegmentWarmer = annotatedIndex.mergedSegmentWarmer();
             nrtCachingDirectoryMaxMergeSizeMB = annotatedIndex.nrtCachingDirectoryMaxMergeSizeMB();
             nrtCachingDirectoryMaxCachedMB = annotatedIndex.nrtCachingDirectoryMaxCachedMB();
+            commitPolicy = annotatedIndex.commitPolicy();
+            commitIntervalMs = annotatedIndex.commitIntervalMs();
+            commitMaxDocs = annotatedIndex.commitMaxDocs();
+            nrtTargetMaxStaleMs = annotatedIndex.nrtTargetMaxStaleMs();
+            nrtTargetMinStaleMs = annotatedIndex.nrtTargetMinStaleMs();
+            bulkThreads = annotatedIndex.bulkThreads();
+            bulkChunkSize = annotatedIndex.bulkChunkSize();
+            requestCacheSize = annotatedIndex.requestCacheSize();
+            queryCachePool = annotatedIndex.queryCachePool();
+            queryCacheMaxQueries = annotatedIndex.queryCacheMaxQueries();
+            queryCacheMaxRamMb = annotatedIndex.queryCacheMaxRamMb();
+            queryCachePolicy = annotatedIndex.queryCachePolicy();
+            queryCacheMinFrequency = annotatedIndex.queryCacheMinFrequency();
+            sortedSetFacetCounting = annotatedIndex.sortedSetFacetCounting();
+            replicationConcurrency = annotatedIndex.replicationConcurrency();
+            replicationChunkSizeMb = annotatedIndex.replicationChunkSizeMb();
+            replicationFollow = annotatedIndex.replicationFollow();
+            replicationFollowWaitMs = annotatedIndex.replicationFollowWaitMs();
+            replicationMaxMbPerSec = annotatedIndex.replicationMaxMbPerSec();
         }
 
         private Builder(final IndexSettingsDefinition settings) {
@@ -313,6 +560,28 @@ public class IndexSettingsDefinition {
             this.mergedSegmentWarmer = settings.mergedSegmentWarmer;
             this.nrtCachingDirectoryMaxMergeSizeMB = settings.nrtCachingDirectoryMaxMergeSizeMB;
             this.nrtCachingDirectoryMaxCachedMB = settings.nrtCachingDirectoryMaxCachedMB;
+            this.commitPolicy = settings.commitPolicy;
+            this.commitIntervalMs = settings.commitIntervalMs;
+            this.commitMaxDocs = settings.commitMaxDocs;
+            this.nrtTargetMaxStaleMs = settings.nrtTargetMaxStaleMs;
+            this.nrtTargetMinStaleMs = settings.nrtTargetMinStaleMs;
+            this.searchAdmission = settings.searchAdmission;
+            this.writeAdmission = settings.writeAdmission;
+            this.maintenanceAdmission = settings.maintenanceAdmission;
+            this.bulkThreads = settings.bulkThreads;
+            this.bulkChunkSize = settings.bulkChunkSize;
+            this.requestCacheSize = settings.requestCacheSize;
+            this.queryCachePool = settings.queryCachePool;
+            this.queryCacheMaxQueries = settings.queryCacheMaxQueries;
+            this.queryCacheMaxRamMb = settings.queryCacheMaxRamMb;
+            this.queryCachePolicy = settings.queryCachePolicy;
+            this.queryCacheMinFrequency = settings.queryCacheMinFrequency;
+            this.sortedSetFacetCounting = settings.sortedSetFacetCounting;
+            this.replicationConcurrency = settings.replicationConcurrency;
+            this.replicationChunkSizeMb = settings.replicationChunkSizeMb;
+            this.replicationFollow = settings.replicationFollow;
+            this.replicationFollowWaitMs = settings.replicationFollowWaitMs;
+            this.replicationMaxMbPerSec = settings.replicationMaxMbPerSec;
         }
 
         public Builder type(final Type directoryType) {
@@ -423,6 +692,116 @@ public class IndexSettingsDefinition {
             return this;
         }
 
+        public Builder commitPolicy(final CommitPolicy commitPolicy) {
+            this.commitPolicy = commitPolicy;
+            return this;
+        }
+
+        public Builder commitIntervalMs(final Integer commitIntervalMs) {
+            this.commitIntervalMs = commitIntervalMs;
+            return this;
+        }
+
+        public Builder commitMaxDocs(final Integer commitMaxDocs) {
+            this.commitMaxDocs = commitMaxDocs;
+            return this;
+        }
+
+        public Builder nrtTargetMaxStaleMs(final Integer nrtTargetMaxStaleMs) {
+            this.nrtTargetMaxStaleMs = nrtTargetMaxStaleMs;
+            return this;
+        }
+
+        public Builder nrtTargetMinStaleMs(final Integer nrtTargetMinStaleMs) {
+            this.nrtTargetMinStaleMs = nrtTargetMinStaleMs;
+            return this;
+        }
+
+        public Builder searchAdmission(final AdmissionDefinition searchAdmission) {
+            this.searchAdmission = searchAdmission;
+            return this;
+        }
+
+        public Builder writeAdmission(final AdmissionDefinition writeAdmission) {
+            this.writeAdmission = writeAdmission;
+            return this;
+        }
+
+        public Builder maintenanceAdmission(final AdmissionDefinition maintenanceAdmission) {
+            this.maintenanceAdmission = maintenanceAdmission;
+            return this;
+        }
+
+        public Builder bulkThreads(final Integer bulkThreads) {
+            this.bulkThreads = bulkThreads;
+            return this;
+        }
+
+        public Builder bulkChunkSize(final Integer bulkChunkSize) {
+            this.bulkChunkSize = bulkChunkSize;
+            return this;
+        }
+
+        public Builder requestCacheSize(final Integer requestCacheSize) {
+            this.requestCacheSize = requestCacheSize;
+            return this;
+        }
+
+        public Builder queryCachePool(final QueryCachePool queryCachePool) {
+            this.queryCachePool = queryCachePool;
+            return this;
+        }
+
+        public Builder queryCacheMaxQueries(final Integer queryCacheMaxQueries) {
+            this.queryCacheMaxQueries = queryCacheMaxQueries;
+            return this;
+        }
+
+        public Builder queryCacheMaxRamMb(final Double queryCacheMaxRamMb) {
+            this.queryCacheMaxRamMb = queryCacheMaxRamMb;
+            return this;
+        }
+
+        public Builder queryCachePolicy(final QueryCachePolicy queryCachePolicy) {
+            this.queryCachePolicy = queryCachePolicy;
+            return this;
+        }
+
+        public Builder queryCacheMinFrequency(final Integer queryCacheMinFrequency) {
+            this.queryCacheMinFrequency = queryCacheMinFrequency;
+            return this;
+        }
+
+        public Builder sortedSetFacetCounting(final SortedSetFacetCounting sortedSetFacetCounting) {
+            this.sortedSetFacetCounting = sortedSetFacetCounting;
+            return this;
+        }
+
+        public Builder replicationConcurrency(final Integer replicationConcurrency) {
+            this.replicationConcurrency = replicationConcurrency;
+            return this;
+        }
+
+        public Builder replicationChunkSizeMb(final Integer replicationChunkSizeMb) {
+            this.replicationChunkSizeMb = replicationChunkSizeMb;
+            return this;
+        }
+
+        public Builder replicationFollow(final Boolean replicationFollow) {
+            this.replicationFollow = replicationFollow;
+            return this;
+        }
+
+        public Builder replicationFollowWaitMs(final Integer replicationFollowWaitMs) {
+            this.replicationFollowWaitMs = replicationFollowWaitMs;
+            return this;
+        }
+
+        public Builder replicationMaxMbPerSec(final Double replicationMaxMbPerSec) {
+            this.replicationMaxMbPerSec = replicationMaxMbPerSec;
+            return this;
+        }
+
         public IndexSettingsDefinition build() {
             return new IndexSettingsDefinition(this);
         }
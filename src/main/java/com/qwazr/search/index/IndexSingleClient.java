@@ -22,6 +22,7 @@ import com.qwazr.search.replication.ReplicationSession;
 import com.qwazr.server.RemoteService;
 import com.qwazr.server.ServerException;
 import com.qwazr.server.client.JsonClient;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.AutoCloseInputStream;
 import org.apache.commons.lang3.StringUtils;
 
@@ -30,6 +31,7 @@ import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import java.io.InputStream;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -479,15 +481,20 @@ public class IndexSingleClient extends JsonClient implements IndexServiceInterfa
 
     @Override
     public InputStream replicationObtain(final String schemaName, final String indexName, final String sessionID,
-                                         final String source, final String fileName) {
+                                         final String source, final String fileName, final Long offset,
+                                         final Long length) {
         try {
-            return new AutoCloseInputStream(indexTarget.path(schemaName)
+            WebTarget target = indexTarget.path(schemaName)
                     .path(indexName)
                     .path("replication")
                     .path(sessionID)
                     .path(source)
-                    .path(fileName)
-                    .request(MediaType.APPLICATION_OCTET_STREAM)
+                    .path(fileName);
+            if (offset != null && offset > 0)
+                target = target.queryParam("offset", offset);
+            if (length != null)
+                target = target.queryParam("length", length);
+            return new AutoCloseInputStream(target.request(MediaType.APPLICATION_OCTET_STREAM)
                     .get(InputStream.class));
         } catch (WebApplicationException e) {
             throw ServerException.from(e);
@@ -510,13 +517,15 @@ public class IndexSingleClient extends JsonClient implements IndexServiceInterfa
 
     @Override
     public ReplicationSession replicationUpdate(final String schemaName, final String indexName,
-                                                final String currentVersion) {
+                                                final String currentVersion, final Integer waitMs) {
         try {
-            return indexTarget.path(schemaName)
+            WebTarget target = indexTarget.path(schemaName)
                     .path(indexName)
                     .path("replication")
-                    .queryParam("current_version", currentVersion)
-                    .request(preferedSerializedMediaType)
+                    .queryParam("current_version", currentVersion);
+            if (waitMs != null && waitMs > 0)
+                target = target.queryParam("wait_ms", waitMs);
+            return target.request(preferedSerializedMediaType)
                     .post(Entity.entity(currentVersion, preferedSerializedMediaType), ReplicationSession.class);
         } catch (WebApplicationException e) {
             throw ServerException.from(e);
@@ -622,6 +631,26 @@ public class IndexSingleClient extends JsonClient implements IndexServiceInterfa
         }
     }
 
+    @Override
+    public StreamingOutput postStreamedDocuments(final String schemaName, final String indexName,
+                                                 final Boolean update, final String contentType,
+                                                 final InputStream inputStream) {
+        WebTarget target = indexTarget.path(schemaName).path(indexName).path("docs").path("stream");
+        if (update != null)
+            target = target.queryParam("update", update);
+        final WebTarget streamTarget = target;
+        // The request is sent when the progress is consumed
+        return output -> {
+            try (final InputStream input = streamTarget.request(MEDIATYPE_NDJSON)
+                    .post(Entity.entity(inputStream, contentType == null ? MEDIATYPE_NDJSON : contentType),
+                            InputStream.class)) {
+                IOUtils.copy(input, output);
+            } catch (WebApplicationException e) {
+                throw ServerException.from(e);
+            }
+        };
+    }
+
     @Override
     public Integer updateMappedDocValues(final String schemaName, final String indexName,
                                          final PostDefinition.Document post) {
@@ -709,6 +738,62 @@ public class IndexSingleClient extends JsonClient implements IndexServiceInterfa
         }
     }
 
+    @Override
+    public ScrollResult openScroll(final String schemaName, final String indexName, final Integer idleTimeoutMs,
+                                   final QueryDefinition query) {
+        try {
+            WebTarget target = indexTarget.path(schemaName).path(indexName).path("scroll");
+            if (idleTimeoutMs != null)
+                target = target.queryParam("idle_timeout_ms", idleTimeoutMs);
+            return target.request(preferedSerializedMediaType)
+                    .post(Entity.entity(query, preferedSerializedMediaType), ScrollResult.class);
+        } catch (WebApplicationException e) {
+            throw ServerException.from(e);
+        }
+    }
+
+    @Override
+    public ScrollResult nextScroll(final String schemaName, final String indexName, final String scrollId,
+                                   final Integer rows) {
+        try {
+            WebTarget target = indexTarget.path(schemaName).path(indexName).path("scroll").path(scrollId);
+            if (rows != null)
+                target = target.queryParam("rows", rows);
+            return target.request(preferedSerializedMediaType).get(ScrollResult.class);
+        } catch (WebApplicationException e) {
+            throw ServerException.from(e);
+        }
+    }
+
+    @Override
+    public boolean closeScroll(final String schemaName, final String indexName, final String scrollId) {
+        try {
+            return indexTarget.path(schemaName)
+                    .path(indexName)
+                    .path("scroll")
+                    .path(scrollId)
+                    .request(MediaType.TEXT_PLAIN)
+                    .delete(boolean.class);
+        } catch (WebApplicationException e) {
+            throw ServerException.from(e);
+        }
+    }
+
+    @Override
+    public StreamingOutput exportDocuments(final String schemaName, final String indexName, final String accept,
+                                           final QueryDefinition query) {
+        final WebTarget target = indexTarget.path(schemaName).path(indexName).path("export");
+        // The request is sent when the documents are consumed
+        return output -> {
+            try (final InputStream input = target.request(accept == null ? MEDIATYPE_NDJSON : accept)
+                    .post(Entity.entity(query, preferedSerializedMediaType), InputStream.class)) {
+                IOUtils.copy(input, output);
+            } catch (WebApplicationException e) {
+                throw ServerException.from(e);
+            }
+        };
+    }
+
     @Override
     public ExplainDefinition explainQuery(final String schemaName, final String indexName, final QueryDefinition query,
                                           int docId) {
@@ -141,6 +141,15 @@ public class IndexStatus {
     @JsonProperty("index_sort_fields")
     final public Set<String> indexSortFields;
 
+    @JsonProperty("admission")
+    final public Map<String, AdmissionStatus> admission;
+
+    @JsonProperty("request_cache")
+    final public RequestCacheStats requestCache;
+
+    @JsonProperty("facets_state")
+    final public FacetsStateStats facetsState;
+
     @JsonCreator
     IndexStatus(@JsonProperty("num_docs") Long numDocs, @JsonProperty("num_deleted_docs") Long numDeletedDocs,
             @JsonProperty("has_pending_merges") Boolean hasPendingMerges,
@@ -164,7 +173,10 @@ public class IndexStatus {
             @JsonProperty("directory_cached_ram_used") String directoryCachedRamUsed,
             @JsonProperty("active_index_analyzers") Integer activeIndexAnalyzers,
             @JsonProperty("active_query_analyzers") Integer activeQueryAnalyzers,
-            @JsonProperty("index_sort_fields") Set<String> indexSortFields) {
+            @JsonProperty("index_sort_fields") Set<String> indexSortFields,
+            @JsonProperty("admission") Map<String, AdmissionStatus> admission,
+            @JsonProperty("request_cache") RequestCacheStats requestCache,
+            @JsonProperty("facets_state") FacetsStateStats facetsState) {
         this.numDocs = numDocs;
         this.numDeletedDocs = numDeletedDocs;
         this.mergePolicy = mergePolicy;
@@ -192,12 +204,16 @@ public class IndexStatus {
         this.activeIndexAnalyzers = activeIndexAnalyzers;
         this.activeQueryAnalyzers = activeQueryAnalyzers;
         this.indexSortFields = indexSortFields;
+        this.admission = admission;
+        this.requestCache = requestCache;
+        this.facetsState = facetsState;
     }
 
     public IndexStatus(final UUID indexUuid, final UUID masterUuid, final Directory directory,
             final IndexSearcher indexSearcher, final IndexWriter indexWriter, final IndexSettingsDefinition settings,
             final Set<String> analyzers, final Set<String> fields, final int activeIndexAnalyzers,
-            final int activeQueryAnalyzers) throws IOException {
+            final int activeQueryAnalyzers, final Map<String, AdmissionStatus> admission,
+            final RequestCacheStats requestCache) throws IOException {
         final IndexReader indexReader = indexSearcher.getIndexReader();
         this.numDocs = (long) indexReader.numDocs();
         this.numDeletedDocs = (long) indexReader.numDeletedDocs();
@@ -271,9 +287,14 @@ public class IndexStatus {
         this.activeIndexAnalyzers = activeIndexAnalyzers;
         this.activeQueryAnalyzers = activeQueryAnalyzers;
         this.fields = fields;
+        this.admission = admission;
+        this.requestCache = requestCache;
 
         final QueryCache queryCache = indexSearcher.getQueryCache();
         this.queryCache = queryCache instanceof LRUQueryCache ? new QueryCacheStats((LRUQueryCache) queryCache) : null;
+        this.facetsState = indexSearcher instanceof MultiThreadSearcherFactory.StateIndexSearcher ?
+                ((MultiThreadSearcherFactory.StateIndexSearcher) indexSearcher).getFacetsStateStats() :
+                null;
 
         if (directory != null) {
             if (directory instanceof NRTCachingDirectory) {
@@ -548,13 +569,17 @@ public class IndexStatus {
         @JsonProperty("miss_rate")
         public final Float missRate;
 
+        @JsonProperty("ram_bytes_used")
+        public final Long ramBytesUsed;
+
         private final int hashCode;
 
         @JsonCreator
         QueryCacheStats(@JsonProperty("cache_count") Long cacheCount, @JsonProperty("cache_size") Long cacheSize,
                 @JsonProperty("eviction_count") Long evictionCount, @JsonProperty("hit_count") Long hitCount,
                 @JsonProperty("miss_count") Long missCount, @JsonProperty("total_count") Long totalCount,
-                @JsonProperty("hit_rate") Float hitRate, @JsonProperty("miss_rate") Float missRate) {
+                @JsonProperty("hit_rate") Float hitRate, @JsonProperty("miss_rate") Float missRate,
+                @JsonProperty("ram_bytes_used") Long ramBytesUsed) {
             this.cacheCount = cacheCount;
             this.cacheSize = cacheSize;
             this.evictionCount = evictionCount;
@@ -563,6 +588,7 @@ public class IndexStatus {
             this.totalCount = totalCount;
             this.hitRate = hitRate;
             this.missRate = missRate;
+            this.ramBytesUsed = ramBytesUsed;
             this.hashCode = Objects.hash(cacheCount, cacheSize, evictionCount, hitCount, missCount, totalCount, hitRate,
                     missRate);
         }
@@ -571,7 +597,7 @@ public class IndexStatus {
             this(queryCache.getCacheCount(), queryCache.getCacheSize(), queryCache.getEvictionCount(),
                     queryCache.getHitCount(), queryCache.getMissCount(), queryCache.getTotalCount(),
                     (float) (queryCache.getHitCount() * 100) / queryCache.getTotalCount(),
-                    (float) (queryCache.getMissCount() * 100) / queryCache.getTotalCount());
+                    (float) (queryCache.getMissCount() * 100) / queryCache.getTotalCount(), queryCache.ramBytesUsed());
         }
 
         @Override
@@ -600,7 +626,179 @@ public class IndexStatus {
                 return false;
             if (!Objects.equals(missRate, cache.missRate))
                 return false;
+            if (!Objects.equals(ramBytesUsed, cache.ramBytesUsed))
+                return false;
             return true;
         }
     }
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public static class AdmissionStatus {
+
+        @JsonProperty("max_concurrent")
+        public final Integer maxConcurrent;
+
+        @JsonProperty("max_queue")
+        public final Integer maxQueue;
+
+        @JsonProperty("max_wait_ms")
+        public final Integer maxWaitMs;
+
+        @JsonProperty("active")
+        public final Integer active;
+
+        @JsonProperty("queued")
+        public final Integer queued;
+
+        @JsonProperty("admitted_count")
+        public final Long admittedCount;
+
+        @JsonProperty("rejected_count")
+        public final Long rejectedCount;
+
+        @JsonProperty("timeout_count")
+        public final Long timeoutCount;
+
+        @JsonProperty("wait_count")
+        public final Long waitCount;
+
+        @JsonProperty("mean_wait_ms")
+        public final Float meanWaitMs;
+
+        @JsonProperty("longest_wait_ms")
+        public final Float longestWaitMs;
+
+        @JsonCreator
+        AdmissionStatus(@JsonProperty("max_concurrent") Integer maxConcurrent,
+                @JsonProperty("max_queue") Integer maxQueue, @JsonProperty("max_wait_ms") Integer maxWaitMs,
+                @JsonProperty("active") Integer active, @JsonProperty("queued") Integer queued,
+                @JsonProperty("admitted_count") Long admittedCount, @JsonProperty("rejected_count") Long rejectedCount,
+                @JsonProperty("timeout_count") Long timeoutCount, @JsonProperty("wait_count") Long waitCount,
+                @JsonProperty("mean_wait_ms") Float meanWaitMs, @JsonProperty("longest_wait_ms") Float longestWaitMs) {
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueue = maxQueue;
+            this.maxWaitMs = maxWaitMs;
+            this.active = active;
+            this.queued = queued;
+            this.admittedCount = admittedCount;
+            this.rejectedCount = rejectedCount;
+            this.timeoutCount = timeoutCount;
+            this.waitCount = waitCount;
+            this.meanWaitMs = meanWaitMs;
+            this.longestWaitMs = longestWaitMs;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(maxConcurrent, maxQueue, maxWaitMs, admittedCount);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof AdmissionStatus))
+                return false;
+            final AdmissionStatus a = (AdmissionStatus) o;
+            return Objects.equals(maxConcurrent, a.maxConcurrent) && Objects.equals(maxQueue, a.maxQueue) &&
+                    Objects.equals(maxWaitMs, a.maxWaitMs) && Objects.equals(active, a.active) &&
+                    Objects.equals(queued, a.queued) && Objects.equals(admittedCount, a.admittedCount) &&
+                    Objects.equals(rejectedCount, a.rejectedCount) && Objects.equals(timeoutCount, a.timeoutCount) &&
+                    Objects.equals(waitCount, a.waitCount) && Objects.equals(meanWaitMs, a.meanWaitMs) &&
+                    Objects.equals(longestWaitMs, a.longestWaitMs);
+        }
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public static class RequestCacheStats {
+
+        @JsonProperty("max_size")
+        public final Integer maxSize;
+
+        @JsonProperty("size")
+        public final Integer size;
+
+        @JsonProperty("hit_count")
+        public final Long hitCount;
+
+        @JsonProperty("miss_count")
+        public final Long missCount;
+
+        @JsonProperty("eviction_count")
+        public final Long evictionCount;
+
+        @JsonCreator
+        RequestCacheStats(@JsonProperty("max_size") Integer maxSize, @JsonProperty("size") Integer size,
+                @JsonProperty("hit_count") Long hitCount, @JsonProperty("miss_count") Long missCount,
+                @JsonProperty("eviction_count") Long evictionCount) {
+            this.maxSize = maxSize;
+            this.size = size;
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(maxSize, size, hitCount);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof RequestCacheStats))
+                return false;
+            final RequestCacheStats r = (RequestCacheStats) o;
+            return Objects.equals(maxSize, r.maxSize) && Objects.equals(size, r.size) &&
+                    Objects.equals(hitCount, r.hitCount) && Objects.equals(missCount, r.missCount) &&
+                    Objects.equals(evictionCount, r.evictionCount);
+        }
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public static class FacetsStateStats {
+
+        @JsonProperty("counting")
+        public final IndexSettingsDefinition.SortedSetFacetCounting counting;
+
+        @JsonProperty("build_count")
+        public final Long buildCount;
+
+        @JsonProperty("reuse_count")
+        public final Long reuseCount;
+
+        @JsonProperty("last_build_ms")
+        public final Long lastBuildMs;
+
+        @JsonProperty("total_build_ms")
+        public final Long totalBuildMs;
+
+        @JsonProperty("ram_bytes_used")
+        public final Long ramBytesUsed;
+
+        @JsonCreator
+        FacetsStateStats(@JsonProperty("counting") IndexSettingsDefinition.SortedSetFacetCounting counting,
+                @JsonProperty("build_count") Long buildCount, @JsonProperty("reuse_count") Long reuseCount,
+                @JsonProperty("last_build_ms") Long lastBuildMs, @JsonProperty("total_build_ms") Long totalBuildMs,
+                @JsonProperty("ram_bytes_used") Long ramBytesUsed) {
+            this.counting = counting;
+            this.buildCount = buildCount;
+            this.reuseCount = reuseCount;
+            this.lastBuildMs = lastBuildMs;
+            this.totalBuildMs = totalBuildMs;
+            this.ramBytesUsed = ramBytesUsed;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(counting, buildCount, reuseCount);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof FacetsStateStats))
+                return false;
+            final FacetsStateStats f = (FacetsStateStats) o;
+            return Objects.equals(counting, f.counting) && Objects.equals(buildCount, f.buildCount) &&
+                    Objects.equals(reuseCount, f.reuseCount) && Objects.equals(lastBuildMs, f.lastBuildMs) &&
+                    Objects.equals(totalBuildMs, f.totalBuildMs) && Objects.equals(ramBytesUsed, f.ramBytesUsed);
+        }
+    }
 }
@@ -32,9 +32,9 @@ class MixedDrillSideways extends DrillSideways {
 
     private final String stateIndexField;
 
-    MixedDrillSideways(QueryExecution queryExecution) {
+    MixedDrillSideways(QueryExecution queryExecution) throws IOException {
         super(queryExecution.queryContext.indexSearcher, queryExecution.facetsConfig,
-                queryExecution.queryContext.taxonomyReader, queryExecution.queryContext.docValueReaderState,
+                queryExecution.queryContext.taxonomyReader, queryExecution.queryContext.getDocValueReaderState(),
                 queryExecution.queryContext.executorService);
         this.stateIndexField = state == null ? null : state.getField();
     }
@@ -16,11 +16,12 @@
 package com.qwazr.search.index;
 
 import com.qwazr.utils.concurrent.ConsumerEx;
-import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SimpleMergedSegmentWarmer;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.QueryCache;
+import org.apache.lucene.search.QueryCachingPolicy;
 import org.apache.lucene.search.SearcherFactory;
 import org.apache.lucene.search.similarities.Similarity;
 import org.apache.lucene.util.InfoStream;
@@ -36,21 +37,32 @@ class MultiThreadSearcherFactory extends SearcherFactory {
     private final static ConsumerEx<IndexReader, IOException> WITH_WARM = MultiThreadSearcherFactory::warmReader;
 
     static MultiThreadSearcherFactory of(final ExecutorService executorService, final boolean useWarmer,
-                                         final Similarity similarity, final String stateFacetField) {
+                                         final Similarity similarity,
+                                         final SortedSetFacetsState.Loader facetsStateLoader,
+                                         final QueryCache queryCache, final QueryCachingPolicy queryCachingPolicy) {
+        final ConsumerEx<IndexReader, IOException> readerWarmer = useWarmer ? WITH_WARM : WITHOUT_WARM;
         return similarity == null ?
-                new MultiThreadSearcherFactory(executorService, stateFacetField, useWarmer ? WITH_WARM : WITHOUT_WARM) :
-                new WithSimilarity(executorService, similarity, stateFacetField, useWarmer ? WITH_WARM : WITHOUT_WARM);
+                new MultiThreadSearcherFactory(executorService, facetsStateLoader, readerWarmer, queryCache,
+                        queryCachingPolicy) :
+                new WithSimilarity(executorService, similarity, facetsStateLoader, readerWarmer, queryCache,
+                        queryCachingPolicy);
     }
 
     protected final ExecutorService executorService;
-    private final String stateFacetField;
+    private final SortedSetFacetsState.Loader facetsStateLoader;
     private final ConsumerEx<IndexReader, IOException> readerWarmer;
+    private final QueryCache queryCache;
+    private final QueryCachingPolicy queryCachingPolicy;
 
-    private MultiThreadSearcherFactory(final ExecutorService executorService, final String stateFacetField,
-                                       final ConsumerEx<IndexReader, IOException> readerWarmer) {
+    private MultiThreadSearcherFactory(final ExecutorService executorService,
+                                       final SortedSetFacetsState.Loader facetsStateLoader,
+                                       final ConsumerEx<IndexReader, IOException> readerWarmer,
+                                       final QueryCache queryCache, final QueryCachingPolicy queryCachingPolicy) {
         this.executorService = executorService;
-        this.stateFacetField = stateFacetField;
+        this.facetsStateLoader = facetsStateLoader;
         this.readerWarmer = readerWarmer;
+        this.queryCache = queryCache;
+        this.queryCachingPolicy = queryCachingPolicy;
     }
 
     final protected StateIndexSearcher warm(final IndexReader indexReader, final StateIndexSearcher indexSearcher)
@@ -69,8 +81,10 @@ class MultiThreadSearcherFactory extends SearcherFactory {
         private final Similarity similarity;
 
         private WithSimilarity(final ExecutorService executorService, final Similarity similarity,
-                               final String stateFacetField, final ConsumerEx<IndexReader, IOException> readerWarmer) {
-            super(executorService, stateFacetField, readerWarmer);
+                               final SortedSetFacetsState.Loader facetsStateLoader,
+                               final ConsumerEx<IndexReader, IOException> readerWarmer,
+                               final QueryCache queryCache, final QueryCachingPolicy queryCachingPolicy) {
+            super(executorService, facetsStateLoader, readerWarmer, queryCache, queryCachingPolicy);
             this.similarity = similarity;
         }
 
@@ -84,11 +98,39 @@ class MultiThreadSearcherFactory extends SearcherFactory {
 
     class StateIndexSearcher extends IndexSearcher {
 
-        final SortedSetDocValuesReaderState state;
+        private volatile SortedSetFacetsState facetsState;
+        private volatile boolean facetsStateLoaded;
 
-        StateIndexSearcher(IndexReader reader) throws IOException {
+        StateIndexSearcher(IndexReader reader) {
             super(reader, executorService);
-            state = IndexUtils.getNewFacetsState(reader, stateFacetField);
+            setQueryCache(queryCache);
+            setQueryCachingPolicy(queryCachingPolicy);
+        }
+
+        /**
+         * The state is not built when the searcher is refreshed, but by the first query which needs it.
+         *
+         * @return the state of the sorted set facets, or null if the index has no sorted set facet
+         * @throws IOException if the state cannot be built
+         */
+        SortedSetFacetsState getFacetsState() throws IOException {
+            if (!facetsStateLoaded) {
+                synchronized (this) {
+                    if (!facetsStateLoaded) {
+                        facetsState = facetsStateLoader.load(getIndexReader());
+                        facetsStateLoaded = true;
+                    }
+                }
+            }
+            return facetsState;
+        }
+
+        boolean isPerSegmentFacets() {
+            return facetsStateLoader.isPerSegmentCounting();
+        }
+
+        IndexStatus.FacetsStateStats getFacetsStateStats() {
+            return facetsStateLoader.getStats();
         }
 
     }
@@ -45,6 +45,16 @@ public class QueryBuilder {
 
 	Map<String, String> commitUserData;
 
+	Long waitForGeneration;
+
+	String searchAfter;
+
+	Integer totalHitsThreshold;
+
+	Long timeoutMs;
+
+	Boolean cache;
+
 	public QueryBuilder() {
 	}
 
@@ -63,6 +73,11 @@ public class QueryBuilder {
 		query = queryDef.query;
 		luceneQuery = queryDef.luceneQuery;
 		commitUserData = queryDef.commitUserData;
+		waitForGeneration = queryDef.waitForGeneration;
+		searchAfter = queryDef.searchAfter;
+		totalHitsThreshold = queryDef.totalHitsThreshold;
+		timeoutMs = queryDef.timeoutMs;
+		cache = queryDef.cache;
 	}
 
 	public QueryBuilder(final Query query) {
@@ -222,6 +237,31 @@ public class QueryBuilder {
 		return this;
 	}
 
+	public QueryBuilder waitForGeneration(final Long waitForGeneration) {
+		this.waitForGeneration = waitForGeneration;
+		return this;
+	}
+
+	public QueryBuilder searchAfter(final String searchAfter) {
+		this.searchAfter = searchAfter;
+		return this;
+	}
+
+	public QueryBuilder totalHitsThreshold(final Integer totalHitsThreshold) {
+		this.totalHitsThreshold = totalHitsThreshold;
+		return this;
+	}
+
+	public QueryBuilder timeoutMs(final Long timeoutMs) {
+		this.timeoutMs = timeoutMs;
+		return this;
+	}
+
+	public QueryBuilder cache(final Boolean cache) {
+		this.cache = cache;
+		return this;
+	}
+
 	public QueryDefinition build() {
 		return new QueryDefinition(this);
 	}
@@ -21,7 +21,9 @@ import com.qwazr.utils.LoggerUtils;
 import org.apache.lucene.facet.DrillSideways;
 import org.apache.lucene.facet.FacetsCollector;
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.MultiCollector;
+import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.TimeLimitingCollector;
 import org.apache.lucene.search.TopDocs;
@@ -60,7 +62,8 @@ class QueryCollectorsClassic extends QueryCollectors {
         collectors = new ArrayList<>();
         facetsCollector = queryExecution.useDrillSideways ? null : buildFacetsCollector(queryExecution.queryDef.facets);
         totalHitCountCollector = buildTotalHitsCollector(queryExecution.end);
-        topDocsCollector = buildTopDocCollector(queryExecution.sort, queryExecution.end);
+        topDocsCollector = buildTopDocCollector(queryExecution.sort, queryExecution.after, queryExecution.end,
+                queryExecution.totalHitsThreshold);
         if (queryExecution.collectorConstructors != null) {
             userCollectors = new LinkedHashMap<>();
             for (final Map.Entry<String, QueryExecution.CollectorConstructor> entry : queryExecution.collectorConstructors.entrySet()) {
@@ -77,33 +80,40 @@ class QueryCollectorsClassic extends QueryCollectors {
     }
 
     private Collector getFinalCollector() {
+        final Collector collector;
         switch (collectors.size()) {
             case 0:
                 return null;
             case 1:
-                return collectors.get(0);
+                collector = collectors.get(0);
+                break;
             default:
-                return MultiCollector.wrap(collectors);
+                collector = MultiCollector.wrap(collectors);
+                break;
         }
+        return queryExecution.deadline == null ? collector : queryExecution.deadline.wrap(collector);
     }
 
     private FacetsCollector buildFacetsCollector(final LinkedHashMap<String, FacetDefinition> facets) {
         if (facets == null || facets.isEmpty())
             return null;
-        for (FacetDefinition facet : facets.values())
-            if (facet.queries == null || facet.queries.isEmpty())
-                return add(new FacetsCollector());
-        return null;
+        // Also needed by the facet queries, which are counted from the matching docs
+        return add(new FacetsCollector());
     }
 
-    private TopDocsCollector<?> buildTopDocCollector(final Sort sort, final int numHits) {
+    /**
+     * Above the threshold, the collectors stop counting the hits and can skip the non-competitive ones
+     * (block-max WAND, impacts).
+     */
+    private TopDocsCollector<?> buildTopDocCollector(final Sort sort, final ScoreDoc after, final int numHits,
+                                                     final int totalHitsThreshold) {
         if (numHits == 0)
             return null;
         final TopDocsCollector<?> topDocsCollector;
         if (sort != null)
-            topDocsCollector = TopFieldCollector.create(sort, numHits, Integer.MAX_VALUE);
+            topDocsCollector = TopFieldCollector.create(sort, numHits, (FieldDoc) after, totalHitsThreshold);
         else
-            topDocsCollector = TopScoreDocCollector.create(numHits, Integer.MAX_VALUE);
+            topDocsCollector = TopScoreDocCollector.create(numHits, after, totalHitsThreshold);
         return add(topDocsCollector);
     }
 
@@ -122,7 +132,7 @@ class QueryCollectorsClassic extends QueryCollectors {
 
             final DrillSideways.DrillSidewaysResult drillSidewaysResult =
                     new DrillSideways(queryExecution.queryContext.indexSearcher, queryExecution.facetsConfig,
-                            queryExecution.queryContext.taxonomyReader, queryExecution.queryContext.docValueReaderState)
+                            queryExecution.queryContext.taxonomyReader, queryExecution.queryContext.getDocValueReaderState())
                             .search((org.apache.lucene.facet.DrillDownQuery) queryExecution.query, finalCollector);
             facetsBuilder = new FacetsBuilder.WithSideways(queryExecution.queryContext, queryExecution.facetsConfig,
                     queryExecution.queryDef.facets, queryExecution.query, queryExecution.timeTracker,
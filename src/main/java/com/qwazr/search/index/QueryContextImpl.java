@@ -21,6 +21,8 @@ import com.qwazr.server.ServerException;
 import org.apache.lucene.analysis.util.ResourceLoader;
 import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
 import org.apache.lucene.facet.taxonomy.TaxonomyReader;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.ExitableDirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.search.IndexSearcher;
 
@@ -34,22 +36,51 @@ final class QueryContextImpl extends IndexContextImpl implements QueryContext, C
     final IndexSearcher indexSearcher;
     final IndexReader indexReader;
     final TaxonomyReader taxonomyReader;
-    final SortedSetDocValuesReaderState docValueReaderState;
+    final MultiThreadSearcherFactory.StateIndexSearcher stateIndexSearcher;
     final FieldMapWrapper.Cache fieldMapWrappers;
     final FieldMap fieldMap;
+    final QueryDeadline deadline;
+    final RequestCache requestCache;
 
     QueryContextImpl(final IndexInstance.Provider indexProvider, final ResourceLoader resourceLoader,
                      final ExecutorService executorService, final UpdatableAnalyzers indexAnalyzers,
                      final UpdatableAnalyzers queryAnalyzers, final FieldMap fieldMap,
                      final FieldMapWrapper.Cache fieldMapWrappers, final IndexSearcher indexSearcher,
-                     final TaxonomyReader taxonomyReader) {
+                     final TaxonomyReader taxonomyReader, final RequestCache requestCache) {
         super(indexProvider, resourceLoader, executorService, indexAnalyzers, queryAnalyzers, fieldMap);
-        this.docValueReaderState = ((MultiThreadSearcherFactory.StateIndexSearcher) indexSearcher).state;
+        this.stateIndexSearcher = (MultiThreadSearcherFactory.StateIndexSearcher) indexSearcher;
         this.fieldMap = fieldMap;
         this.fieldMapWrappers = fieldMapWrappers;
         this.indexSearcher = indexSearcher;
         this.indexReader = indexSearcher.getIndexReader();
         this.taxonomyReader = taxonomyReader;
+        this.deadline = null;
+        this.requestCache = requestCache;
+    }
+
+    /**
+     * A context bound to the deadline of one query. The terms enumerations and the point values of the reader check
+     * the deadline (query construction, rewriting of the multi-term queries, ranges).
+     * The searcher shares the executor, the similarity and the query cache of the source searcher.
+     */
+    private QueryContextImpl(final QueryContextImpl src, final QueryDeadline deadline) throws IOException {
+        super(src);
+        this.stateIndexSearcher = src.stateIndexSearcher;
+        this.fieldMap = src.fieldMap;
+        this.fieldMapWrappers = src.fieldMapWrappers;
+        this.taxonomyReader = src.taxonomyReader;
+        this.deadline = deadline;
+        this.requestCache = src.requestCache;
+        if (src.indexReader instanceof DirectoryReader) {
+            this.indexReader = new ExitableDirectoryReader((DirectoryReader) src.indexReader, deadline);
+            this.indexSearcher = new IndexSearcher(indexReader, src.indexSearcher.getExecutor());
+            this.indexSearcher.setSimilarity(src.indexSearcher.getSimilarity());
+            this.indexSearcher.setQueryCache(src.indexSearcher.getQueryCache());
+            this.indexSearcher.setQueryCachingPolicy(src.indexSearcher.getQueryCachingPolicy());
+        } else {
+            this.indexReader = src.indexReader;
+            this.indexSearcher = src.indexSearcher;
+        }
     }
 
     @Override
@@ -67,10 +98,26 @@ final class QueryContextImpl extends IndexContextImpl implements QueryContext, C
         return fieldMap;
     }
 
+    /**
+     * @return the state of the sorted set facets bound to the reader of this context, or null if there is none
+     * @throws IOException if the state cannot be built
+     */
+    SortedSetDocValuesReaderState getDocValueReaderState() throws IOException {
+        final SortedSetFacetsState state = stateIndexSearcher.getFacetsState();
+        // A reader bound to a deadline wraps the same segments, it shares the ordinals
+        return state == null ? null : state.bind(indexReader);
+    }
+
+    boolean isPerSegmentFacets() {
+        return stateIndexSearcher.isPerSegmentFacets();
+    }
+
     private <T extends ResultDocumentAbstract> ResultDefinition<T> search(final QueryDefinition queryDefinition,
                                                                           final ResultDocuments<T> resultDocuments) {
         try {
-            return new QueryExecution<T>(this, queryDefinition).execute(resultDocuments);
+            final QueryDeadline deadline = QueryDeadline.of(queryDefinition.timeoutMs);
+            final QueryContextImpl queryContext = deadline == null ? this : new QueryContextImpl(this, deadline);
+            return new QueryExecution<T>(queryContext, queryDefinition).execute(resultDocuments);
         }
         catch (Exception e) {
             throw ServerException.of(e);
@@ -79,12 +126,24 @@ final class QueryContextImpl extends IndexContextImpl implements QueryContext, C
 
     @Override
     public ResultDefinition.WithMap searchMap(QueryDefinition queryDefinition) throws IOException {
+        final RequestCache.Key cacheKey =
+                requestCache == null ? null : RequestCache.key(queryDefinition, indexReader);
+        if (cacheKey != null) {
+            final ResultDefinition.WithMap cached = requestCache.get(cacheKey);
+            if (cached != null)
+                return cached;
+        }
         final Set<String> returnedFields =
                 queryDefinition.returned_fields != null && queryDefinition.returned_fields.contains("*") ?
                         fieldMap.getStaticFieldSet() :
                         queryDefinition.returned_fields;
         final ResultDocumentsMap resultDocumentsMap = new ResultDocumentsMap(this, queryDefinition, returnedFields);
-        return (ResultDefinition.WithMap) search(queryDefinition, resultDocumentsMap);
+        final ResultDefinition.WithMap result =
+                (ResultDefinition.WithMap) search(queryDefinition, resultDocumentsMap);
+        // A partial result is not cached
+        if (cacheKey != null && !result.isTimedOut())
+            requestCache.put(cacheKey, result);
+        return result;
     }
 
     @Override
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import org.apache.lucene.index.ExitableDirectoryReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.QueryTimeout;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FilterCollector;
+import org.apache.lucene.search.FilterLeafCollector;
+import org.apache.lucene.search.LeafCollector;
+
+import java.io.IOException;
+
+/**
+ * The deadline of a query, shared by every stage of the search and by every slice of a concurrent search.
+ * Once reached, it stays expired: the stages and the slices which have not started yet are skipped.
+ */
+final class QueryDeadline implements QueryTimeout {
+
+    /**
+     * The collectors check the deadline every 1024 collected documents
+     */
+    private final static int COLLECT_CHECK_MASK = 0x3FF;
+
+    private final long deadlineNanos;
+    private volatile boolean expired;
+
+    private QueryDeadline(final long timeoutMs) {
+        this.deadlineNanos = System.nanoTime() + timeoutMs * 1_000_000L;
+        this.expired = timeoutMs <= 0;
+    }
+
+    /**
+     * @param timeoutMs the time allowed, in milliseconds
+     * @return a new deadline, or null if there is no timeout
+     */
+    static QueryDeadline of(final Long timeoutMs) {
+        return timeoutMs == null ? null : new QueryDeadline(timeoutMs);
+    }
+
+    @Override
+    public boolean shouldExit() {
+        if (expired)
+            return true;
+        if (System.nanoTime() - deadlineNanos < 0)
+            return false;
+        expired = true;
+        return true;
+    }
+
+    @Override
+    public boolean isTimeoutEnabled() {
+        return true;
+    }
+
+    /**
+     * @return true if the deadline has been reached by one of the stages
+     */
+    boolean isExpired() {
+        return expired;
+    }
+
+    /**
+     * @return true if the exception (or one of its causes) has been thrown by a reader whose deadline is reached
+     */
+    static boolean isTimeout(Throwable e) {
+        while (e != null) {
+            if (e instanceof ExitableDirectoryReader.ExitingReaderException)
+                return true;
+            e = e.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * Wrap a collector: the collection of the current leaf ends when the deadline is reached,
+     * and the remaining leaves are skipped.
+     */
+    Collector wrap(final Collector collector) {
+        return collector == null ? null : new DeadlineCollector(collector);
+    }
+
+    private final class DeadlineCollector extends FilterCollector {
+
+        private DeadlineCollector(final Collector collector) {
+            super(collector);
+        }
+
+        @Override
+        public LeafCollector getLeafCollector(final LeafReaderContext context) throws IOException {
+            if (shouldExit())
+                throw new CollectionTerminatedException();
+            return new FilterLeafCollector(super.getLeafCollector(context)) {
+
+                private int count;
+
+                @Override
+                public void collect(final int doc) throws IOException {
+                    if ((++count & COLLECT_CHECK_MASK) == 0 && shouldExit())
+                        throw new CollectionTerminatedException();
+                    super.collect(doc);
+                }
+            };
+        }
+    }
+}
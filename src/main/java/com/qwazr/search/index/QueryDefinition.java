@@ -61,6 +61,42 @@ public class QueryDefinition extends BaseQueryDefinition {
 	@JsonProperty("commit_user_data")
 	final public Map<String, String> commitUserData;
 
+	/**
+	 * The generation returned by a write request (X-QWAZR-Nrt-Generation header).
+	 * The query waits until the changes of this write request are searchable.
+	 */
+	@JsonProperty("wait_for_generation")
+	final public Long waitForGeneration;
+
+	/**
+	 * The cursor returned by the previous page (next_search_after).
+	 * The page starts after the last hit of the previous page, the start parameter is ignored.
+	 */
+	@JsonProperty("search_after")
+	final public String searchAfter;
+
+	/**
+	 * The number of hits to count exactly. Above this threshold, the total hits are a lower bound
+	 * (total_hits_relation is GREATER_THAN_OR_EQUAL_TO) and the non-competitive hits can be skipped.
+	 * By default, every hit is counted.
+	 */
+	@JsonProperty("total_hits_threshold")
+	final public Integer totalHitsThreshold;
+
+	/**
+	 * The time allowed to the query, in milliseconds. When the deadline is reached, every stage of the search
+	 * (collection, facets, document loading, highlighting) stops and returns its partial results,
+	 * the response is flagged timed_out.
+	 */
+	@JsonProperty("timeout_ms")
+	final public Long timeoutMs;
+
+	/**
+	 * Set to false to bypass the request cache of the index (the response is neither read from nor put in the cache).
+	 */
+	@JsonProperty("cache")
+	final public Boolean cache;
+
 	@JsonIgnore
 	final Query luceneQuery;
 
@@ -105,7 +141,12 @@ public class QueryDefinition extends BaseQueryDefinition {
 			@JsonProperty("facets") LinkedHashMap<String, FacetDefinition> facets,
 			@JsonProperty("highlighters") LinkedHashMap<String, HighlighterDefinition> highlighters,
 			@JsonProperty("query") AbstractQuery query,
-			@JsonProperty("commit_user_data") Map<String, String> commitUserData) {
+			@JsonProperty("commit_user_data") Map<String, String> commitUserData,
+			@JsonProperty("wait_for_generation") Long waitForGeneration,
+			@JsonProperty("search_after") String searchAfter,
+			@JsonProperty("total_hits_threshold") Integer totalHitsThreshold,
+			@JsonProperty("timeout_ms") Long timeoutMs,
+			@JsonProperty("cache") Boolean cache) {
 		super(start, rows, returnedFields, queryDebug);
 		this.sorts = sorts;
 		this.collectors = collectors;
@@ -113,6 +154,11 @@ public class QueryDefinition extends BaseQueryDefinition {
 		this.highlighters = highlighters;
 		this.query = query;
 		this.commitUserData = commitUserData;
+		this.waitForGeneration = waitForGeneration;
+		this.searchAfter = searchAfter;
+		this.totalHitsThreshold = totalHitsThreshold;
+		this.timeoutMs = timeoutMs;
+		this.cache = cache;
 		luceneQuery = null;
 	}
 
@@ -125,6 +171,11 @@ public class QueryDefinition extends BaseQueryDefinition {
 		query = builder.query;
 		luceneQuery = builder.luceneQuery;
 		commitUserData = builder.commitUserData;
+		waitForGeneration = builder.waitForGeneration;
+		searchAfter = builder.searchAfter;
+		totalHitsThreshold = builder.totalHitsThreshold;
+		timeoutMs = builder.timeoutMs;
+		cache = builder.cache;
 	}
 
 	@Override
@@ -142,7 +193,10 @@ public class QueryDefinition extends BaseQueryDefinition {
 		return Objects.equals(query, q.query) && CollectionsUtils.equals(sorts, q.sorts) &&
 				CollectionsUtils.equals(collectors, q.collectors) && CollectionsUtils.equals(facets, q.facets) &&
 				CollectionsUtils.equals(highlighters, q.highlighters) &&
-				CollectionsUtils.equals(commitUserData, q.commitUserData);
+				CollectionsUtils.equals(commitUserData, q.commitUserData) &&
+				Objects.equals(waitForGeneration, q.waitForGeneration) && Objects.equals(searchAfter, q.searchAfter) &&
+				Objects.equals(totalHitsThreshold, q.totalHitsThreshold) && Objects.equals(timeoutMs, q.timeoutMs) &&
+				Objects.equals(cache, q.cache);
 	}
 
 	public static QueryBuilder of(final QueryDefinition queryDefinition) {
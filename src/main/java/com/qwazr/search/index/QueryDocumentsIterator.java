@@ -22,6 +22,11 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 
+/**
+ * Iterate over all the hits of a query, page after page.
+ * Each page starts after the last hit of the previous one (search_after), so that the memory used by each page
+ * does not grow with the position in the results.
+ */
 public class QueryDocumentsIterator<T> implements Iterator<T> {
 
     private final AnnotatedIndexService<?> service;
@@ -43,6 +48,7 @@ public class QueryDocumentsIterator<T> implements Iterator<T> {
         this.count = 0;
         this.pos = 0;
         queryBuilder.start(0);
+        queryBuilder.searchAfter(null);
         if (queryBuilder.rows == null || queryBuilder.rows < 1)
             queryBuilder.rows = 100;
         nextExecution();
@@ -53,7 +59,10 @@ public class QueryDocumentsIterator<T> implements Iterator<T> {
         count = result.totalHits;
         currentPos = 0;
         currentDocuments = result.documents;
-        queryBuilder.start(queryBuilder.start + queryBuilder.rows);
+        if (result.nextSearchAfter != null)
+            queryBuilder.searchAfter(result.nextSearchAfter);
+        else // The sort values cannot be encoded in a cursor
+            queryBuilder.start(queryBuilder.start + queryBuilder.rows);
         return currentDocuments != null && !currentDocuments.isEmpty();
     }
 
@@ -26,7 +26,9 @@ import org.apache.lucene.queryparser.flexible.core.QueryNodeException;
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.TopDocs;
 
@@ -46,9 +48,12 @@ final class QueryExecution<T extends ResultDocumentAbstract> {
     final int rows;
     final int end;
     final Sort sort;
+    final ScoreDoc after;
+    final int totalHitsThreshold;
     final boolean useDrillSideways;
     final Query query;
     final Map<String, CollectorConstructor> collectorConstructors;
+    final QueryDeadline deadline;
 
     private final boolean isConcurrent;
 
@@ -59,19 +64,23 @@ final class QueryExecution<T extends ResultDocumentAbstract> {
 
         this.queryContext = queryContext;
         this.queryDef = queryDefinition;
+        this.deadline = queryContext.deadline;
 
-        this.query = queryDef.luceneQuery != null ?
-                queryDef.luceneQuery :
-                queryDef.query == null ? new MatchAllDocsQuery() : queryDef.query.getQuery(queryContext);
+        this.query = buildQuery(queryContext, queryDef, deadline);
 
         this.sort = queryDef.sorts == null ? null : SortUtils.buildSort(queryContext.fieldMap, queryDef.sorts);
 
         this.dimensions = queryDef.facets == null ? null : FacetsBuilder.getFields(queryDef.facets);
         this.facetsConfig = dimensions == null ? null : queryContext.fieldMap.getFacetsConfig(dimensions);
 
-        this.start = queryDef.getStartValue();
+        this.after = SearchAfter.decode(queryDef.searchAfter, sort);
+
+        // With a cursor, the collectors only keep one page
+        this.start = after == null ? queryDef.getStartValue() : 0;
         this.rows = queryDef.getRowsValue();
         this.end = Math.min(start + rows, queryContext.indexReader.numDocs());
+        this.totalHitsThreshold =
+                queryDef.totalHitsThreshold == null ? Integer.MAX_VALUE : Math.max(0, queryDef.totalHitsThreshold);
 
         this.useDrillSideways =
                 queryDef.query instanceof DrillDownQuery && ((DrillDownQuery) queryDef.query).useDrillSideways &&
@@ -85,6 +94,28 @@ final class QueryExecution<T extends ResultDocumentAbstract> {
         }
     }
 
+    /**
+     * The construction of the query (more like this, join, terms expansion) is bounded by the deadline.
+     * If it expires, the query does not match any document.
+     */
+    private static Query buildQuery(final QueryContextImpl queryContext, final QueryDefinition queryDef,
+                                    final QueryDeadline deadline)
+            throws QueryNodeException, ReflectiveOperationException, ParseException, IOException {
+        if (queryDef.luceneQuery != null)
+            return queryDef.luceneQuery;
+        if (queryDef.query == null)
+            return new MatchAllDocsQuery();
+        final Query query;
+        try {
+            query = queryDef.query.getQuery(queryContext);
+        } catch (RuntimeException e) {
+            if (QueryDeadline.isTimeout(e))
+                return new MatchNoDocsQuery("Timeout");
+            throw e;
+        }
+        return deadline != null && deadline.shouldExit() ? new MatchNoDocsQuery("Timeout") : query;
+    }
+
     static class CollectorConstructor {
 
         private final Constructor<?> constructor;
@@ -150,7 +181,15 @@ final class QueryExecution<T extends ResultDocumentAbstract> {
         final QueryCollectors queryCollectors =
                 isConcurrent ? new QueryCollectorManager(this) : new QueryCollectorsClassic(this);
 
-        final FacetsBuilder facetsBuilder = queryCollectors.execute();
+        FacetsBuilder facetsBuilder;
+        try {
+            facetsBuilder = queryCollectors.execute();
+        } catch (RuntimeException e) {
+            // The deadline has been reached while enumerating the terms, the collectors keep the partial results
+            if (!QueryDeadline.isTimeout(e))
+                throw e;
+            facetsBuilder = null;
+        }
 
         final TopDocs topDocs = queryCollectors.getTopDocs();
         final Integer totalHits = queryCollectors.getTotalHits();
@@ -168,7 +207,8 @@ final class QueryExecution<T extends ResultDocumentAbstract> {
         final ResultDocumentsBuilder resultBuilder =
                 new ResultDocumentsBuilder(queryDef, topDocs, queryContext.indexSearcher, query, highlighters,
                         queryCollectors.getExternalResults(), timeTracker, facetsBuilder,
-                        totalHits == null ? 0 : totalHits, resultDocumentsInterface);
+                        totalHits == null ? 0 : totalHits, resultDocumentsInterface, deadline,
+                        queryContext.executorService);
 
         return resultDocuments.apply(resultBuilder);
     }
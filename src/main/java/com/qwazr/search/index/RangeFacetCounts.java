@@ -0,0 +1,280 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.field.CustomFieldDefinition;
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.field.FieldTypeInterface;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.search.ConjunctionDISI;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.NumericUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Count the matching docs of numeric ranges in one pass over the doc values of a field.
+ * The values and the bounds are compared as sortable longs, whatever the numeric type of the field is.
+ */
+final class RangeFacetCounts {
+
+    final static int MAX_HISTOGRAM_BUCKETS = 10_000;
+
+    private final String field;
+    private final Encoding encoding;
+    private final String[] labels;
+    private final long[] mins; // inclusive
+    private final long[] maxs; // inclusive
+    private final int[] counts;
+    private final int[] lastDocs;
+    private final boolean disjoint;
+
+    private RangeFacetCounts(final String field, final Encoding encoding, final String[] labels, final long[] mins,
+                             final long[] maxs) {
+        this.field = field;
+        this.encoding = encoding;
+        this.labels = labels;
+        this.mins = mins;
+        this.maxs = maxs;
+        this.counts = new int[labels.length];
+        this.lastDocs = new int[labels.length];
+        Arrays.fill(lastDocs, -1);
+        this.disjoint = isDisjoint(mins, maxs);
+    }
+
+    static RangeFacetCounts of(final String field, final FieldTypeInterface fieldType, final FacetDefinition facet) {
+        final Encoding encoding = Encoding.of(fieldType.getDefinition());
+        if (encoding == null)
+            throw new IllegalArgumentException("The range facets require a numeric doc values field: " + field);
+        final int size = (facet.ranges == null ? 0 : facet.ranges.size()) +
+                (facet.histogram == null ? 0 : histogramSize(encoding, facet.histogram));
+        final String[] labels = new String[size];
+        final long[] mins = new long[size];
+        final long[] maxs = new long[size];
+        int i = 0;
+        if (facet.ranges != null) {
+            for (final Map.Entry<String, FacetDefinition.Range> entry : facet.ranges.entrySet()) {
+                final FacetDefinition.Range range = entry.getValue();
+                labels[i] = entry.getKey();
+                mins[i] = range.from == null ? Long.MIN_VALUE : encoding.lowerBound(range.from);
+                maxs[i] = range.to == null ? Long.MAX_VALUE : encoding.upperBound(range.to);
+                i++;
+            }
+        }
+        if (facet.histogram != null) {
+            final int buckets = size - i;
+            for (int b = 0; b < buckets; b++) {
+                final Number from = encoding.bucketBound(facet.histogram, b);
+                labels[i] = from.toString();
+                mins[i] = encoding.lowerBound(from);
+                // The last bucket stops at the max, even if the range is not a multiple of the interval
+                maxs[i] = encoding.upperBound(
+                        b + 1 == buckets ? facet.histogram.max : encoding.bucketBound(facet.histogram, b + 1));
+                i++;
+            }
+        }
+        return new RangeFacetCounts(field, encoding, labels, mins, maxs);
+    }
+
+    private static int histogramSize(final Encoding encoding, final FacetDefinition.Histogram histogram) {
+        if (histogram.interval == null || histogram.min == null || histogram.max == null)
+            throw new IllegalArgumentException("The histogram requires an interval, a min and a max");
+        final double interval = encoding.floating ? histogram.interval.doubleValue() : histogram.interval.longValue();
+        if (interval <= 0)
+            throw new IllegalArgumentException("The histogram interval must be positive: " + histogram.interval);
+        final double buckets = Math.ceil((histogram.max.doubleValue() - histogram.min.doubleValue()) / interval);
+        if (buckets > MAX_HISTOGRAM_BUCKETS)
+            throw new IllegalArgumentException(
+                    "Too many histogram buckets: " + (long) buckets + " (max: " + MAX_HISTOGRAM_BUCKETS + ")");
+        return buckets <= 0 ? 0 : (int) buckets;
+    }
+
+    private static boolean isDisjoint(final long[] mins, final long[] maxs) {
+        for (int i = 0; i < mins.length; i++) {
+            if (mins[i] > maxs[i])
+                return false;
+            if (i > 0 && mins[i] <= maxs[i - 1])
+                return false;
+        }
+        return true;
+    }
+
+    void count(final List<FacetsCollector.MatchingDocs> matchingDocs) throws IOException {
+        if (labels.length == 0)
+            return;
+        for (final FacetsCollector.MatchingDocs hits : matchingDocs) {
+            if (hits.totalHits == 0)
+                continue;
+            final DocIdSetIterator hitsIterator = hits.bits.iterator();
+            if (hitsIterator == null)
+                continue;
+            final SortedNumericDocValues values = DocValues.getSortedNumeric(hits.context.reader(), field);
+            final DocIdSetIterator iterator = ConjunctionDISI.intersectIterators(Arrays.asList(hitsIterator, values));
+            final int docBase = hits.context.docBase;
+            for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+                final int globalDoc = docBase + doc;
+                for (int i = 0, n = values.docValueCount(); i < n; i++)
+                    increment(encoding.toSortableLong(values.nextValue()), globalDoc);
+            }
+        }
+    }
+
+    private void increment(final long value, final int doc) {
+        if (disjoint) {
+            final int range = findRange(value);
+            if (range >= 0)
+                increment(range, doc);
+        } else {
+            for (int range = 0; range < mins.length; range++)
+                if (value >= mins[range] && value <= maxs[range])
+                    increment(range, doc);
+        }
+    }
+
+    /**
+     * A multi-valued document is only counted once per range
+     */
+    private void increment(final int range, final int doc) {
+        if (lastDocs[range] == doc)
+            return;
+        lastDocs[range] = doc;
+        counts[range]++;
+    }
+
+    private int findRange(final long value) {
+        int low = 0;
+        int high = mins.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (value < mins[mid])
+                high = mid - 1;
+            else if (value > maxs[mid])
+                low = mid + 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    void fill(final FacetBuilder facetBuilder) {
+        for (int i = 0; i < labels.length; i++)
+            facetBuilder.put(new LabelAndValue(labels[i], counts[i]));
+    }
+
+    private enum Encoding {
+
+        INTEGER(false) {
+            @Override
+            long toSortableLong(final long value) {
+                return value;
+            }
+        },
+
+        FLOAT(true) {
+            @Override
+            long toSortableLong(final long value) {
+                return NumericUtils.doubleToSortableLong(Float.intBitsToFloat((int) value));
+            }
+        },
+
+        DOUBLE(true) {
+            @Override
+            long toSortableLong(final long value) {
+                return NumericUtils.doubleToSortableLong(Double.longBitsToDouble(value));
+            }
+        },
+
+        SORTABLE_FLOAT(true) {
+            @Override
+            long toSortableLong(final long value) {
+                return NumericUtils.doubleToSortableLong(NumericUtils.sortableIntToFloat((int) value));
+            }
+        },
+
+        SORTABLE_DOUBLE(true) {
+            @Override
+            long toSortableLong(final long value) {
+                return value;
+            }
+        };
+
+        private final boolean floating;
+
+        Encoding(final boolean floating) {
+            this.floating = floating;
+        }
+
+        /**
+         * Convert a doc value to a long which keeps the numeric order of the values
+         */
+        abstract long toSortableLong(final long value);
+
+        private static boolean isDecimal(final Number number) {
+            return number instanceof Double || number instanceof Float || number instanceof BigDecimal;
+        }
+
+        long lowerBound(final Number from) {
+            if (floating)
+                return NumericUtils.doubleToSortableLong(from.doubleValue());
+            return isDecimal(from) ? (long) Math.ceil(from.doubleValue()) : from.longValue();
+        }
+
+        long upperBound(final Number to) {
+            // The upper bound is exclusive
+            if (floating)
+                return NumericUtils.doubleToSortableLong(to.doubleValue()) - 1;
+            return (isDecimal(to) ? (long) Math.ceil(to.doubleValue()) : to.longValue()) - 1;
+        }
+
+        Number bucketBound(final FacetDefinition.Histogram histogram, final int bucket) {
+            if (floating)
+                return histogram.min.doubleValue() + bucket * histogram.interval.doubleValue();
+            return histogram.min.longValue() + bucket * histogram.interval.longValue();
+        }
+
+        static Encoding of(final FieldDefinition definition) {
+            if (!(definition instanceof CustomFieldDefinition))
+                return null;
+            final FieldDefinition.Template template = ((CustomFieldDefinition) definition).template;
+            if (template == null)
+                return null;
+            switch (template) {
+                case IntDocValuesField:
+                case LongDocValuesField:
+                case SortedIntDocValuesField:
+                case SortedLongDocValuesField:
+                    return INTEGER;
+                case FloatDocValuesField:
+                    return FLOAT;
+                case DoubleDocValuesField:
+                    return DOUBLE;
+                case SortedFloatDocValuesField:
+                    return SORTABLE_FLOAT;
+                case SortedDoubleDocValuesField:
+                    return SORTABLE_DOUBLE;
+                default:
+                    return null;
+            }
+        }
+    }
+}
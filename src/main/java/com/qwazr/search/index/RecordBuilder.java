@@ -21,6 +21,9 @@ import org.apache.lucene.index.Term;
 
 import java.util.function.BiConsumer;
 
+/**
+ * The builders are reused by the posters, one document after the other.
+ */
 abstract class RecordBuilder {
 
 	private final FieldConsumer fieldConsumer;
@@ -34,6 +37,10 @@ abstract class RecordBuilder {
 		this.termId = null;
 	}
 
+	void reset() {
+		termId = null;
+	}
+
 	final void addFieldValue(final String fieldName, final Object fieldValue) {
 		if (fieldValue == null)
 			return;
@@ -62,11 +69,22 @@ abstract class RecordBuilder {
 
 	final static class ForObject extends RecordBuilder implements BiConsumer<String, java.lang.reflect.Field> {
 
-		private final Object record;
+		private Object record;
 
-		ForObject(final FieldMap fieldMap, final FieldConsumer fieldConsumer, final Object record) {
+		ForObject(final FieldMap fieldMap, final FieldConsumer fieldConsumer) {
 			super(fieldMap, fieldConsumer);
+		}
+
+		final ForObject record(final Object record) {
+			reset();
 			this.record = record;
+			return this;
+		}
+
+		@Override
+		final void reset() {
+			super.reset();
+			record = null;
 		}
 
 		@Override
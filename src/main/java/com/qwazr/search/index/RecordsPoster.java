@@ -35,14 +35,16 @@ interface RecordsPoster {
 
 	abstract class CommonPoster implements RecordsPoster {
 
+		protected final String indexName;
 		protected final Map<String, Field> fields;
 		protected final FieldMap fieldMap;
 		final IndexWriter indexWriter;
 		final TaxonomyWriter taxonomyWriter;
 		protected int count;
 
-		CommonPoster(final Map<String, Field> fields, final FieldMap fieldMap, final IndexWriter indexWriter,
-				final TaxonomyWriter taxonomyWriter) {
+		CommonPoster(final String indexName, final Map<String, Field> fields, final FieldMap fieldMap,
+				final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter) {
+			this.indexName = indexName;
 			this.fields = fields;
 			this.fieldMap = fieldMap;
 			this.indexWriter = indexWriter;
@@ -61,9 +63,9 @@ interface RecordsPoster {
 
 		final FieldConsumer.ForDocument documentBuilder;
 
-		private Documents(final Map<String, Field> fields, final FieldMap fieldMap, final IndexWriter indexWriter,
-				final TaxonomyWriter taxonomyWriter) {
-			super(fields, fieldMap, indexWriter, taxonomyWriter);
+		private Documents(final String indexName, final Map<String, Field> fields, final FieldMap fieldMap,
+				final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter) {
+			super(indexName, fields, fieldMap, indexWriter, taxonomyWriter);
 			documentBuilder = new FieldConsumer.ForDocument();
 		}
 
@@ -75,7 +77,7 @@ interface RecordsPoster {
 		void updateDocument(Term termId) throws IOException {
 			if (termId == null)
 				throw new ServerException(Response.Status.BAD_REQUEST,
-						"The field " + FieldDefinition.ID_FIELD + " is missing - Index: " + indexWriter.getDirectory());
+						"The field " + FieldDefinition.ID_FIELD + " is missing - Index: " + indexName);
 			indexWriter.updateDocument(termId, getFacetedDoc());
 			count++;
 			documentBuilder.reset();
@@ -93,16 +95,16 @@ interface RecordsPoster {
 
 		final FieldConsumer.ForDocValues documentBuilder;
 
-		protected DocValues(final Map<String, Field> fields, final FieldMap fieldMap, final IndexWriter indexWriter,
-				final TaxonomyWriter taxonomyWriter) {
-			super(fields, fieldMap, indexWriter, taxonomyWriter);
+		protected DocValues(final String indexName, final Map<String, Field> fields, final FieldMap fieldMap,
+				final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter) {
+			super(indexName, fields, fieldMap, indexWriter, taxonomyWriter);
 			documentBuilder = new FieldConsumer.ForDocValues();
 		}
 
 		final void updateDocValues(final Term termId) throws IOException {
 			if (termId == null)
 				throw new ServerException(Response.Status.BAD_REQUEST,
-						"The field " + FieldDefinition.ID_FIELD + " is missing - Index: " + indexWriter);
+						"The field " + FieldDefinition.ID_FIELD + " is missing - Index: " + indexName);
 			indexWriter.updateDocValues(termId, documentBuilder.fieldList.toArray(
 					new org.apache.lucene.document.Field[documentBuilder.fieldList.size()]));
 			count++;
@@ -116,14 +118,17 @@ interface RecordsPoster {
 
 	final class UpdateMapDocument extends Documents implements MapDocument {
 
-		private UpdateMapDocument(final FieldMap fieldMap, final IndexWriter indexWriter,
+		private final RecordBuilder.ForMap recordBuilder;
+
+		private UpdateMapDocument(final String indexName, final FieldMap fieldMap, final IndexWriter indexWriter,
 				final TaxonomyWriter taxonomyWriter) {
-			super(null, fieldMap, indexWriter, taxonomyWriter);
+			super(indexName, null, fieldMap, indexWriter, taxonomyWriter);
+			recordBuilder = new RecordBuilder.ForMap(fieldMap, documentBuilder);
 		}
 
 		@Override
 		final public void accept(final Map<String, ?> document) throws IOException {
-			final RecordBuilder.ForMap recordBuilder = new RecordBuilder.ForMap(fieldMap, documentBuilder);
+			recordBuilder.reset();
 			document.forEach(recordBuilder);
 			updateDocument(recordBuilder.termId);
 		}
@@ -132,24 +137,27 @@ interface RecordsPoster {
 
 	final class AddMapDocument extends Documents implements MapDocument {
 
-		private AddMapDocument(final FieldMap fieldMap, final IndexWriter indexWriter,
+		private final RecordBuilder.ForMap recordBuilder;
+
+		private AddMapDocument(final String indexName, final FieldMap fieldMap, final IndexWriter indexWriter,
 				final TaxonomyWriter taxonomyWriter) {
-			super(null, fieldMap, indexWriter, taxonomyWriter);
+			super(indexName, null, fieldMap, indexWriter, taxonomyWriter);
+			recordBuilder = new RecordBuilder.ForMap(fieldMap, documentBuilder);
 		}
 
 		@Override
 		final public void accept(final Map<String, ?> document) throws IOException {
-			final RecordBuilder.ForMap recordBuilder = new RecordBuilder.ForMap(fieldMap, documentBuilder);
+			recordBuilder.reset();
 			document.forEach(recordBuilder);
 			addDocument();
 		}
 	}
 
-	static MapDocument create(final FieldMap fieldMap, final IndexWriter indexWriter,
+	static MapDocument create(final String indexName, final FieldMap fieldMap, final IndexWriter indexWriter,
 			final TaxonomyWriter taxonomyWriter, final boolean update) throws IOException {
 		return update ?
-				new UpdateMapDocument(fieldMap, indexWriter, taxonomyWriter) :
-				new AddMapDocument(fieldMap, indexWriter, taxonomyWriter);
+				new UpdateMapDocument(indexName, fieldMap, indexWriter, taxonomyWriter) :
+				new AddMapDocument(indexName, fieldMap, indexWriter, taxonomyWriter);
 	}
 
 	interface ObjectDocument extends RecordsPoster, ConsumerEx<Object, IOException> {
@@ -158,54 +166,59 @@ interface RecordsPoster {
 
 	final class UpdateObjectDocument extends Documents implements ObjectDocument {
 
-		private UpdateObjectDocument(final Map<String, java.lang.reflect.Field> fields, final FieldMap fieldMap,
-				final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter) {
-			super(fields, fieldMap, indexWriter, taxonomyWriter);
+		private final RecordBuilder.ForObject recordBuilder;
+
+		private UpdateObjectDocument(final String indexName, final Map<String, java.lang.reflect.Field> fields,
+				final FieldMap fieldMap, final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter) {
+			super(indexName, fields, fieldMap, indexWriter, taxonomyWriter);
+			recordBuilder = new RecordBuilder.ForObject(fieldMap, documentBuilder);
 		}
 
 		@Override
 		final public void accept(final Object record) throws IOException {
-			final RecordBuilder.ForObject recordBuilder =
-					new RecordBuilder.ForObject(fieldMap, documentBuilder, record);
-			fields.forEach(recordBuilder);
+			fields.forEach(recordBuilder.record(record));
 			updateDocument(recordBuilder.termId);
 		}
 	}
 
 	final class AddObjectDocument extends Documents implements ObjectDocument {
 
-		private AddObjectDocument(final Map<String, java.lang.reflect.Field> fields, final FieldMap fieldMap,
-				final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter) {
-			super(fields, fieldMap, indexWriter, taxonomyWriter);
+		private final RecordBuilder.ForObject recordBuilder;
+
+		private AddObjectDocument(final String indexName, final Map<String, java.lang.reflect.Field> fields,
+				final FieldMap fieldMap, final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter) {
+			super(indexName, fields, fieldMap, indexWriter, taxonomyWriter);
+			recordBuilder = new RecordBuilder.ForObject(fieldMap, documentBuilder);
 		}
 
 		@Override
 		final public void accept(final Object record) throws IOException {
-			final RecordBuilder.ForObject recordBuilder =
-					new RecordBuilder.ForObject(fieldMap, documentBuilder, record);
-			fields.forEach(recordBuilder);
+			fields.forEach(recordBuilder.record(record));
 			addDocument();
 		}
 	}
 
-	static ObjectDocument create(final Map<String, Field> fields, final FieldMap fieldMap,
+	static ObjectDocument create(final String indexName, final Map<String, Field> fields, final FieldMap fieldMap,
 			final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter, final boolean update)
 			throws IOException {
 		return update ?
-				new UpdateObjectDocument(fields, fieldMap, indexWriter, taxonomyWriter) :
-				new AddObjectDocument(fields, fieldMap, indexWriter, taxonomyWriter);
+				new UpdateObjectDocument(indexName, fields, fieldMap, indexWriter, taxonomyWriter) :
+				new AddObjectDocument(indexName, fields, fieldMap, indexWriter, taxonomyWriter);
 	}
 
 	final class UpdateMapDocValues extends DocValues implements MapDocument {
 
-		UpdateMapDocValues(final FieldMap fieldMap, final IndexWriter indexWriter,
+		private final RecordBuilder.ForMap recordBuilder;
+
+		UpdateMapDocValues(final String indexName, final FieldMap fieldMap, final IndexWriter indexWriter,
 				final TaxonomyWriter taxonomyWriter) {
-			super(null, fieldMap, indexWriter, taxonomyWriter);
+			super(indexName, null, fieldMap, indexWriter, taxonomyWriter);
+			recordBuilder = new RecordBuilder.ForMap(fieldMap, documentBuilder);
 		}
 
 		@Override
 		final public void accept(final Map<String, ?> document) throws IOException {
-			final RecordBuilder.ForMap recordBuilder = new RecordBuilder.ForMap(fieldMap, documentBuilder);
+			recordBuilder.reset();
 			document.forEach(recordBuilder);
 			updateDocValues(recordBuilder.termId);
 		}
@@ -213,16 +226,17 @@ interface RecordsPoster {
 
 	final class UpdateObjectDocValues extends DocValues implements ObjectDocument {
 
-		UpdateObjectDocValues(final Map<String, Field> fields, final FieldMap fieldMap, final IndexWriter indexWriter,
-				final TaxonomyWriter taxonomyWriter) {
-			super(fields, fieldMap, indexWriter, taxonomyWriter);
+		private final RecordBuilder.ForObject recordBuilder;
+
+		UpdateObjectDocValues(final String indexName, final Map<String, Field> fields, final FieldMap fieldMap,
+				final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter) {
+			super(indexName, fields, fieldMap, indexWriter, taxonomyWriter);
+			recordBuilder = new RecordBuilder.ForObject(fieldMap, documentBuilder);
 		}
 
 		@Override
 		final public void accept(final Object record) throws IOException {
-			final RecordBuilder.ForObject recordBuilder =
-					new RecordBuilder.ForObject(fieldMap, documentBuilder, record);
-			fields.forEach(recordBuilder);
+			fields.forEach(recordBuilder.record(record));
 			updateDocValues(recordBuilder.termId);
 		}
 	}
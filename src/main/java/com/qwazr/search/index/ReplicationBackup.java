@@ -18,29 +18,79 @@ package com.qwazr.search.index;
 
 import com.qwazr.search.replication.ReplicationProcess;
 import com.qwazr.search.replication.ReplicationSession;
+import com.qwazr.search.replication.ReplicationTransfer;
 import com.qwazr.search.replication.SlaveNode;
+import org.apache.lucene.store.RateLimiter;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 class ReplicationBackup extends ReplicationClient {
 
 	private final IndexInstance indexInstance;
 	private final Path backupIndexDirectory;
+	private final Path liveIndexDirectory;
 
-	ReplicationBackup(final IndexInstance indexInstance, final Path backupIndexDirectory, final boolean withTaxonomy)
+	ReplicationBackup(final IndexInstance indexInstance, final Path backupIndexDirectory,
+			final Path liveIndexDirectory, final boolean withTaxonomy, final RateLimiter rateLimiter)
 			throws IOException {
-		super(getSlaveNode(backupIndexDirectory, withTaxonomy));
+		super(getSlaveNode(backupIndexDirectory, withTaxonomy), ReplicationTransfer.DEFAULT_CONCURRENCY,
+				ReplicationTransfer.DEFAULT_CHUNK_SIZE, rateLimiter);
 		this.indexInstance = indexInstance;
 		this.backupIndexDirectory = backupIndexDirectory;
+		this.liveIndexDirectory = liveIndexDirectory;
 	}
 
 	@Override
-	InputStream getItem(final String sessionUuid, final ReplicationProcess.Source source, final String itemName)
-			throws FileNotFoundException {
-		return indexInstance.replicationObtain(sessionUuid, source, itemName);
+	InputStream getItem(final String sessionUuid, final ReplicationProcess.Source source, final String itemName,
+			final long offset, final Long length) throws IOException {
+		return indexInstance.replicationObtain(sessionUuid, source, itemName, offset, length);
+	}
+
+	/**
+	 * The index files are hard-linked, by order of preference, from the backup being replaced, from the live index,
+	 * and from the other backups of the index (the most recent first). Therefore only the new segments are copied
+	 * when the backup directory is on another file system than the index.
+	 */
+	@Override
+	ReplicationTransfer.LocalFileResolver getLocalFileResolver() throws IOException {
+		final List<Path> indexDirectories = new ArrayList<>();
+		indexDirectories.add(backupIndexDirectory);
+		indexDirectories.add(liveIndexDirectory);
+		indexDirectories.addAll(getOtherBackups());
+		return (source, fileName) -> {
+			final String sourceDirectory =
+					source == ReplicationProcess.Source.taxonomy ? IndexFileSet.INDEX_TAXONOMY : IndexFileSet.INDEX_DATA;
+			final List<Path> candidates = new ArrayList<>(indexDirectories.size());
+			for (final Path indexDirectory : indexDirectories)
+				candidates.add(indexDirectory.resolve(sourceDirectory).resolve(fileName));
+			return candidates;
+		};
+	}
+
+	/**
+	 * @return the backups of the same index in the other backup directories of the schema, the most recent first
+	 */
+	private List<Path> getOtherBackups() throws IOException {
+		final Path backupDirectory = backupIndexDirectory.getParent();
+		final Path backupSchemaDirectory = backupDirectory == null ? null : backupDirectory.getParent();
+		if (backupSchemaDirectory == null || !Files.isDirectory(backupSchemaDirectory))
+			return List.of();
+		final Path indexName = backupIndexDirectory.getFileName();
+		try (final Stream<Path> stream = Files.list(backupSchemaDirectory)) {
+			return stream.filter(dir -> !dir.equals(backupDirectory))
+					.map(dir -> dir.resolve(indexName))
+					.filter(Files::isDirectory)
+					.sorted(Comparator.comparing(SchemaInstance::getBackupTime).reversed())
+					.collect(Collectors.toList());
+		}
 	}
 
 	/**
@@ -50,11 +100,13 @@ class ReplicationBackup extends ReplicationClient {
 	 * @throws IOException
 	 */
 	BackupStatus backup() throws IOException {
-		final ReplicationSession session = indexInstance.replicationUpdate(null);
+		final long startTime = System.currentTimeMillis();
+		final ReplicationSession session = indexInstance.replicationUpdate(null, null);
 		try {
-			replicate(session, null, (strategy, remoteMasterUuid) -> {
-			});
-			return BackupStatus.newBackupStatus(backupIndexDirectory, false);
+			// No searcher uses the backup files: without switcher the files are moved and cleaned right away
+			final ReplicationStatus replicationStatus = replicate(session, null, null);
+			return BackupStatus.newBackupStatus(backupIndexDirectory, false)
+					.withTransfer(System.currentTimeMillis() - startTime, replicationStatus);
 		} finally {
 			indexInstance.replicationRelease(session.sessionUuid);
 		}
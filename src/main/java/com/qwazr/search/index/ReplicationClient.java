@@ -18,9 +18,10 @@ package com.qwazr.search.index;
 
 import com.qwazr.search.replication.ReplicationProcess;
 import com.qwazr.search.replication.ReplicationSession;
+import com.qwazr.search.replication.ReplicationTransfer;
 import com.qwazr.search.replication.SlaveNode;
+import org.apache.lucene.store.RateLimiter;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.UUID;
@@ -31,10 +32,21 @@ import java.util.UUID;
 abstract class ReplicationClient {
 
 	final private SlaveNode slaveNode;
+	final private int transferConcurrency;
+	final private long transferChunkSize;
+	final private RateLimiter transferRateLimiter;
 	volatile private ReplicationStatus lastStatus;
 
-	protected ReplicationClient(final SlaveNode slaveNode) {
+	protected ReplicationClient(final SlaveNode slaveNode, final int transferConcurrency,
+			final long transferChunkSize, final RateLimiter transferRateLimiter) {
 		this.slaveNode = slaveNode;
+		this.transferConcurrency = transferConcurrency;
+		this.transferChunkSize = transferChunkSize;
+		this.transferRateLimiter = transferRateLimiter;
+	}
+
+	protected ReplicationClient(final SlaveNode slaveNode) {
+		this(slaveNode, ReplicationTransfer.DEFAULT_CONCURRENCY, ReplicationTransfer.DEFAULT_CHUNK_SIZE, null);
 	}
 
 	ReplicationStatus getLastStatus() {
@@ -42,7 +54,15 @@ abstract class ReplicationClient {
 	}
 
 	abstract InputStream getItem(final String sessionUuid, final ReplicationProcess.Source source,
-			final String itemName) throws FileNotFoundException;
+			final String itemName, final long offset, final Long length) throws IOException;
+
+	/**
+	 * @return the resolver of the local files which can be hard-linked instead of being downloaded, or null
+	 * @throws IOException if the local files cannot be listed
+	 */
+	ReplicationTransfer.LocalFileResolver getLocalFileResolver() throws IOException {
+		return null;
+	}
 
 	final ReplicationStatus replicate(final ReplicationSession session, final UUID clientMasterUuid,
 			final Switcher switcher) throws IOException {
@@ -55,29 +75,78 @@ abstract class ReplicationClient {
 
 		final ReplicationStatus.Builder currentStatus = ReplicationStatus.of(strategy).session(session);
 
+		final ReplicationTransfer transfer = new ReplicationTransfer(
+				(source, file, offset, length) -> getItem(session.sessionUuid, source, file, offset, length),
+				transferConcurrency, transferChunkSize, ReplicationTransfer.DEFAULT_MAX_ATTEMPTS, transferRateLimiter,
+				getLocalFileResolver(), new ReplicationTransfer.Listener() {
+					@Override
+					public void transferred(final ReplicationProcess.Source source, final long bytes) {
+						currentStatus.transferred(source, bytes);
+						lastStatus = currentStatus.build();
+					}
+
+					@Override
+					public void completed(final ReplicationProcess.Source source, final int files, final long bytes,
+							final long timeMs) {
+						currentStatus.completed(source, files, bytes, timeMs);
+					}
+
+					@Override
+					public void linked(final ReplicationProcess.Source source, final int files, final long bytes) {
+						currentStatus.linked(source, files, bytes);
+					}
+				});
+
 		try (final ReplicationProcess replicationProcess = slaveNode.newReplicationProcess(strategy, session,
-				(source, file) -> {
-					currentStatus.countSize(source, file);
-					lastStatus = currentStatus.build();
-					return getItem(session.sessionUuid, source, file);
-				})) {
+				transfer)) {
+			// The new files are downloaded in the work directory, the current files are still in use
 			replicationProcess.obtainNewFiles();
-			replicationProcess.moveInPlaceNewFiles();
 
-			// New files are in place, the client may switch to the new replicat
-			if (switcher != null)
-				switcher.switcher(strategy, remoteMasterUuid);
+			final MoveInPlace moveInPlace = new MoveInPlace() {
+				@Override
+				public void move() throws IOException {
+					replicationProcess.moveInPlaceNewFiles();
+				}
 
-			// Finaly we can clean the old files
-			replicationProcess.deleteOldFiles();
+				@Override
+				public void deleteOldFiles() throws IOException {
+					replicationProcess.deleteOldFiles();
+				}
+			};
+
+			// The switcher moves the new files in place, switches to the new replicat and cleans the old files
+			if (switcher != null)
+				switcher.switcher(strategy, remoteMasterUuid, moveInPlace);
+			else {
+				moveInPlace.move();
+				moveInPlace.deleteOldFiles();
+			}
 		}
 
 		return lastStatus = currentStatus.build();
 	}
 
+	/**
+	 * Called once the new files have been downloaded. The implementation is expected to move the new files in place,
+	 * to switch to them, and then to delete the old files, inside the same exclusive section if any.
+	 */
 	@FunctionalInterface
 	interface Switcher {
-		void switcher(final ReplicationStatus.Strategy strategy, final UUID remoteMasterUuid) throws IOException;
+		void switcher(final ReplicationStatus.Strategy strategy, final UUID remoteMasterUuid,
+				final MoveInPlace moveInPlace) throws IOException;
+	}
+
+	interface MoveInPlace {
+
+		/**
+		 * Move the downloaded files in the index directory
+		 */
+		void move() throws IOException;
+
+		/**
+		 * Delete the files which are no longer part of the index, once the searcher no longer uses them
+		 */
+		void deleteOldFiles() throws IOException;
 	}
 
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.utils.LoggerUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps a slave close to its master. The follower thread continuously long polls the master, and replicates as soon
+ * as the master has a new version.
+ * <ul>
+ * <li>A random pause (jitter) between two replications spreads the requests of the slaves.</li>
+ * <li>After a failure, the follower backs off exponentially (with jitter) before retrying.</li>
+ * </ul>
+ */
+class ReplicationFollower implements Closeable {
+
+    private final static Logger LOGGER = LoggerUtils.getLogger(ReplicationFollower.class);
+
+    private final static long MAX_JITTER_MS = 100;
+    private final static long MIN_BACKOFF_MS = 500;
+    private final static long MAX_BACKOFF_MS = 30_000;
+
+    /**
+     * Time allowed to a replication in progress to complete, on top of the wait of the long polling
+     */
+    private final static long CLOSE_TIMEOUT_MS = 30_000;
+
+    private final String indexName;
+    private final int waitMs;
+    private final Replicator replicator;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    @FunctionalInterface
+    interface Replicator {
+        ReplicationStatus replicate(int waitMs) throws IOException;
+    }
+
+    ReplicationFollower(final String indexName, final int waitMs, final Replicator replicator) {
+        this.indexName = indexName;
+        this.waitMs = waitMs;
+        this.replicator = replicator;
+        this.thread = new Thread(this::follow, "Replication follower: " + indexName);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    private void follow() {
+        long backoffMs = 0;
+        while (!closed) {
+            try {
+                replicator.replicate(waitMs);
+                backoffMs = 0;
+                pause(ThreadLocalRandom.current().nextLong(MAX_JITTER_MS + 1));
+            } catch (Exception e) {
+                if (closed)
+                    break;
+                backoffMs = backoffMs == 0 ? MIN_BACKOFF_MS : Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+                final long retryMs = backoffMs + ThreadLocalRandom.current().nextLong(backoffMs / 2 + 1);
+                LOGGER.log(Level.WARNING, e,
+                        () -> "Replication failure, retry in " + retryMs + " ms - Index: " + indexName);
+                pause(retryMs);
+            }
+        }
+    }
+
+    private void pause(final long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            closed = true;
+        }
+    }
+
+    /**
+     * Stop the follower and wait for the end of the replication in progress.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+        if (Thread.currentThread() == thread)
+            return;
+        try {
+            thread.join(waitMs + CLOSE_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive())
+            LOGGER.warning(() -> "The replication follower is still running - Index: " + indexName);
+    }
+}
@@ -26,6 +26,7 @@ import java.io.Closeable;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
@@ -44,6 +45,25 @@ interface ReplicationMaster extends Closeable {
 
     void expireInactiveSessions(TimeUnit unit, long time);
 
+    /**
+     * Signal that the replicated content may have changed (commit, fields, analyzers, resources)
+     */
+    void notifyChange();
+
+    /**
+     * @return the number of changes signaled since the master has been opened
+     */
+    long getChangeCount();
+
+    /**
+     * Wait until a change is signaled after the given change count, or until the timeout expires.
+     *
+     * @param changeCount the change count read before the caller checked the content
+     * @param timeoutMs   the maximum time to wait
+     * @throws InterruptedIOException if the thread is interrupted
+     */
+    void awaitChange(long changeCount, long timeoutMs) throws InterruptedIOException;
+
     abstract class Base implements ReplicationMaster {
 
         private final static Logger LOGGER = LoggerUtils.getLogger(Base.class);
@@ -55,11 +75,49 @@ interface ReplicationMaster extends Closeable {
 
         private final ThreadLocal<List<String>> expiredSessions;
 
+        private final Object changeMonitor;
+        private long changeCount;
+        private volatile boolean closed;
+
         private Base(final MasterNode masterNode) {
             this.masterNode = masterNode;
             sessions = new ConcurrentHashMap<>();
             sessionsLastActive = new ConcurrentHashMap<>();
             expiredSessions = ThreadLocal.withInitial(ArrayList::new);
+            changeMonitor = new Object();
+        }
+
+        @Override
+        final public void notifyChange() {
+            synchronized (changeMonitor) {
+                changeCount++;
+                changeMonitor.notifyAll();
+            }
+        }
+
+        @Override
+        final public long getChangeCount() {
+            synchronized (changeMonitor) {
+                return changeCount;
+            }
+        }
+
+        @Override
+        final public void awaitChange(final long sinceChangeCount, final long timeoutMs)
+                throws InterruptedIOException {
+            final long deadline = System.currentTimeMillis() + timeoutMs;
+            synchronized (changeMonitor) {
+                long remaining = timeoutMs;
+                while (changeCount == sinceChangeCount && !closed && remaining > 0) {
+                    try {
+                        changeMonitor.wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while waiting for a replication change");
+                    }
+                    remaining = deadline - System.currentTimeMillis();
+                }
+            }
         }
 
         @Override
@@ -108,6 +166,9 @@ interface ReplicationMaster extends Closeable {
 
         @Override
         final public void close() throws IOException {
+            // Wake up the pending long polls
+            closed = true;
+            notifyChange();
             synchronized (this) {
                 for (final ReplicationSession session : sessions.values())
                     releaseSession(session.sessionUuid);
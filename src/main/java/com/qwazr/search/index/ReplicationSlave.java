@@ -22,6 +22,7 @@ import com.qwazr.search.replication.SlaveNode;
 import com.qwazr.server.ServerException;
 import com.qwazr.utils.IOUtils;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RateLimiter;
 
 import javax.ws.rs.core.Response;
 import java.io.File;
@@ -33,18 +34,39 @@ class ReplicationSlave extends ReplicationClient {
 
 	private final File masterUuidFile;
 	private volatile UUID clientMasterUuid;
+	private volatile String clientVersion;
 	private final IndexServiceInterface indexService;
 	private final RemoteIndex master;
 
 	ReplicationSlave(final File masterUuidFile, final IndexServiceInterface localService, final RemoteIndex master,
-			final SlaveNode slaveNode) throws IOException {
-		super(slaveNode);
+			final SlaveNode slaveNode, final IndexSettingsDefinition settings) throws IOException {
+		super(slaveNode, getTransferConcurrency(settings), getTransferChunkSize(settings),
+				getTransferRateLimiter(settings));
 		this.masterUuidFile = masterUuidFile;
 		this.master = master;
 		this.indexService = master == null ? null : master.host == null ? localService : new IndexSingleClient(master);
 		getClientMasterUuid();
 	}
 
+	private static int getTransferConcurrency(final IndexSettingsDefinition settings) {
+		return settings == null || settings.replicationConcurrency == null ?
+				IndexSettingsDefinition.DEFAULT_REPLICATION_CONCURRENCY :
+				settings.replicationConcurrency;
+	}
+
+	private static long getTransferChunkSize(final IndexSettingsDefinition settings) {
+		final int chunkSizeMb = settings == null || settings.replicationChunkSizeMb == null ?
+				IndexSettingsDefinition.DEFAULT_REPLICATION_CHUNK_SIZE_MB :
+				settings.replicationChunkSizeMb;
+		return chunkSizeMb * 1024L * 1024L;
+	}
+
+	private static RateLimiter getTransferRateLimiter(final IndexSettingsDefinition settings) {
+		return settings == null || settings.replicationMaxMbPerSec == null || settings.replicationMaxMbPerSec <= 0 ?
+				null :
+				new RateLimiter.SimpleRateLimiter(settings.replicationMaxMbPerSec);
+	}
+
 	UUID getClientMasterUuid() throws IOException {
 		if (masterUuidFile.exists() && masterUuidFile.length() > 0)
 			clientMasterUuid = UUID.fromString(IOUtils.readFileAsString(masterUuidFile));
@@ -67,32 +89,59 @@ class ReplicationSlave extends ReplicationClient {
 	}
 
 	@Override
-	public InputStream getItem(final String sessionId, final ReplicationProcess.Source source, final String file) {
-		return checkService().replicationObtain(master.schema, master.index, sessionId, source.name(), file);
+	public InputStream getItem(final String sessionId, final ReplicationProcess.Source source, final String file,
+			final long offset, final Long length) {
+		return checkService().replicationObtain(master.schema, master.index, sessionId, source.name(), file, offset,
+				length);
+	}
+
+	/**
+	 * Open a replication session on the master. With a positive wait, the master holds the request until its
+	 * content differs from the last replicated version (long polling).
+	 *
+	 * @param waitMs the maximum time the master may wait for a change
+	 * @return the new session
+	 */
+	ReplicationSession openSession(final int waitMs) {
+		return checkService().replicationUpdate(master.schema, master.index, clientVersion, waitMs);
+	}
+
+	void releaseSession(final ReplicationSession session) {
+		checkService().replicationRelease(master.schema, master.index, session.sessionUuid);
+	}
+
+	/**
+	 * @return true if the content of the session has already been replicated from the same master
+	 */
+	boolean isUpToDate(final ReplicationSession session) throws IOException {
+		return session.version != null && session.version.equals(clientVersion) &&
+				UUID.fromString(session.masterUuid).equals(getClientMasterUuid());
+	}
+
+	ReplicationStatus upToDateStatus(final ReplicationSession session) {
+		return ReplicationStatus.of(ReplicationStatus.Strategy.incremental).session(session).build();
 	}
 
-	ReplicationStatus replicate(final Switcher switcher) throws IOException {
-		final ReplicationSession session = checkService().replicationUpdate(master.schema, master.index, null);
-		try {
-			return replicate(session, getClientMasterUuid(), switcher);
-		} finally {
-			checkService().replicationRelease(master.schema, master.index, session.sessionUuid);
-		}
+	ReplicationStatus replicate(final ReplicationSession session, final Switcher switcher) throws IOException {
+		final ReplicationStatus status = replicate(session, getClientMasterUuid(), switcher);
+		clientVersion = session.version;
+		return status;
 	}
 
 	static ReplicationSlave withIndexAndTaxo(final IndexFileSet fileSet, final IndexServiceInterface localService,
-			final RemoteIndex master, final Directory dataDirectory, final Directory taxonomyDirectory)
+			final IndexSettingsDefinition settings, final Directory dataDirectory, final Directory taxonomyDirectory)
 			throws IOException {
-		return new ReplicationSlave(fileSet.uuidMasterFile, localService, master,
+		return new ReplicationSlave(fileSet.uuidMasterFile, localService, settings.master,
 				new SlaveNode.WithIndexAndTaxo(fileSet.resourcesDirectoryPath, dataDirectory, fileSet.dataDirectory,
-						taxonomyDirectory, fileSet.taxonomyDirectory, fileSet.replWorkPath, fileSet.mainDirectory));
+						taxonomyDirectory, fileSet.taxonomyDirectory, fileSet.replWorkPath, fileSet.mainDirectory),
+				settings);
 	}
 
 	static ReplicationSlave withIndex(final IndexFileSet fileSet, final IndexServiceInterface localService,
-			final RemoteIndex master, final Directory dataDirectory) throws IOException {
-		return new ReplicationSlave(fileSet.uuidMasterFile, localService, master,
+			final IndexSettingsDefinition settings, final Directory dataDirectory) throws IOException {
+		return new ReplicationSlave(fileSet.uuidMasterFile, localService, settings.master,
 				new SlaveNode.WithIndex(fileSet.resourcesDirectoryPath, dataDirectory, fileSet.dataDirectory,
-						fileSet.replWorkPath, fileSet.mainDirectory));
+						fileSet.replWorkPath, fileSet.mainDirectory), settings);
 	}
 
 }
\ No newline at end of file
@@ -22,9 +22,13 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.qwazr.search.replication.ReplicationProcess;
 import com.qwazr.search.replication.ReplicationSession;
+import com.qwazr.search.replication.ReplicationTransfer;
 import org.apache.commons.io.FileUtils;
 
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @JsonInclude(JsonInclude.Include.NON_EMPTY)
 @JsonAutoDetect(setterVisibility = JsonAutoDetect.Visibility.NONE,
@@ -45,12 +49,14 @@ public class ReplicationStatus {
     public final String size;
     public final int ratio;
     public final Strategy strategy;
+    public final Map<ReplicationProcess.Source, SourceStatus> sources;
 
     @JsonCreator
     ReplicationStatus(@JsonProperty("start") final Date start, @JsonProperty("end") final Date end,
             @JsonProperty("time") final long time, @JsonProperty("bytes") final long bytes,
             @JsonProperty("size") final String size, @JsonProperty("ratio") final int ratio,
-            @JsonProperty("strategy") final Strategy strategy) {
+            @JsonProperty("strategy") final Strategy strategy,
+            @JsonProperty("sources") final Map<ReplicationProcess.Source, SourceStatus> sources) {
         this.start = start;
         this.end = end;
         this.time = time;
@@ -58,22 +64,68 @@ public class ReplicationStatus {
         this.size = size;
         this.ratio = ratio;
         this.strategy = strategy;
+        this.sources = sources;
+    }
+
+    /**
+     * The transfer statistics of one source (data, taxonomy, resources, metadata)
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonAutoDetect(setterVisibility = JsonAutoDetect.Visibility.NONE,
+            getterVisibility = JsonAutoDetect.Visibility.NONE,
+            isGetterVisibility = JsonAutoDetect.Visibility.NONE,
+            creatorVisibility = JsonAutoDetect.Visibility.NONE,
+            fieldVisibility = JsonAutoDetect.Visibility.PUBLIC_ONLY)
+    public static class SourceStatus {
+
+        public final int files;
+        public final long bytes;
+        public final long time;
+        @JsonProperty("bytes_per_second")
+        public final long bytesPerSecond;
+        @JsonProperty("linked_files")
+        public final Integer linkedFiles;
+        @JsonProperty("linked_bytes")
+        public final Long linkedBytes;
+
+        @JsonCreator
+        SourceStatus(@JsonProperty("files") final int files, @JsonProperty("bytes") final long bytes,
+                @JsonProperty("time") final long time, @JsonProperty("bytes_per_second") final long bytesPerSecond,
+                @JsonProperty("linked_files") final Integer linkedFiles,
+                @JsonProperty("linked_bytes") final Long linkedBytes) {
+            this.files = files;
+            this.bytes = bytes;
+            this.time = time;
+            this.bytesPerSecond = bytesPerSecond;
+            this.linkedFiles = linkedFiles;
+            this.linkedBytes = linkedBytes;
+        }
+
+        SourceStatus(final int files, final long bytes, final long time) {
+            this(files, bytes, time, time == 0 ? bytes * 1000 : (bytes * 1000) / time, null, null);
+        }
+
+        SourceStatus linked(final int linkedFiles, final long linkedBytes) {
+            return new SourceStatus(files, bytes, time, bytesPerSecond, linkedFiles, linkedBytes);
+        }
     }
 
     static ReplicationStatus.Builder of(final Strategy strategy) {
         return new Builder(strategy);
     }
 
-    static class Builder {
+    static class Builder implements ReplicationTransfer.Listener {
 
         final Strategy strategy;
         final Date start;
+        final Map<ReplicationProcess.Source, SourceStatus> sources;
         long bytes;
         ReplicationSession session;
 
         Builder(Strategy strategy) {
             this.start = new Date();
             this.strategy = strategy;
+            this.sources = new EnumMap<>(ReplicationProcess.Source.class);
         }
 
         Builder session(final ReplicationSession session) {
@@ -81,17 +133,29 @@ public class ReplicationStatus {
             return this;
         }
 
-        void countSize(ReplicationProcess.Source source, String fileName) {
-            final ReplicationSession.Item item = session.getItem(source, fileName);
-            if (item != null && item.size != null)
-                bytes += item.size;
+        @Override
+        public synchronized void transferred(final ReplicationProcess.Source source, final long transferred) {
+            bytes += transferred;
+        }
+
+        @Override
+        public synchronized void completed(final ReplicationProcess.Source source, final int files,
+                final long transferred, final long timeMs) {
+            sources.put(source, new SourceStatus(files, transferred, timeMs));
+        }
+
+        @Override
+        public synchronized void linked(final ReplicationProcess.Source source, final int files, final long linked) {
+            sources.compute(source,
+                    (s, status) -> (status == null ? new SourceStatus(0, 0, 0) : status).linked(files, linked));
         }
 
-        ReplicationStatus build() {
+        synchronized ReplicationStatus build() {
             final Date end = new Date();
             final int ratio = bytes == 0 || session.size == 0 ? 0 : (int) ((bytes * 100) / session.size);
             return new ReplicationStatus(start, end, end.getTime() - start.getTime(), bytes,
-                    FileUtils.byteCountToDisplaySize(bytes), ratio, strategy);
+                    FileUtils.byteCountToDisplaySize(bytes), ratio, strategy,
+                    sources.isEmpty() ? null : new LinkedHashMap<>(sources));
         }
 
     }
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.utils.TimeTracker;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.ReferenceManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A LRU cache of the search responses of an index.
+ * An entry is keyed on the query definition and on the reader which computed the response:
+ * the cache is cleared when the searcher is refreshed, and when the fields or the analyzers change.
+ */
+final class RequestCache implements ReferenceManager.RefreshListener {
+
+    private final int maxSize;
+    private final LinkedHashMap<Key, ResultDefinition.WithMap> entries;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    private RequestCache(final int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<Key, ResultDefinition.WithMap>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Key, ResultDefinition.WithMap> eldest) {
+                if (size() <= RequestCache.this.maxSize)
+                    return false;
+                evictionCount++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @return a new cache, or null if the cache is disabled by the settings
+     */
+    static RequestCache of(final IndexSettingsDefinition settings) {
+        final int maxSize = settings == null || settings.requestCacheSize == null ?
+                IndexSettingsDefinition.DEFAULT_REQUEST_CACHE_SIZE :
+                settings.requestCacheSize;
+        return maxSize > 0 ? new RequestCache(maxSize) : null;
+    }
+
+    /**
+     * The responses are not cached when the query is only known by its Lucene object (no structural equality),
+     * when external collectors are involved, or when the caller opts out.
+     *
+     * @return the key of the query, or null if the response cannot be cached
+     */
+    static Key key(final QueryDefinition queryDefinition, final IndexReader indexReader) {
+        if (Boolean.FALSE.equals(queryDefinition.cache) || queryDefinition.luceneQuery != null)
+            return null;
+        if (queryDefinition.collectors != null && !queryDefinition.collectors.isEmpty())
+            return null;
+        final IndexReader.CacheHelper cacheHelper = indexReader.getReaderCacheHelper();
+        return cacheHelper == null ? null : new Key(queryDefinition, cacheHelper.getKey());
+    }
+
+    private synchronized ResultDefinition.WithMap lookup(final Key key) {
+        final ResultDefinition.WithMap result = entries.get(key);
+        if (result == null)
+            missCount++;
+        else
+            hitCount++;
+        return result;
+    }
+
+    /**
+     * The cached results are never returned to the callers, which may modify the documents.
+     *
+     * @return a copy of the cached result with its own timer, or null if there is no entry
+     */
+    ResultDefinition.WithMap get(final Key key) {
+        final TimeTracker timeTracker = new TimeTracker();
+        final ResultDefinition.WithMap result = lookup(key);
+        if (result == null)
+            return null;
+        timeTracker.next("request_cache");
+        return result.copy(timeTracker.getStatus());
+    }
+
+    /**
+     * Cache a copy of the result, the caller keeps its own instance
+     */
+    void put(final Key key, final ResultDefinition.WithMap result) {
+        final ResultDefinition.WithMap copy = result.copy(result.timer);
+        synchronized (this) {
+            entries.put(key, copy);
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized IndexStatus.RequestCacheStats getStats() {
+        return new IndexStatus.RequestCacheStats(maxSize, entries.size(), hitCount, missCount, evictionCount);
+    }
+
+    @Override
+    public void beforeRefresh() {
+    }
+
+    @Override
+    public void afterRefresh(final boolean didRefresh) {
+        if (didRefresh)
+            clear();
+    }
+
+    static final class Key {
+
+        private final QueryDefinition queryDefinition;
+        private final IndexReader.CacheKey readerKey;
+        private final int hashCode;
+
+        private Key(final QueryDefinition queryDefinition, final IndexReader.CacheKey readerKey) {
+            this.queryDefinition = queryDefinition;
+            this.readerKey = readerKey;
+            this.hashCode = Objects.hash(queryDefinition, queryDefinition.start, queryDefinition.rows, readerKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Key))
+                return false;
+            if (o == this)
+                return true;
+            final Key k = (Key) o;
+            // QueryDefinition.equals does not cover the paging and the returned fields
+            return hashCode == k.hashCode && readerKey == k.readerKey && queryDefinition.equals(k.queryDefinition) &&
+                    Objects.equals(queryDefinition.start, k.queryDefinition.start) &&
+                    Objects.equals(queryDefinition.rows, k.queryDefinition.rows) &&
+                    Objects.equals(queryDefinition.returned_fields, k.queryDefinition.returned_fields) &&
+                    Objects.equals(queryDefinition.query_debug, k.queryDefinition.query_debug);
+        }
+    }
+}
@@ -22,7 +22,9 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.qwazr.utils.TimeTracker;
 
 import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
@@ -33,53 +35,99 @@ public abstract class ResultDefinition<T extends ResultDocumentAbstract> {
     final public TimeTracker.Status timer;
     @JsonProperty("total_hits")
     final public long totalHits;
+    /**
+     * GREATER_THAN_OR_EQUAL_TO when the total hits are a lower bound (see total_hits_threshold)
+     */
+    @JsonProperty("total_hits_relation")
+    final public TotalHitsRelation totalHitsRelation;
     final public List<T> documents;
     final public Map<String, Map<String, Number>> facets;
     final public String query;
     final public Map<String, Object> collectors;
+    /**
+     * The cursor to pass as search_after to get the next page
+     */
+    @JsonProperty("next_search_after")
+    final public String nextSearchAfter;
+    /**
+     * True when the timeout_ms deadline has been reached: the results are partial
+     */
+    @JsonProperty("timed_out")
+    final public Boolean timedOut;
+    /**
+     * The time (ms) of each stage of the fetch phase. The stages run concurrently, the timer only reports the time
+     * the query waited for them
+     */
+    @JsonProperty("fetch_times")
+    final public Map<String, Long> fetchTimes;
 
     public ResultDefinition() {
         this.timer = null;
         this.totalHits = 0L;
+        this.totalHitsRelation = null;
         this.documents = null;
         this.facets = null;
         this.collectors = null;
         this.query = null;
+        this.nextSearchAfter = null;
+        this.timedOut = null;
+        this.fetchTimes = null;
     }
 
     protected ResultDefinition(final ResultDocumentsBuilder builder, @NotNull final List<T> documents) {
         this.query = builder.queryDebug;
         this.timer = builder.timeTrackerStatus;
         this.totalHits = builder.totalHits;
+        this.totalHitsRelation = builder.totalHitsRelation;
         this.documents = documents;
         this.facets = builder.facets;
         this.collectors = builder.collectors;
+        this.nextSearchAfter = builder.nextSearchAfter;
+        this.timedOut = builder.timedOut;
+        this.fetchTimes = builder.fetchTimes;
     }
 
     protected ResultDefinition(final ResultDefinition<?> src, @NotNull final List<T> documents) {
+        this(src, documents, src.facets, src.timer);
+    }
+
+    private ResultDefinition(final ResultDefinition<?> src, final List<T> documents,
+                             final Map<String, Map<String, Number>> facets, final TimeTracker.Status timer) {
         this.query = src.query;
-        this.timer = src.timer;
+        this.timer = timer;
         this.totalHits = src.totalHits;
+        this.totalHitsRelation = src.totalHitsRelation;
         this.documents = documents;
-        this.facets = src.facets;
+        this.facets = facets;
         this.collectors = src.collectors;
+        this.nextSearchAfter = src.nextSearchAfter;
+        this.timedOut = src.timedOut;
+        this.fetchTimes = src.fetchTimes == null ? null : new LinkedHashMap<>(src.fetchTimes);
     }
 
     ResultDefinition(final TimeTracker timeTracker) {
         query = null;
         totalHits = 0L;
+        totalHitsRelation = TotalHitsRelation.EQUAL_TO;
         documents = Collections.emptyList();
         facets = null;
         collectors = null;
+        nextSearchAfter = null;
+        timedOut = null;
+        fetchTimes = null;
         this.timer = timeTracker != null ? timeTracker.getStatus() : null;
     }
 
     protected ResultDefinition(final long totalHits) {
         query = null;
         this.totalHits = totalHits;
+        this.totalHitsRelation = TotalHitsRelation.EQUAL_TO;
         documents = Collections.emptyList();
         facets = null;
         collectors = null;
+        nextSearchAfter = null;
+        timedOut = null;
+        fetchTimes = null;
         this.timer = null;
     }
 
@@ -88,6 +136,11 @@ public abstract class ResultDefinition<T extends ResultDocumentAbstract> {
         return totalHits;
     }
 
+    @JsonIgnore
+    public boolean isTimedOut() {
+        return timedOut != null && timedOut;
+    }
+
     public List<T> getDocuments() {
         return documents == null ? Collections.emptyList() : documents;
     }
@@ -134,6 +187,10 @@ public abstract class ResultDefinition<T extends ResultDocumentAbstract> {
                 consumer.accept(document);
     }
 
+    public enum TotalHitsRelation {
+        EQUAL_TO, GREATER_THAN_OR_EQUAL_TO
+    }
+
     @JsonInclude(Include.NON_NULL)
     public static class WithMap extends ResultDefinition<ResultDocumentMap> {
 
@@ -147,6 +204,35 @@ public abstract class ResultDefinition<T extends ResultDocumentAbstract> {
         public WithMap(int docs) {
             super(docs);
         }
+
+        private WithMap(final WithMap src, final TimeTracker.Status timer) {
+            super(src, copyDocuments(src.documents), copyFacets(src.facets), timer);
+        }
+
+        /**
+         * @param timer the timer of the copy
+         * @return a deep copy of this result: the documents, their fields and the facets are not shared
+         */
+        WithMap copy(final TimeTracker.Status timer) {
+            return new WithMap(this, timer);
+        }
+
+        private static List<ResultDocumentMap> copyDocuments(final List<ResultDocumentMap> documents) {
+            if (documents == null)
+                return null;
+            final List<ResultDocumentMap> copy = new ArrayList<>(documents.size());
+            for (final ResultDocumentMap document : documents)
+                copy.add(new ResultDocumentMap(document));
+            return copy;
+        }
+
+        private static Map<String, Map<String, Number>> copyFacets(final Map<String, Map<String, Number>> facets) {
+            if (facets == null)
+                return null;
+            final Map<String, Map<String, Number>> copy = new LinkedHashMap<>();
+            facets.forEach((name, facet) -> copy.put(name, facet == null ? null : new LinkedHashMap<>(facet)));
+            return copy;
+        }
     }
 
     public static class WithObject<T> extends ResultDefinition<ResultDocumentObject<T>> {
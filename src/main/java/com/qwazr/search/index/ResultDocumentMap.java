@@ -22,6 +22,8 @@ import com.qwazr.search.field.Converters.ValueConverter;
 import org.apache.lucene.search.ScoreDoc;
 
 import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -45,6 +47,32 @@ public class ResultDocumentMap extends ResultDocumentAbstract {
 		fields = builder.fields;
 	}
 
+	/**
+	 * A copy which does not share the fields, the multivalued fields and the highlights of the source
+	 */
+	ResultDocumentMap(final ResultDocumentMap src) {
+		super(src.score, src.pos, src.doc, src.shardIndex,
+				src.highlights == null ? null : new LinkedHashMap<>(src.highlights));
+		if (src.fields == null)
+			fields = null;
+		else {
+			fields = new LinkedHashMap<>();
+			src.fields.forEach((name, value) -> fields.put(name, copyValue(value)));
+		}
+	}
+
+	private static Object copyValue(final Object value) {
+		if (value instanceof List)
+			return new ArrayList<>((List<?>) value);
+		if (value != null && value.getClass().isArray()) {
+			final int length = Array.getLength(value);
+			final Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+			System.arraycopy(value, 0, copy, 0, length);
+			return copy;
+		}
+		return value;
+	}
+
 	public LinkedHashMap<String, Object> getFields() {
 		return fields;
 	}
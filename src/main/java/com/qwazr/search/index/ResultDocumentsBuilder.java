@@ -21,11 +21,14 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
 
 import javax.validation.constraints.NotNull;
 import java.io.IOException;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 class ResultDocumentsBuilder {
 
@@ -33,45 +36,65 @@ class ResultDocumentsBuilder {
     final LinkedHashMap<String, Map<String, Number>> facets;
     final String queryDebug;
     final TimeTracker.Status timeTrackerStatus;
+    final Map<String, Long> fetchTimes;
     final long totalHits;
+    final ResultDefinition.TotalHitsRelation totalHitsRelation;
+    final String nextSearchAfter;
+    final Boolean timedOut;
 
     ResultDocumentsBuilder(final QueryDefinition queryDefinition, final TopDocs topDocs,
                            final IndexSearcher indexSearcher, final Query luceneQuery, final Map<String, HighlighterImpl> highlighters,
                            final Map<String, Object> externalCollectorsResults, final TimeTracker timeTracker,
-                           final FacetsBuilder facetsBuilder, long totalHits, @NotNull final ResultDocumentsInterface resultDocuments)
+                           final FacetsBuilder facetsBuilder, long totalHits, @NotNull final ResultDocumentsInterface resultDocuments,
+                           final QueryDeadline deadline, final ExecutorService executorService)
             throws IOException {
 
         this.collectors = externalCollectorsResults;
 
+        Map<String, Long> fetchTimes = null;
+        ScoreDoc lastScoreDoc = null;
         if (topDocs != null && topDocs.scoreDocs != null) {
 
-            int pos = 0;
-            for (ScoreDoc scoreDoc : topDocs.scoreDocs)
-                resultDocuments.doc(indexSearcher, pos++, scoreDoc);
+            final FetchPhase fetchPhase = new FetchPhase(executorService, deadline);
+
+            // The highlighters do not depend on the loaded documents, they run while the documents are loaded
+            final Map<String, Future<String[]>> snippets = highlighters != null && topDocs.scoreDocs.length > 0 ?
+                    fetchPhase.highlight(highlighters, luceneQuery, topDocs) :
+                    null;
+
+            // The implementations provided by the caller are not expected to be thread safe
+            final int loadedCount = fetchPhase.documents(indexSearcher, topDocs.scoreDocs, resultDocuments,
+                    resultDocuments instanceof ResultDocumentsList);
+            // A partial page continues after its last document
+            if (loadedCount > 0)
+                lastScoreDoc = topDocs.scoreDocs[loadedCount - 1];
 
             if (timeTracker != null)
                 timeTracker.next("documents");
 
-            if (highlighters != null && topDocs.scoreDocs.length > 0) {
-
-                highlighters.forEach((name, highlighter) -> {
-                    try {
-                        final String[] snippetsByDoc = highlighter.highlights(luceneQuery, topDocs);
-                        int pos2 = 0;
-                        for (String snippet : snippetsByDoc)
-                            resultDocuments.highlight(pos2++, name, snippet);
-                    }
-                    catch (IOException e) {
-                        throw new RuntimeException("Highlighting failure: " + name, e);
-                    }
-                });
+            if (snippets != null) {
+                for (final Map.Entry<String, Future<String[]>> entry : snippets.entrySet()) {
+                    final String[] snippetsByDoc = FetchPhase.get(entry.getValue());
+                    if (snippetsByDoc == null)
+                        continue;
+                    for (int pos = 0; pos < loadedCount && pos < snippetsByDoc.length; pos++)
+                        resultDocuments.highlight(pos, entry.getKey(), snippetsByDoc[pos]);
+                }
                 if (timeTracker != null)
                     timeTracker.next("highlighting");
             }
+            fetchTimes = fetchPhase.getTimes();
         }
+        this.fetchTimes = fetchTimes;
 
         this.totalHits = totalHits;
+        this.totalHitsRelation = topDocs != null && topDocs.totalHits != null &&
+                topDocs.totalHits.relation == TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO ?
+                ResultDefinition.TotalHitsRelation.GREATER_THAN_OR_EQUAL_TO :
+                ResultDefinition.TotalHitsRelation.EQUAL_TO;
+        this.nextSearchAfter = lastScoreDoc == null ? null : SearchAfter.encode(lastScoreDoc);
 
+        this.timedOut = deadline != null && deadline.isExpired() ? Boolean.TRUE : null;
         this.facets = facetsBuilder == null ? null : facetsBuilder.results;
         this.queryDebug = queryDefinition.query_debug != null && queryDefinition.query_debug && luceneQuery != null ?
                 luceneQuery.toString(StringUtils.EMPTY) :
@@ -23,6 +23,9 @@ import java.io.IOException;
 public interface ResultDocumentsInterface {
 
     /**
+     * The documents are visited in doc id order, the position gives the rank of the document.
+     * If the query has a timeout, the documents are visited in rank order.
+     *
      * @param searcher the IndexSearcher used for the query
      * @param pos      the position of the current document
      * @param scoreDoc the ScoreDoc defining the document
@@ -81,18 +81,32 @@ abstract class ResultDocumentsList<T extends ResultDocumentAbstract>
             builder.extractStoredReturnedFields(searcher, storedFields);
         if (returnedFieldsConverter != null && !returnedFieldsConverter.isEmpty())
             builder.extractDocValuesReturnedFields(returnedFieldsConverter);
-        documentsBuilder.add(builder);
+        // The documents are not visited in rank order, and may be loaded by several threads
+        synchronized (documentsBuilder) {
+            while (documentsBuilder.size() <= pos)
+                documentsBuilder.add(null);
+            documentsBuilder.set(pos, builder);
+        }
     }
 
     @Override
     final public void highlight(int pos, String name, String snippet) {
-        documentsBuilder.get(pos).setHighlight(name, snippet);
+        if (pos >= documentsBuilder.size())
+            return;
+        final ResultDocumentBuilder<T> builder = documentsBuilder.get(pos);
+        if (builder != null)
+            builder.setHighlight(name, snippet);
     }
 
     @Override
     final public ResultDefinition<T> apply(ResultDocumentsBuilder resultDocumentsBuilder) {
         final List<T> documents = new ArrayList<>(documentsBuilder.size());
-        documentsBuilder.forEach(builder -> documents.add(builder.build()));
+        // If the deadline has been reached, the page is truncated before the first missing rank
+        for (final ResultDocumentBuilder<T> builder : documentsBuilder) {
+            if (builder == null)
+                break;
+            documents.add(builder.build());
+        }
         return newResultDefinition(resultDocumentsBuilder, documents);
     }
 
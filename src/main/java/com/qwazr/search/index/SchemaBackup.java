@@ -0,0 +1,167 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.utils.LoggerUtils;
+import org.apache.lucene.store.RateLimiter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Backup the indexes of a schema concurrently.
+ * <ul>
+ * <li>At most "backup_concurrency" indexes are backed up at the same time. Each index takes its snapshot when its own
+ * backup starts: a slow index only holds one worker, the others keep going.</li>
+ * <li>The copied bytes of every index share one rate limiter ("backup_max_mb_per_sec").</li>
+ * <li>A failed index does not stop the others. The failure is thrown once every backup is done.</li>
+ * <li>The progress (running, done and failed indexes) is logged when each index starts and ends.</li>
+ * </ul>
+ */
+class SchemaBackup {
+
+    private final static Logger LOGGER = LoggerUtils.getLogger(SchemaBackup.class);
+
+    private final String schemaName;
+    private final Path backupDirectory;
+    private final Queue<Map.Entry<String, IndexBackup>> pendingIndexes;
+    private final int indexCount;
+    private final AtomicInteger running;
+    private final AtomicInteger done;
+    private final int concurrency;
+    private final RateLimiter rateLimiter;
+    private final SortedMap<String, BackupStatus> results;
+    private final List<Exception> failures;
+
+    SchemaBackup(final String schemaName, final Path backupDirectory, final Map<String, IndexBackup> indexes,
+                 final SchemaSettingsDefinition settings) {
+        this.schemaName = schemaName;
+        this.backupDirectory = backupDirectory;
+        this.pendingIndexes = new ConcurrentLinkedQueue<>(indexes.entrySet());
+        this.indexCount = indexes.size();
+        this.running = new AtomicInteger();
+        this.done = new AtomicInteger();
+        this.concurrency = settings == null || settings.backupConcurrency == null ?
+                SchemaSettingsDefinition.DEFAULT_BACKUP_CONCURRENCY :
+                Math.max(1, settings.backupConcurrency);
+        this.rateLimiter = settings == null || settings.backupMaxMbPerSec == null || settings.backupMaxMbPerSec <= 0 ?
+                null :
+                new RateLimiter.SimpleRateLimiter(settings.backupMaxMbPerSec);
+        this.results = Collections.synchronizedSortedMap(new TreeMap<>());
+        this.failures = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    /**
+     * @param executorService the executor which runs the additional workers
+     * @return the status of each backed up index
+     * @throws IOException if the backup of an index failed
+     */
+    SortedMap<String, BackupStatus> backup(final ExecutorService executorService) throws IOException {
+        final int workerCount = Math.min(concurrency, pendingIndexes.size());
+        final List<Future<?>> workers = new ArrayList<>(workerCount);
+        for (int i = 1; i < workerCount; i++)
+            workers.add(executorService.submit(this::work));
+        // The calling thread is also a worker, the backup progresses even if the executor is saturated
+        work();
+        awaitWorkers(workers);
+        if (!failures.isEmpty())
+            throwFailure();
+        return results;
+    }
+
+    private void work() {
+        Map.Entry<String, IndexBackup> entry;
+        while ((entry = pendingIndexes.poll()) != null) {
+            final String indexName = entry.getKey();
+            final String startProgress = progress(running.incrementAndGet());
+            LOGGER.info(() -> "Backup started - Schema/Index: " + schemaName + '/' + indexName + " - " +
+                    startProgress);
+            try {
+                final BackupStatus status = entry.getValue().backup(backupDirectory.resolve(indexName), rateLimiter);
+                results.put(indexName, status);
+                done.incrementAndGet();
+                final String endProgress = progress(running.decrementAndGet());
+                LOGGER.info(() -> "Backup done - Schema/Index: " + schemaName + '/' + indexName + " - Time: " +
+                        status.durationMs + "ms - Copied: " + status.copiedBytes + " - Linked: " +
+                        status.linkedBytes + " - " + endProgress);
+            } catch (IOException | RuntimeException e) {
+                failures.add(e);
+                done.incrementAndGet();
+                final String endProgress = progress(running.decrementAndGet());
+                LOGGER.log(Level.SEVERE, e, () -> "Backup failure - Schema/Index: " + schemaName + '/' + indexName +
+                        " - " + endProgress);
+            }
+        }
+    }
+
+    private String progress(final int runningCount) {
+        return "Running: " + runningCount + " - Done: " + done.get() + '/' + indexCount + " - Failed: " +
+                failures.size();
+    }
+
+    /**
+     * The workers hold the backup lock of the schema, we wait for them even if the thread is interrupted
+     */
+    private static void awaitWorkers(final List<Future<?>> workers) {
+        boolean interrupted = false;
+        for (final Future<?> worker : workers) {
+            for (; ; ) {
+                try {
+                    worker.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    LOGGER.log(Level.SEVERE, e, e::getMessage);
+                    break;
+                }
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    /**
+     * The backup of one index
+     */
+    @FunctionalInterface
+    interface IndexBackup {
+        BackupStatus backup(Path backupIndexDirectory, RateLimiter rateLimiter) throws IOException;
+    }
+
+    private void throwFailure() throws IOException {
+        final Exception failure = failures.get(0);
+        for (int i = 1; i < failures.size(); i++)
+            failure.addSuppressed(failures.get(i));
+        if (failure instanceof IOException)
+            throw (IOException) failure;
+        throw (RuntimeException) failure;
+    }
+}
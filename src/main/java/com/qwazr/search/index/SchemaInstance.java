@@ -30,11 +30,18 @@ import javax.ws.rs.core.Response;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.UUID;
@@ -44,12 +51,18 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 class SchemaInstance implements IndexInstance.Provider, Closeable {
 
     private final static String SETTINGS_FILE = "settings.json";
 
+    /**
+     * Next to each index directory of a backup, this file records the time the backup of the index completed
+     */
+    private final static String BACKUP_TIME_SUFFIX = ".backup_time";
+
     private final Map<String, IndexInstanceManager> indexMap;
     private final Map<String, SimilarityFactory> similarityFactoryMap;
     private final Map<String, AnalyzerFactory> analyzerFactoryMap;
@@ -215,18 +228,66 @@ class SchemaInstance implements IndexInstance.Provider, Closeable {
         return backupLock.writeEx(() -> {
             checkBackupConfig();
             final Path backupDirectory = getBackupDirectory(backupName, true);
-            final SortedMap<String, BackupStatus> results = Collections.synchronizedSortedMap(new TreeMap<>());
-            indexIterator(indexName, (idxName, indexInstance) -> {
-                try {
-                    results.put(idxName, indexInstance.backup(backupDirectory.resolve(idxName)));
-                } catch (IOException e) {
-                    throw ServerException.of(e);
-                }
-            });
+            final Map<String, SchemaBackup.IndexBackup> indexes = new LinkedHashMap<>();
+            indexIterator(indexName, (name, indexInstance) -> indexes.put(name, indexInstance::backup));
+            final SortedMap<String, BackupStatus> results =
+                    new SchemaBackup(schemaName, backupDirectory, indexes, settingsDefinition).backup(executorService);
+            // A replaced backup becomes the most recent one
+            final String backupTime = Instant.now().toString();
+            for (final String backupIndexName : results.keySet())
+                Files.write(backupDirectory.resolve(backupIndexName + BACKUP_TIME_SUFFIX),
+                        backupTime.getBytes(StandardCharsets.UTF_8));
+            applyBackupRetention(backupDirectory, results.keySet());
             return results;
         });
     }
 
+    /**
+     * Delete the oldest backups of each backed up index beyond the retention. The retention is counted per index: the
+     * backup of a single index does not push the backups of the other indexes out of the retention. The backups are
+     * ranked by the time recorded when they completed. The backups share their index files through hard links: the
+     * file system releases the space of a file once its last backup is deleted.
+     */
+    private void applyBackupRetention(final Path currentBackupDirectory, final Set<String> indexNames)
+            throws IOException {
+        final Integer retention = settingsDefinition == null ? null : settingsDefinition.backupRetention;
+        if (retention == null || retention <= 0)
+            return;
+        for (final String indexName : indexNames) {
+            final List<Path> backupIndexDirectories;
+            try (final Stream<Path> stream = Files.list(currentBackupDirectory.getParent())) {
+                backupIndexDirectories = stream.filter(path -> !path.equals(currentBackupDirectory))
+                        .map(path -> path.resolve(indexName))
+                        .filter(Files::isDirectory)
+                        .sorted(Comparator.comparing(SchemaInstance::getBackupTime).reversed())
+                        .collect(Collectors.toList());
+            }
+            for (int i = retention - 1; i < backupIndexDirectories.size(); i++) {
+                final Path backupIndexDirectory = backupIndexDirectories.get(i);
+                deleteBackupIndexDirectory(backupIndexDirectory.getParent(), backupIndexDirectory);
+            }
+        }
+    }
+
+    /**
+     * @return the completion time of the backup of an index, or the modification time of the directory of the
+     * backups written before the completion time was recorded
+     */
+    static Instant getBackupTime(final Path backupIndexDirectory) {
+        try {
+            final Path backupTimeFile = getBackupTimeFile(backupIndexDirectory);
+            if (Files.exists(backupTimeFile))
+                return Instant.parse(new String(Files.readAllBytes(backupTimeFile), StandardCharsets.UTF_8).trim());
+            return Files.getLastModifiedTime(backupIndexDirectory).toInstant();
+        } catch (IOException | DateTimeParseException e) {
+            throw ServerException.of(e);
+        }
+    }
+
+    private static Path getBackupTimeFile(final Path backupIndexDirectory) {
+        return backupIndexDirectory.resolveSibling(backupIndexDirectory.getFileName() + BACKUP_TIME_SUFFIX);
+    }
+
     private void backupIterator(final String backupName, final Consumer<Path> consumer) {
         final Path backupSchemaDirectory = backupRootDirectory.resolve(schemaName);
         if (Files.notExists(backupSchemaDirectory) || !Files.isDirectory(backupSchemaDirectory))
@@ -300,33 +361,35 @@ class SchemaInstance implements IndexInstance.Provider, Closeable {
 
             backupIterator(backupName, backupDirectory -> backupIndexDirectoryIterator(backupDirectory, indexName,
                     backupIndexDirectory -> {
-
-                        try {
-
-                            final IndexInstance indexInstance =
-                                    get(backupIndexDirectory.getFileName().toString(), false);
-                            if (indexInstance != null)
-                                indexInstance.deleteBackup(backupIndexDirectory);
-                            else
-                                FileUtils.deleteDirectory(backupIndexDirectory);
-
-                            counter.incrementAndGet();
-
-                            if (Files.exists(backupDirectory)) {
-                                try (final Stream<Path> stream = Files.list(backupDirectory)) {
-                                    if (stream.count() == 0)
-                                        Files.deleteIfExists(backupDirectory);
-                                }
-                            }
-                        } catch (IOException e) {
-                            throw ServerException.of(e);
-                        }
-
+                        deleteBackupIndexDirectory(backupDirectory, backupIndexDirectory);
+                        counter.incrementAndGet();
                     }));
             return counter.get();
         });
     }
 
+    private void deleteBackupIndexDirectory(final Path backupDirectory, final Path backupIndexDirectory) {
+        try {
+
+            final String indexName = backupIndexDirectory.getFileName().toString();
+            final IndexInstance indexInstance = indexMap.containsKey(indexName) ? get(indexName, false) : null;
+            if (indexInstance != null)
+                indexInstance.deleteBackup(backupIndexDirectory);
+            else
+                FileUtils.deleteDirectory(backupIndexDirectory);
+            Files.deleteIfExists(getBackupTimeFile(backupIndexDirectory));
+
+            if (Files.exists(backupDirectory)) {
+                try (final Stream<Path> stream = Files.list(backupDirectory)) {
+                    if (stream.count() == 0)
+                        Files.deleteIfExists(backupDirectory);
+                }
+            }
+        } catch (IOException e) {
+            throw ServerException.of(e);
+        }
+    }
+
     synchronized void setSettings(SchemaSettingsDefinition settings) throws IOException {
         if (settings == null) {
             settings = SchemaSettingsDefinition.EMPTY;
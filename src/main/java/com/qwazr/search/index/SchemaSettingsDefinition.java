@@ -24,29 +24,45 @@ import java.util.Objects;
 @JsonInclude(JsonInclude.Include.NON_EMPTY)
 public class SchemaSettingsDefinition {
 
+    public final static int DEFAULT_BACKUP_CONCURRENCY = 4;
+
     @JsonProperty("max_simultaneous_write")
     final public Integer maxSimultaneousWrite;
     @JsonProperty("max_simultaneous_read")
     final public Integer maxSimultaneousRead;
     @JsonProperty("backup_directory_path")
     final public String backupDirectoryPath;
+    @JsonProperty("backup_retention")
+    final public Integer backupRetention;
+    @JsonProperty("backup_concurrency")
+    final public Integer backupConcurrency;
+    @JsonProperty("backup_max_mb_per_sec")
+    final public Double backupMaxMbPerSec;
 
     @JsonCreator
     private SchemaSettingsDefinition(@JsonProperty("max_simultaneous_write") final Integer maxSimultaneousWrite,
                                      @JsonProperty("max_simultaneous_read") final Integer maxSimultaneousRead,
-                                     @JsonProperty("backup_directory_path") final String backupDirectoryPath) {
+                                     @JsonProperty("backup_directory_path") final String backupDirectoryPath,
+                                     @JsonProperty("backup_retention") final Integer backupRetention,
+                                     @JsonProperty("backup_concurrency") final Integer backupConcurrency,
+                                     @JsonProperty("backup_max_mb_per_sec") final Double backupMaxMbPerSec) {
         this.maxSimultaneousWrite = maxSimultaneousWrite;
         this.maxSimultaneousRead = maxSimultaneousRead;
         this.backupDirectoryPath = backupDirectoryPath;
+        this.backupRetention = backupRetention;
+        this.backupConcurrency = backupConcurrency;
+        this.backupMaxMbPerSec = backupMaxMbPerSec;
     }
 
     private SchemaSettingsDefinition(Builder builder) {
-        this(builder.maxSimultaneousWrite, builder.maxSimultaneousRead, builder.backupDirectoryPath);
+        this(builder.maxSimultaneousWrite, builder.maxSimultaneousRead, builder.backupDirectoryPath,
+                builder.backupRetention, builder.backupConcurrency, builder.backupMaxMbPerSec);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(maxSimultaneousWrite, maxSimultaneousRead, backupDirectoryPath);
+        return Objects.hash(maxSimultaneousWrite, maxSimultaneousRead, backupDirectoryPath, backupRetention,
+                backupConcurrency, backupMaxMbPerSec);
     }
 
     @Override
@@ -60,6 +76,12 @@ public class SchemaSettingsDefinition {
             return false;
         if (!Objects.equals(backupDirectoryPath, def.backupDirectoryPath))
             return false;
+        if (!Objects.equals(backupRetention, def.backupRetention))
+            return false;
+        if (!Objects.equals(backupConcurrency, def.backupConcurrency))
+            return false;
+        if (!Objects.equals(backupMaxMbPerSec, def.backupMaxMbPerSec))
+            return false;
         return true;
     }
 
@@ -74,6 +96,9 @@ public class SchemaSettingsDefinition {
         public Integer maxSimultaneousWrite;
         public Integer maxSimultaneousRead;
         public String backupDirectoryPath;
+        public Integer backupRetention;
+        public Integer backupConcurrency;
+        public Double backupMaxMbPerSec;
 
         public Builder maxSimultaneousWrite(Integer maxSimultaneousWrite) {
             this.maxSimultaneousWrite = maxSimultaneousWrite;
@@ -90,6 +115,21 @@ public class SchemaSettingsDefinition {
             return this;
         }
 
+        public Builder backupRetention(Integer backupRetention) {
+            this.backupRetention = backupRetention;
+            return this;
+        }
+
+        public Builder backupConcurrency(Integer backupConcurrency) {
+            this.backupConcurrency = backupConcurrency;
+            return this;
+        }
+
+        public Builder backupMaxMbPerSec(Double backupMaxMbPerSec) {
+            this.backupMaxMbPerSec = backupMaxMbPerSec;
+            return this;
+        }
+
         public SchemaSettingsDefinition build() {
             return new SchemaSettingsDefinition(this);
         }
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A batch of documents returned by a scroll session.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class ScrollResult {
+
+    /**
+     * The identifier of the session, null once the session is done and released
+     */
+    @JsonProperty("scroll_id")
+    public final String scrollId;
+
+    @JsonProperty("documents")
+    public final List<Map<String, Object>> documents;
+
+    /**
+     * True when every matching document has been returned
+     */
+    @JsonProperty("done")
+    public final Boolean done;
+
+    @JsonCreator
+    ScrollResult(@JsonProperty("scroll_id") String scrollId,
+            @JsonProperty("documents") List<Map<String, Object>> documents, @JsonProperty("done") Boolean done) {
+        this.scrollId = scrollId;
+        this.documents = documents;
+        this.done = done;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof ScrollResult))
+            return false;
+        final ScrollResult r = (ScrollResult) o;
+        return Objects.equals(scrollId, r.scrollId) && Objects.equals(documents, r.documents) &&
+                Objects.equals(done, r.done);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(scrollId, done);
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.field.Converters.MultiReader;
+import com.qwazr.search.field.Converters.ValueConverter;
+import com.qwazr.search.field.FieldTypeInterface;
+import com.qwazr.server.ServerException;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.flexible.core.QueryNodeException;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
+
+import javax.ws.rs.core.Response;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Iterate over the documents matching a query, leaf after leaf, in doc id order.
+ * There is no scoring and no priority queue: each batch only costs the documents it returns.
+ * The searcher is pinned for the lifetime of the session, so that every batch sees the same point-in-time view.
+ */
+final class ScrollSession implements Closeable {
+
+    final String id;
+    final long idleTimeoutMs;
+
+    private final WriterAndSearcher.Pinned pinned;
+    private final IndexSearcher indexSearcher;
+    private final Weight weight;
+    private final List<LeafReaderContext> leaves;
+    private final Map<String, String> storedFields;
+    private final Map<String, ValueConverter> returnedFieldsConverter;
+    private final int defaultRows;
+
+    private int leafPos;
+    private LeafReaderContext leaf;
+    private DocIdSetIterator iterator;
+    private Bits liveDocs;
+    private boolean done;
+    private boolean closed;
+    private volatile long lastAccess;
+
+    ScrollSession(final WriterAndSearcher.Pinned pinned, final QueryContextImpl context,
+                  final QueryDefinition queryDefinition, final long idleTimeoutMs) throws IOException {
+        this.id = UUID.randomUUID().toString();
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.pinned = pinned;
+        this.indexSearcher = pinned.indexSearcher;
+        final Query query;
+        try {
+            query = queryDefinition.luceneQuery != null ?
+                    queryDefinition.luceneQuery :
+                    queryDefinition.query == null ? new MatchAllDocsQuery() : queryDefinition.query.getQuery(context);
+        } catch (ParseException | QueryNodeException | ReflectiveOperationException e) {
+            throw ServerException.of(e);
+        }
+        this.weight = indexSearcher.createWeight(indexSearcher.rewrite(query), ScoreMode.COMPLETE_NO_SCORES, 1f);
+        this.leaves = indexSearcher.getIndexReader().leaves();
+        this.defaultRows = queryDefinition.getRowsValue();
+
+        final Set<String> returnedFields =
+                queryDefinition.returned_fields == null || queryDefinition.returned_fields.contains("*") ?
+                        context.fieldMap.getStaticFieldSet() :
+                        queryDefinition.returned_fields;
+        this.storedFields = new HashMap<>();
+        this.returnedFieldsConverter = new LinkedHashMap<>();
+        final MultiReader multiReader = new MultiReader(context.indexReader);
+        for (final String fieldName : returnedFields) {
+            final FieldTypeInterface fieldType = context.fieldMap.getFieldType(null, fieldName);
+            if (fieldType == null)
+                continue;
+            final String storedFieldName = fieldType.getStoredFieldName(fieldName);
+            if (storedFieldName != null)
+                storedFields.put(storedFieldName, fieldName);
+            final ValueConverter converter = fieldType.getConverter(fieldName, multiReader);
+            if (converter != null)
+                returnedFieldsConverter.put(fieldName, converter);
+        }
+        this.leafPos = 0;
+        this.done = false;
+        touch();
+    }
+
+    void touch() {
+        lastAccess = System.currentTimeMillis();
+    }
+
+    boolean isExpired(final long now) {
+        return now - lastAccess > idleTimeoutMs;
+    }
+
+    /**
+     * @param rows the maximum number of documents to return, or null to use the rows of the query
+     * @return the next documents, an empty list once every matching document has been returned
+     * @throws IOException if the documents cannot be read
+     */
+    synchronized List<Map<String, Object>> next(final Integer rows) throws IOException {
+        if (closed)
+            throw new ServerException(Response.Status.NOT_FOUND, "The scroll session is expired: " + id);
+        touch();
+        final int max = rows == null ? defaultRows : rows;
+        final List<Map<String, Object>> documents = new ArrayList<>(Math.min(max, 1000));
+        while (documents.size() < max && nextDoc()) {
+            final ResultDocumentMap.Builder builder =
+                    new ResultDocumentMap.Builder(0, new ScoreDoc(leaf.docBase + iterator.docID(), Float.NaN));
+            if (!storedFields.isEmpty())
+                builder.extractStoredReturnedFields(indexSearcher, storedFields);
+            if (!returnedFieldsConverter.isEmpty())
+                builder.extractDocValuesReturnedFields(returnedFieldsConverter);
+            documents.add(builder.build().fields);
+        }
+        return documents;
+    }
+
+    synchronized boolean isDone() {
+        return done;
+    }
+
+    private boolean nextDoc() throws IOException {
+        while (!done) {
+            if (iterator != null) {
+                int doc;
+                while ((doc = iterator.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS)
+                    if (liveDocs == null || liveDocs.get(doc))
+                        return true;
+                iterator = null;
+            }
+            if (leafPos >= leaves.size()) {
+                done = true;
+                break;
+            }
+            leaf = leaves.get(leafPos++);
+            final Scorer scorer = weight.scorer(leaf);
+            if (scorer != null) {
+                iterator = scorer.iterator();
+                liveDocs = leaf.reader().getLiveDocs();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Synchronized, so that the searcher is not released while a batch is read
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        done = true;
+        pinned.close();
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.server.ServerException;
+import com.qwazr.utils.IOUtils;
+import com.qwazr.utils.LoggerUtils;
+
+import javax.ws.rs.core.Response;
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * The open scroll sessions of an index.
+ * The sessions which are idle for longer than their timeout are closed, releasing their pinned searcher.
+ */
+final class ScrollSessions implements Closeable {
+
+    private final static Logger LOGGER = LoggerUtils.getLogger(ScrollSessions.class);
+
+    final static int DEFAULT_IDLE_TIMEOUT_MS = 60_000;
+
+    private final static long PURGE_PERIOD_MS = 1000;
+
+    // One thread is enough for every index, the purge is only a scan of the open sessions
+    private final static ScheduledExecutorService PURGER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "Scroll sessions purger");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String indexName;
+    private final Map<String, ScrollSession> sessions;
+    private ScheduledFuture<?> purgeTask;
+
+    ScrollSessions(final String indexName) {
+        this.indexName = indexName;
+        this.sessions = new ConcurrentHashMap<>();
+    }
+
+    synchronized void register(final ScrollSession session) {
+        sessions.put(session.id, session);
+        if (purgeTask == null)
+            purgeTask = PURGER.scheduleAtFixedRate(this::purge, PURGE_PERIOD_MS, PURGE_PERIOD_MS,
+                    TimeUnit.MILLISECONDS);
+    }
+
+    ScrollSession get(final String sessionId) {
+        final ScrollSession session = sessions.get(sessionId);
+        if (session == null)
+            throw new ServerException(Response.Status.NOT_FOUND,
+                    "Scroll session not found: " + sessionId + " - Index: " + indexName);
+        return session;
+    }
+
+    boolean release(final String sessionId) {
+        final ScrollSession session = sessions.remove(sessionId);
+        if (session == null)
+            return false;
+        IOUtils.closeQuietly(session);
+        return true;
+    }
+
+    int size() {
+        return sessions.size();
+    }
+
+    private void purge() {
+        final long now = System.currentTimeMillis();
+        final Iterator<ScrollSession> iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            final ScrollSession session = iterator.next();
+            if (!session.isExpired(now))
+                continue;
+            iterator.remove();
+            LOGGER.info(() -> "Idle scroll session released: " + session.id + " - Index: " + indexName);
+            IOUtils.closeQuietly(session);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (purgeTask != null) {
+            purgeTask.cancel(false);
+            purgeTask = null;
+        }
+        sessions.values().forEach(IOUtils::closeQuietly);
+        sessions.clear();
+    }
+}
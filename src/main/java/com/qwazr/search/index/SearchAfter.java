@@ -0,0 +1,148 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.server.ServerException;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.util.BytesRef;
+
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+
+/**
+ * Encode and decode the opaque search_after cursor: the doc, the score and the sort values of the last hit of a page.
+ * <p>
+ * The doc id is only used to break the ties, the cursor stays usable after a reopen of the searcher,
+ * but a document updated between two pages may be returned twice, or missed.
+ */
+final class SearchAfter {
+
+    private final static byte NULL = 0;
+    private final static byte INT = 1;
+    private final static byte LONG = 2;
+    private final static byte FLOAT = 3;
+    private final static byte DOUBLE = 4;
+    private final static byte BYTES = 5;
+    private final static byte STRING = 6;
+
+    /**
+     * @param scoreDoc the last hit of the page
+     * @return the cursor, or null if one of the sort values cannot be encoded
+     */
+    static String encode(final ScoreDoc scoreDoc) {
+        if (scoreDoc == null)
+            return null;
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(scoreDoc.doc);
+            output.writeFloat(scoreDoc.score);
+            final Object[] fields = scoreDoc instanceof FieldDoc ? ((FieldDoc) scoreDoc).fields : null;
+            output.writeInt(fields == null ? -1 : fields.length);
+            if (fields != null)
+                for (final Object field : fields)
+                    if (!writeValue(output, field))
+                        return null;
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Not expected with a memory buffer
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    private static boolean writeValue(final DataOutputStream output, final Object value) throws IOException {
+        if (value == null)
+            output.writeByte(NULL);
+        else if (value instanceof Integer) {
+            output.writeByte(INT);
+            output.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            output.writeByte(LONG);
+            output.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            output.writeByte(FLOAT);
+            output.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            output.writeByte(DOUBLE);
+            output.writeDouble((Double) value);
+        } else if (value instanceof BytesRef) {
+            final BytesRef bytesRef = (BytesRef) value;
+            output.writeByte(BYTES);
+            output.writeInt(bytesRef.length);
+            output.write(bytesRef.bytes, bytesRef.offset, bytesRef.length);
+        } else if (value instanceof String) {
+            output.writeByte(STRING);
+            output.writeUTF((String) value);
+        } else
+            return false;
+        return true;
+    }
+
+    /**
+     * @param cursor the cursor returned by the previous page
+     * @param sort   the sort of the query, null for a relevance sort
+     * @return the hit after which the collection starts, or null if there is no cursor
+     */
+    static ScoreDoc decode(final String cursor, final Sort sort) {
+        if (cursor == null || cursor.isEmpty())
+            return null;
+        try (final DataInputStream input = new DataInputStream(
+                new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)))) {
+            final int doc = input.readInt();
+            final float score = input.readFloat();
+            final int length = input.readInt();
+            if (sort == null)
+                return new ScoreDoc(doc, score);
+            if (length != sort.getSort().length)
+                throw new IllegalArgumentException("The cursor does not match the sort");
+            final Object[] fields = new Object[length];
+            for (int i = 0; i < length; i++)
+                fields[i] = readValue(input);
+            return new FieldDoc(doc, score, fields);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new ServerException(Response.Status.BAD_REQUEST, "Invalid search_after cursor: " + e.getMessage());
+        }
+    }
+
+    private static Object readValue(final DataInputStream input) throws IOException {
+        final byte type = input.readByte();
+        switch (type) {
+        case NULL:
+            return null;
+        case INT:
+            return input.readInt();
+        case LONG:
+            return input.readLong();
+        case FLOAT:
+            return input.readFloat();
+        case DOUBLE:
+            return input.readDouble();
+        case BYTES:
+            final byte[] bytes = new byte[input.readInt()];
+            input.readFully(bytes);
+            return new BytesRef(bytes);
+        case STRING:
+            return input.readUTF();
+        default:
+            throw new IOException("Unknown value type: " + type);
+        }
+    }
+}
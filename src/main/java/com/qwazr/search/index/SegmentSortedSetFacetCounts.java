@@ -0,0 +1,161 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.Facets;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Count the sorted set facets segment by segment, using the ordinals of each segment.
+ * The labels are only merged for the requested dimensions, so no global ordinal map is needed:
+ * nothing has to be rebuilt when the searcher is refreshed.
+ */
+final class SegmentSortedSetFacetCounts extends Facets {
+
+    // The separator of the dimension and the label (FacetsConfig.DELIM_CHAR is private)
+    private static final char DELIM_CHAR = '\u001F';
+
+    private final List<Segment> segments;
+
+    SegmentSortedSetFacetCounts(final String field, final FacetsCollector facetsCollector) throws IOException {
+        segments = new ArrayList<>();
+        for (final FacetsCollector.MatchingDocs hits : facetsCollector.getMatchingDocs()) {
+            final SortedSetDocValues values = hits.context.reader().getSortedSetDocValues(field);
+            if (values == null || values.getValueCount() == 0)
+                continue;
+            final DocIdSetIterator docs = hits.bits.iterator();
+            if (docs == null)
+                continue;
+            final int[] counts = new int[Math.toIntExact(values.getValueCount())];
+            int doc;
+            while ((doc = docs.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+                if (!values.advanceExact(doc))
+                    continue;
+                long ord;
+                while ((ord = values.nextOrd()) != SortedSetDocValues.NO_MORE_ORDS)
+                    counts[(int) ord]++;
+            }
+            segments.add(new Segment(values, counts));
+        }
+    }
+
+    /**
+     * @return the count of each label of the dimension, or null if the dimension has no hit
+     */
+    private Map<String, Integer> countLabels(final String dim) throws IOException {
+        // The terms of a dimension are contiguous: "dim" + DELIM_CHAR + label
+        final BytesRef lower = new BytesRef(dim + DELIM_CHAR);
+        final BytesRef upper = new BytesRef(dim + (char) (DELIM_CHAR + 1));
+        final Map<String, Integer> labelCounts = new HashMap<>();
+        for (final Segment segment : segments) {
+            final int start = insertionPoint(segment.values.lookupTerm(lower));
+            final int end = insertionPoint(segment.values.lookupTerm(upper));
+            for (int ord = start; ord < end; ord++) {
+                final int count = segment.counts[ord];
+                if (count == 0)
+                    continue;
+                final String label = FacetsConfig.stringToPath(segment.values.lookupOrd(ord).utf8ToString())[1];
+                labelCounts.merge(label, count, Integer::sum);
+            }
+        }
+        return labelCounts.isEmpty() ? null : labelCounts;
+    }
+
+    private static int insertionPoint(final long ord) {
+        return (int) (ord < 0 ? -ord - 1 : ord);
+    }
+
+    @Override
+    public FacetResult getTopChildren(final int topN, final String dim, final String... path) throws IOException {
+        if (topN <= 0)
+            throw new IllegalArgumentException("topN must be > 0 (got: " + topN + ")");
+        if (path.length > 0)
+            throw new IllegalArgumentException("path should be 0 length");
+        final Map<String, Integer> labelCounts = countLabels(dim);
+        if (labelCounts == null)
+            return null;
+        int dimCount = 0;
+        final List<LabelAndValue> labelValues = new ArrayList<>(labelCounts.size());
+        for (final Map.Entry<String, Integer> entry : labelCounts.entrySet()) {
+            dimCount += entry.getValue();
+            labelValues.add(new LabelAndValue(entry.getKey(), entry.getValue()));
+        }
+        // Same order than the global ordinals: by count, then by label
+        labelValues.sort((lv1, lv2) -> {
+            final int c = Integer.compare(lv2.value.intValue(), lv1.value.intValue());
+            return c != 0 ? c : new BytesRef(lv1.label).compareTo(new BytesRef(lv2.label));
+        });
+        final List<LabelAndValue> top = labelValues.size() > topN ? labelValues.subList(0, topN) : labelValues;
+        return new FacetResult(dim, new String[0], dimCount, top.toArray(new LabelAndValue[0]),
+                labelCounts.size());
+    }
+
+    @Override
+    public Number getSpecificValue(final String dim, final String... path) throws IOException {
+        if (path.length != 1)
+            throw new IllegalArgumentException("path must be length=1");
+        final BytesRef term = new BytesRef(FacetsConfig.pathToString(dim, path));
+        int count = 0;
+        for (final Segment segment : segments) {
+            final long ord = segment.values.lookupTerm(term);
+            if (ord >= 0)
+                count += segment.counts[(int) ord];
+        }
+        return count;
+    }
+
+    @Override
+    public List<FacetResult> getAllDims(final int topN) throws IOException {
+        final TreeSet<String> dims = new TreeSet<>();
+        for (final Segment segment : segments)
+            for (int ord = 0; ord < segment.counts.length; ord++)
+                if (segment.counts[ord] > 0)
+                    dims.add(FacetsConfig.stringToPath(segment.values.lookupOrd(ord).utf8ToString())[0]);
+        final List<FacetResult> results = new ArrayList<>(dims.size());
+        for (final String dim : dims) {
+            final FacetResult result = getTopChildren(topN, dim);
+            if (result != null)
+                results.add(result);
+        }
+        Collections.sort(results, (r1, r2) -> Integer.compare(r2.value.intValue(), r1.value.intValue()));
+        return results;
+    }
+
+    private static final class Segment {
+
+        private final SortedSetDocValues values;
+        private final int[] counts;
+
+        private Segment(final SortedSetDocValues values, final int[] counts) {
+            this.values = values;
+            this.counts = counts;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.field.FieldDefinition;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiDocValues;
+import org.apache.lucene.index.OrdinalMap;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The state of the sorted set facets: the global ordinals of the facet field, and the ordinal range of each dimension.
+ * Unlike {@link org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState}, the ordinals are not bound
+ * to one reader: they are shared by any reader over the same segments (a refresh which only applied deletions,
+ * or a reader wrapping the segments).
+ */
+final class SortedSetFacetsState extends SortedSetDocValuesReaderState {
+
+    private final IndexReader reader;
+    private final Ordinals ordinals;
+
+    private SortedSetFacetsState(final IndexReader reader, final Ordinals ordinals) {
+        this.reader = reader;
+        this.ordinals = ordinals;
+    }
+
+    /**
+     * @return the state, or null if the field has no sorted set doc values
+     */
+    static SortedSetFacetsState build(final IndexReader reader, final String field) throws IOException {
+        final SortedSetDocValues values = MultiDocValues.getSortedSetValues(reader, field);
+        if (values == null)
+            return null;
+        if (values.getValueCount() > Integer.MAX_VALUE)
+            throw new IllegalArgumentException(
+                    "Can only handle valueCount < Integer.MAX_VALUE; got " + values.getValueCount());
+        final int valueCount = (int) values.getValueCount();
+        final Map<String, OrdRange> prefixToOrdRange = new HashMap<>();
+        String lastDim = null;
+        int startOrd = -1;
+        for (int ord = 0; ord < valueCount; ord++) {
+            final BytesRef term = values.lookupOrd(ord);
+            final String[] components = FacetsConfig.stringToPath(term.utf8ToString());
+            if (components.length != 2)
+                throw new IllegalArgumentException(
+                        "This class can only handle 2 level hierarchy (dim/value); got: " + term.utf8ToString());
+            if (!components[0].equals(lastDim)) {
+                if (lastDim != null)
+                    prefixToOrdRange.put(lastDim, new OrdRange(startOrd, ord - 1));
+                startOrd = ord;
+                lastDim = components[0];
+            }
+        }
+        if (lastDim != null)
+            prefixToOrdRange.put(lastDim, new OrdRange(startOrd, valueCount - 1));
+        final OrdinalMap ordinalMap =
+                values instanceof MultiDocValues.MultiSortedSetDocValues ?
+                        ((MultiDocValues.MultiSortedSetDocValues) values).mapping :
+                        null;
+        return new SortedSetFacetsState(reader,
+                new Ordinals(field, coreKeys(reader), ordinalMap, valueCount, prefixToOrdRange));
+    }
+
+    /**
+     * The keys of the segment cores, which are kept when a refresh only changes the deleted documents.
+     *
+     * @return the keys, or null if a segment cannot be identified
+     */
+    private static IndexReader.CacheKey[] coreKeys(final IndexReader reader) {
+        final List<LeafReaderContext> leaves = reader.leaves();
+        final IndexReader.CacheKey[] keys = new IndexReader.CacheKey[leaves.size()];
+        int i = 0;
+        for (final LeafReaderContext leaf : leaves) {
+            final IndexReader.CacheHelper cacheHelper = leaf.reader().getCoreCacheHelper();
+            if (cacheHelper == null)
+                return null;
+            keys[i++] = cacheHelper.getKey();
+        }
+        return keys;
+    }
+
+    /**
+     * @return the same ordinals bound to the given reader, or null if the reader does not have the same segments
+     */
+    SortedSetFacetsState bind(final IndexReader otherReader) {
+        if (otherReader == reader)
+            return this;
+        return ordinals.matches(otherReader) ? new SortedSetFacetsState(otherReader, ordinals) : null;
+    }
+
+    @Override
+    public SortedSetDocValues getDocValues() throws IOException {
+        if (ordinals.ordinalMap == null)
+            return MultiDocValues.getSortedSetValues(reader, ordinals.field);
+        final List<LeafReaderContext> leaves = reader.leaves();
+        final int size = leaves.size();
+        final SortedSetDocValues[] values = new SortedSetDocValues[size];
+        final int[] starts = new int[size + 1];
+        long cost = 0;
+        for (int i = 0; i < size; i++) {
+            final LeafReaderContext leaf = leaves.get(i);
+            SortedSetDocValues v = leaf.reader().getSortedSetDocValues(ordinals.field);
+            if (v == null)
+                v = DocValues.emptySortedSet();
+            values[i] = v;
+            starts[i] = leaf.docBase;
+            cost += v.cost();
+        }
+        starts[size] = reader.maxDoc();
+        return new MultiDocValues.MultiSortedSetDocValues(values, starts, ordinals.ordinalMap, cost);
+    }
+
+    @Override
+    public String getField() {
+        return ordinals.field;
+    }
+
+    @Override
+    public OrdRange getOrdRange(final String dim) {
+        return ordinals.prefixToOrdRange.get(dim);
+    }
+
+    @Override
+    public Map<String, OrdRange> getPrefixToOrdRange() {
+        return ordinals.prefixToOrdRange;
+    }
+
+    @Override
+    public IndexReader getReader() {
+        return reader;
+    }
+
+    @Override
+    public int getSize() {
+        return ordinals.valueCount;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return ordinals.ramBytesUsed();
+    }
+
+    private static final class Ordinals {
+
+        private final String field;
+        private final IndexReader.CacheKey[] coreKeys;
+        private final OrdinalMap ordinalMap;
+        private final int valueCount;
+        private final Map<String, OrdRange> prefixToOrdRange;
+
+        private Ordinals(final String field, final IndexReader.CacheKey[] coreKeys, final OrdinalMap ordinalMap,
+                final int valueCount, final Map<String, OrdRange> prefixToOrdRange) {
+            this.field = field;
+            this.coreKeys = coreKeys;
+            this.ordinalMap = ordinalMap;
+            this.valueCount = valueCount;
+            this.prefixToOrdRange = Collections.unmodifiableMap(prefixToOrdRange);
+        }
+
+        private boolean matches(final IndexReader reader) {
+            return coreKeys != null && Arrays.equals(coreKeys, coreKeys(reader));
+        }
+
+        private long ramBytesUsed() {
+            // Approximation of the dimensions map
+            final long prefixBytes = 64L * prefixToOrdRange.size();
+            return ordinalMap == null ? prefixBytes : ordinalMap.ramBytesUsed() + prefixBytes;
+        }
+    }
+
+    /**
+     * Load the state of the searchers of one index.
+     * The ordinals of the last state are reused when the segments did not change,
+     * the build times are reported in the index status.
+     */
+    static final class Loader {
+
+        private final String field;
+        private final IndexSettingsDefinition.SortedSetFacetCounting counting;
+
+        private volatile Ordinals lastOrdinals;
+
+        private final AtomicLong buildCount = new AtomicLong();
+        private final AtomicLong reuseCount = new AtomicLong();
+        private final AtomicLong totalBuildNanos = new AtomicLong();
+        private volatile long lastBuildNanos;
+
+        Loader(final String field, final IndexSettingsDefinition.SortedSetFacetCounting counting) {
+            this.field = field == null ? FieldDefinition.DEFAULT_SORTEDSET_FACET_FIELD : field;
+            this.counting = counting == null ?
+                    IndexSettingsDefinition.SortedSetFacetCounting.GLOBAL_ORDINALS :
+                    counting;
+        }
+
+        /**
+         * @return true if the sorted set facets are counted per segment, without global ordinals
+         */
+        boolean isPerSegmentCounting() {
+            return counting == IndexSettingsDefinition.SortedSetFacetCounting.PER_SEGMENT;
+        }
+
+        SortedSetFacetsState load(final IndexReader reader) throws IOException {
+            final Ordinals ordinals = lastOrdinals;
+            if (ordinals != null && ordinals.matches(reader)) {
+                reuseCount.incrementAndGet();
+                return new SortedSetFacetsState(reader, ordinals);
+            }
+            if (!isSortedSetField(reader, field))
+                return null;
+            final long startTime = System.nanoTime();
+            final SortedSetFacetsState state = build(reader, field);
+            final long buildNanos = System.nanoTime() - startTime;
+            lastBuildNanos = buildNanos;
+            totalBuildNanos.addAndGet(buildNanos);
+            buildCount.incrementAndGet();
+            if (state != null)
+                lastOrdinals = state.ordinals;
+            return state;
+        }
+
+        /**
+         * @return false if a segment indexes the field with another type of doc values
+         */
+        private static boolean isSortedSetField(final IndexReader reader, final String field) {
+            for (final LeafReaderContext context : reader.leaves()) {
+                final FieldInfo fieldInfo = context.reader().getFieldInfos().fieldInfo(field);
+                if (fieldInfo == null)
+                    continue;
+                final DocValuesType type = fieldInfo.getDocValuesType();
+                if (type != DocValuesType.SORTED_SET && type != DocValuesType.NONE)
+                    return false;
+            }
+            return true;
+        }
+
+        IndexStatus.FacetsStateStats getStats() {
+            final Ordinals ordinals = lastOrdinals;
+            return new IndexStatus.FacetsStateStats(counting, buildCount.get(), reuseCount.get(),
+                    TimeUnit.NANOSECONDS.toMillis(lastBuildNanos), TimeUnit.NANOSECONDS.toMillis(totalBuildNanos.get()),
+                    ordinals == null ? null : ordinals.ramBytesUsed());
+        }
+    }
+}
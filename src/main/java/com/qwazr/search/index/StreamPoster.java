@@ -0,0 +1,180 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Read the documents of a NDJSON or Smile stream incrementally, one chunk at a time.
+ * <p>
+ * A chunk is parsed before taking the write semaphore, so that a slow client does not block the other writers.
+ * The next chunk is not read while the writer is holding too much RAM: the reading is paused until the writer
+ * has flushed, pushing the backpressure back to the client through the transport.
+ * <p>
+ * A document which cannot be indexed is reported with its line number and the stream continues.
+ * A malformed stream cannot be resynchronized, the parsing error stops the stream.
+ */
+final class StreamPoster {
+
+    private final static TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {
+    };
+
+    private final JsonParser parser;
+    private final int chunkSize;
+    private final List<StreamProgress.LineError> errors;
+
+    private long documents;
+    private long indexed;
+    private long failed;
+    private boolean endOfStream;
+
+    StreamPoster(final JsonParser parser, final int chunkSize) {
+        this.parser = parser;
+        this.chunkSize = chunkSize;
+        this.errors = new ArrayList<>();
+    }
+
+    /**
+     * Read the next documents from the stream.
+     *
+     * @return the next chunk, an empty list when the end of the stream is reached
+     * @throws IOException if the stream cannot be read
+     */
+    List<Line> readChunk() throws IOException {
+        final List<Line> chunk = new ArrayList<>(chunkSize);
+        while (!endOfStream && chunk.size() < chunkSize) {
+            final JsonToken token;
+            try {
+                token = parser.nextToken();
+            } catch (JsonProcessingException e) {
+                stop(e);
+                break;
+            }
+            if (token == null) {
+                endOfStream = true;
+                break;
+            }
+            documents++;
+            final long line = getLine(parser.getTokenLocation());
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                failed++;
+                error(line, "A JSON object is expected, got: " + token);
+                continue;
+            }
+            try {
+                chunk.add(new Line(line, parser.readValueAs(MAP_TYPE)));
+            } catch (JsonProcessingException e) {
+                stop(e);
+            }
+        }
+        return chunk;
+    }
+
+    private long getLine(final JsonLocation location) {
+        // The Smile format has no line, the position of the document is used
+        final int line = location == null ? -1 : location.getLineNr();
+        return line > 0 ? line : documents;
+    }
+
+    private void stop(final JsonProcessingException e) {
+        endOfStream = true;
+        failed++;
+        error(getLine(e.getLocation()), e.getOriginalMessage());
+    }
+
+    private void error(final long line, final String message) {
+        errors.add(new StreamProgress.LineError(line, message));
+    }
+
+    /**
+     * Index the documents of a chunk. Called while holding the write semaphore.
+     *
+     * @param chunk         the documents to index
+     * @param posterFactory creates the poster using the writers of the write context
+     * @return the number of indexed documents
+     * @throws IOException if the writer failed
+     */
+    int post(final List<Line> chunk, final Supplier<RecordsPoster.MapDocument> posterFactory) throws IOException {
+        RecordsPoster.MapDocument poster = posterFactory.get();
+        int count = 0;
+        for (final Line line : chunk) {
+            try {
+                poster.accept(line.document);
+            } catch (RuntimeException e) {
+                failed++;
+                error(line.number, e.getMessage() == null ? e.toString() : e.getMessage());
+                // The rejected document may be left in the document builder
+                count += poster.getCount();
+                poster = posterFactory.get();
+            }
+        }
+        count += poster.getCount();
+        indexed += count;
+        return count;
+    }
+
+    /**
+     * Pause the reading of the stream while the writer is holding more than twice its RAM buffer.
+     *
+     * @param indexWriter the writer of the index
+     * @throws IOException if the flush failed
+     */
+    static void applyBackpressure(final IndexWriter indexWriter) throws IOException {
+        double ramBufferSizeMB = indexWriter.getConfig().getRAMBufferSizeMB();
+        if (ramBufferSizeMB == IndexWriterConfig.DISABLE_AUTO_FLUSH)
+            ramBufferSizeMB = IndexWriterConfig.DEFAULT_RAM_BUFFER_SIZE_MB;
+        if (indexWriter.ramBytesUsed() > (long) (ramBufferSizeMB * 2 * 1024 * 1024))
+            indexWriter.flush();
+    }
+
+    /**
+     * Build a progress line, the collected errors are cleared.
+     *
+     * @param generations the generations reached by the last chunk
+     * @param done        true if this is the last progress line
+     * @return a new progress line
+     */
+    StreamProgress progress(final WriteGenerations generations, final boolean done) {
+        final List<StreamProgress.LineError> lineErrors = errors.isEmpty() ? null : new ArrayList<>(errors);
+        errors.clear();
+        return new StreamProgress(documents, indexed, failed, generations.commitGeneration, generations.nrtGeneration,
+                lineErrors, done, null);
+    }
+
+    static final class Line {
+
+        final long number;
+        final Map<String, ?> document;
+
+        private Line(final long number, final Map<String, ?> document) {
+            this.number = number;
+            this.document = document;
+        }
+    }
+}
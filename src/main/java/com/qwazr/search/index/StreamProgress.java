@@ -0,0 +1,141 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A progress line emitted by the streaming ingestion endpoint.
+ * The errors are the ones collected since the previous progress line.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class StreamProgress {
+
+    /**
+     * The number of documents read from the stream
+     */
+    @JsonProperty("documents")
+    public final Long documents;
+
+    /**
+     * The number of indexed documents
+     */
+    @JsonProperty("indexed")
+    public final Long indexed;
+
+    /**
+     * The number of rejected documents
+     */
+    @JsonProperty("failed")
+    public final Long failed;
+
+    @JsonProperty("commit_generation")
+    public final Long commitGeneration;
+
+    @JsonProperty("nrt_generation")
+    public final Long nrtGeneration;
+
+    @JsonProperty("errors")
+    public final List<LineError> errors;
+
+    /**
+     * True for the last line of the response
+     */
+    @JsonProperty("done")
+    public final Boolean done;
+
+    /**
+     * The error which stopped the stream, if any
+     */
+    @JsonProperty("error")
+    public final String error;
+
+    @JsonCreator
+    StreamProgress(@JsonProperty("documents") Long documents, @JsonProperty("indexed") Long indexed,
+            @JsonProperty("failed") Long failed, @JsonProperty("commit_generation") Long commitGeneration,
+            @JsonProperty("nrt_generation") Long nrtGeneration, @JsonProperty("errors") List<LineError> errors,
+            @JsonProperty("done") Boolean done, @JsonProperty("error") String error) {
+        this.documents = documents;
+        this.indexed = indexed;
+        this.failed = failed;
+        this.commitGeneration = commitGeneration;
+        this.nrtGeneration = nrtGeneration;
+        this.errors = errors;
+        this.done = done;
+        this.error = error;
+    }
+
+    StreamProgress withError(final String error) {
+        return new StreamProgress(documents, indexed, failed, commitGeneration, nrtGeneration, errors, true, error);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof StreamProgress))
+            return false;
+        final StreamProgress p = (StreamProgress) o;
+        return Objects.equals(documents, p.documents) && Objects.equals(indexed, p.indexed) &&
+                Objects.equals(failed, p.failed) && Objects.equals(commitGeneration, p.commitGeneration) &&
+                Objects.equals(nrtGeneration, p.nrtGeneration) && Objects.equals(errors, p.errors) &&
+                Objects.equals(done, p.done) && Objects.equals(error, p.error);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(documents, indexed, failed);
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public static class LineError {
+
+        /**
+         * The line of the document (NDJSON), or its position in the stream (Smile)
+         */
+        @JsonProperty("line")
+        public final Long line;
+
+        @JsonProperty("message")
+        public final String message;
+
+        @JsonCreator
+        LineError(@JsonProperty("line") Long line, @JsonProperty("message") String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (o == this)
+                return true;
+            if (!(o instanceof LineError))
+                return false;
+            final LineError e = (LineError) o;
+            return Objects.equals(line, e.line) && Objects.equals(message, e.message);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(line, message);
+        }
+    }
+}
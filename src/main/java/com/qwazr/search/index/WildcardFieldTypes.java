@@ -0,0 +1,132 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.field.FieldTypeInterface;
+import com.qwazr.utils.WildcardMatcher;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The field types of the wildcard patterns. A pattern is indexed by its literal prefix (the characters before the
+ * first '*' or '?') in a prefix trie. A pattern starting with a wildcard is indexed by its literal suffix (the
+ * characters after the last '*' or '?') in a reversed trie. A field name is only matched against the patterns whose
+ * prefix it starts with or whose suffix it ends with. The patterns without any literal prefix or suffix (e.g. "*")
+ * are matched against every field name. When several patterns match, the first declared one wins, as with a linear
+ * scan.
+ * The resolutions are memoized in a concurrent cache, read without locking by the indexing threads. The cache is
+ * cleared when it reaches {@value #MAX_CACHED_RESOLUTIONS} entries.
+ */
+final class WildcardFieldTypes {
+
+    private final static int MAX_CACHED_RESOLUTIONS = 4096;
+
+    private final Node prefixRoot;
+    private final Node suffixRoot;
+    private final ConcurrentHashMap<String, FieldTypeInterface> resolutions;
+    private int size;
+
+    WildcardFieldTypes() {
+        prefixRoot = new Node();
+        suffixRoot = new Node();
+        resolutions = new ConcurrentHashMap<>();
+        size = 0;
+    }
+
+    static boolean isWildcard(final String name) {
+        return name.indexOf('*') != -1 || name.indexOf('?') != -1;
+    }
+
+    private static boolean isWildcard(final char c) {
+        return c == '*' || c == '?';
+    }
+
+    void add(final String pattern, final WildcardMatcher matcher, final FieldTypeInterface fieldType) {
+        final Entry entry = new Entry(size++, matcher, fieldType);
+        final int length = pattern.length();
+        Node node;
+        if (length > 0 && !isWildcard(pattern.charAt(0))) {
+            node = prefixRoot;
+            for (int i = 0; i < length && !isWildcard(pattern.charAt(i)); i++)
+                node = node.children.computeIfAbsent(pattern.charAt(i), k -> new Node());
+        } else {
+            // Leading wildcard: the suffix is read backward, an empty suffix stays at the root
+            node = suffixRoot;
+            for (int i = length - 1; i >= 0 && !isWildcard(pattern.charAt(i)); i--)
+                node = node.children.computeIfAbsent(pattern.charAt(i), k -> new Node());
+        }
+        node.entries.add(entry);
+    }
+
+    /**
+     * @param fieldName the concrete field name
+     * @return the field type of the first matching pattern, or null
+     */
+    FieldTypeInterface find(final String fieldName) {
+        if (size == 0)
+            return null;
+        final FieldTypeInterface cached = resolutions.get(fieldName);
+        if (cached != null)
+            return cached;
+        final Entry best = bestMatch(suffixRoot, fieldName, true, bestMatch(prefixRoot, fieldName, false, null));
+        if (best == null)
+            return null;
+        // Each document of a dynamic schema repeats the same field names
+        if (resolutions.size() >= MAX_CACHED_RESOLUTIONS)
+            resolutions.clear();
+        resolutions.put(fieldName, best.fieldType);
+        return best.fieldType;
+    }
+
+    private static Entry bestMatch(Node node, final String fieldName, final boolean backward, Entry best) {
+        final int length = fieldName.length();
+        int i = 0;
+        while (node != null) {
+            for (final Entry entry : node.entries)
+                if ((best == null || entry.order < best.order) && entry.matcher.match(fieldName))
+                    best = entry;
+            if (i >= length)
+                break;
+            final char c = fieldName.charAt(backward ? length - 1 - i : i);
+            i++;
+            node = node.children.get(c);
+        }
+        return best;
+    }
+
+    private static final class Node {
+
+        private final Map<Character, Node> children = new HashMap<>();
+        private final List<Entry> entries = new ArrayList<>(1);
+    }
+
+    private static final class Entry {
+
+        private final int order;
+        private final WildcardMatcher matcher;
+        private final FieldTypeInterface fieldType;
+
+        private Entry(final int order, final WildcardMatcher matcher, final FieldTypeInterface fieldType) {
+            this.order = order;
+            this.matcher = matcher;
+            this.fieldType = fieldType;
+        }
+    }
+}
@@ -24,22 +24,30 @@ import org.apache.lucene.index.IndexWriter;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ExecutorService;
 
 final class WriteContextImpl extends IndexContextImpl implements WriteContext {
 
+	final String indexName;
 	final IndexWriter indexWriter;
 	final TaxonomyWriter taxonomyWriter;
+	private final int bulkThreads;
+	private final int bulkChunkSize;
 
 	WriteContextImpl(final IndexInstance.Provider indexProvider, final ResourceLoader resourceLoader,
 			final ExecutorService executorService, final UpdatableAnalyzers indexAnalyzers,
-			final UpdatableAnalyzers queryAnalyzers, final FieldMap fieldMap, final IndexWriter indexWriter,
-			final TaxonomyWriter taxonomyWriter) {
+			final UpdatableAnalyzers queryAnalyzers, final FieldMap fieldMap, final String indexName,
+			final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter, final int bulkThreads,
+			final int bulkChunkSize) {
 		super(indexProvider, resourceLoader, executorService, indexAnalyzers, queryAnalyzers, fieldMap);
+		this.indexName = indexName;
 		this.indexWriter = indexWriter;
 		this.taxonomyWriter = taxonomyWriter;
+		this.bulkThreads = bulkThreads;
+		this.bulkChunkSize = bulkChunkSize;
 	}
 
 	@Override
@@ -80,7 +88,7 @@ final class WriteContextImpl extends IndexContextImpl implements WriteContext {
 		if (document == null)
 			return 0;
 		final RecordsPoster.ObjectDocument poster =
-				RecordsPoster.create(fields, fieldMap, indexWriter, taxonomyWriter, update);
+				RecordsPoster.create(indexName, fields, fieldMap, indexWriter, taxonomyWriter, update);
 		return postObjectDoc(poster, document, commitUserData);
 	}
 
@@ -90,7 +98,7 @@ final class WriteContextImpl extends IndexContextImpl implements WriteContext {
 		if (documents == null || documents.isEmpty())
 			return 0;
 		final RecordsPoster.ObjectDocument poster =
-				RecordsPoster.create(fields, fieldMap, indexWriter, taxonomyWriter, update);
+				RecordsPoster.create(indexName, fields, fieldMap, indexWriter, taxonomyWriter, update);
 		return postObjectDocs(poster, documents, commitUserData);
 	}
 
@@ -118,7 +126,8 @@ final class WriteContextImpl extends IndexContextImpl implements WriteContext {
 		if (post == null || post.document == null || post.document.isEmpty())
 			return 0;
 		final RecordsPoster.MapDocument poster =
-				RecordsPoster.create(fieldMap, indexWriter, taxonomyWriter, post.update == null ? true : post.update);
+				RecordsPoster.create(indexName, fieldMap, indexWriter, taxonomyWriter,
+						post.update == null ? true : post.update);
 		return postMappedDoc(poster, post);
 	}
 
@@ -126,18 +135,51 @@ final class WriteContextImpl extends IndexContextImpl implements WriteContext {
 	public final int postMappedDocuments(final PostDefinition.Documents post) throws IOException {
 		if (post == null || post.documents == null || post.documents.isEmpty())
 			return 0;
+		final boolean update = post.update == null ? true : post.update;
+		if (isBulk(post.documents.size())) {
+			final int count = newBulkPoster(update).post(post.documents.iterator());
+			if (post.commitUserData != null)
+				setLiveCommitData(post.commitUserData, true);
+			return count;
+		}
 		final RecordsPoster.MapDocument poster =
-				RecordsPoster.create(fieldMap, indexWriter, taxonomyWriter, post.update == null ? true : post.update);
+				RecordsPoster.create(indexName, fieldMap, indexWriter, taxonomyWriter, update);
 		return postMappedDocs(poster, post);
 	}
 
+	@Override
+	public final int postMappedDocuments(final Iterator<? extends Map<String, ?>> documents, final boolean update)
+			throws IOException {
+		if (documents == null)
+			return 0;
+		if (isBulk(Integer.MAX_VALUE))
+			return newBulkPoster(update).post(documents);
+		final RecordsPoster.MapDocument poster =
+				RecordsPoster.create(indexName, fieldMap, indexWriter, taxonomyWriter, update);
+		while (documents.hasNext())
+			poster.accept(documents.next());
+		return poster.getCount();
+	}
+
+	/**
+	 * The bulk mode is used if the index enables it and if there is more than one chunk to index.
+	 */
+	private boolean isBulk(final int size) {
+		return executorService != null && bulkThreads > 1 && size > bulkChunkSize;
+	}
+
+	private BulkPoster newBulkPoster(final boolean update) {
+		return new BulkPoster(indexName, fieldMap, indexWriter, taxonomyWriter, update, executorService, bulkThreads,
+				bulkChunkSize);
+	}
+
 	@Override
 	public final <T> int updateDocValues(final Map<String, Field> fields, final T document,
 			final Map<String, String> commitUserData) throws IOException {
 		if (document == null)
 			return 0;
 		final RecordsPoster.UpdateObjectDocValues poster =
-				new RecordsPoster.UpdateObjectDocValues(fields, fieldMap, indexWriter, taxonomyWriter);
+				new RecordsPoster.UpdateObjectDocValues(indexName, fields, fieldMap, indexWriter, taxonomyWriter);
 		return postObjectDoc(poster, document, commitUserData);
 	}
 
@@ -147,7 +189,7 @@ final class WriteContextImpl extends IndexContextImpl implements WriteContext {
 		if (documents == null || documents.isEmpty())
 			return 0;
 		final RecordsPoster.UpdateObjectDocValues poster =
-				new RecordsPoster.UpdateObjectDocValues(fields, fieldMap, indexWriter, taxonomyWriter);
+				new RecordsPoster.UpdateObjectDocValues(indexName, fields, fieldMap, indexWriter, taxonomyWriter);
 		return postObjectDocs(poster, documents, commitUserData);
 	}
 
@@ -156,7 +198,7 @@ final class WriteContextImpl extends IndexContextImpl implements WriteContext {
 		if (post == null || post.document == null || post.document.isEmpty())
 			return 0;
 		final RecordsPoster.MapDocument poster =
-				new RecordsPoster.UpdateMapDocValues(fieldMap, indexWriter, taxonomyWriter);
+				new RecordsPoster.UpdateMapDocValues(indexName, fieldMap, indexWriter, taxonomyWriter);
 		return postMappedDoc(poster, post);
 	}
 
@@ -165,7 +207,7 @@ final class WriteContextImpl extends IndexContextImpl implements WriteContext {
 		if (post == null || post.documents == null || post.documents.isEmpty())
 			return 0;
 		final RecordsPoster.MapDocument poster =
-				new RecordsPoster.UpdateMapDocValues(fieldMap, indexWriter, taxonomyWriter);
+				new RecordsPoster.UpdateMapDocValues(indexName, fieldMap, indexWriter, taxonomyWriter);
 		return postMappedDocs(poster, post);
 	}
 }
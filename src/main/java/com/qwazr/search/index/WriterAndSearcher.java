@@ -19,12 +19,16 @@ import com.qwazr.utils.IOUtils;
 import org.apache.lucene.facet.taxonomy.SearcherTaxonomyManager;
 import org.apache.lucene.facet.taxonomy.TaxonomyReader;
 import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.ReferenceManager;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 interface WriterAndSearcher extends Closeable {
 
@@ -34,18 +38,66 @@ interface WriterAndSearcher extends Closeable {
 
 	<T> T search(final SearchAction<T> action) throws IOException;
 
+	/**
+	 * Acquire the current searcher, it is not released before the returned reference is closed.
+	 * Unlike {@link #search(SearchAction)}, the same point-in-time view can be used across several requests.
+	 *
+	 * @return the pinned searcher
+	 * @throws IOException if the searcher cannot be acquired
+	 */
+	Pinned pin() throws IOException;
+
 	<T> T write(final WriteAction<T> action) throws IOException;
 
 	void commit() throws IOException;
 
 	IndexWriter getIndexWriter();
 
+	/**
+	 * Start a background thread which reopens the searcher, so that the changes become searchable without commit.
+	 * Does nothing if there is no writer (slave index) or if the thread is already started.
+	 *
+	 * @param name             the name of the index
+	 * @param targetMaxStaleMs the maximum time (in milliseconds) before the changes are searchable
+	 * @param targetMinStaleMs the minimum time (in milliseconds) between two reopens when someone is waiting
+	 */
+	void startReopenThread(String name, int targetMaxStaleMs, int targetMinStaleMs);
+
+	/**
+	 * @return true if the searcher is reopened by a background thread
+	 */
+	boolean hasReopenThread();
+
+	/**
+	 * Wait until the searcher covers the given sequence number of the writer.
+	 * Without background reopen thread, the write requests already refresh the searcher, so there is nothing to wait.
+	 *
+	 * @param generation the sequence number returned by a write request
+	 * @param maxWaitMs  the maximum time to wait (in milliseconds)
+	 * @return false if the searcher has not reached the generation before the timeout
+	 * @throws InterruptedException if the current thread is interrupted
+	 */
+	boolean waitForGeneration(long generation, int maxWaitMs) throws InterruptedException;
+
+	/**
+	 * Register a listener notified when the searcher is refreshed.
+	 * The listener is kept when the searcher manager is reloaded, and it is then notified as a refresh.
+	 *
+	 * @param listener the listener to register
+	 */
+	void addRefreshListener(ReferenceManager.RefreshListener listener);
+
 	abstract class Common implements WriterAndSearcher {
 
 		final IndexWriter indexWriter;
 
+		private final List<ReferenceManager.RefreshListener> refreshListeners;
+
+		private volatile ControlledRealTimeReopenThread<?> reopenThread;
+
 		protected Common(final IndexWriter indexWriter) {
 			this.indexWriter = indexWriter;
+			this.refreshListeners = new CopyOnWriteArrayList<>();
 		}
 
 		@Override
@@ -53,6 +105,67 @@ interface WriterAndSearcher extends Closeable {
 			return indexWriter;
 		}
 
+		abstract ReferenceManager<?> getReferenceManager();
+
+		@Override
+		final synchronized public void startReopenThread(final String name, final int targetMaxStaleMs,
+				final int targetMinStaleMs) {
+			if (indexWriter == null || reopenThread != null)
+				return;
+			final ControlledRealTimeReopenThread<?> thread =
+					newReopenThread(indexWriter, getReferenceManager(), targetMaxStaleMs / 1000d,
+							Math.min(targetMinStaleMs, targetMaxStaleMs) / 1000d);
+			thread.setName("NRT reopen: " + name);
+			thread.setDaemon(true);
+			thread.start();
+			reopenThread = thread;
+		}
+
+		private static <T> ControlledRealTimeReopenThread<T> newReopenThread(final IndexWriter indexWriter,
+				final ReferenceManager<T> referenceManager, final double targetMaxStaleSec,
+				final double targetMinStaleSec) {
+			return new ControlledRealTimeReopenThread<>(indexWriter, referenceManager, targetMaxStaleSec,
+					targetMinStaleSec);
+		}
+
+		@Override
+		final public boolean hasReopenThread() {
+			return reopenThread != null;
+		}
+
+		@Override
+		final public boolean waitForGeneration(final long generation, final int maxWaitMs)
+				throws InterruptedException {
+			final ControlledRealTimeReopenThread<?> thread = reopenThread;
+			return thread == null || thread.waitForGeneration(generation, maxWaitMs);
+		}
+
+		@Override
+		final synchronized public void addRefreshListener(final ReferenceManager.RefreshListener listener) {
+			refreshListeners.add(listener);
+			getReferenceManager().addListener(listener);
+		}
+
+		/**
+		 * Move the refresh listeners to a newly loaded reference manager
+		 */
+		final void attachRefreshListeners(final ReferenceManager<?> referenceManager) throws IOException {
+			for (final ReferenceManager.RefreshListener listener : refreshListeners) {
+				referenceManager.addListener(listener);
+				listener.afterRefresh(true);
+			}
+		}
+
+		/**
+		 * The thread must be stopped before the reference manager is closed
+		 */
+		final synchronized void closeReopenThread() {
+			if (reopenThread != null) {
+				IOUtils.closeQuietly(reopenThread);
+				reopenThread = null;
+			}
+		}
+
 	}
 
 	@FunctionalInterface
@@ -83,6 +196,7 @@ interface WriterAndSearcher extends Closeable {
 			final ReferenceManager<IndexSearcher> oldSearcherManager = searcherManager;
 			searcherManager = searcherManagerFactory.supply();
 			oldSearcherManager.close();
+			attachRefreshListeners(searcherManager);
 		}
 
 		@Override
@@ -97,6 +211,14 @@ interface WriterAndSearcher extends Closeable {
 			}
 		}
 
+		@Override
+		final public Pinned pin() throws IOException {
+			final ReferenceManager<IndexSearcher> sm =
+					Objects.requireNonNull(searcherManager, "No SearchManager available");
+			final IndexSearcher searcher = sm.acquire();
+			return new Pinned(searcher, null, () -> sm.release(searcher));
+		}
+
 		@Override
 		final public <T> T write(final WriteAction<T> action) throws IOException {
 			return action.apply(indexWriter, null);
@@ -109,8 +231,14 @@ interface WriterAndSearcher extends Closeable {
 			refresh();
 		}
 
+		@Override
+		final ReferenceManager<?> getReferenceManager() {
+			return searcherManager;
+		}
+
 		@Override
 		public synchronized void close() {
+			closeReopenThread();
 			if (searcherManager != null) {
 				IOUtils.closeQuietly(searcherManager);
 				searcherManager = null;
@@ -151,6 +279,7 @@ interface WriterAndSearcher extends Closeable {
 			final SearcherTaxonomyManager oldSearcherManager = searcherTaxonomyManager;
 			searcherTaxonomyManager = searcherTaxonomyManagerFactory.supply();
 			oldSearcherManager.close();
+			attachRefreshListeners(searcherTaxonomyManager);
 		}
 
 		@Override
@@ -165,6 +294,14 @@ interface WriterAndSearcher extends Closeable {
 			}
 		}
 
+		@Override
+		final public Pinned pin() throws IOException {
+			final SearcherTaxonomyManager sm =
+					Objects.requireNonNull(searcherTaxonomyManager, "No SearcherTaxonomyManager available");
+			final SearcherTaxonomyManager.SearcherAndTaxonomy reference = sm.acquire();
+			return new Pinned(reference.searcher, reference.taxonomyReader, () -> sm.release(reference));
+		}
+
 		@Override
 		final public <T> T write(final WriteAction<T> action) throws IOException {
 			return action.apply(indexWriter, taxonomyWriter);
@@ -179,8 +316,14 @@ interface WriterAndSearcher extends Closeable {
 			refresh();
 		}
 
+		@Override
+		final ReferenceManager<?> getReferenceManager() {
+			return searcherTaxonomyManager;
+		}
+
 		@Override
 		public synchronized void close() {
+			closeReopenThread();
 			if (searcherTaxonomyManager != null) {
 				IOUtils.closeQuietly(searcherTaxonomyManager);
 				searcherTaxonomyManager = null;
@@ -194,6 +337,28 @@ interface WriterAndSearcher extends Closeable {
 		}
 	}
 
+	final class Pinned implements Closeable {
+
+		final IndexSearcher indexSearcher;
+		final TaxonomyReader taxonomyReader;
+		private final Closeable release;
+		private final AtomicBoolean released;
+
+		private Pinned(final IndexSearcher indexSearcher, final TaxonomyReader taxonomyReader,
+				final Closeable release) {
+			this.indexSearcher = indexSearcher;
+			this.taxonomyReader = taxonomyReader;
+			this.release = release;
+			this.released = new AtomicBoolean(false);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (released.compareAndSet(false, true))
+				release.close();
+		}
+	}
+
 	@FunctionalInterface
 	interface SearchAction<T> {
 		T apply(final IndexSearcher indexSearcher, final TaxonomyReader taxonomyReader) throws IOException;
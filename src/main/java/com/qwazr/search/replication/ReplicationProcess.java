@@ -18,8 +18,6 @@ package com.qwazr.search.replication;
 
 import com.qwazr.search.index.ReplicationStatus;
 import com.qwazr.utils.FileUtils;
-import com.qwazr.utils.IOUtils;
-import com.qwazr.utils.concurrent.ConcurrentUtils;
 import org.apache.lucene.store.Directory;
 
 import java.io.Closeable;
@@ -31,13 +29,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
-import java.nio.file.attribute.FileTime;
 import java.rmi.ServerException;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
-import java.util.Objects;
 
 public interface ReplicationProcess extends Closeable {
 
@@ -47,7 +43,16 @@ public interface ReplicationProcess extends Closeable {
 
     @FunctionalInterface
     interface SourceFileProvider {
-        InputStream obtain(Source source, String fileName) throws IOException;
+
+        /**
+         * @param source   the source of the file
+         * @param fileName the name of the file
+         * @param offset   the position of the first byte to read
+         * @param length   the number of bytes to read, or null to read until the end of the file
+         * @return the content of the file, starting at the given offset
+         * @throws IOException if the file cannot be obtained
+         */
+        InputStream obtain(Source source, String fileName, long offset, Long length) throws IOException;
     }
 
     void obtainNewFiles() throws IOException;
@@ -59,26 +64,26 @@ public interface ReplicationProcess extends Closeable {
     class Builder {
 
         private final Path workDirectory;
-        private final SourceFileProvider sourceFileProvider;
+        private final ReplicationTransfer transfer;
         private final ReplicationSession session;
         private final ReplicationStatus.Strategy strategy;
 
-        public Builder(final Path workDirectory, final SourceFileProvider sourceFileProvider,
+        public Builder(final Path workDirectory, final ReplicationTransfer transfer,
                        final ReplicationStatus.Strategy strategy, final ReplicationSession session) {
             this.workDirectory = workDirectory;
-            this.sourceFileProvider = sourceFileProvider;
+            this.transfer = transfer;
             this.strategy = strategy;
             this.session = session;
         }
 
         private ReplicationProcess full(final Path targetDirectoryPath, final Source source,
                                         final SourceView sourceView) throws IOException {
-            return new Full(workDirectory, targetDirectoryPath, source, sourceFileProvider, sourceView, session);
+            return new Full(workDirectory, targetDirectoryPath, source, transfer, sourceView, session);
         }
 
         private ReplicationProcess incremental(final Path targetDirectoryPath, final Source source,
                                                final SourceView sourceView) {
-            return new Differential(workDirectory, targetDirectoryPath, source, sourceFileProvider, sourceView,
+            return new Differential(workDirectory, targetDirectoryPath, source, transfer, sourceView,
                     session);
         }
 
@@ -142,16 +147,16 @@ public interface ReplicationProcess extends Closeable {
     abstract class Common implements ReplicationProcess {
 
         protected final Source source;
-        protected final SourceFileProvider sourceFileProvider;
+        protected final ReplicationTransfer transfer;
         protected final Path sourceWorkDirectory;
         protected final Path targetDirectoryPath;
         protected final Map<String, ReplicationSession.Item> filesToObtain;
         protected final Collection<String> filesToDelete;
 
         protected Common(final Path workDirectory, final Path targetDirectoryPath, final Source source,
-                         final SourceFileProvider sourceFileProvider) {
+                         final ReplicationTransfer transfer) {
             this.source = source;
-            this.sourceFileProvider = sourceFileProvider;
+            this.transfer = transfer;
             this.sourceWorkDirectory = workDirectory.resolve(source.name());
             this.targetDirectoryPath = targetDirectoryPath;
             this.filesToObtain = new LinkedHashMap<>();
@@ -162,17 +167,7 @@ public interface ReplicationProcess extends Closeable {
         final public void obtainNewFiles() throws IOException {
             if (!Files.exists(sourceWorkDirectory))
                 Files.createDirectory(sourceWorkDirectory);
-            ConcurrentUtils.forEachEx(filesToObtain, (name, item) -> {
-                final Path path = sourceWorkDirectory.resolve(name);
-                try (final InputStream input = sourceFileProvider.obtain(source, name)) {
-                    IOUtils.copy(input, path);
-                    Files.setLastModifiedTime(path, FileTime.fromMillis(item.version));
-                    final long itemSize = Files.size(path);
-                    if (!Objects.equals(itemSize, item.size))
-                        throw new IOException(
-                                "Wrong file size for " + path + ". Expected: " + item.size + " - Got: " + itemSize);
-                }
-            });
+            transfer.obtain(source, sourceWorkDirectory, filesToObtain);
         }
 
         @Override
@@ -188,9 +183,9 @@ public interface ReplicationProcess extends Closeable {
     final class Differential extends Common {
 
         Differential(final Path workDirectory, final Path targetDirectoryPath, final Source source,
-                     final SourceFileProvider sourceFileProvider, final SourceView sourceView,
+                     final ReplicationTransfer transfer, final SourceView sourceView,
                      final ReplicationSession session) {
-            super(workDirectory, targetDirectoryPath, source, sourceFileProvider);
+            super(workDirectory, targetDirectoryPath, source, transfer);
             sourceView.differential(session.getSourceFiles(source), filesToObtain, filesToDelete);
         }
 
@@ -229,9 +224,9 @@ public interface ReplicationProcess extends Closeable {
         private final Path sourceTrashPath;
 
         protected Full(final Path workDirectory, final Path targetDirectoryPath, final Source source,
-                       final SourceFileProvider sourceFileProvider, final SourceView sourceView,
+                       final ReplicationTransfer transfer, final SourceView sourceView,
                        final ReplicationSession session) throws IOException {
-            super(workDirectory, targetDirectoryPath, source, sourceFileProvider);
+            super(workDirectory, targetDirectoryPath, source, transfer);
             this.sourceTrashPath = workDirectory.resolve("trash-" + source.name());
             if (!Files.exists(sourceTrashPath))
                 Files.createDirectory(sourceTrashPath);
@@ -19,13 +19,19 @@ package com.qwazr.search.replication;
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 
 @JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.PUBLIC_ONLY,
         getterVisibility = JsonAutoDetect.Visibility.NONE,
@@ -49,21 +55,30 @@ public class ReplicationSession {
     @JsonProperty("start_time")
     public final long startTime;
 
+    /**
+     * Identifies the content of the session: two sessions with the same files have the same version.
+     */
+    @JsonProperty("version")
+    public final String version;
+
     @JsonCreator
     ReplicationSession(@JsonProperty("master_uuid") final String masterUuid,
                        @JsonProperty("session_uuid") final String sessionUuid,
                        @JsonProperty("files") final Map<String, Map<String, Item>> items,
                        @JsonProperty("size") final long size,
-                       @JsonProperty("start_time") final long startTime) {
+                       @JsonProperty("start_time") final long startTime,
+                       @JsonProperty("version") final String version) {
         this.masterUuid = masterUuid;
         this.sessionUuid = sessionUuid;
         this.items = items;
         this.size = size;
         this.startTime = startTime;
+        this.version = version;
     }
 
     ReplicationSession(final String masterUuid, final String sessionUuid, final Map<String, Map<String, Item>> files) {
-        this(masterUuid, sessionUuid, files, computeTotalSize(files), System.currentTimeMillis());
+        this(masterUuid, sessionUuid, files, computeTotalSize(files), System.currentTimeMillis(),
+                computeVersion(files));
     }
 
     static long computeTotalSize(final Map<String, Map<String, Item>> items) {
@@ -75,6 +90,28 @@ public class ReplicationSession {
         return totalSize;
     }
 
+    /**
+     * Compute a digest of the names, sizes and versions of the items, independent of the map ordering
+     */
+    static String computeVersion(final Map<String, Map<String, Item>> items) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        new TreeMap<>(items).forEach((source, sourceItems) -> {
+            digest.update((source + '/').getBytes(StandardCharsets.UTF_8));
+            if (sourceItems != null)
+                new TreeMap<>(sourceItems).forEach((name, item) -> {
+                    digest.update(name.getBytes(StandardCharsets.UTF_8));
+                    if (item != null)
+                        digest.update((":" + item.size + ':' + item.version + ';').getBytes(StandardCharsets.UTF_8));
+                });
+        });
+        return new BigInteger(1, digest.digest()).toString(16);
+    }
+
     @JsonIgnore
     public Map<String, Item> getSourceFiles(final ReplicationProcess.Source source) {
         return source == null ? null : items.get(source.name());
@@ -96,15 +133,28 @@ public class ReplicationSession {
         public final Long size;
         public final Long version;
 
+        /**
+         * The checksum stored in the Lucene footer of an index file, null for the other files.
+         * It is used to verify the transfer, it does not identify the item (see equals).
+         */
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public final Long checksum;
+
         @JsonCreator
-        Item(@JsonProperty("size") final Long size, @JsonProperty("version") final Long version) {
+        Item(@JsonProperty("size") final Long size, @JsonProperty("version") final Long version,
+             @JsonProperty("checksum") final Long checksum) {
             this.size = size;
             this.version = version;
+            this.checksum = checksum;
         }
 
-        Item(Path itemPath) throws IOException {
+        Item(final Path itemPath, final Long checksum) throws IOException {
             this(Files.size(itemPath), Objects.requireNonNull(Files.getLastModifiedTime(itemPath),
-                    "Cannot extract last modified on: " + itemPath).toMillis());
+                    "Cannot extract last modified on: " + itemPath).toMillis(), checksum);
+        }
+
+        Item(final Path itemPath) throws IOException {
+            this(itemPath, null);
         }
 
         @Override
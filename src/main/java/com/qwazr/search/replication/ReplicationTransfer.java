@@ -0,0 +1,407 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.replication;
+
+import com.qwazr.utils.LoggerUtils;
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.RateLimiter;
+
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Download the files of a replication source into the work directory.
+ * <ul>
+ * <li>The files are downloaded concurrently. The files larger than the chunk size are split in ranged chunks.</li>
+ * <li>A chunk interrupted by a broken connection is resumed from its last written byte.</li>
+ * <li>The index files are verified against the checksum of their Lucene footer.</li>
+ * <li>An optional rate limiter, shared by the concurrent downloads, bounds the bandwidth.</li>
+ * <li>With a local file resolver, an index file which is already present on the same file system is hard-linked
+ * instead of being downloaded.</li>
+ * </ul>
+ */
+public class ReplicationTransfer {
+
+    private final static Logger LOGGER = LoggerUtils.getLogger(ReplicationTransfer.class);
+
+    public final static int DEFAULT_CONCURRENCY = 4;
+    public final static long DEFAULT_CHUNK_SIZE = 64L * 1024 * 1024;
+    public final static int DEFAULT_MAX_ATTEMPTS = 5;
+
+    private final static int BUFFER_SIZE = 64 * 1024;
+
+    private final ReplicationProcess.SourceFileProvider sourceFileProvider;
+    private final int concurrency;
+    private final long chunkSize;
+    private final int maxAttempts;
+    private final RateLimiter rateLimiter;
+    private final LocalFileResolver localFileResolver;
+    private final Listener listener;
+
+    public ReplicationTransfer(final ReplicationProcess.SourceFileProvider sourceFileProvider, final int concurrency,
+                               final long chunkSize, final int maxAttempts, final RateLimiter rateLimiter,
+                               final LocalFileResolver localFileResolver, final Listener listener) {
+        this.sourceFileProvider = sourceFileProvider;
+        this.concurrency = Math.max(1, concurrency);
+        this.chunkSize = Math.max(BUFFER_SIZE, chunkSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.rateLimiter = rateLimiter;
+        this.localFileResolver = localFileResolver;
+        this.listener = listener;
+    }
+
+    public ReplicationTransfer(final ReplicationProcess.SourceFileProvider sourceFileProvider, final int concurrency,
+                               final long chunkSize, final int maxAttempts, final RateLimiter rateLimiter,
+                               final Listener listener) {
+        this(sourceFileProvider, concurrency, chunkSize, maxAttempts, rateLimiter, null, listener);
+    }
+
+    public ReplicationTransfer(final ReplicationProcess.SourceFileProvider sourceFileProvider, final int concurrency,
+                               final long chunkSize, final int maxAttempts, final Listener listener) {
+        this(sourceFileProvider, concurrency, chunkSize, maxAttempts, null, listener);
+    }
+
+    public ReplicationTransfer(final ReplicationProcess.SourceFileProvider sourceFileProvider,
+                               final Listener listener) {
+        this(sourceFileProvider, DEFAULT_CONCURRENCY, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_ATTEMPTS, listener);
+    }
+
+    /**
+     * Receives the progress of the transfer. The methods may be called concurrently.
+     */
+    public interface Listener {
+
+        /**
+         * @param source the source of the file
+         * @param bytes  the number of bytes written since the previous call
+         */
+        void transferred(ReplicationProcess.Source source, long bytes);
+
+        /**
+         * @param source the source which has been fully downloaded
+         * @param files  the number of downloaded files
+         * @param bytes  the number of downloaded bytes
+         * @param timeMs the duration of the transfer
+         */
+        void completed(ReplicationProcess.Source source, int files, long bytes, long timeMs);
+
+        /**
+         * Called after {@link #completed}, if some files have been hard-linked instead of being downloaded.
+         *
+         * @param source the source of the files
+         * @param files  the number of linked files
+         * @param bytes  the size of the linked files
+         */
+        default void linked(ReplicationProcess.Source source, int files, long bytes) {
+        }
+    }
+
+    /**
+     * Locates the local files which may already have the content of an index file. Lucene never modifies an index
+     * file once written, a local file with the same name, size and footer checksum can be shared by a hard link,
+     * once its whole content has been verified against the footer.
+     */
+    @FunctionalInterface
+    public interface LocalFileResolver {
+
+        /**
+         * @param source   the source of the file (only data and taxonomy files are resolved)
+         * @param fileName the name of the file
+         * @return the candidate files, by order of preference
+         * @throws IOException if the candidates cannot be listed
+         */
+        List<Path> candidates(ReplicationProcess.Source source, String fileName) throws IOException;
+    }
+
+    /**
+     * Download the given items into the work directory.
+     *
+     * @param source        the source of the items
+     * @param workDirectory the directory which receives the files
+     * @param items         the items to download
+     * @throws IOException if a file cannot be downloaded or is corrupted
+     */
+    void obtain(final ReplicationProcess.Source source, final Path workDirectory,
+                final Map<String, ReplicationSession.Item> items) throws IOException {
+        if (items.isEmpty())
+            return;
+        final long startTime = System.currentTimeMillis();
+        final boolean verifyChecksums =
+                source == ReplicationProcess.Source.data || source == ReplicationProcess.Source.taxonomy;
+        final List<Chunk> chunks = new ArrayList<>();
+        int files = 0;
+        long bytes = 0;
+        int linkedFiles = 0;
+        long linkedBytes = 0;
+        for (final Map.Entry<String, ReplicationSession.Item> entry : items.entrySet()) {
+            final FileTransfer file = new FileTransfer(entry.getKey(), entry.getValue(),
+                    workDirectory.resolve(entry.getKey()));
+            // The resources and the metadata may be rewritten in place, they are never linked
+            if (verifyChecksums && localFileResolver != null && link(source, file)) {
+                linkedFiles++;
+                linkedBytes += file.item.size;
+                continue;
+            }
+            files++;
+            // An empty file is created, the chunks write at their own position
+            Files.deleteIfExists(file.path);
+            Files.createFile(file.path);
+            final Long size = file.item.size;
+            if (size == null || size <= chunkSize)
+                file.addChunk(chunks, 0, size);
+            else
+                for (long offset = 0; offset < size; offset += chunkSize)
+                    file.addChunk(chunks, offset, Math.min(chunkSize, size - offset));
+            if (size != null)
+                bytes += size;
+        }
+        try (final Directory directory = verifyChecksums ? FSDirectory.open(workDirectory) : null) {
+            run(chunks, chunk -> {
+                transfer(source, chunk);
+                if (chunk.file.remainingChunks.decrementAndGet() == 0)
+                    complete(chunk.file, directory);
+            });
+        }
+        if (listener != null) {
+            listener.completed(source, files, bytes, System.currentTimeMillis() - startTime);
+            if (linkedFiles > 0)
+                listener.linked(source, linkedFiles, linkedBytes);
+        }
+    }
+
+    /**
+     * Try to hard-link the first identical candidate. A failure (another file system, no hard link support) is not
+     * an error: the next candidate is tried, then the file is downloaded.
+     */
+    private boolean link(final ReplicationProcess.Source source, final FileTransfer file) throws IOException {
+        if (file.item.size == null)
+            return false;
+        for (final Path candidate : localFileResolver.candidates(source, file.name)) {
+            try {
+                if (!isSameContent(candidate, file.item))
+                    continue;
+                Files.deleteIfExists(file.path);
+                Files.createLink(file.path, candidate);
+                return true;
+            } catch (IOException | UnsupportedOperationException e) {
+                LOGGER.log(Level.FINE, e, () -> "Cannot link " + candidate + " to " + file.path);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Same size, and same footer checksum if the master provided one, otherwise same version.
+     * The footer only tells what the content should be: the whole candidate is then checked against its footer,
+     * a corrupted local file is never shared.
+     */
+    static boolean isSameContent(final Path candidate, final ReplicationSession.Item item) throws IOException {
+        if (!Files.isRegularFile(candidate) || Files.size(candidate) != item.size)
+            return false;
+        if (item.checksum != null)
+            return item.checksum.equals(SourceView.readFooterChecksum(candidate)) && isIntact(candidate);
+        return item.version != null && item.version == Files.getLastModifiedTime(candidate).toMillis();
+    }
+
+    private static boolean isIntact(final Path candidate) throws IOException {
+        try (final Directory directory = FSDirectory.open(candidate.getParent());
+             final IndexInput input = directory.openInput(candidate.getFileName().toString(), IOContext.READONCE)) {
+            CodecUtil.checksumEntireFile(input);
+            return true;
+        } catch (CorruptIndexException e) {
+            LOGGER.log(Level.WARNING, e, () -> "The local file is corrupted, it is not linked: " + candidate);
+            return false;
+        }
+    }
+
+    private void run(final List<Chunk> chunks, final ChunkTask task) throws IOException {
+        if (chunks.isEmpty())
+            return;
+        if (concurrency == 1 || chunks.size() == 1) {
+            for (final Chunk chunk : chunks)
+                task.run(chunk);
+            return;
+        }
+        final ExecutorService executor =
+                Executors.newFixedThreadPool(Math.min(concurrency, chunks.size()), runnable -> {
+                    final Thread thread = new Thread(runnable, "Replication transfer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        try {
+            final List<Future<?>> futures = new ArrayList<>(chunks.size());
+            for (final Chunk chunk : chunks)
+                futures.add(executor.submit(() -> {
+                    task.run(chunk);
+                    return null;
+                }));
+            for (final Future<?> future : futures)
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the replication transfer");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IOException("The replication transfer failed", cause);
+        } finally {
+            // On failure, the pending chunks are abandoned, the work directory will be deleted
+            executor.shutdownNow();
+            awaitTermination(executor);
+        }
+    }
+
+    private static void awaitTermination(final ExecutorService executor) {
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES))
+                LOGGER.warning("The replication transfer threads did not terminate");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Download one chunk. After a broken connection, the download is resumed from the last written byte.
+     */
+    private void transfer(final ReplicationProcess.Source source, final Chunk chunk) throws IOException {
+        final FileTransfer file = chunk.file;
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long written = 0;
+        int attempt = 0;
+        try (final FileChannel channel = FileChannel.open(file.path, StandardOpenOption.WRITE)) {
+            for (; ; ) {
+                final long resumeFrom = written;
+                try (final InputStream input = sourceFileProvider.obtain(source, file.name, chunk.offset + written,
+                        chunk.length == null ? null : chunk.length - written)) {
+                    if (input == null)
+                        throw new FileNotFoundException("Replication item not found: " + source + '/' + file.name);
+                    int read;
+                    while ((read = input.read(buffer.array())) != -1) {
+                        if (rateLimiter != null)
+                            rateLimiter.pause(read);
+                        buffer.position(0).limit(read);
+                        while (buffer.hasRemaining())
+                            written += channel.write(buffer, chunk.offset + written);
+                    }
+                    if (chunk.length != null && written < chunk.length)
+                        throw new EOFException(
+                                "Premature end of " + source + '/' + file.name + " at " + (chunk.offset + written));
+                    return;
+                } catch (FileNotFoundException e) {
+                    throw e;
+                } catch (IOException | RuntimeException e) {
+                    if (++attempt >= maxAttempts || Thread.currentThread().isInterrupted())
+                        throw e;
+                    final long position = chunk.offset + written;
+                    final int attemptNumber = attempt;
+                    LOGGER.warning(() -> "Resuming the transfer of " + source + '/' + file.name + " at " + position +
+                            " (attempt " + attemptNumber + "): " + e.getMessage());
+                } finally {
+                    if (listener != null && written > resumeFrom)
+                        listener.transferred(source, written - resumeFrom);
+                }
+            }
+        }
+    }
+
+    /**
+     * Called once every chunk of the file has been written
+     */
+    private static void complete(final FileTransfer file, final Directory checksumDirectory) throws IOException {
+        final long itemSize = Files.size(file.path);
+        if (file.item.size != null && !Objects.equals(itemSize, file.item.size))
+            throw new IOException(
+                    "Wrong file size for " + file.path + ". Expected: " + file.item.size + " - Got: " + itemSize);
+        if (checksumDirectory != null && file.item.checksum != null) {
+            try (final IndexInput input = checksumDirectory.openInput(file.name, IOContext.READONCE)) {
+                // Checks the footer against the content, then the footer against the master
+                final long checksum = CodecUtil.checksumEntireFile(input);
+                if (checksum != file.item.checksum)
+                    throw new CorruptIndexException(
+                            "Checksum mismatch. Expected: " + file.item.checksum + " - Got: " + checksum, input);
+            }
+        }
+        if (file.item.version != null)
+            Files.setLastModifiedTime(file.path, FileTime.fromMillis(file.item.version));
+    }
+
+    @FunctionalInterface
+    private interface ChunkTask {
+        void run(Chunk chunk) throws IOException;
+    }
+
+    private static final class FileTransfer {
+
+        private final String name;
+        private final ReplicationSession.Item item;
+        private final Path path;
+        private final AtomicInteger remainingChunks;
+
+        private FileTransfer(final String name, final ReplicationSession.Item item, final Path path) {
+            this.name = name;
+            this.item = item;
+            this.path = path;
+            this.remainingChunks = new AtomicInteger();
+        }
+
+        private void addChunk(final List<Chunk> chunks, final long offset, final Long length) {
+            remainingChunks.incrementAndGet();
+            chunks.add(new Chunk(this, offset, length));
+        }
+    }
+
+    private static final class Chunk {
+
+        private final FileTransfer file;
+        private final long offset;
+        private final Long length;
+
+        private Chunk(final FileTransfer file, final long offset, final Long length) {
+            this.file = file;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
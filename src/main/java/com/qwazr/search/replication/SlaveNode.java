@@ -26,7 +26,7 @@ import java.nio.file.Path;
 public interface SlaveNode {
 
 	ReplicationProcess newReplicationProcess(final ReplicationStatus.Strategy strategy,
-			final ReplicationSession masterFiles, final ReplicationProcess.SourceFileProvider sourceFileProvider)
+			final ReplicationSession masterFiles, final ReplicationTransfer transfer)
 			throws IOException;
 
 	class WithIndex implements SlaveNode {
@@ -53,10 +53,10 @@ public interface SlaveNode {
 
 		@Override
 		public ReplicationProcess newReplicationProcess(final ReplicationStatus.Strategy strategy,
-				final ReplicationSession session, final ReplicationProcess.SourceFileProvider fileProvider)
+				final ReplicationSession session, final ReplicationTransfer transfer)
 				throws IOException {
 			final ReplicationProcess.Builder builder =
-					new ReplicationProcess.Builder(workDirectory, fileProvider, strategy, session);
+					new ReplicationProcess.Builder(workDirectory, transfer, strategy, session);
 			return builder.build(builder.resources(resourcesPath),
 					builder.dataIndex(indexDirectoryPath, indexDirectory),
 					builder.metadata(metadataDirectoryPath, metadataItems));
@@ -79,10 +79,10 @@ public interface SlaveNode {
 
 		@Override
 		public ReplicationProcess newReplicationProcess(final ReplicationStatus.Strategy strategy,
-				final ReplicationSession session, final ReplicationProcess.SourceFileProvider fileProvider)
+				final ReplicationSession session, final ReplicationTransfer transfer)
 				throws IOException {
 			final ReplicationProcess.Builder builder =
-					new ReplicationProcess.Builder(workDirectory, fileProvider, strategy, session);
+					new ReplicationProcess.Builder(workDirectory, transfer, strategy, session);
 			return builder.build(builder.resources(resourcesPath),
 					builder.dataIndex(indexDirectoryPath, indexDirectory),
 					builder.taxoIndex(taxoDirectoryPath, taxoDirectory),
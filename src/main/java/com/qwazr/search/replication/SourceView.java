@@ -16,13 +16,17 @@
 
 package com.qwazr.search.replication;
 
+import org.apache.lucene.codecs.CodecUtil;
 import org.apache.lucene.index.IndexCommit;
 import org.apache.lucene.index.SegmentInfos;
 import org.apache.lucene.index.SnapshotDeletionPolicy;
 import org.apache.lucene.store.Directory;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -33,17 +37,47 @@ class SourceView {
     private final Path directoryPath;
     private final Map<String, ReplicationSession.Item> items;
 
-    SourceView(final Path directoryPath, final Iterable<String> itemNames) throws IOException {
+    SourceView(final Path directoryPath, final Iterable<String> itemNames, final boolean withChecksums)
+            throws IOException {
         this.directoryPath = directoryPath;
         final Map<String, ReplicationSession.Item> f = new LinkedHashMap<>();
         for (String itemName : itemNames) {
             final Path itemPath = directoryPath.resolve(itemName);
             if (Files.exists(itemPath))
-                f.put(itemName, new ReplicationSession.Item(itemPath));
+                f.put(itemName, new ReplicationSession.Item(itemPath,
+                        withChecksums ? readFooterChecksum(itemPath) : null));
         }
         items = Collections.unmodifiableMap(f);
     }
 
+    SourceView(final Path directoryPath, final Iterable<String> itemNames) throws IOException {
+        this(directoryPath, itemNames, false);
+    }
+
+    /**
+     * Read the checksum written in the footer of a Lucene index file, without reading the whole file.
+     *
+     * @param itemPath the path of the index file
+     * @return the checksum, or null if the file has no valid codec footer (e.g. SimpleText codec)
+     * @throws IOException if the file cannot be read
+     */
+    static Long readFooterChecksum(final Path itemPath) throws IOException {
+        try (final FileChannel channel = FileChannel.open(itemPath, StandardOpenOption.READ)) {
+            final int footerLength = CodecUtil.footerLength();
+            final long footerPosition = channel.size() - footerLength;
+            if (footerPosition < 0)
+                return null;
+            final ByteBuffer footer = ByteBuffer.allocate(footerLength);
+            while (footer.hasRemaining())
+                if (channel.read(footer, footerPosition + footer.position()) < 0)
+                    return null;
+            footer.flip();
+            if (footer.getInt() != CodecUtil.FOOTER_MAGIC || footer.getInt() != 0)
+                return null;
+            return footer.getLong();
+        }
+    }
+
     /**
      * Check wether the item is already present and is identical. Same size, same version
      *
@@ -102,7 +136,7 @@ class SourceView {
 
         private FromCommit(final Path indexDirectoryPath, final SnapshotDeletionPolicy indexSnapshots,
                            final IndexCommit indexCommit) throws IOException {
-            super(indexDirectoryPath, indexCommit.getFileNames());
+            super(indexDirectoryPath, indexCommit.getFileNames(), true);
             this.indexSnapshots = indexSnapshots;
             this.indexCommit = indexCommit;
         }
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.backups;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.index.IndexServiceInterface;
+import com.qwazr.search.index.SchemaSettingsDefinition;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.search.test.units.IndexRecord;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class BackupLinkTest extends AbstractIndexTest {
+
+    private final static String SCHEMA_NAME = "backup_link_schema";
+    private final static String INDEX_NAME = "linked";
+
+    private static Path backupSchemaPath;
+
+    private static IndexServiceInterface service;
+
+    @BeforeClass
+    public static void setup() throws IOException {
+        initIndexManager();
+        service = indexManager.getService();
+        final Path backupPath = Files.createTempDirectory("backup");
+        backupSchemaPath = backupPath.resolve(SCHEMA_NAME);
+        service.createUpdateSchema(SCHEMA_NAME, SchemaSettingsDefinition.of()
+                .backupDirectoryPath(backupPath.toAbsolutePath().toString())
+                .backupRetention(2)
+                .build());
+    }
+
+    private static Path dataPath(final String backupName) {
+        return backupSchemaPath.resolve(backupName).resolve(INDEX_NAME).resolve("data");
+    }
+
+    @Test
+    public void test() throws URISyntaxException, IOException, InterruptedException {
+        final AnnotatedIndexService<IndexRecord.NoTaxonomy> index =
+                new AnnotatedIndexService<>(service, IndexRecord.NoTaxonomy.class, SCHEMA_NAME, INDEX_NAME, null);
+        index.createUpdateIndex();
+        index.createUpdateFields();
+
+        index.postDocument(new IndexRecord.NoTaxonomy("1"));
+        index.doBackup("backup1");
+        index.postDocument(new IndexRecord.NoTaxonomy("2"));
+        index.doBackup("backup2");
+
+        // The segment written before the first backup is shared by both backups
+        final List<Path> files1;
+        try (final Stream<Path> stream = Files.list(dataPath("backup1"))) {
+            files1 = stream.collect(Collectors.toList());
+        }
+        int shared = 0;
+        for (final Path file1 : files1) {
+            final Path file2 = dataPath("backup2").resolve(file1.getFileName());
+            if (Files.exists(file2)) {
+                Assert.assertTrue(Files.isSameFile(file1, file2));
+                shared++;
+            }
+        }
+        Assert.assertTrue(shared > 0);
+
+        // The oldest backup is beyond the retention
+        index.doBackup("backup3");
+        Assert.assertFalse(Files.exists(backupSchemaPath.resolve("backup1")));
+        Assert.assertTrue(Files.exists(dataPath("backup2")));
+        Assert.assertTrue(Files.exists(dataPath("backup3")));
+        Assert.assertEquals(2, index.getBackups("*", false).get(SCHEMA_NAME).size());
+    }
+}
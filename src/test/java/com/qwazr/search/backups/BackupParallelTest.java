@@ -0,0 +1,86 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.backups;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.index.BackupStatus;
+import com.qwazr.search.index.IndexServiceInterface;
+import com.qwazr.search.index.SchemaSettingsDefinition;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.search.test.units.IndexRecord;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.SortedMap;
+
+public class BackupParallelTest extends AbstractIndexTest {
+
+    private final static String SCHEMA_NAME = "backup_parallel_schema";
+    private final static int INDEX_COUNT = 6;
+
+    private static IndexServiceInterface service;
+
+    @BeforeClass
+    public static void setup() throws IOException, URISyntaxException, InterruptedException {
+        initIndexManager();
+        service = indexManager.getService();
+        final Path backupPath = Files.createTempDirectory("backup");
+        service.createUpdateSchema(SCHEMA_NAME, SchemaSettingsDefinition.of()
+                .backupDirectoryPath(backupPath.toAbsolutePath().toString())
+                .backupConcurrency(3)
+                .backupMaxMbPerSec(100d)
+                .build());
+        for (int i = 0; i < INDEX_COUNT; i++) {
+            final AnnotatedIndexService<IndexRecord.NoTaxonomy> index =
+                    new AnnotatedIndexService<>(service, IndexRecord.NoTaxonomy.class, SCHEMA_NAME, "index" + i,
+                            null);
+            index.createUpdateIndex();
+            index.createUpdateFields();
+            final Collection<IndexRecord.NoTaxonomy> records = new ArrayList<>();
+            for (int j = 0; j < 100; j++)
+                records.add(new IndexRecord.NoTaxonomy("id" + j));
+            index.postDocuments(records);
+        }
+    }
+
+    @Test
+    public void test() {
+        final SortedMap<String, BackupStatus> results = service.doBackup(SCHEMA_NAME, "*", "parallel").get(SCHEMA_NAME);
+        Assert.assertNotNull(results);
+        Assert.assertEquals(INDEX_COUNT, results.size());
+        for (final BackupStatus status : results.values()) {
+            Assert.assertNotNull(status.durationMs);
+            Assert.assertNotNull(status.copiedBytes);
+            Assert.assertNotNull(status.linkedBytes);
+            Assert.assertTrue(status.linkedBytes > 0);
+            Assert.assertTrue(status.filesCount > 0);
+        }
+        // The statistics of the backup request are not part of the listed status
+        final BackupStatus listed = service.getBackups(SCHEMA_NAME, "index0", "parallel", false)
+                .get(SCHEMA_NAME)
+                .get("parallel")
+                .get("index0");
+        Assert.assertEquals(results.get("index0"), listed);
+        Assert.assertNull(listed.durationMs);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.backups;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.index.IndexServiceInterface;
+import com.qwazr.search.index.SchemaSettingsDefinition;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.search.test.units.IndexRecord;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class BackupRetentionTest extends AbstractIndexTest {
+
+    private final static String SCHEMA_NAME = "backup_retention_schema";
+    private final static String INDEX1 = "index1";
+    private final static String INDEX2 = "index2";
+
+    private static Path backupSchemaPath;
+
+    private static IndexServiceInterface service;
+
+    @BeforeClass
+    public static void setup() throws IOException {
+        initIndexManager();
+        service = indexManager.getService();
+        final Path backupPath = Files.createTempDirectory("backup");
+        backupSchemaPath = backupPath.resolve(SCHEMA_NAME);
+        service.createUpdateSchema(SCHEMA_NAME, SchemaSettingsDefinition.of()
+                .backupDirectoryPath(backupPath.toAbsolutePath().toString())
+                .backupRetention(2)
+                .build());
+    }
+
+    private static AnnotatedIndexService<IndexRecord.NoTaxonomy> index(final String indexName)
+            throws URISyntaxException {
+        final AnnotatedIndexService<IndexRecord.NoTaxonomy> index =
+                new AnnotatedIndexService<>(service, IndexRecord.NoTaxonomy.class, SCHEMA_NAME, indexName, null);
+        index.createUpdateIndex();
+        index.createUpdateFields();
+        index.postDocument(new IndexRecord.NoTaxonomy("1"));
+        return index;
+    }
+
+    private static boolean exists(final String backupName, final String indexName) {
+        return Files.exists(backupSchemaPath.resolve(backupName).resolve(indexName));
+    }
+
+    @Test
+    public void test() throws URISyntaxException, IOException, InterruptedException {
+        final AnnotatedIndexService<IndexRecord.NoTaxonomy> index1 = index(INDEX1);
+        index(INDEX2);
+
+        service.doBackup(SCHEMA_NAME, "*", "backup1");
+        service.doBackup(SCHEMA_NAME, "*", "backup2");
+
+        // Deleting an index from the oldest backup does not make it the most recent one
+        Thread.sleep(50);
+        Assert.assertEquals(Integer.valueOf(1), service.deleteBackups(SCHEMA_NAME, INDEX2, "backup1"));
+        service.doBackup(SCHEMA_NAME, "*", "backup3");
+        Assert.assertFalse(Files.exists(backupSchemaPath.resolve("backup1")));
+        Assert.assertTrue(exists("backup2", INDEX1));
+        Assert.assertTrue(exists("backup2", INDEX2));
+        Assert.assertTrue(exists("backup3", INDEX1));
+        Assert.assertTrue(exists("backup3", INDEX2));
+
+        // The retention is counted per index: the backups of the other index are kept
+        index1.doBackup("backup4");
+        Assert.assertFalse(exists("backup2", INDEX1));
+        Assert.assertTrue(exists("backup2", INDEX2));
+        Assert.assertTrue(exists("backup3", INDEX1));
+        Assert.assertTrue(exists("backup3", INDEX2));
+        Assert.assertTrue(exists("backup4", INDEX1));
+        Assert.assertEquals(3, service.getBackups(SCHEMA_NAME, "*", "*", false).get(SCHEMA_NAME).size());
+    }
+}
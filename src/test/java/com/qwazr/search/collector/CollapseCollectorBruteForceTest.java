@@ -0,0 +1,153 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.collector;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FloatDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queries.function.FunctionScoreQuery;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.DoubleValuesSource;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Collapse the matching documents of several segments, checked against a brute force computation.
+ */
+public class CollapseCollectorBruteForceTest {
+
+    private final static int SEGMENTS = 5;
+    private final static int DOCS_PER_SEGMENT = 700;
+    private final static int DOCS = SEGMENTS * DOCS_PER_SEGMENT;
+    private final static int GROUPS = 100;
+    private final static int MAX_ROWS = 10;
+
+    private static Directory directory;
+    private static DirectoryReader reader;
+    private static ExecutorService executor;
+    private static IndexSearcher searcher;
+    private static Query query;
+
+    @BeforeClass
+    public static void setup() throws IOException {
+        directory = new ByteBuffersDirectory();
+        final Random random = new Random(0);
+        try (final IndexWriter writer = new IndexWriter(directory,
+                new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE))) {
+            for (int s = 0; s < SEGMENTS; s++) {
+                for (int i = 0; i < DOCS_PER_SEGMENT; i++) {
+                    final Document doc = new Document();
+                    // The third segment has no group field, and some documents are not in any group
+                    if (s != 2 && i % 13 != 0)
+                        doc.add(new SortedDocValuesField("group", new BytesRef("g" + random.nextInt(GROUPS))));
+                    doc.add(new FloatDocValuesField("score", random.nextFloat()));
+                    doc.add(new StringField("type", i % 3 == 0 ? "a" : "b", Field.Store.NO));
+                    writer.addDocument(doc);
+                }
+                writer.commit();
+            }
+        }
+        reader = DirectoryReader.open(directory);
+        executor = Executors.newFixedThreadPool(4);
+        searcher = new IndexSearcher(reader, executor);
+        query = new FunctionScoreQuery(new TermQuery(new Term("type", "a")),
+                DoubleValuesSource.fromFloatField("score"));
+    }
+
+    @AfterClass
+    public static void cleanup() throws IOException {
+        executor.shutdown();
+        reader.close();
+        directory.close();
+    }
+
+    private static CollapseCollector.Query search() throws IOException {
+        return searcher.search(query, new CollectorManager<CollapseCollector, CollapseCollector.Query>() {
+
+            @Override
+            public CollapseCollector newCollector() {
+                return new CollapseCollector("collapse", "group", MAX_ROWS);
+            }
+
+            @Override
+            public CollapseCollector.Query reduce(final Collection<CollapseCollector> collectors) {
+                final List<CollapseCollector> list = new ArrayList<>(collectors);
+                return list.get(0).reduce(list);
+            }
+        });
+    }
+
+    @Test
+    public void collapse() throws IOException {
+        Assert.assertEquals(SEGMENTS, reader.leaves().size());
+
+        // The brute force computation of the groups
+        final Map<String, Integer> counts = new HashMap<>();
+        final Map<String, ScoreDoc> leaders = new HashMap<>();
+        for (final ScoreDoc scoreDoc : searcher.search(query, DOCS).scoreDocs) {
+            final LeafReaderContext context =
+                    reader.leaves().get(ReaderUtil.subIndex(scoreDoc.doc, reader.leaves()));
+            final SortedDocValues values = DocValues.getSorted(context.reader(), "group");
+            if (!values.advanceExact(scoreDoc.doc - context.docBase))
+                continue;
+            final String group = values.binaryValue().utf8ToString();
+            counts.merge(group, 1, Integer::sum);
+            final ScoreDoc leader = leaders.get(group);
+            if (leader == null || scoreDoc.score > leader.score)
+                leaders.put(group, scoreDoc);
+        }
+        final List<String> groups = new ArrayList<>(leaders.keySet());
+        groups.sort((g1, g2) -> Float.compare(leaders.get(g2).score, leaders.get(g1).score));
+
+        final CollapseCollector.Query result = search();
+        long collapsed = 0;
+        for (final String group : groups.subList(0, MAX_ROWS)) {
+            Assert.assertEquals(counts.get(group) - 1, result.getCollapsed(leaders.get(group).doc));
+            collapsed += counts.get(group) - 1;
+        }
+        Assert.assertEquals(collapsed, result.getCollapsed());
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.annotations.Index;
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.search.test.units.IndexRecord;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ws.rs.WebApplicationException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BulkPostTest extends AbstractIndexTest {
+
+    private final static String INDEX = "BulkPostRecord";
+    private final static int DOCS = 1000;
+
+    private static AnnotatedIndexService<BulkRecord> service;
+
+    @BeforeClass
+    public static void setup() throws URISyntaxException {
+        initIndexManager();
+        service = initIndexService(BulkRecord.class);
+    }
+
+    private static List<Map<String, Object>> getDocuments(final String prefix) {
+        final List<Map<String, Object>> documents = new ArrayList<>(DOCS);
+        for (int i = 0; i < DOCS; i++) {
+            final Map<String, Object> document = new LinkedHashMap<>();
+            document.put(FieldDefinition.ID_FIELD, Integer.toString(i));
+            document.put("textField", prefix + " " + i);
+            documents.add(document);
+        }
+        return documents;
+    }
+
+    private static long count() {
+        return service.searchQuery(QueryDefinition.of(new MatchAllDocsQuery()).rows(0).build()).totalHits;
+    }
+
+    @Test
+    public void addThenUpdate() {
+        final IndexServiceInterface indexService = indexManager.getService();
+        service.deleteAll();
+        Assert.assertEquals(DOCS, indexService.postMappedDocuments("TestQueries", INDEX,
+                PostDefinition.of(getDocuments("added"), null, false)).intValue());
+        Assert.assertEquals(DOCS, count());
+        // The update mode replaces the documents
+        Assert.assertEquals(DOCS, indexService.postMappedDocuments("TestQueries", INDEX,
+                PostDefinition.of(getDocuments("updated"), null, true)).intValue());
+        Assert.assertEquals(DOCS, count());
+    }
+
+    @Test
+    public void missingId() {
+        final List<Map<String, Object>> documents = getDocuments("missing");
+        documents.set(DOCS / 2, Collections.singletonMap("textField", "no id"));
+        try {
+            indexManager.getService().postMappedDocuments("TestQueries", INDEX, PostDefinition.of(documents, null));
+            Assert.fail("WebApplicationException not thrown");
+        } catch (WebApplicationException e) {
+            Assert.assertEquals(400, e.getResponse().getStatus());
+        }
+    }
+
+    @Index(schema = "TestQueries", name = INDEX, bulkThreads = 4, bulkChunkSize = 10)
+    public static class BulkRecord extends IndexRecord<BulkRecord> {
+
+        public BulkRecord() {
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.annotations.Index;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.search.test.units.IndexRecord;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class CommitPolicyTest extends AbstractIndexTest {
+
+    private final static int THREADS = 8;
+    private final static int DOCS_PER_THREAD = 25;
+
+    @BeforeClass
+    public static void setup() {
+        initIndexManager();
+    }
+
+    private static <T extends IndexRecord<T>> void concurrentPost(final AnnotatedIndexService<T> service,
+            final RecordFactory<T> factory) throws InterruptedException, ExecutionException {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < DOCS_PER_THREAD; i++) {
+                        try {
+                            service.postDocument(factory.create(thread + "_" + i));
+                        } catch (IOException | InterruptedException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    private static <T> long count(final AnnotatedIndexService<T> service) {
+        return service.searchQuery(QueryDefinition.of(new MatchAllDocsQuery()).rows(0).build()).totalHits;
+    }
+
+    @Test
+    public void groupCommit() throws URISyntaxException, InterruptedException, ExecutionException {
+        final AnnotatedIndexService<GroupRecord> service = initIndexService(GroupRecord.class);
+        final long firstGeneration = service.getIndexStatus().commitGeneration;
+        concurrentPost(service, GroupRecord::new);
+        final IndexStatus status = service.getIndexStatus();
+        // Every request waited for its batch, so everything is durable and visible
+        Assert.assertEquals(THREADS * DOCS_PER_THREAD, count(service));
+        Assert.assertFalse(status.hasUncommittedChanges);
+        // The concurrent requests have been batched
+        Assert.assertTrue(status.commitGeneration - firstGeneration < THREADS * DOCS_PER_THREAD);
+    }
+
+    @Test
+    public void intervalCommit() throws URISyntaxException, InterruptedException, ExecutionException {
+        final AnnotatedIndexService<IntervalRecord> service = initIndexService(IntervalRecord.class);
+        concurrentPost(service, IntervalRecord::new);
+        // The documents are visible before the commit
+        Assert.assertEquals(THREADS * DOCS_PER_THREAD, count(service));
+        // The background committer eventually commits the pending batch
+        final long endTime = System.currentTimeMillis() + 10_000;
+        while (service.getIndexStatus().hasUncommittedChanges && System.currentTimeMillis() < endTime)
+            Thread.sleep(100);
+        Assert.assertFalse(service.getIndexStatus().hasUncommittedChanges);
+    }
+
+    @FunctionalInterface
+    interface RecordFactory<T> {
+        T create(String id);
+    }
+
+    @Index(schema = "TestQueries", name = "GroupCommitRecord", commitPolicy = IndexSettingsDefinition.CommitPolicy.GROUP,
+            commitIntervalMs = 50)
+    public static class GroupRecord extends IndexRecord<GroupRecord> {
+
+        public GroupRecord() {
+        }
+
+        public GroupRecord(final String id) {
+            super(id);
+        }
+    }
+
+    @Index(schema = "TestQueries", name = "IntervalCommitRecord",
+            commitPolicy = IndexSettingsDefinition.CommitPolicy.INTERVAL, commitIntervalMs = 200)
+    public static class IntervalRecord extends IndexRecord<IntervalRecord> {
+
+        public IntervalRecord() {
+        }
+
+        public IntervalRecord(final String id) {
+            super(id);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.annotations.Index;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.search.test.units.IndexRecord;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DocValuesFetchTest extends AbstractIndexTest {
+
+    private final static int SEGMENTS = 4;
+    private final static int DOCS_PER_SEGMENT = 50;
+
+    private static AnnotatedIndexService<FetchRecord> service;
+
+    @BeforeClass
+    public static void setup() throws URISyntaxException, IOException, InterruptedException {
+        initIndexManager();
+        service = initIndexService(FetchRecord.class);
+        int id = 0;
+        for (int s = 0; s < SEGMENTS; s++) {
+            final List<FetchRecord> records = new ArrayList<>(DOCS_PER_SEGMENT);
+            for (int i = 0; i < DOCS_PER_SEGMENT; i++, id++) {
+                final FetchRecord record = new FetchRecord(String.format("%04d", id)).sortedDocValue(
+                        String.format("%04d", id));
+                // Some documents have no doc value
+                if (id % 3 != 0)
+                    record.intDocValue(id + 1);
+                records.add(record);
+            }
+            service.postDocuments(records);
+        }
+    }
+
+    private static void checkValues(final List<ResultDocumentObject<FetchRecord>> documents) {
+        for (final ResultDocumentObject<FetchRecord> document : documents) {
+            final FetchRecord record = document.record;
+            final int id = Integer.parseInt(record.id);
+            Assert.assertEquals(record.id, record.sortedDocValue);
+            Assert.assertEquals(id % 3 == 0 ? 0 : id + 1, (int) record.intDocValue);
+        }
+    }
+
+    @Test
+    public void rankOrderIsRestored() {
+        final List<ResultDocumentObject<FetchRecord>> documents = service.searchQuery(QueryDefinition.of(new MatchAllDocsQuery())
+                .sort("sortedDocValue", QueryDefinition.SortEnum.descending)
+                .returnedField("*")
+                .rows(SEGMENTS * DOCS_PER_SEGMENT)
+                .build()).documents;
+        Assert.assertEquals(SEGMENTS * DOCS_PER_SEGMENT, documents.size());
+        int expectedId = SEGMENTS * DOCS_PER_SEGMENT;
+        for (final ResultDocumentObject<FetchRecord> document : documents)
+            Assert.assertEquals(--expectedId, Integer.parseInt(document.record.id));
+        checkValues(documents);
+    }
+
+    @Test
+    public void pageAcrossSegments() {
+        final List<ResultDocumentObject<FetchRecord>> documents = service.searchQuery(QueryDefinition.of(new MatchAllDocsQuery())
+                .sort("sortedDocValue", QueryDefinition.SortEnum.ascending)
+                .returnedField("*")
+                .start(DOCS_PER_SEGMENT - 10)
+                .rows(DOCS_PER_SEGMENT)
+                .build()).documents;
+        Assert.assertEquals(DOCS_PER_SEGMENT, documents.size());
+        Assert.assertEquals(DOCS_PER_SEGMENT - 10, Integer.parseInt(documents.get(0).record.id));
+        checkValues(documents);
+    }
+
+    @Index(schema = "TestQueries", name = "DocValuesFetchRecord")
+    public static class FetchRecord extends IndexRecord<FetchRecord> {
+
+        public FetchRecord() {
+        }
+
+        public FetchRecord(final String id) {
+            super(id);
+        }
+    }
+}
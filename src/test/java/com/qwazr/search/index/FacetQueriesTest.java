@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.annotations.Index;
+import com.qwazr.search.query.BooleanQuery;
+import com.qwazr.search.query.IntRangeQuery;
+import com.qwazr.search.query.LongExactQuery;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.search.test.units.IndexRecord;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Facet queries counted from the matching docs of the search, compared with one count request per bucket.
+ */
+public class FacetQueriesTest extends AbstractIndexTest {
+
+    private final static int DOCS = 2_000;
+    private final static int BUCKETS = 20;
+    private final static int BUCKET_SIZE = DOCS / BUCKETS;
+
+    private final static String FACET = "sortedSetDocValuesFacetField";
+
+    private static AnnotatedIndexService<BucketRecord> service;
+
+    @BeforeClass
+    public static void setup() throws URISyntaxException, IOException, InterruptedException {
+        initIndexManager();
+        service = initIndexService(BucketRecord.class);
+        final List<BucketRecord> records = new ArrayList<>();
+        for (int i = 0; i < DOCS; i++) {
+            records.add(new BucketRecord(Integer.toString(i)).intPoint(i)
+                    .longPoint((long) (i % 2))
+                    .sortedSetDocValuesFacetField("f" + (i % 10)));
+            // Several segments
+            if (records.size() == 500) {
+                service.postDocuments(records);
+                records.clear();
+            }
+        }
+        if (!records.isEmpty())
+            service.postDocuments(records);
+    }
+
+    private static IntRangeQuery bucketQuery(final int bucket) {
+        return new IntRangeQuery("intPoint", bucket * BUCKET_SIZE, (bucket + 1) * BUCKET_SIZE - 1);
+    }
+
+    private static LongExactQuery searchQuery() {
+        return new LongExactQuery("longPoint", 0);
+    }
+
+    private static Map<String, Number> facetQueries() {
+        final FacetDefinition.Builder facet = FacetDefinition.of();
+        for (int b = 0; b < BUCKETS; b++)
+            facet.query("b" + b, bucketQuery(b));
+        return service.searchQuery(QueryDefinition.of(searchQuery())
+                .rows(0)
+                .cache(false)
+                .facet(FACET, facet.build())
+                .build()).getFacet(FACET);
+    }
+
+    private static long bucketCount(final int bucket) {
+        return service.searchQuery(QueryDefinition.of(BooleanQuery.of()
+                .addClause(BooleanQuery.Occur.filter, searchQuery())
+                .addClause(BooleanQuery.Occur.filter, bucketQuery(bucket))
+                .build()).rows(0).cache(false).build()).totalHits;
+    }
+
+    @Test
+    public void facetQueriesEqualCountRequests() {
+        final Map<String, Number> facet = facetQueries();
+        Assert.assertNotNull(facet);
+        Assert.assertEquals(BUCKETS, facet.size());
+        for (int b = 0; b < BUCKETS; b++) {
+            Assert.assertEquals(BUCKET_SIZE / 2, facet.get("b" + b).intValue());
+            Assert.assertEquals(BUCKET_SIZE / 2, bucketCount(b));
+        }
+    }
+
+    @Index(schema = "TestQueries", name = "FacetQueriesRecord")
+    public static class BucketRecord extends IndexRecord<BucketRecord> {
+
+        public BucketRecord() {
+        }
+
+        public BucketRecord(final String id) {
+            super(id);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.annotations.Index;
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import com.qwazr.search.query.TermQuery;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.search.test.units.IndexRecord;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class FacetsStateTest extends AbstractIndexTest {
+
+    private final static int SEGMENTS = 4;
+    private final static int DOCS_PER_SEGMENT = 50;
+
+    private static AnnotatedIndexService<GlobalRecord> globalService;
+    private static AnnotatedIndexService<SegmentRecord> segmentService;
+    private static Map<String, Integer> expectedCounts;
+
+    @BeforeClass
+    public static void setup() throws URISyntaxException, IOException, InterruptedException {
+        initIndexManager();
+        globalService = initIndexService(GlobalRecord.class);
+        segmentService = initIndexService(SegmentRecord.class);
+        expectedCounts = new HashMap<>();
+        // One commit per batch, so one segment per batch
+        for (int s = 0; s < SEGMENTS; s++) {
+            final List<GlobalRecord> globalRecords = new ArrayList<>();
+            final List<SegmentRecord> segmentRecords = new ArrayList<>();
+            for (int i = 0; i < DOCS_PER_SEGMENT; i++) {
+                final String id = s + "_" + i;
+                final String value = "v" + (i % (s + 3));
+                expectedCounts.merge(value, 1, Integer::sum);
+                globalRecords.add(new GlobalRecord(id).sortedSetDocValuesFacetField(value));
+                segmentRecords.add(new SegmentRecord(id).sortedSetDocValuesFacetField(value));
+            }
+            globalService.postDocuments(globalRecords);
+            segmentService.postDocuments(segmentRecords);
+        }
+    }
+
+    private static void checkCounts(final Map<String, Number> facet) {
+        Assert.assertNotNull(facet);
+        facet.forEach((value, count) -> Assert.assertEquals(expectedCounts.get(value).intValue(), count.intValue()));
+    }
+
+    private static Map<String, Number> facet(final AnnotatedIndexService<?> service, final Integer top) {
+        return service.searchQuery(QueryDefinition.of(new MatchAllDocsQuery())
+                .rows(0)
+                .facet("sortedSetDocValuesFacetField", FacetDefinition.of(top).build())
+                .build()).getFacet("sortedSetDocValuesFacetField");
+    }
+
+    @Test
+    public void lazyAndReusedState() throws IOException, InterruptedException {
+        // No facet query yet: the state is not built by the refreshes
+        Assert.assertEquals(0L, (long) globalService.getIndexStatus().facetsState.buildCount);
+
+        final Map<String, Number> facet = facet(globalService, 10);
+        Assert.assertEquals(expectedCounts.size(), facet.size());
+        checkCounts(facet);
+        facet(globalService, 10);
+        IndexStatus.FacetsStateStats stats = globalService.getIndexStatus().facetsState;
+        Assert.assertEquals(IndexSettingsDefinition.SortedSetFacetCounting.GLOBAL_ORDINALS, stats.counting);
+        Assert.assertEquals(1L, (long) stats.buildCount);
+        Assert.assertEquals(0L, (long) stats.reuseCount);
+
+        // A deletion keeps the segments, the ordinals are reused
+        globalService.deleteByQuery(QueryDefinition.of(new TermQuery(FieldDefinition.ID_FIELD, "0_0")).build());
+        Assert.assertEquals(facet.get("v0").intValue() - 1, facet(globalService, 10).get("v0").intValue());
+        stats = globalService.getIndexStatus().facetsState;
+        Assert.assertEquals(1L, (long) stats.buildCount);
+        Assert.assertEquals(1L, (long) stats.reuseCount);
+    }
+
+    @Test
+    public void perSegmentCounting() {
+        final Map<String, Number> facet = facet(segmentService, 10);
+        Assert.assertEquals(expectedCounts.size(), facet.size());
+        checkCounts(facet);
+        // The top values are the most frequent
+        final Map<String, Number> top = facet(segmentService, 2);
+        Assert.assertEquals(2, top.size());
+        checkCounts(top);
+        final int minTop = top.values().stream().mapToInt(Number::intValue).min().getAsInt();
+        expectedCounts.forEach((value, count) -> Assert.assertTrue(top.containsKey(value) || count <= minTop));
+        final IndexStatus.FacetsStateStats stats = segmentService.getIndexStatus().facetsState;
+        Assert.assertEquals(IndexSettingsDefinition.SortedSetFacetCounting.PER_SEGMENT, stats.counting);
+        Assert.assertEquals(0L, (long) stats.buildCount);
+    }
+
+    @Test
+    public void otherDocValuesType() throws IOException {
+        try (final Directory directory = new ByteBuffersDirectory()) {
+            try (final IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+                final Document document = new Document();
+                document.add(new NumericDocValuesField("numeric", 1L));
+                writer.addDocument(document);
+            }
+            try (final DirectoryReader reader = DirectoryReader.open(directory)) {
+                final SortedSetFacetsState.Loader loader = new SortedSetFacetsState.Loader("numeric", null);
+                Assert.assertNull(loader.load(reader));
+                Assert.assertEquals(0L, (long) loader.getStats().buildCount);
+            }
+        }
+    }
+
+    @Index(schema = "TestQueries", name = "FacetsStateGlobal")
+    public static class GlobalRecord extends IndexRecord<GlobalRecord> {
+
+        public GlobalRecord() {
+        }
+
+        public GlobalRecord(final String id) {
+            super(id);
+        }
+    }
+
+    @Index(schema = "TestQueries", name = "FacetsStateSegment",
+            sortedSetFacetCounting = IndexSettingsDefinition.SortedSetFacetCounting.PER_SEGMENT)
+    public static class SegmentRecord extends IndexRecord<SegmentRecord> {
+
+        public SegmentRecord() {
+        }
+
+        public SegmentRecord(final String id) {
+            super(id);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.annotations.Index;
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.query.SimpleQueryParser;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.search.test.units.IndexRecord;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class FetchPhaseTest extends AbstractIndexTest {
+
+    private final static int SEGMENTS = 4;
+    private final static int DOCS_PER_SEGMENT = 30;
+    private final static int ROWS = FetchPhase.MIN_PARALLEL_DOCS * 3;
+
+    private static AnnotatedIndexService<FetchRecord> service;
+
+    @BeforeClass
+    public static void setup() throws URISyntaxException, IOException, InterruptedException {
+        initIndexManager();
+        service = initIndexService(FetchRecord.class);
+        // One commit per batch, so one segment per batch
+        for (int s = 0; s < SEGMENTS; s++) {
+            final List<FetchRecord> records = new ArrayList<>();
+            for (int i = 0; i < DOCS_PER_SEGMENT; i++) {
+                // Several term frequencies give distinct scores, interleaved across the segments
+                final StringBuilder sb = new StringBuilder("document ").append(s).append(' ').append(i);
+                for (int j = 0; j <= (i + s) % 7; j++)
+                    sb.append(" fetch phase");
+                sb.append(". Another sentence without the terms.");
+                final String text = sb.toString();
+                records.add(new FetchRecord(s + "_" + i).textField(text).storedField(text));
+            }
+            service.postDocuments(records);
+        }
+    }
+
+    private static QueryDefinition query() {
+        return QueryDefinition.of(SimpleQueryParser.of().addField("textField").setQueryString("fetch phase").build())
+                .rows(ROWS)
+                .returnedField(FieldDefinition.ID_FIELD)
+                .highlighter("textField", HighlighterDefinition.of()
+                        .setStoredField("storedField")
+                        .setMaxPassages(2)
+                        .setBreak(HighlighterDefinition.BreakIteratorDefinition.Type.sentence, "en")
+                        .build())
+                .cache(false)
+                .build();
+    }
+
+    @Test
+    public void parallelEqualsSequential() {
+        Assert.assertTrue(service.getIndexStatus().segmentCount > 1);
+
+        // The map results are loaded by leaf partitions on the executor
+        final ResultDefinition.WithMap parallel = service.searchQueryWithMap(query());
+        Assert.assertEquals(ROWS, parallel.documents.size());
+        Assert.assertTrue(parallel.documents.size() >= FetchPhase.MIN_PARALLEL_DOCS);
+
+        // The documents provided by the caller are loaded by the calling thread
+        final SequentialDocuments sequential = new SequentialDocuments(ROWS);
+        service.searchQuery(query(), sequential);
+
+        float lastScore = Float.MAX_VALUE;
+        for (int pos = 0; pos < ROWS; pos++) {
+            final ResultDocumentMap document = parallel.documents.get(pos);
+            // Rank order
+            Assert.assertEquals(pos, document.pos);
+            Assert.assertTrue(document.score <= lastScore);
+            lastScore = document.score;
+            Assert.assertEquals(sequential.docs[pos], document.doc);
+            Assert.assertEquals(sequential.scores[pos], document.score, 0F);
+            Assert.assertNotNull(document.fields.get(FieldDefinition.ID_FIELD));
+            // Highlighting
+            final String snippet = document.getHighlights().get("textField");
+            Assert.assertNotNull(snippet);
+            Assert.assertTrue(snippet.contains("<b>fetch</b>"));
+            Assert.assertEquals(sequential.snippets[pos], snippet);
+        }
+
+        Assert.assertNotNull(parallel.fetchTimes);
+        Assert.assertTrue(parallel.fetchTimes.containsKey("documents"));
+        Assert.assertTrue(parallel.fetchTimes.containsKey("highlighting:textField"));
+    }
+
+    /**
+     * Each document takes 2 ms to load, the deadline is reached while the documents are loaded
+     */
+    private static void checkRankPrefixOnTimeout(final boolean concurrent) throws IOException, InterruptedException {
+        final int hits = 200;
+        final ExecutorService executorService = Executors.newFixedThreadPool(SEGMENTS);
+        try (final Directory directory = new ByteBuffersDirectory()) {
+            try (final IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+                for (int s = 0; s < SEGMENTS; s++) {
+                    for (int i = 0; i < hits / SEGMENTS; i++) {
+                        final Document document = new Document();
+                        document.add(new StringField("id", s + "_" + i, Field.Store.YES));
+                        writer.addDocument(document);
+                    }
+                    writer.commit();
+                }
+            }
+            try (final DirectoryReader reader = DirectoryReader.open(directory)) {
+                Assert.assertEquals(SEGMENTS, reader.leaves().size());
+                // The rank order is not the doc id order
+                final List<Integer> docs = new ArrayList<>();
+                for (int doc = 0; doc < hits; doc++)
+                    docs.add(doc);
+                Collections.shuffle(docs, new Random(0));
+                final ScoreDoc[] scoreDocs = new ScoreDoc[hits];
+                for (int pos = 0; pos < hits; pos++)
+                    scoreDocs[pos] = new ScoreDoc(docs.get(pos), hits - pos);
+
+                final boolean[] visited = new boolean[hits];
+                final List<Integer> visitOrder = Collections.synchronizedList(new ArrayList<>());
+                final FetchPhase fetchPhase = new FetchPhase(executorService, QueryDeadline.of(30L));
+                final int loadedCount = fetchPhase.documents(new IndexSearcher(reader), scoreDocs,
+                        new ResultDocumentsInterface() {
+                            @Override
+                            public void doc(final IndexSearcher searcher, final int pos, final ScoreDoc scoreDoc) {
+                                try {
+                                    Thread.sleep(2);
+                                } catch (InterruptedException e) {
+                                    throw new RuntimeException(e);
+                                }
+                                visited[pos] = true;
+                                visitOrder.add(pos);
+                            }
+                        }, concurrent);
+
+                Assert.assertTrue(loadedCount < hits);
+                // The page is the best hits
+                for (int pos = 0; pos < loadedCount; pos++)
+                    Assert.assertTrue(visited[pos]);
+                Assert.assertFalse(visited[loadedCount]);
+                if (!concurrent) {
+                    // The documents are not discarded: they are visited in rank order
+                    Assert.assertEquals(loadedCount, visitOrder.size());
+                    for (int pos = 0; pos < loadedCount; pos++)
+                        Assert.assertEquals(pos, (int) visitOrder.get(pos));
+                }
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void concurrentTimeoutKeepsRankPrefix() throws IOException, InterruptedException {
+        checkRankPrefixOnTimeout(true);
+    }
+
+    @Test
+    public void sequentialTimeoutKeepsRankPrefix() throws IOException, InterruptedException {
+        checkRankPrefixOnTimeout(false);
+    }
+
+    private static class SequentialDocuments implements ResultDocumentsInterface {
+
+        private final int[] docs;
+        private final float[] scores;
+        private final String[] snippets;
+
+        private SequentialDocuments(final int rows) {
+            docs = new int[rows];
+            scores = new float[rows];
+            snippets = new String[rows];
+        }
+
+        @Override
+        public void doc(final IndexSearcher searcher, final int pos, final ScoreDoc scoreDoc) {
+            docs[pos] = scoreDoc.doc;
+            scores[pos] = scoreDoc.score;
+        }
+
+        @Override
+        public void highlight(final int pos, final String name, final String snippet) {
+            if ("textField".equals(name))
+                snippets[pos] = snippet;
+        }
+    }
+
+    @Index(schema = "TestQueries", name = "FetchPhaseRecord")
+    public static class FetchRecord extends IndexRecord<FetchRecord> {
+
+        public FetchRecord() {
+        }
+
+        public FetchRecord(final String id) {
+            super(id);
+        }
+    }
+}
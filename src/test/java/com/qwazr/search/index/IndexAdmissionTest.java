@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.server.ServerException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.ws.rs.core.Response;
+import java.io.InterruptedIOException;
+import java.util.Map;
+
+public class IndexAdmissionTest {
+
+    private static IndexAdmission newAdmission(final AdmissionDefinition searchAdmission) {
+        return new IndexAdmission("test", IndexSettingsDefinition.of().searchAdmission(searchAdmission).build());
+    }
+
+    private static void checkRejected(final IndexAdmission admission, final Response.Status expectedStatus)
+            throws InterruptedIOException {
+        try {
+            admission.acquire(IndexAdmission.Lane.SEARCH).close();
+            Assert.fail("ServerException not thrown");
+        } catch (ServerException e) {
+            Assert.assertEquals(expectedStatus.getStatusCode(), e.getStatusCode());
+        }
+    }
+
+    @Test
+    public void unlimited() throws InterruptedIOException {
+        final IndexAdmission admission = new IndexAdmission("test", null);
+        try (final IndexAdmission.Permit permit1 = admission.acquire(IndexAdmission.Lane.SEARCH);
+             final IndexAdmission.Permit permit2 = admission.acquire(IndexAdmission.Lane.SEARCH)) {
+            Assert.assertEquals(2, admission.getStatus().get("search").active.intValue());
+        }
+        Assert.assertEquals(0, admission.getStatus().get("search").active.intValue());
+    }
+
+    @Test
+    public void queueFull() throws InterruptedIOException {
+        final IndexAdmission admission = newAdmission(AdmissionDefinition.of(1).maxQueue(0).build());
+        try (final IndexAdmission.Permit permit = admission.acquire(IndexAdmission.Lane.SEARCH)) {
+            checkRejected(admission, Response.Status.TOO_MANY_REQUESTS);
+            // The other lanes are not affected
+            admission.acquire(IndexAdmission.Lane.WRITE).close();
+        }
+        admission.acquire(IndexAdmission.Lane.SEARCH).close();
+        final IndexStatus.AdmissionStatus status = admission.getStatus().get("search");
+        Assert.assertEquals(1, status.rejectedCount.longValue());
+        Assert.assertEquals(2, status.admittedCount.longValue());
+    }
+
+    @Test
+    public void waitTimeout() throws InterruptedIOException {
+        final IndexAdmission admission = newAdmission(AdmissionDefinition.of(1).maxQueue(10).maxWaitMs(50).build());
+        try (final IndexAdmission.Permit permit = admission.acquire(IndexAdmission.Lane.SEARCH)) {
+            checkRejected(admission, Response.Status.SERVICE_UNAVAILABLE);
+        }
+        final Map<String, IndexStatus.AdmissionStatus> status = admission.getStatus();
+        Assert.assertEquals(1, status.get("search").timeoutCount.longValue());
+        Assert.assertEquals(0, status.get("search").queued.intValue());
+        Assert.assertTrue(status.get("search").longestWaitMs >= 50);
+        Assert.assertEquals(0, status.get("write").waitCount.longValue());
+    }
+
+    @Test
+    public void waitForSlot() throws InterruptedException, InterruptedIOException {
+        final IndexAdmission admission = newAdmission(AdmissionDefinition.of(1).maxQueue(1).maxWaitMs(10_000).build());
+        final IndexAdmission.Permit permit = admission.acquire(IndexAdmission.Lane.SEARCH);
+        final Thread waiter = new Thread(() -> {
+            try {
+                admission.acquire(IndexAdmission.Lane.SEARCH).close();
+            } catch (InterruptedIOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        waiter.start();
+        while (admission.getStatus().get("search").queued == 0)
+            Thread.sleep(10);
+        permit.close();
+        waiter.join(10_000);
+        final IndexStatus.AdmissionStatus status = admission.getStatus().get("search");
+        Assert.assertEquals(2, status.admittedCount.longValue());
+        Assert.assertEquals(1, status.waitCount.longValue());
+        Assert.assertEquals(0, status.timeoutCount.longValue());
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.annotations.Index;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.search.test.units.IndexRecord;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Concurrent lookups of an opened index, as done by each search request.
+ */
+public class IndexLookupTest extends AbstractIndexTest {
+
+    private final static int THREADS = 8;
+    private final static int LOOKUPS_PER_THREAD = 10_000;
+
+    private static SchemaInstance schema;
+
+    @BeforeClass
+    public static void setup() throws URISyntaxException {
+        initIndexManager();
+        initIndexService(LookupRecord.class);
+        initIndexService(ReopenRecord.class);
+        schema = indexManager.get("TestQueries");
+    }
+
+    @Test
+    public void concurrentLookups() throws InterruptedException, ExecutionException {
+        final IndexInstance expected = schema.get("IndexLookupRecord", false);
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    int same = 0;
+                    for (int i = 0; i < LOOKUPS_PER_THREAD; i++)
+                        if (schema.get("IndexLookupRecord", false) == expected)
+                            same++;
+                    return same;
+                }));
+            }
+            for (Future<Integer> future : futures)
+                Assert.assertEquals(LOOKUPS_PER_THREAD, future.get().intValue());
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    @Test
+    public void lookupsDuringReopen() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        try {
+            final List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    int lookups = 0;
+                    while (running.get()) {
+                        // The index is never seen as missing, a lookup during the reopen waits for the new instance
+                        Assert.assertNotNull(schema.get("IndexLookupReopenRecord", false));
+                        lookups++;
+                    }
+                    return lookups;
+                }));
+            }
+            IndexInstance previous = schema.get("IndexLookupReopenRecord", false);
+            for (int i = 0; i < 10; i++) {
+                final IndexInstance reopened = schema.createUpdate("IndexLookupReopenRecord",
+                        IndexSettingsDefinition.of().ramBufferSize(i % 2 == 0 ? 24d : 48d).build());
+                Assert.assertNotSame(previous, reopened);
+                // Once the update is done, the lookups return the new instance
+                Assert.assertSame(reopened, schema.get("IndexLookupReopenRecord", false));
+                previous = reopened;
+            }
+            running.set(false);
+            for (Future<Integer> future : futures)
+                Assert.assertTrue(future.get() > 0);
+        } finally {
+            running.set(false);
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    @Index(schema = "TestQueries", name = "IndexLookupReopenRecord")
+    public static class ReopenRecord extends IndexRecord<ReopenRecord> {
+
+        public ReopenRecord() {
+        }
+    }
+
+    @Index(schema = "TestQueries", name = "IndexLookupRecord")
+    public static class LookupRecord extends IndexRecord<LookupRecord> {
+
+        public LookupRecord() {
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.field.FieldTypeInterface;
+import com.qwazr.search.field.SmartFieldDefinition;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Build the documents of a 200-field schema, as done by the posters, with the reused builders.
+ */
+public class IndexingFieldsTest {
+
+    private final static int FIELDS = 200;
+    private final static int DOCS = 1_000;
+    private final static SmartFieldDefinition.Type[] TYPES = SmartFieldDefinition.Type.values();
+
+    private static FieldMap fieldMap;
+    private static List<Map<String, Object>> documents;
+
+    @BeforeClass
+    public static void setup() {
+        final LinkedHashMap<String, FieldDefinition> fields = new LinkedHashMap<>();
+        for (int i = 0; i < FIELDS; i++)
+            fields.put("field" + i, SmartFieldDefinition.of()
+                    .type(TYPES[i % TYPES.length])
+                    .stored(true)
+                    .index(true)
+                    .sort(true)
+                    .build());
+        fields.put("dynamic_*", SmartFieldDefinition.of().type(SmartFieldDefinition.Type.LONG).index(true).build());
+        fieldMap = new FieldMap(fields, null);
+        documents = new ArrayList<>();
+        for (int d = 0; d < 100; d++) {
+            final Map<String, Object> document = new LinkedHashMap<>();
+            for (int i = 0; i < FIELDS; i++)
+                document.put("field" + i, TYPES[i % TYPES.length] == SmartFieldDefinition.Type.TEXT ?
+                        "value" + d :
+                        d * i);
+            document.put("dynamic_" + (d % 10), d);
+            documents.add(document);
+        }
+    }
+
+    @Test
+    public void fieldNames() {
+        final FieldTypeInterface longType = fieldMap.getFieldType(null, "dynamic_1");
+        // The names of the existing indexes must not change
+        Assert.assertEquals(Integer.toString('s' + 'l') + "dynamic_1", longType.getQueryFieldName("dynamic_1"));
+        // The names are computed once
+        Assert.assertSame(longType, fieldMap.getFieldType(null, "dynamic_1"));
+        Assert.assertSame(longType.getQueryFieldName("dynamic_1"), longType.getQueryFieldName("dynamic_1"));
+        final FieldTypeInterface textType = fieldMap.getFieldType(null, "field0");
+        Assert.assertEquals("st€field0", textType.getQueryFieldName("field0"));
+        Assert.assertSame(textType.getQueryFieldName("field0"), textType.getQueryFieldName("field0"));
+    }
+
+    private static int build(final RecordBuilder.ForMap recordBuilder, final FieldConsumer.ForDocument documentBuilder,
+                             final int count) {
+        int fields = 0;
+        for (int i = 0; i < count; i++) {
+            recordBuilder.reset();
+            documents.get(i % documents.size()).forEach(recordBuilder);
+            fields += documentBuilder.document.getFields().size();
+            documentBuilder.reset();
+        }
+        return fields;
+    }
+
+    @Test
+    public void reusedBuilders() {
+        final FieldConsumer.ForDocument documentBuilder = new FieldConsumer.ForDocument();
+        final RecordBuilder.ForMap recordBuilder = new RecordBuilder.ForMap(fieldMap, documentBuilder);
+        // Stored, indexed and sorted: three Lucene fields per value, plus the dynamic field
+        Assert.assertEquals(DOCS * (FIELDS * 3 + 1), build(recordBuilder, documentBuilder, DOCS));
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.annotations.Index;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.search.test.units.IndexRecord;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+public class NrtReopenTest extends AbstractIndexTest {
+
+    private final static int DOCS = 50;
+
+    private static AnnotatedIndexService<NrtRecord> service;
+
+    @BeforeClass
+    public static void setup() throws URISyntaxException {
+        initIndexManager();
+        service = initIndexService(NrtRecord.class);
+    }
+
+    private static long count(final Long waitForGeneration) {
+        return service.searchQuery(
+                QueryDefinition.of(new MatchAllDocsQuery()).waitForGeneration(waitForGeneration).rows(0).build())
+                .totalHits;
+    }
+
+    @Test
+    public void searchableWithoutCommit() throws IOException, InterruptedException {
+        for (int i = 0; i < DOCS; i++)
+            service.postDocument(new NrtRecord(Integer.toString(i)));
+        // The background thread reopens the searcher
+        final long endTime = System.currentTimeMillis() + 5_000;
+        while (count(null) < DOCS && System.currentTimeMillis() < endTime)
+            Thread.sleep(20);
+        Assert.assertEquals(DOCS, count(0L));
+        // The commit interval is far away, the documents are not durable yet
+        Assert.assertTrue(service.getIndexStatus().hasUncommittedChanges);
+    }
+
+    @Test
+    public void unknownGeneration() {
+        try {
+            count(Long.MAX_VALUE);
+            Assert.fail("Exception not thrown");
+        } catch (WebApplicationException e) {
+            Assert.assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), e.getResponse().getStatus());
+        }
+    }
+
+    @Index(schema = "TestQueries", name = "NrtReopenRecord", commitPolicy = IndexSettingsDefinition.CommitPolicy.INTERVAL,
+            commitIntervalMs = 60_000, nrtTargetMaxStaleMs = 100)
+    public static class NrtRecord extends IndexRecord<NrtRecord> {
+
+        public NrtRecord() {
+        }
+
+        public NrtRecord(final String id) {
+            super(id);
+        }
+    }
+}
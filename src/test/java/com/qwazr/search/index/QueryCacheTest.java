@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.annotations.Index;
+import com.qwazr.search.query.BooleanQuery;
+import com.qwazr.search.query.IntRangeQuery;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.search.test.units.IndexRecord;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class QueryCacheTest extends AbstractIndexTest {
+
+    // The LRU query cache skips the segments smaller than 10000 documents
+    private final static int DOCS = 12_000;
+
+    @BeforeClass
+    public static void setup() {
+        initIndexManager();
+    }
+
+    private static <T extends IndexRecord<T>> void post(final AnnotatedIndexService<T> service,
+            final RecordFactory<T> factory) throws IOException, InterruptedException {
+        final List<T> records = new ArrayList<>(DOCS);
+        for (int i = 0; i < DOCS; i++)
+            records.add(factory.create(Integer.toString(i)).intPoint(i));
+        service.postDocuments(records);
+    }
+
+    private static <T> long search(final AnnotatedIndexService<T> service) {
+        return service.searchQuery(QueryDefinition.of(BooleanQuery.of()
+                .must(new MatchAllDocsQuery())
+                .filter(new IntRangeQuery("intPoint", 100, 199))
+                .build()).rows(0).build()).totalHits;
+    }
+
+    @Test
+    public void indexPoolWithFiltersPolicy() throws URISyntaxException, IOException, InterruptedException {
+        final AnnotatedIndexService<FiltersRecord> service = initIndexService(FiltersRecord.class);
+        post(service, FiltersRecord::new);
+        // A dedicated pool starts empty
+        Assert.assertEquals(0L, (long) service.getIndexStatus().queryCache.cacheCount);
+        Assert.assertEquals(100, search(service));
+        // The range filter is cached from its first use
+        final IndexStatus.QueryCacheStats stats = service.getIndexStatus().queryCache;
+        Assert.assertTrue(stats.cacheCount > 0);
+        Assert.assertTrue(stats.ramBytesUsed > 0);
+        Assert.assertEquals(100, search(service));
+        Assert.assertTrue(service.getIndexStatus().queryCache.hitCount > 0);
+    }
+
+    @Test
+    public void indexPoolWithUsageTrackingPolicy() throws URISyntaxException, IOException, InterruptedException {
+        final AnnotatedIndexService<UsageRecord> service = initIndexService(UsageRecord.class);
+        post(service, UsageRecord::new);
+        Assert.assertEquals(100, search(service));
+        // A point query is only cached once it has been used twice
+        Assert.assertEquals(0L, (long) service.getIndexStatus().queryCache.cacheCount);
+        Assert.assertEquals(100, search(service));
+        Assert.assertTrue(service.getIndexStatus().queryCache.cacheCount > 0);
+    }
+
+    @Test
+    public void noCache() throws URISyntaxException, IOException, InterruptedException {
+        final AnnotatedIndexService<NoCacheRecord> service = initIndexService(NoCacheRecord.class);
+        post(service, NoCacheRecord::new);
+        Assert.assertEquals(100, search(service));
+        Assert.assertNull(service.getIndexStatus().queryCache);
+    }
+
+    @FunctionalInterface
+    interface RecordFactory<T> {
+        T create(String id);
+    }
+
+    @Index(schema = "TestQueries", name = "QueryCacheFilters",
+            queryCachePool = IndexSettingsDefinition.QueryCachePool.INDEX,
+            queryCachePolicy = IndexSettingsDefinition.QueryCachePolicy.FILTERS)
+    public static class FiltersRecord extends IndexRecord<FiltersRecord> {
+
+        public FiltersRecord() {
+        }
+
+        public FiltersRecord(final String id) {
+            super(id);
+        }
+    }
+
+    @Index(schema = "TestQueries", name = "QueryCacheUsage",
+            queryCachePool = IndexSettingsDefinition.QueryCachePool.INDEX)
+    public static class UsageRecord extends IndexRecord<UsageRecord> {
+
+        public UsageRecord() {
+        }
+
+        public UsageRecord(final String id) {
+            super(id);
+        }
+    }
+
+    @Index(schema = "TestQueries", name = "QueryCacheNone",
+            queryCachePool = IndexSettingsDefinition.QueryCachePool.NONE)
+    public static class NoCacheRecord extends IndexRecord<NoCacheRecord> {
+
+        public NoCacheRecord() {
+        }
+
+        public NoCacheRecord(final String id) {
+            super(id);
+        }
+    }
+}
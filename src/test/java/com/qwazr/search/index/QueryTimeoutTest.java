@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.annotations.Index;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import com.qwazr.search.query.WildcardQuery;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.search.test.units.IndexRecord;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class QueryTimeoutTest extends AbstractIndexTest {
+
+    private final static int DOCS = 1000;
+    private final static int FACET_VALUES = 7;
+
+    private static AnnotatedIndexService<TimeoutRecord> service;
+
+    @BeforeClass
+    public static void setup() throws URISyntaxException, IOException, InterruptedException {
+        initIndexManager();
+        service = initIndexService(TimeoutRecord.class);
+        final List<TimeoutRecord> records = new ArrayList<>(DOCS);
+        for (int i = 0; i < DOCS; i++)
+            records.add(new TimeoutRecord(Integer.toString(i)).textField("term" + i)
+                    .sortedSetDocValuesFacetField("v" + (i % FACET_VALUES)));
+        service.postDocuments(records);
+    }
+
+    @Test
+    public void withinDeadline() {
+        final ResultDefinition.WithObject<TimeoutRecord> result = service.searchQuery(
+                QueryDefinition.of(new WildcardQuery("textField", "term*")).rows(10).timeoutMs(60_000L).build());
+        Assert.assertEquals(DOCS, result.totalHits);
+        Assert.assertEquals(10, result.documents.size());
+        Assert.assertFalse(result.isTimedOut());
+        Assert.assertNull(result.timedOut);
+    }
+
+    @Test
+    public void sortedSetFacetsWithinDeadline() {
+        final QueryBuilder builder = QueryDefinition.of(new MatchAllDocsQuery())
+                .rows(0)
+                .facet("sortedSetDocValuesFacetField", FacetDefinition.of(FACET_VALUES).build());
+        final Map<String, Number> expected =
+                service.searchQuery(builder.build()).getFacet("sortedSetDocValuesFacetField");
+        // The reader bound to the deadline shares the ordinals of the searcher
+        final ResultDefinition.WithObject<TimeoutRecord> result =
+                service.searchQuery(builder.timeoutMs(60_000L).build());
+        Assert.assertFalse(result.isTimedOut());
+        final Map<String, Number> facet = result.getFacet("sortedSetDocValuesFacetField");
+        Assert.assertNotNull(facet);
+        Assert.assertEquals(FACET_VALUES, facet.size());
+        Assert.assertEquals(expected, facet);
+        int total = 0;
+        for (final Number count : facet.values())
+            total += count.intValue();
+        Assert.assertEquals(DOCS, total);
+    }
+
+    @Test
+    public void expiredDeadline() {
+        final ResultDefinition.WithObject<TimeoutRecord> result = service.searchQuery(
+                QueryDefinition.of(new MatchAllDocsQuery()).rows(10).timeoutMs(0L).build());
+        Assert.assertTrue(result.isTimedOut());
+        Assert.assertEquals(0, result.totalHits);
+        Assert.assertTrue(result.documents.isEmpty());
+    }
+
+    @Index(schema = "TestQueries", name = "TimeoutRecord")
+    public static class TimeoutRecord extends IndexRecord<TimeoutRecord> {
+
+        public TimeoutRecord() {
+        }
+
+        public TimeoutRecord(final String id) {
+            super(id);
+        }
+    }
+}
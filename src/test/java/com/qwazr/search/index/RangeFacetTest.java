@@ -0,0 +1,152 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.annotations.Index;
+import com.qwazr.search.query.IntExactQuery;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.search.test.units.IndexRecord;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class RangeFacetTest extends AbstractIndexTest {
+
+    private final static int DOCS = 100;
+
+    private static AnnotatedIndexService<RangeRecord> service;
+
+    @BeforeClass
+    public static void setup() throws URISyntaxException, IOException, InterruptedException {
+        initIndexManager();
+        service = initIndexService(RangeRecord.class);
+        // Two batches, so two segments
+        final List<RangeRecord> records = new ArrayList<>();
+        for (int i = 0; i < DOCS; i++) {
+            records.add(new RangeRecord(Integer.toString(i)).intPoint(i % 2)
+                    .intDocValue(i)
+                    .sortedIntDocValue(i)
+                    .doubleDocValue(i / 2d)
+                    .sortedDoubleDocValue(-i / 4d));
+            if (records.size() == DOCS / 2) {
+                service.postDocuments(records);
+                records.clear();
+            }
+        }
+    }
+
+    private static Map<String, Number> facet(final String field, final FacetDefinition facet) {
+        return service.searchQuery(QueryDefinition.of(new MatchAllDocsQuery()).rows(0).facet(field, facet).build())
+                .getFacet(field);
+    }
+
+    @Test
+    public void intRanges() {
+        final Map<String, Number> facet = facet("intDocValue", FacetDefinition.of()
+                .range("low", null, 10)
+                .range("middle", 10, 50)
+                .range("high", 50, null)
+                .range("all", null, null)
+                .build());
+        Assert.assertArrayEquals(new Object[] { "low", "middle", "high", "all" }, facet.keySet().toArray());
+        Assert.assertEquals(10, facet.get("low").intValue());
+        Assert.assertEquals(40, facet.get("middle").intValue());
+        Assert.assertEquals(50, facet.get("high").intValue());
+        Assert.assertEquals(DOCS, facet.get("all").intValue());
+    }
+
+    @Test
+    public void sortedIntHistogram() {
+        final Map<String, Number> facet =
+                facet("sortedIntDocValue", FacetDefinition.of().histogram(25, 0, 100).build());
+        Assert.assertArrayEquals(new Object[] { "0", "25", "50", "75" }, facet.keySet().toArray());
+        facet.values().forEach(count -> Assert.assertEquals(25, count.intValue()));
+    }
+
+    @Test
+    public void histogramLastBucketStopsAtMax() {
+        // The range is not a multiple of the interval: the last bucket is [60, 80[
+        final Map<String, Number> intFacet =
+                facet("sortedIntDocValue", FacetDefinition.of().histogram(30, 0, 80).build());
+        Assert.assertArrayEquals(new Object[] { "0", "30", "60" }, intFacet.keySet().toArray());
+        Assert.assertEquals(30, intFacet.get("0").intValue());
+        Assert.assertEquals(30, intFacet.get("30").intValue());
+        Assert.assertEquals(20, intFacet.get("60").intValue());
+        // 20.0, 20.5 ... 24.5
+        final Map<String, Number> doubleFacet =
+                facet("doubleDocValue", FacetDefinition.of().histogram(10d, 0d, 25d).build());
+        Assert.assertEquals(20, doubleFacet.get("0.0").intValue());
+        Assert.assertEquals(20, doubleFacet.get("10.0").intValue());
+        Assert.assertEquals(10, doubleFacet.get("20.0").intValue());
+    }
+
+    @Test
+    public void doubleRanges() {
+        final Map<String, Number> facet = facet("doubleDocValue", FacetDefinition.of()
+                .range("lessThan10.5", null, 10.5)
+                .range("from10.5", 10.5, null)
+                .build());
+        // 0, 0.5, ... 10.0
+        Assert.assertEquals(21, facet.get("lessThan10.5").intValue());
+        Assert.assertEquals(DOCS - 21, facet.get("from10.5").intValue());
+    }
+
+    @Test
+    public void sortedDoubleHistogram() {
+        final Map<String, Number> facet = facet("sortedDoubleDocValue", FacetDefinition.of()
+                .histogram(12.5, -25, 0)
+                .range("zero", 0, null)
+                .build());
+        Assert.assertEquals(1, facet.get("zero").intValue());
+        // -24.75 ... -12.75, then -12.5 ... -0.25
+        Assert.assertEquals(49, facet.get("-25.0").intValue());
+        Assert.assertEquals(50, facet.get("-12.5").intValue());
+    }
+
+    @Test
+    public void rangesOfMatchingDocs() {
+        final Map<String, Number> facet = service.searchQuery(QueryDefinition.of(new IntExactQuery("intPoint", 0))
+                .rows(0)
+                .facet("intDocValue", FacetDefinition.of().histogram(50, 0, 100).build())
+                .build()).getFacet("intDocValue");
+        Assert.assertEquals(25, facet.get("0").intValue());
+        Assert.assertEquals(25, facet.get("50").intValue());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void notDocValuesField() {
+        facet("intPoint", FacetDefinition.of().range("all", null, null).build());
+    }
+
+    @Index(schema = "TestQueries", name = "RangeFacetRecord")
+    public static class RangeRecord extends IndexRecord<RangeRecord> {
+
+        public RangeRecord() {
+        }
+
+        public RangeRecord(final String id) {
+            super(id);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.annotations.Index;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import com.qwazr.search.replication.ReplicationSession;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.search.test.units.IndexRecord;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ReplicationFollowTest extends AbstractIndexTest {
+
+    private final static String SCHEMA = "TestQueries";
+    private final static String MASTER = "FollowMaster";
+
+    private static AnnotatedIndexService<MasterRecord> master;
+    private static AnnotatedIndexService<FollowerRecord> follower;
+    private static IndexServiceInterface service;
+
+    @BeforeClass
+    public static void setup() throws URISyntaxException {
+        initIndexManager();
+        master = initIndexService(MasterRecord.class);
+        follower = initIndexService(FollowerRecord.class);
+        service = indexManager.getService();
+    }
+
+    private static long count(final AnnotatedIndexService<?> service) {
+        return service.searchQuery(QueryDefinition.of(new MatchAllDocsQuery()).rows(0).build()).totalHits;
+    }
+
+    @Test
+    public void longPollReturnsOnCommit()
+            throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        final ReplicationSession current = service.replicationUpdate(SCHEMA, MASTER, null);
+        service.replicationRelease(SCHEMA, MASTER, current.sessionUuid);
+
+        // Nothing changes: the request waits until the end of the wait
+        final long startTime = System.currentTimeMillis();
+        final ReplicationSession unchanged = service.replicationUpdate(SCHEMA, MASTER, current.version, 300);
+        service.replicationRelease(SCHEMA, MASTER, unchanged.sessionUuid);
+        Assert.assertEquals(current.version, unchanged.version);
+        Assert.assertTrue(System.currentTimeMillis() - startTime >= 300);
+
+        // A commit wakes up the pending request
+        final CompletableFuture<ReplicationSession> pending =
+                CompletableFuture.supplyAsync(() -> service.replicationUpdate(SCHEMA, MASTER, current.version, 60_000));
+        Thread.sleep(200);
+        master.postDocument(new MasterRecord("long-poll"));
+        final ReplicationSession changed = pending.get(30, TimeUnit.SECONDS);
+        service.replicationRelease(SCHEMA, MASTER, changed.sessionUuid);
+        Assert.assertNotEquals(current.version, changed.version);
+    }
+
+    @Test
+    public void followWaitIsCappedBelowTheTimeout() throws URISyntaxException {
+        Assert.assertEquals(IndexSettingsDefinition.DEFAULT_REPLICATION_FOLLOW_WAIT_MS,
+                IndexInstance.getReplicationFollowWaitMs(IndexSettingsDefinition.of().master(SCHEMA, MASTER).build()));
+        Assert.assertEquals(120_000, IndexInstance.getReplicationFollowWaitMs(
+                IndexSettingsDefinition.of().master(SCHEMA, MASTER).replicationFollowWaitMs(600_000).build()));
+        Assert.assertEquals(7_500, IndexInstance.getReplicationFollowWaitMs(IndexSettingsDefinition.of()
+                .master("http://localhost:9091/indexes/" + SCHEMA + "/" + MASTER + "?timeout=10000")
+                .build()));
+        Assert.assertEquals(5_000, IndexInstance.getReplicationFollowWaitMs(IndexSettingsDefinition.of()
+                .master("http://localhost:9091/indexes/" + SCHEMA + "/" + MASTER + "?timeout=60000")
+                .replicationFollowWaitMs(5_000)
+                .build()));
+    }
+
+    @Test
+    public void closeWaitsForTheReplication() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean completed = new AtomicBoolean();
+        final ReplicationFollower replicationFollower = new ReplicationFollower("close", 0, waitMs -> {
+            started.countDown();
+            // Like a file transfer, the replication does not stop when the thread is interrupted
+            final long endTime = System.currentTimeMillis() + 300;
+            while (System.currentTimeMillis() < endTime)
+                Thread.yield();
+            completed.set(true);
+            return null;
+        });
+        replicationFollower.start();
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        replicationFollower.close();
+        Assert.assertTrue(completed.get());
+    }
+
+    @Test
+    public void followerKeepsUp() throws IOException, InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            master.postDocument(new MasterRecord("follow" + i));
+            final long masterCount = count(master);
+            final long endTime = System.currentTimeMillis() + 10_000;
+            while (count(follower) != masterCount && System.currentTimeMillis() < endTime)
+                Thread.sleep(20);
+            Assert.assertEquals(masterCount, count(follower));
+        }
+        // The follower is up to date, a replication check has nothing to transfer
+        final ReplicationStatus status = follower.replicationCheck();
+        Assert.assertEquals(0, status.bytes);
+    }
+
+    @Index(schema = SCHEMA, name = MASTER)
+    public static class MasterRecord extends IndexRecord<MasterRecord> {
+
+        public MasterRecord() {
+        }
+
+        public MasterRecord(final String id) {
+            super(id);
+        }
+    }
+
+    @Index(schema = SCHEMA, name = "FollowSlave", replicationMaster = SCHEMA + "/" + MASTER, replicationFollow = true,
+            replicationFollowWaitMs = 5_000)
+    public static class FollowerRecord extends IndexRecord<FollowerRecord> {
+
+        public FollowerRecord() {
+        }
+
+        public FollowerRecord(final String id) {
+            super(id);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.annotations.Index;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.search.test.units.IndexRecord;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+public class ReplicationSearchDuringTransferTest extends AbstractIndexTest {
+
+    private final static String SCHEMA = "TestQueries";
+    private final static String MASTER = "HeldTransferMaster";
+
+    private final static int FIRST_DOCS = 10;
+    private final static int SECOND_DOCS = 2_000;
+
+    private static AnnotatedIndexService<MasterRecord> master;
+    private static AnnotatedIndexService<MasterRecord> slave;
+
+    @BeforeClass
+    public static void setup() throws URISyntaxException {
+        initIndexManager();
+        master = initIndexService(MasterRecord.class);
+        // The rate limit holds the transfer for a few seconds
+        slave = new AnnotatedIndexService<>(indexManager.getService(), MasterRecord.class, SCHEMA,
+                "HeldTransferSlave",
+                IndexSettingsDefinition.of().master(SCHEMA, MASTER).replicationMaxMbPerSec(0.5d).build());
+        slave.createUpdateIndex();
+    }
+
+    private static long count(final AnnotatedIndexService<?> service) {
+        return service.searchQuery(QueryDefinition.of(new MatchAllDocsQuery()).rows(0).cache(false).build())
+                .totalHits;
+    }
+
+    private static List<MasterRecord> records(final String prefix, final int count, final Random random) {
+        final List<MasterRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // Random letters are not compressed by the stored fields
+            final StringBuilder sb = new StringBuilder();
+            for (int j = 0; j < 1024; j++)
+                sb.append((char) ('a' + random.nextInt(26)));
+            records.add(new MasterRecord(prefix + i).storedField(sb.toString()));
+        }
+        return records;
+    }
+
+    @Test
+    public void searchesAreServedDuringTheTransfer()
+            throws IOException, InterruptedException, ExecutionException {
+        final Random random = new Random(0);
+        master.postDocuments(records("first", FIRST_DOCS, random));
+        slave.replicationCheck();
+        Assert.assertEquals(FIRST_DOCS, count(slave));
+
+        master.postDocuments(records("second", SECOND_DOCS, random));
+        final long newCount = count(master);
+        Assert.assertEquals(FIRST_DOCS + SECOND_DOCS, newCount);
+
+        final CompletableFuture<ReplicationStatus> transfer = CompletableFuture.supplyAsync(slave::replicationCheck);
+        int servedDuringTransfer = 0;
+        boolean switched = false;
+        while (!transfer.isDone()) {
+            final long slaveCount = count(slave);
+            if (slaveCount == newCount)
+                switched = true;
+            else {
+                // The old files are served until the switch, never after
+                Assert.assertFalse(switched);
+                Assert.assertEquals(FIRST_DOCS, slaveCount);
+                if (!transfer.isDone())
+                    servedDuringTransfer++;
+            }
+            Thread.sleep(50);
+        }
+        final ReplicationStatus status = transfer.get();
+        Assert.assertTrue(status.bytes > 0);
+        Assert.assertTrue(servedDuringTransfer > 0);
+        Assert.assertEquals(newCount, count(slave));
+    }
+
+    @Index(schema = SCHEMA, name = MASTER)
+    public static class MasterRecord extends IndexRecord<MasterRecord> {
+
+        public MasterRecord() {
+        }
+
+        public MasterRecord(final String id) {
+            super(id);
+        }
+    }
+}
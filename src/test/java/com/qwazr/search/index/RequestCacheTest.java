@@ -0,0 +1,113 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.annotations.Index;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.search.test.units.IndexRecord;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+public class RequestCacheTest extends AbstractIndexTest {
+
+    private static AnnotatedIndexService<CachedRecord> service;
+
+    @BeforeClass
+    public static void setup() throws URISyntaxException, IOException, InterruptedException {
+        initIndexManager();
+        service = initIndexService(CachedRecord.class);
+        service.postDocument(new CachedRecord("1"));
+        service.postDocument(new CachedRecord("2"));
+    }
+
+    private static IndexStatus.RequestCacheStats stats() {
+        return service.getIndexStatus().requestCache;
+    }
+
+    @Test
+    public void cacheHitsAndInvalidation() throws IOException, InterruptedException {
+        final QueryDefinition query = QueryDefinition.of(new MatchAllDocsQuery()).rows(10).build();
+
+        final long hits = stats().hitCount;
+        final ResultDefinition.WithMap first = service.searchQueryWithMap(query);
+        Assert.assertEquals(2, first.totalHits);
+        final ResultDefinition.WithMap second = service.searchQueryWithMap(query);
+        Assert.assertEquals(hits + 1, (long) stats().hitCount);
+        assertSameResult(first, second);
+        Assert.assertNotNull(second.timer);
+        Assert.assertNotSame(first.timer, second.timer);
+
+        // The callers can't alter the cached result
+        second.documents.get(0).fields.put("altered", "altered");
+        second.documents.remove(1);
+        final ResultDefinition.WithMap third = service.searchQueryWithMap(query);
+        Assert.assertEquals(hits + 2, (long) stats().hitCount);
+        assertSameResult(first, third);
+        Assert.assertFalse(third.documents.get(0).fields.containsKey("altered"));
+
+        // Another page is another entry
+        final ResultDefinition.WithMap page = service.searchQueryWithMap(
+                QueryDefinition.of(new MatchAllDocsQuery()).start(1).rows(10).build());
+        Assert.assertNotSame(first, page);
+        Assert.assertEquals(1, page.documents.size());
+
+        // The caller can bypass the cache
+        final ResultDefinition.WithMap bypass = service.searchQueryWithMap(
+                QueryDefinition.of(new MatchAllDocsQuery()).rows(10).cache(false).build());
+        Assert.assertEquals(hits + 2, (long) stats().hitCount);
+        assertSameResult(first, bypass);
+
+        // A refresh of the searcher invalidates the cache
+        service.postDocument(new CachedRecord("3"));
+        final ResultDefinition.WithMap refreshed = service.searchQueryWithMap(query);
+        Assert.assertEquals(3, refreshed.totalHits);
+        Assert.assertEquals(hits + 2, (long) stats().hitCount);
+    }
+
+    private static void assertSameResult(final ResultDefinition.WithMap expected,
+                                         final ResultDefinition.WithMap result) {
+        Assert.assertEquals(expected.totalHits, result.totalHits);
+        Assert.assertEquals(expected.totalHitsRelation, result.totalHitsRelation);
+        Assert.assertEquals(expected.facets, result.facets);
+        Assert.assertEquals(expected.documents.size(), result.documents.size());
+        for (int i = 0; i < expected.documents.size(); i++) {
+            final ResultDocumentMap expectedDoc = expected.documents.get(i);
+            final ResultDocumentMap doc = result.documents.get(i);
+            Assert.assertEquals(expectedDoc.doc, doc.doc);
+            Assert.assertEquals(expectedDoc.pos, doc.pos);
+            Assert.assertEquals(expectedDoc.score, doc.score, 0F);
+            Assert.assertEquals(expectedDoc.fields, doc.fields);
+            Assert.assertEquals(expectedDoc.highlights, doc.highlights);
+        }
+    }
+
+    @Index(schema = "TestQueries", name = "CachedRecord")
+    public static class CachedRecord extends IndexRecord<CachedRecord> {
+
+        public CachedRecord() {
+        }
+
+        public CachedRecord(final String id) {
+            super(id);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SchemaBackupTest {
+
+    private final static Path BACKUP_DIRECTORY = Paths.get("backup");
+
+    private static ExecutorService executorService;
+
+    @BeforeClass
+    public static void setup() {
+        executorService = Executors.newCachedThreadPool();
+    }
+
+    @AfterClass
+    public static void cleanup() throws InterruptedException {
+        executorService.shutdown();
+        Assert.assertTrue(executorService.awaitTermination(1, TimeUnit.MINUTES));
+    }
+
+    private static BackupStatus status() {
+        return new BackupStatus(1L, null, 0L, null, 0L, 1, 0L, 0L, 0L);
+    }
+
+    private static SchemaBackup schemaBackup(final Map<String, SchemaBackup.IndexBackup> indexes,
+                                             final int concurrency) {
+        return new SchemaBackup("schema", BACKUP_DIRECTORY, indexes,
+                SchemaSettingsDefinition.of().backupConcurrency(concurrency).build());
+    }
+
+    @Test
+    public void indexesOverlap() throws Exception {
+        final int concurrency = 3;
+        // Each index waits for two others: the backups only complete if three indexes run at the same time
+        final CyclicBarrier barrier = new CyclicBarrier(concurrency);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final Map<String, SchemaBackup.IndexBackup> indexes = new LinkedHashMap<>();
+        for (int i = 0; i < concurrency * 2; i++)
+            indexes.put("index" + i, (path, rateLimiter) -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    barrier.await(30, TimeUnit.SECONDS);
+                    return status();
+                } catch (Exception e) {
+                    throw new IOException(e);
+                } finally {
+                    running.decrementAndGet();
+                }
+            });
+        final SortedMap<String, BackupStatus> results = schemaBackup(indexes, concurrency).backup(executorService);
+        Assert.assertEquals(indexes.keySet(), results.keySet());
+        Assert.assertEquals(concurrency, maxRunning.get());
+    }
+
+    @Test
+    public void slowIndexDoesNotBlockTheOthers() throws Exception {
+        final int fastCount = 4;
+        final CountDownLatch fastDone = new CountDownLatch(fastCount);
+        final CountDownLatch releaseSlow = new CountDownLatch(1);
+        final Map<String, SchemaBackup.IndexBackup> indexes = new LinkedHashMap<>();
+        indexes.put("slow", (path, rateLimiter) -> {
+            try {
+                Assert.assertTrue(releaseSlow.await(30, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return status();
+        });
+        for (int i = 0; i < fastCount; i++)
+            indexes.put("fast" + i, (path, rateLimiter) -> {
+                fastDone.countDown();
+                return status();
+            });
+        final CompletableFuture<SortedMap<String, BackupStatus>> backup = CompletableFuture.supplyAsync(() -> {
+            try {
+                return schemaBackup(indexes, 2).backup(executorService);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        // The fast indexes are backed up while the slow one is still running
+        Assert.assertTrue(fastDone.await(30, TimeUnit.SECONDS));
+        Assert.assertFalse(backup.isDone());
+        releaseSlow.countDown();
+        Assert.assertEquals(indexes.keySet(), backup.get(30, TimeUnit.SECONDS).keySet());
+    }
+
+    @Test
+    public void failuresAreAggregated() {
+        final AtomicInteger succeeded = new AtomicInteger();
+        final Map<String, SchemaBackup.IndexBackup> indexes = new LinkedHashMap<>();
+        for (final String name : Arrays.asList("ok1", "failure1", "ok2", "failure2", "ok3")) {
+            indexes.put(name, (path, rateLimiter) -> {
+                Assert.assertEquals(BACKUP_DIRECTORY.resolve(name), path);
+                if (name.startsWith("failure"))
+                    throw new IOException(name);
+                succeeded.incrementAndGet();
+                return status();
+            });
+        }
+        try {
+            schemaBackup(indexes, 2).backup(executorService);
+            Assert.fail("The backup should have failed");
+        } catch (IOException e) {
+            // Every index has been backed up despite the failures
+            Assert.assertEquals(3, succeeded.get());
+            Assert.assertEquals(1, e.getSuppressed().length);
+            final Set<String> messages = new HashSet<>();
+            messages.add(e.getMessage());
+            messages.add(e.getSuppressed()[0].getMessage());
+            Assert.assertEquals(new HashSet<>(Arrays.asList("failure1", "failure2")), messages);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.annotations.Index;
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.search.test.units.IndexRecord;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ws.rs.WebApplicationException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class ScrollExportTest extends AbstractIndexTest {
+
+    private final static String INDEX = "ScrollRecord";
+    private final static int DOCS = 250;
+
+    private static AnnotatedIndexService<ScrollRecord> service;
+    private static IndexServiceInterface indexService;
+
+    @BeforeClass
+    public static void setup() throws URISyntaxException {
+        initIndexManager();
+        service = initIndexService(ScrollRecord.class);
+        indexService = indexManager.getService();
+    }
+
+    @Before
+    public void index() throws IOException, InterruptedException {
+        service.deleteAll();
+        final List<ScrollRecord> records = new ArrayList<>();
+        for (int i = 0; i < DOCS; i++)
+            records.add(new ScrollRecord(Integer.toString(i)));
+        service.postDocuments(records);
+    }
+
+    private static QueryDefinition query(final int rows) {
+        return QueryDefinition.of(new MatchAllDocsQuery()).returnedField(FieldDefinition.ID_FIELD).rows(rows).build();
+    }
+
+    private static void collectIds(final List<Map<String, Object>> documents, final Set<Object> ids) {
+        for (final Map<String, Object> document : documents)
+            Assert.assertTrue(ids.add(document.get(FieldDefinition.ID_FIELD)));
+    }
+
+    @Test
+    public void scrollPointInTime() throws IOException, InterruptedException {
+        final Set<Object> ids = new HashSet<>();
+        ScrollResult result = indexService.openScroll("TestQueries", INDEX, null, query(100));
+        Assert.assertNotNull(result.scrollId);
+        Assert.assertFalse(result.done);
+        collectIds(result.documents, ids);
+        // The session keeps its view of the index
+        service.deleteAll();
+        while (!result.done) {
+            result = indexService.nextScroll("TestQueries", INDEX, result.scrollId, null);
+            if (result.documents != null)
+                collectIds(result.documents, ids);
+        }
+        Assert.assertNull(result.scrollId);
+        Assert.assertEquals(DOCS, ids.size());
+    }
+
+    @Test
+    public void closeScroll() {
+        final ScrollResult result = indexService.openScroll("TestQueries", INDEX, null, query(10));
+        Assert.assertTrue(indexService.closeScroll("TestQueries", INDEX, result.scrollId));
+        Assert.assertFalse(indexService.closeScroll("TestQueries", INDEX, result.scrollId));
+        try {
+            indexService.nextScroll("TestQueries", INDEX, result.scrollId, null);
+            Assert.fail("WebApplicationException not thrown");
+        } catch (WebApplicationException e) {
+            Assert.assertEquals(404, e.getResponse().getStatus());
+        }
+    }
+
+    @Test
+    public void idleTimeout() throws InterruptedException {
+        final ScrollResult result = indexService.openScroll("TestQueries", INDEX, 100, query(10));
+        // The idle sessions are purged every second
+        Thread.sleep(2500);
+        try {
+            indexService.nextScroll("TestQueries", INDEX, result.scrollId, null);
+            Assert.fail("The idle session has not been released");
+        } catch (WebApplicationException e) {
+            Assert.assertEquals(404, e.getResponse().getStatus());
+        }
+    }
+
+    @Test
+    public void exportNdjson() throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        indexService.exportDocuments("TestQueries", INDEX, IndexServiceInterface.MEDIATYPE_NDJSON, query(10))
+                .write(output);
+        final String[] lines = new String(output.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        Assert.assertEquals(DOCS, lines.length);
+        final Set<String> distinctLines = new HashSet<>();
+        for (final String line : lines)
+            Assert.assertTrue(line, line.startsWith("{") && distinctLines.add(line));
+    }
+
+    @Index(schema = "TestQueries", name = INDEX)
+    public static class ScrollRecord extends IndexRecord<ScrollRecord> {
+
+        public ScrollRecord() {
+        }
+
+        public ScrollRecord(final String id) {
+            super(id);
+        }
+    }
+}
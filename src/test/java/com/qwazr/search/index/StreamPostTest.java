@@ -0,0 +1,146 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.jaxrs.smile.SmileMediaTypes;
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.annotations.Index;
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.search.test.units.IndexRecord;
+import com.qwazr.utils.ObjectMappers;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class StreamPostTest extends AbstractIndexTest {
+
+    private final static String INDEX = "StreamPostRecord";
+    private final static int DOCS = 95;
+
+    private static AnnotatedIndexService<StreamRecord> service;
+
+    @BeforeClass
+    public static void setup() throws URISyntaxException {
+        initIndexManager();
+        service = initIndexService(StreamRecord.class);
+    }
+
+    private static Map<String, Object> getDocument(final int i) {
+        final Map<String, Object> document = new LinkedHashMap<>();
+        document.put(FieldDefinition.ID_FIELD, Integer.toString(i));
+        document.put("textField", "streamed " + i);
+        return document;
+    }
+
+    private static List<StreamProgress> stream(final String contentType, final byte[] payload) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        indexManager.getService()
+                .postStreamedDocuments("TestQueries", INDEX, true, contentType, new ByteArrayInputStream(payload))
+                .write(output);
+        try (final MappingIterator<StreamProgress> iterator = ObjectMappers.JSON.readerFor(StreamProgress.class)
+                .readValues(output.toByteArray())) {
+            return iterator.readAll();
+        }
+    }
+
+    private static long count() {
+        return service.searchQuery(QueryDefinition.of(new MatchAllDocsQuery()).rows(0).build()).totalHits;
+    }
+
+    @Test
+    public void ndjsonWithErrors() throws IOException {
+        service.deleteAll();
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < DOCS; i++) {
+            if (i == 10)
+                sb.append("{\"textField\": \"no id\"}\n");
+            else if (i == 20)
+                sb.append("[\"not\", \"an\", \"object\"]\n");
+            else
+                sb.append(ObjectMappers.JSON.writeValueAsString(getDocument(i))).append('\n');
+        }
+        final List<StreamProgress> progress =
+                stream(IndexServiceInterface.MEDIATYPE_NDJSON, sb.toString().getBytes(StandardCharsets.UTF_8));
+        // One progress line per chunk, plus the final line
+        Assert.assertEquals(11, progress.size());
+        final StreamProgress last = progress.get(progress.size() - 1);
+        Assert.assertTrue(last.done);
+        Assert.assertNull(last.error);
+        Assert.assertEquals(DOCS, last.documents.longValue());
+        Assert.assertEquals(DOCS - 2, last.indexed.longValue());
+        Assert.assertEquals(2, last.failed.longValue());
+        // The errors are reported with their line numbers
+        final List<StreamProgress.LineError> errors = progress.get(1).errors;
+        Assert.assertNotNull(errors);
+        Assert.assertEquals(2, errors.size());
+        Assert.assertEquals(new HashSet<>(Arrays.asList(11L, 21L)),
+                errors.stream().map(error -> error.line).collect(Collectors.toSet()));
+        Assert.assertEquals(DOCS - 2, count());
+    }
+
+    @Test
+    public void malformedStream() throws IOException {
+        service.deleteAll();
+        final String payload = ObjectMappers.JSON.writeValueAsString(getDocument(1)) + "\n{\"$id$\": \n";
+        final List<StreamProgress> progress =
+                stream(IndexServiceInterface.MEDIATYPE_NDJSON, payload.getBytes(StandardCharsets.UTF_8));
+        final StreamProgress last = progress.get(progress.size() - 1);
+        Assert.assertTrue(last.done);
+        Assert.assertEquals(1, last.indexed.longValue());
+        Assert.assertEquals(1, last.failed.longValue());
+        Assert.assertEquals(1, count());
+    }
+
+    @Test
+    public void smile() throws IOException {
+        service.deleteAll();
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try (final JsonGenerator generator = ObjectMappers.SMILE.getFactory()
+                .createGenerator(payload)) {
+            for (int i = 0; i < DOCS; i++)
+                ObjectMappers.SMILE.writeValue(generator, getDocument(i));
+        }
+        final List<StreamProgress> progress =
+                stream(SmileMediaTypes.APPLICATION_JACKSON_SMILE, payload.toByteArray());
+        final StreamProgress last = progress.get(progress.size() - 1);
+        Assert.assertTrue(last.done);
+        Assert.assertEquals(DOCS, last.indexed.longValue());
+        Assert.assertEquals(DOCS, count());
+    }
+
+    @Index(schema = "TestQueries", name = INDEX, bulkChunkSize = 10)
+    public static class StreamRecord extends IndexRecord<StreamRecord> {
+
+        public StreamRecord() {
+        }
+    }
+}
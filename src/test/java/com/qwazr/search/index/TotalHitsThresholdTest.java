@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.annotations.Index;
+import com.qwazr.search.query.MatchAllDocsQuery;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.search.test.units.IndexRecord;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TotalHitsThresholdTest extends AbstractIndexTest {
+
+    private final static int DOCS = 5000;
+
+    private static AnnotatedIndexService<ThresholdRecord> service;
+
+    @BeforeClass
+    public static void setup() throws URISyntaxException, IOException, InterruptedException {
+        initIndexManager();
+        service = initIndexService(ThresholdRecord.class);
+        final List<ThresholdRecord> records = new ArrayList<>(DOCS);
+        for (int i = 0; i < DOCS; i++)
+            records.add(new ThresholdRecord(Integer.toString(i)));
+        service.postDocuments(records);
+    }
+
+    @Test
+    public void exactByDefault() {
+        final ResultDefinition.WithObject<ThresholdRecord> result =
+                service.searchQuery(QueryDefinition.of(new MatchAllDocsQuery()).rows(10).build());
+        Assert.assertEquals(DOCS, result.totalHits);
+        Assert.assertEquals(ResultDefinition.TotalHitsRelation.EQUAL_TO, result.totalHitsRelation);
+    }
+
+    @Test
+    public void lowerBound() {
+        final ResultDefinition.WithObject<ThresholdRecord> result = service.searchQuery(
+                QueryDefinition.of(new MatchAllDocsQuery()).rows(10).totalHitsThreshold(100).build());
+        Assert.assertEquals(10, result.documents.size());
+        Assert.assertEquals(ResultDefinition.TotalHitsRelation.GREATER_THAN_OR_EQUAL_TO, result.totalHitsRelation);
+        Assert.assertTrue(result.totalHits >= 100);
+        Assert.assertTrue(result.totalHits < DOCS);
+    }
+
+    @Index(schema = "TestQueries", name = "ThresholdRecord")
+    public static class ThresholdRecord extends IndexRecord<ThresholdRecord> {
+
+        public ThresholdRecord() {
+        }
+
+        public ThresholdRecord(final String id) {
+            super(id);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.field.FieldTypeInterface;
+import com.qwazr.search.field.SmartFieldDefinition;
+import com.qwazr.utils.LoggerUtils;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.logging.Logger;
+
+public class WildcardFieldTypesTest {
+
+    private final static Logger LOGGER = LoggerUtils.getLogger(WildcardFieldTypesTest.class);
+
+    private final static int PATTERNS = 300;
+    private final static int LOOKUPS = 1_000_000;
+
+    private static LinkedHashMap<String, FieldDefinition> fields;
+    private static FieldMap fieldMap;
+
+    @BeforeClass
+    public static void setup() {
+        fields = new LinkedHashMap<>();
+        for (int i = 0; i < PATTERNS; i++)
+            fields.put("dyn" + i + "_*", SmartFieldDefinition.of().type(SmartFieldDefinition.Type.TEXT).build());
+        // Overlapping patterns: the first declared one wins
+        fields.put("*_long", SmartFieldDefinition.of().type(SmartFieldDefinition.Type.LONG).build());
+        fields.put("dyn1_?_long", SmartFieldDefinition.of().type(SmartFieldDefinition.Type.LONG).build());
+        fields.put("*", SmartFieldDefinition.of().type(SmartFieldDefinition.Type.INTEGER).build());
+        fields.put("static", SmartFieldDefinition.of().type(SmartFieldDefinition.Type.DOUBLE).build());
+        fieldMap = new FieldMap(fields, null);
+    }
+
+    private static FieldDefinition definition(final String fieldName) {
+        return fieldMap.getFieldType(null, fieldName).getDefinition();
+    }
+
+    @Test
+    public void firstDeclaredPatternWins() {
+        Assert.assertSame(fields.get("dyn0_*"), definition("dyn0_text"));
+        Assert.assertSame(fields.get("dyn299_*"), definition("dyn299_text"));
+        Assert.assertSame(fields.get("dyn1_*"), definition("dyn1_a_long"));
+        Assert.assertSame(fields.get("*_long"), definition("other_long"));
+        Assert.assertSame(fields.get("*"), definition("dyn300_text"));
+        Assert.assertSame(fields.get("*"), definition("other"));
+        Assert.assertSame(fields.get("static"), definition("static"));
+        // Twice, the second one is memoized
+        Assert.assertSame(fields.get("dyn10_*"), definition("dyn10_text"));
+        Assert.assertSame(fields.get("dyn10_*"), definition("dyn10_text"));
+    }
+
+    @Test
+    public void leadingWildcards() {
+        final LinkedHashMap<String, FieldDefinition> suffixes = new LinkedHashMap<>();
+        for (int i = 0; i < PATTERNS; i++)
+            suffixes.put("*_s" + i, SmartFieldDefinition.of().type(SmartFieldDefinition.Type.TEXT).build());
+        suffixes.put("a_*", SmartFieldDefinition.of().type(SmartFieldDefinition.Type.LONG).build());
+        suffixes.put("?_x", SmartFieldDefinition.of().type(SmartFieldDefinition.Type.LONG).build());
+        suffixes.put("*b*", SmartFieldDefinition.of().type(SmartFieldDefinition.Type.INTEGER).build());
+        final FieldMap suffixMap = new FieldMap(suffixes, null);
+        Assert.assertSame(suffixes.get("*_s0"), suffixMap.getFieldType(null, "field_s0").getDefinition());
+        Assert.assertSame(suffixes.get("*_s299"), suffixMap.getFieldType(null, "field_s299").getDefinition());
+        // The suffix pattern is declared before the prefix pattern
+        Assert.assertSame(suffixes.get("*_s1"), suffixMap.getFieldType(null, "a_s1").getDefinition());
+        Assert.assertSame(suffixes.get("a_*"), suffixMap.getFieldType(null, "a_x").getDefinition());
+        Assert.assertSame(suffixes.get("?_x"), suffixMap.getFieldType(null, "c_x").getDefinition());
+        Assert.assertSame(suffixes.get("*b*"), suffixMap.getFieldType(null, "cbc").getDefinition());
+    }
+
+    @Test
+    public void evictedResolutions() {
+        // More distinct field names than cached resolutions
+        for (int loop = 0; loop < 2; loop++)
+            for (int i = 0; i < 10_000; i++)
+                Assert.assertSame(fields.get("dyn" + (i % PATTERNS) + "_*"),
+                        definition("dyn" + (i % PATTERNS) + "_evicted" + i));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void notFound() {
+        final LinkedHashMap<String, FieldDefinition> noCatchAll = new LinkedHashMap<>();
+        noCatchAll.put("dyn_*", SmartFieldDefinition.of().build());
+        new FieldMap(noCatchAll, null).getFieldType(null, "other");
+    }
+
+    @Test
+    public void lookups() {
+        final String[] fieldNames = new String[1000];
+        for (int i = 0; i < fieldNames.length; i++)
+            fieldNames[i] = "dyn" + (i % PATTERNS) + "_field" + i;
+        final long startTime = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            final FieldTypeInterface fieldType = fieldMap.getFieldType(null, fieldNames[i % fieldNames.length]);
+            Assert.assertNotNull(fieldType);
+        }
+        final long duration = System.nanoTime() - startTime;
+        LOGGER.info(() -> "Wildcard lookups: " + LOOKUPS + " - " + PATTERNS + " patterns - " +
+                ((double) duration / 1_000_000) + " ms");
+    }
+}
@@ -78,7 +78,16 @@ public class ReplicationContentParanoidTest extends ReplicationTestBase<Annotate
                         IndexSettingsDefinition.of().master(SCHEMA, MASTER).indexReaderWarmer(false).build()),
 
                 new AnnotatedIndexService<>(service, AnnotatedRecord.class, SCHEMA, "replication-slave2",
-                        IndexSettingsDefinition.of().master(SCHEMA, MASTER).indexReaderWarmer(true).build()));
+                        IndexSettingsDefinition.of().master(SCHEMA, MASTER).indexReaderWarmer(true).build()),
+
+                // Small chunks transferred in parallel
+                new AnnotatedIndexService<>(service, AnnotatedRecord.class, SCHEMA, "replication-slave3",
+                        IndexSettingsDefinition.of()
+                                .master(SCHEMA, MASTER)
+                                .indexReaderWarmer(false)
+                                .replicationConcurrency(8)
+                                .replicationChunkSizeMb(1)
+                                .build()));
     }
 
     private Map<String, String> getCommitData(UUID version) {
@@ -118,13 +127,19 @@ public class ReplicationContentParanoidTest extends ReplicationTestBase<Annotate
 
         final AnnotatedIndexService<AnnotatedRecord> slave1 = slaves.get(0);
         final AnnotatedIndexService<AnnotatedRecord> slave2 = slaves.get(1);
+        final AnnotatedIndexService<AnnotatedRecord> slave3 = slaves.get(2);
 
         Assert.assertNotNull(slave1);
         Assert.assertNotNull(slave2);
+        Assert.assertNotNull(slave3);
 
         Assert.assertEquals(true, master.getIndexStatus().settings.mergedSegmentWarmer);
         Assert.assertEquals(false, slave1.getIndexStatus().settings.indexReaderWarmer);
         Assert.assertEquals(true, slave2.getIndexStatus().settings.indexReaderWarmer);
+        Assert.assertNull(slave1.getIndexStatus().settings.replicationConcurrency);
+        Assert.assertNull(slave2.getIndexStatus().settings.replicationChunkSizeMb);
+        Assert.assertEquals(8, slave3.getIndexStatus().settings.replicationConcurrency, 0);
+        Assert.assertEquals(1, slave3.getIndexStatus().settings.replicationChunkSizeMb, 0);
 
         int masterTotalQueryTimeWins = 0;
         int slave1TotalQueryTimeWins = 0;
@@ -145,6 +160,7 @@ public class ReplicationContentParanoidTest extends ReplicationTestBase<Annotate
                     i == 0 ? ReplicationStatus.Strategy.full : ReplicationStatus.Strategy.incremental;
             checkReplicationStatus(slave1.replicationCheck(), expectedStrategy, null);
             checkReplicationStatus(slave2.replicationCheck(), expectedStrategy, null);
+            checkReplicationStatus(slave3.replicationCheck(), expectedStrategy, null);
             checkSlaveStatusEqualsMasterStatus();
 
             // Compare content
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.replication;
+
+import com.qwazr.utils.FileUtils;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ReplicationTransferTest {
+
+    private final static long CHUNK_SIZE = 64 * 1024;
+
+    private static Path masterPath;
+    private static SourceView masterView;
+
+    @BeforeClass
+    public static void setup() throws IOException {
+        masterPath = Files.createTempDirectory("repl_transfer_master");
+        final Random random = new Random(0);
+        try (final Directory directory = FSDirectory.open(masterPath)) {
+            final IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer()).setUseCompoundFile(false);
+            try (final IndexWriter writer = new IndexWriter(directory, config)) {
+                for (int i = 0; i < 2000; i++) {
+                    final Document doc = new Document();
+                    doc.add(new StringField("id", Integer.toString(i), Field.Store.YES));
+                    final byte[] bytes = new byte[512];
+                    random.nextBytes(bytes);
+                    doc.add(new StoredField("payload", bytes));
+                    writer.addDocument(doc);
+                }
+                writer.commit();
+            }
+            masterView = new SourceView(masterPath, SegmentInfos.readLatestCommit(directory).files(true), true);
+        }
+    }
+
+    @AfterClass
+    public static void cleanup() throws IOException {
+        if (masterPath != null)
+            FileUtils.deleteDirectory(masterPath);
+    }
+
+    private static InputStream obtain(final String fileName, final long offset, final Long length)
+            throws IOException {
+        final InputStream input = Files.newInputStream(masterPath.resolve(fileName));
+        long toSkip = offset;
+        while (toSkip > 0)
+            toSkip -= input.skip(toSkip);
+        if (length == null)
+            return input;
+        return new FilterInputStream(input) {
+
+            private long remaining = length;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0)
+                    return -1;
+                remaining--;
+                return super.read();
+            }
+
+            @Override
+            public int read(final byte[] b, final int off, final int len) throws IOException {
+                if (remaining <= 0)
+                    return -1;
+                final int read = super.read(b, off, (int) Math.min(len, remaining));
+                if (read > 0)
+                    remaining -= read;
+                return read;
+            }
+        };
+    }
+
+    /**
+     * Breaks the connection after a few bytes, the first time each chunk is requested
+     */
+    private static InputStream obtainBroken(final Map<String, Boolean> brokenOnce, final String fileName,
+            final long offset, final Long length) throws IOException {
+        final InputStream input = obtain(fileName, offset, length);
+        // A resumed request targets the same chunk, it is not broken again
+        if (brokenOnce.putIfAbsent(fileName + '@' + (offset / CHUNK_SIZE), Boolean.TRUE) != null)
+            return input;
+        return new FilterInputStream(input) {
+
+            private int count;
+
+            @Override
+            public int read(final byte[] b, final int off, final int len) throws IOException {
+                if (count > 1000)
+                    throw new IOException("Connection reset");
+                final int read = super.read(b, off, Math.min(len, 500));
+                count += Math.max(read, 0);
+                return read;
+            }
+        };
+    }
+
+    @Test
+    public void footerChecksum() throws IOException {
+        try (final Directory directory = FSDirectory.open(masterPath)) {
+            for (final Map.Entry<String, ReplicationSession.Item> entry : masterView.getItems().entrySet()) {
+                try (final IndexInput input = directory.openInput(entry.getKey(), IOContext.READONCE)) {
+                    Assert.assertEquals(Long.valueOf(CodecUtil.retrieveChecksum(input)), entry.getValue().checksum);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void resumedChunksAreVerified() throws IOException {
+        final Path workPath = Files.createTempDirectory("repl_transfer_slave");
+        try {
+            final Map<String, Boolean> brokenOnce = new ConcurrentHashMap<>();
+            final AtomicLong transferred = new AtomicLong();
+            final Map<ReplicationProcess.Source, Long> completed = new ConcurrentHashMap<>();
+            final ReplicationTransfer transfer =
+                    new ReplicationTransfer((source, file, offset, length) -> obtainBroken(brokenOnce, file, offset,
+                            length), 4, CHUNK_SIZE, 3, new ReplicationTransfer.Listener() {
+                        @Override
+                        public void transferred(final ReplicationProcess.Source source, final long bytes) {
+                            transferred.addAndGet(bytes);
+                        }
+
+                        @Override
+                        public void completed(final ReplicationProcess.Source source, final int files,
+                                final long bytes, final long timeMs) {
+                            completed.put(source, bytes);
+                        }
+                    });
+
+            transfer.obtain(ReplicationProcess.Source.data, workPath, masterView.getItems());
+
+            long totalSize = 0;
+            boolean chunked = false;
+            for (final Map.Entry<String, ReplicationSession.Item> entry : masterView.getItems().entrySet()) {
+                final Path copy = workPath.resolve(entry.getKey());
+                Assert.assertArrayEquals(Files.readAllBytes(masterPath.resolve(entry.getKey())),
+                        Files.readAllBytes(copy));
+                Assert.assertEquals(entry.getValue().version.longValue(),
+                        Files.getLastModifiedTime(copy).toMillis());
+                totalSize += entry.getValue().size;
+                chunked |= entry.getValue().size > CHUNK_SIZE;
+            }
+            Assert.assertTrue("The index should contain a chunked file", chunked);
+            Assert.assertEquals(totalSize, transferred.get());
+            Assert.assertEquals(Long.valueOf(totalSize), completed.get(ReplicationProcess.Source.data));
+        } finally {
+            FileUtils.deleteDirectory(workPath);
+        }
+    }
+
+    @Test(expected = CorruptIndexException.class)
+    public void corruptedFileIsRejected() throws IOException {
+        final Path workPath = Files.createTempDirectory("repl_transfer_slave");
+        try {
+            final ReplicationTransfer transfer = new ReplicationTransfer((source, file, offset, length) -> {
+                final InputStream input = obtain(file, offset, length);
+                if (offset != 0)
+                    return input;
+                // Flip the first byte of every file
+                return new FilterInputStream(input) {
+
+                    private boolean first = true;
+
+                    @Override
+                    public int read(final byte[] b, final int off, final int len) throws IOException {
+                        final int read = super.read(b, off, len);
+                        if (first && read > 0) {
+                            b[off] ^= 0xFF;
+                            first = false;
+                        }
+                        return read;
+                    }
+                };
+            }, 2, CHUNK_SIZE, 1, null);
+            transfer.obtain(ReplicationProcess.Source.data, workPath, masterView.getItems());
+        } finally {
+            FileUtils.deleteDirectory(workPath);
+        }
+    }
+
+    @Test
+    public void localFilesAreLinked() throws IOException {
+        final Path workPath = Files.createTempDirectory("repl_transfer_slave");
+        try {
+            final AtomicLong transferred = new AtomicLong();
+            final AtomicLong linked = new AtomicLong();
+            final ReplicationTransfer transfer = new ReplicationTransfer((source, file, offset, length) -> {
+                throw new IOException("Nothing should be downloaded: " + file);
+            }, 4, CHUNK_SIZE, 1, null, (source, fileName) -> List.of(workPath.resolve("missing"),
+                    masterPath.resolve(fileName)), new ReplicationTransfer.Listener() {
+                @Override
+                public void transferred(final ReplicationProcess.Source source, final long bytes) {
+                    transferred.addAndGet(bytes);
+                }
+
+                @Override
+                public void completed(final ReplicationProcess.Source source, final int files, final long bytes,
+                        final long timeMs) {
+                    Assert.assertEquals(0, files);
+                }
+
+                @Override
+                public void linked(final ReplicationProcess.Source source, final int files, final long bytes) {
+                    linked.addAndGet(bytes);
+                }
+            });
+
+            transfer.obtain(ReplicationProcess.Source.data, workPath, masterView.getItems());
+
+            long totalSize = 0;
+            for (final Map.Entry<String, ReplicationSession.Item> entry : masterView.getItems().entrySet()) {
+                Assert.assertTrue(
+                        Files.isSameFile(masterPath.resolve(entry.getKey()), workPath.resolve(entry.getKey())));
+                totalSize += entry.getValue().size;
+            }
+            Assert.assertEquals(0, transferred.get());
+            Assert.assertEquals(totalSize, linked.get());
+        } finally {
+            FileUtils.deleteDirectory(workPath);
+        }
+    }
+
+    @Test
+    public void corruptedLocalFileIsDownloaded() throws IOException {
+        final Path localPath = Files.createTempDirectory("repl_transfer_local");
+        final Path workPath = Files.createTempDirectory("repl_transfer_slave");
+        try {
+            // A local copy of the index, the largest file is corrupted but keeps a valid footer
+            String corruptedFile = null;
+            long corruptedSize = 0;
+            long totalSize = 0;
+            for (final Map.Entry<String, ReplicationSession.Item> entry : masterView.getItems().entrySet()) {
+                Files.copy(masterPath.resolve(entry.getKey()), localPath.resolve(entry.getKey()));
+                totalSize += entry.getValue().size;
+                if (entry.getValue().size > corruptedSize) {
+                    corruptedFile = entry.getKey();
+                    corruptedSize = entry.getValue().size;
+                }
+            }
+            final byte[] bytes = Files.readAllBytes(localPath.resolve(corruptedFile));
+            bytes[bytes.length / 2] ^= 0xFF;
+            Files.write(localPath.resolve(corruptedFile), bytes);
+
+            final AtomicLong transferred = new AtomicLong();
+            final AtomicLong linked = new AtomicLong();
+            final String downloadedFile = corruptedFile;
+            final ReplicationTransfer transfer = new ReplicationTransfer((source, file, offset, length) -> {
+                Assert.assertEquals(downloadedFile, file);
+                return obtain(file, offset, length);
+            }, 4, CHUNK_SIZE, 1, null, (source, fileName) -> List.of(localPath.resolve(fileName)),
+                    new ReplicationTransfer.Listener() {
+                        @Override
+                        public void transferred(final ReplicationProcess.Source source, final long bytes) {
+                            transferred.addAndGet(bytes);
+                        }
+
+                        @Override
+                        public void completed(final ReplicationProcess.Source source, final int files,
+                                final long bytes, final long timeMs) {
+                            Assert.assertEquals(1, files);
+                        }
+
+                        @Override
+                        public void linked(final ReplicationProcess.Source source, final int files,
+                                final long bytes) {
+                            linked.addAndGet(bytes);
+                        }
+                    });
+
+            transfer.obtain(ReplicationProcess.Source.data, workPath, masterView.getItems());
+
+            Assert.assertFalse(Files.isSameFile(localPath.resolve(corruptedFile), workPath.resolve(corruptedFile)));
+            Assert.assertArrayEquals(Files.readAllBytes(masterPath.resolve(corruptedFile)),
+                    Files.readAllBytes(workPath.resolve(corruptedFile)));
+            Assert.assertEquals(corruptedSize, transferred.get());
+            Assert.assertEquals(totalSize - corruptedSize, linked.get());
+        } finally {
+            FileUtils.deleteDirectory(workPath);
+            FileUtils.deleteDirectory(localPath);
+        }
+    }
+}
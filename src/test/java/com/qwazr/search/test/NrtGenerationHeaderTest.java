@@ -0,0 +1,107 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.test;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.annotations.Index;
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.index.IndexServiceInterface;
+import com.qwazr.search.index.IndexSettingsDefinition;
+import com.qwazr.search.index.QueryDefinition;
+import com.qwazr.search.query.TermQuery;
+import com.qwazr.search.test.units.IndexRecord;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-your-writes through the HTTP API: the generation returned by a write is passed back to the search.
+ */
+public class NrtGenerationHeaderTest {
+
+	private final static String SCHEMA = "NrtHeaderSchema";
+	private final static String INDEX = "NrtHeaderIndex";
+
+	@BeforeClass
+	public static void setup() throws Exception {
+		TestServer.startServer();
+		final AnnotatedIndexService<NrtRecord> service =
+				new AnnotatedIndexService<>(TestServer.service, NrtRecord.class);
+		service.createUpdateSchema();
+		service.createUpdateIndex();
+		service.createUpdateFields();
+	}
+
+	/**
+	 * Post one document with a plain HTTP request
+	 *
+	 * @return the value of the NRT generation header
+	 */
+	private static long postDocument(final String id) throws IOException {
+		final URL url = new URL(TestServer.BASE_URL + "/indexes/" + SCHEMA + '/' + INDEX + "/doc");
+		final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		try {
+			connection.setRequestMethod("POST");
+			connection.setDoOutput(true);
+			connection.setRequestProperty("Content-Type", "application/json");
+			try (final OutputStream output = connection.getOutputStream()) {
+				output.write(("{\"document\":{\"" + FieldDefinition.ID_FIELD + "\":\"" + id + "\"}}").getBytes(
+						StandardCharsets.UTF_8));
+			}
+			Assert.assertEquals(200, connection.getResponseCode());
+			final String generation = connection.getHeaderField(IndexServiceInterface.HEADER_NRT_GENERATION);
+			Assert.assertNotNull(generation);
+			return Long.parseLong(generation);
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	@Test
+	public void readYourWrites() throws IOException {
+		for (int i = 0; i < 10; i++) {
+			final String id = "doc" + i;
+			final long generation = postDocument(id);
+			// No polling: the search waits for the generation returned by the write
+			final QueryDefinition query = QueryDefinition.of(new TermQuery(FieldDefinition.ID_FIELD, id))
+					.waitForGeneration(generation)
+					.rows(0)
+					.build();
+			Assert.assertEquals(1, TestServer.remote.searchQuery(SCHEMA, INDEX, query, false).totalHits);
+		}
+	}
+
+	/**
+	 * The searcher is only reopened every minute, unless a search waits for a generation
+	 */
+	@Index(schema = SCHEMA, name = INDEX, commitPolicy = IndexSettingsDefinition.CommitPolicy.INTERVAL,
+			commitIntervalMs = 60_000, nrtTargetMaxStaleMs = 60_000)
+	public static class NrtRecord extends IndexRecord<NrtRecord> {
+
+		public NrtRecord() {
+		}
+
+		public NrtRecord(final String id) {
+			super(id);
+		}
+	}
+}
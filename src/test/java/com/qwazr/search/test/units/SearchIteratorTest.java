@@ -17,6 +17,7 @@ package com.qwazr.search.test.units;
 
 import com.qwazr.search.field.FieldDefinition;
 import com.qwazr.search.index.QueryDefinition;
+import com.qwazr.search.index.ResultDefinition;
 import com.qwazr.search.query.IntExactQuery;
 import com.qwazr.search.query.MatchAllDocsQuery;
 import com.qwazr.search.query.TermQuery;
@@ -45,7 +46,8 @@ public class SearchIteratorTest extends AbstractIndexTest.WithIndexRecord.NoTaxo
 		documents = new ArrayList<>();
 		subset = new ArrayList<>();
 		for (int i = 0; i < RandomUtils.nextInt(300, 500); i++)
-			documents.add(new IndexRecord.NoTaxonomy(Integer.toString(i)).intPoint(RandomUtils.nextInt(0, 2)));
+			documents.add(new IndexRecord.NoTaxonomy(Integer.toString(i)).intPoint(RandomUtils.nextInt(0, 2))
+					.sortedDocValue(Integer.toString(i % 7)));
 		indexService.postDocuments(documents);
 	}
 
@@ -100,6 +102,39 @@ public class SearchIteratorTest extends AbstractIndexTest.WithIndexRecord.NoTaxo
 		checkIterate(iterator, ids);
 	}
 
+	@Test
+	public void iterateSorted() throws ReflectiveOperationException {
+		final Iterator<? extends IndexRecord> iterator = indexService.searchIterator(
+				QueryDefinition.of(new MatchAllDocsQuery())
+						.sort("sortedDocValue", QueryDefinition.SortEnum.descending)
+						.returnedField("*")
+						.rows(10)
+						.build(), IndexRecord.NoTaxonomy.class);
+		final Set<String> ids = new HashSet<>();
+		documents.forEach(r -> ids.add(r.id));
+		checkIterate(iterator, ids);
+	}
+
+	@Test
+	public void searchAfterPages() {
+		final QueryDefinition firstPage = QueryDefinition.of(new MatchAllDocsQuery())
+				.sort("sortedDocValue", QueryDefinition.SortEnum.ascending)
+				.returnedField(FieldDefinition.ID_FIELD)
+				.rows(50)
+				.build();
+		final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> page1 = indexService.searchQuery(firstPage);
+		final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> page12 =
+				indexService.searchQuery(QueryDefinition.of(firstPage).rows(100).build());
+		Assert.assertNotNull(page1.nextSearchAfter);
+		// The second page starts after the last hit of the first one, and the total hits are still counted
+		final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> page2 = indexService.searchQuery(
+				QueryDefinition.of(firstPage).searchAfter(page1.nextSearchAfter).start(1000).build());
+		Assert.assertEquals(documents.size(), page2.totalHits);
+		Assert.assertEquals(50, page2.documents.size());
+		for (int i = 0; i < 50; i++)
+			Assert.assertEquals(page12.documents.get(i + 50).record.id, page2.documents.get(i).record.id);
+	}
+
 	@Test
 	public void iterateNone() throws ReflectiveOperationException {
 